@@ -0,0 +1,81 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) <2012> <Bruno P. Kinoshita>
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.biouno.structure.benchmarks;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+import org.apache.commons.io.IOUtils;
+
+/**
+ * Inputs for the benchmarks, built from the sample parameter files shipped 
+ * with Structure.
+ * 
+ * @author Bruno P. Kinoshita - http://www.kinoshita.eti.br
+ * @since 0.1
+ */
+final class Inputs {
+
+	private Inputs() {
+	}
+
+	/**
+	 * @param name resource name, e.g. mainparams
+	 * @return the resource content
+	 * @throws IOException if the resource cannot be read
+	 */
+	static String load(String name) throws IOException {
+		final InputStream is = Inputs.class.getClassLoader().getResourceAsStream(name);
+		if (is == null) {
+			throw new IOException("Missing resource " + name);
+		}
+		try {
+			return IOUtils.toString(is, "UTF-8");
+		} finally {
+			IOUtils.closeQuietly(is);
+		}
+	}
+
+	/**
+	 * Creates a larger input by appending copies of every #define line, with 
+	 * the names changed so that they are not replaced by the parser.
+	 * 
+	 * @param text parameters text
+	 * @param copies number of copies, 1 returns the text unchanged
+	 * @return the enlarged text
+	 */
+	static String enlarge(String text, int copies) {
+		final StringBuilder sb = new StringBuilder(text);
+		final String[] lines = text.split("\n");
+		for (int copy = 1; copy < copies; ++copy) {
+			for (String line : lines) {
+				if (line.trim().startsWith("#define")) {
+					sb.append(line.replaceFirst("define(\\s+)(\\w+)", "define$1$2_" + copy)).append('\n');
+				}
+			}
+		}
+		return sb.toString();
+	}
+
+}
@@ -0,0 +1,97 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) <2012> <Bruno P. Kinoshita>
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.biouno.structure.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.biouno.structure.parser.MainParamsParser;
+import org.biouno.structure.parser.MainParamsTemplate;
+import org.biouno.structure.parser.MainParamsValues;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Cost of producing a single parameter file, with the sample mainparams and 
+ * extraparams shipped with Structure, and with very large versions of them.
+ * 
+ * @author Bruno P. Kinoshita - http://www.kinoshita.eti.br
+ * @since 0.1
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MainParamsBenchmark {
+
+	@Param({ "mainparams", "extraparams" })
+	public String input;
+
+	/**
+	 * Number of copies of each #define line. 1 is the sample file as is.
+	 */
+	@Param({ "1", "1000" })
+	public int copies;
+
+	private String text;
+	private MainParamsParser parser;
+	private MainParamsTemplate template;
+	private MainParamsValues values;
+	private StringBuilder buffer;
+
+	@Setup
+	public void setUp() throws Exception {
+		text = Inputs.enlarge(Inputs.load(input), copies);
+		parser = new MainParamsParser(100, 200, 10000L, 20000L, "project_data", "Results");
+		template = MainParamsTemplate.compile(text);
+		values = parser.createValues(5);
+		buffer = new StringBuilder();
+	}
+
+	@Benchmark
+	public String parse() throws Exception {
+		return parser.parse(text, 5);
+	}
+
+	@Benchmark
+	public MainParamsTemplate compile() throws Exception {
+		return MainParamsTemplate.compile(text);
+	}
+
+	@Benchmark
+	public int render() {
+		return template.render(buffer, values).length();
+	}
+
+}
@@ -0,0 +1,137 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) <2012> <Bruno P. Kinoshita>
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.biouno.structure.benchmarks;
+
+import java.io.ByteArrayInputStream;
+import java.util.Locale;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.biouno.structure.results.EvannoAggregator;
+import org.biouno.structure.results.OutputFileParser;
+import org.biouno.structure.results.RunSummary;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Cost of reading the estimates and the Q-matrix of a Structure output file, 
+ * for a growing number of individuals, and of adding them to the per-K 
+ * statistics of a sweep.
+ * 
+ * @author Bruno P. Kinoshita - http://www.kinoshita.eti.br
+ * @since 0.1
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class OutputParserBenchmark {
+
+	private static final int K = 5;
+	private static final int LOCI = 200;
+
+	@Param({ "100", "1000", "10000" })
+	private int individuals;
+
+	private byte[] output;
+	private RunSummary summary;
+
+	@Setup
+	public void setUp() throws Exception {
+		output = createOutput(individuals).getBytes("UTF-8");
+		summary = new OutputFileParser().parse(new ByteArrayInputStream(output));
+	}
+
+	@Benchmark
+	public RunSummary parse() throws Exception {
+		return new OutputFileParser().parse(new ByteArrayInputStream(output));
+	}
+
+	@Benchmark
+	public void aggregateSweep(Blackhole blackhole) {
+		final EvannoAggregator aggregator = new EvannoAggregator();
+		for (int k = 1; k <= 20; ++k) {
+			for (int replicate = 0; replicate < 10; ++replicate) {
+				aggregator.add(k, summary);
+				blackhole.consume(aggregator.getStatistics());
+			}
+		}
+	}
+
+	/**
+	 * Creates an output file shaped as the ones written by Structure, with 
+	 * the allele frequencies that make most of a real file.
+	 */
+	static String createOutput(int individuals) {
+		final Random random = new Random(2245L);
+		final StringBuilder sb = new StringBuilder();
+		sb.append("----------------------------------------------------\n");
+		sb.append("STRUCTURE by Pritchard, Stephens and Donnelly (2000)\n");
+		sb.append("----------------------------------------------------\n\n");
+		sb.append("Run parameters:\n   ").append(individuals).append(" individuals\n   ");
+		sb.append(LOCI).append(" loci\n   ").append(K).append(" populations assumed\n\n");
+		sb.append("--------------------------------------------\n");
+		sb.append("Estimated Ln Prob of Data   = -4246.3\n");
+		sb.append("Mean value of ln likelihood = -4174.7\n");
+		sb.append("Variance of ln likelihood   = 143.2\n");
+		sb.append("Mean value of alpha         = 0.0407\n\n");
+		for (int k = 1; k <= K; ++k) {
+			sb.append("Mean value of Fst_").append(k).append("         = 0.0").append(300 + k).append('\n');
+		}
+		sb.append("\n\nInferred ancestry of individuals:\n");
+		sb.append("        Label (%Miss) :  Inferred clusters\n");
+		for (int i = 1; i <= individuals; ++i) {
+			sb.append(String.format(Locale.ENGLISH, "%4d %8s    (0)   :  ", i, "ind" + i));
+			for (int k = 0; k < K; ++k) {
+				sb.append(String.format(Locale.ENGLISH, " %.3f", random.nextDouble()));
+			}
+			sb.append('\n');
+		}
+		sb.append("\n\nEstimated Allele Frequencies in each cluster\n");
+		for (int locus = 1; locus <= LOCI; ++locus) {
+			sb.append("\nLocus ").append(locus).append(" :\n4 alleles\n0.0% missing data\n");
+			for (int allele = 0; allele < 4; ++allele) {
+				sb.append(String.format(Locale.ENGLISH, "  %d   (%.3f) ", 100 + allele, random.nextDouble()));
+				for (int k = 0; k < K; ++k) {
+					sb.append(String.format(Locale.ENGLISH, " %.3f", random.nextDouble()));
+				}
+				sb.append('\n');
+			}
+		}
+		return sb.toString();
+	}
+
+}
@@ -0,0 +1,116 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) <2012> <Bruno P. Kinoshita>
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.biouno.structure.benchmarks;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.IOUtils;
+import org.biouno.structure.execution.StructureRun;
+import org.biouno.structure.parser.MainParamsParser;
+import org.biouno.structure.parser.MainParamsTemplate;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Cost of generating the mainparams files of a whole sweep, K=1..50, in memory
+ * and written to disk.
+ * 
+ * @author Bruno P. Kinoshita - http://www.kinoshita.eti.br
+ * @since 0.1
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SweepGenerationBenchmark {
+
+	private static final int MAX_POPS = 50;
+
+	private String mainParams;
+	private MainParamsParser parser;
+	private File directory;
+
+	@Setup
+	public void setUp() throws Exception {
+		mainParams = Inputs.load("mainparams");
+		parser = new MainParamsParser(100, 200, 10000L, 20000L, "project_data", "Results");
+		directory = File.createTempFile("sweep", "");
+		directory.delete();
+		directory.mkdirs();
+	}
+
+	@TearDown
+	public void tearDown() throws IOException {
+		FileUtils.deleteDirectory(directory);
+	}
+
+	@Benchmark
+	public void parseEveryK(Blackhole blackhole) throws Exception {
+		for (int k = 1; k <= MAX_POPS; ++k) {
+			blackhole.consume(parser.parse(mainParams, k));
+		}
+	}
+
+	@Benchmark
+	public void renderEveryK(Blackhole blackhole) throws Exception {
+		final MainParamsTemplate template = MainParamsTemplate.compile(mainParams);
+		final StringBuilder buffer = new StringBuilder();
+		for (int k = 1; k <= MAX_POPS; ++k) {
+			blackhole.consume(template.render(buffer, parser.createValues(k)).length());
+		}
+	}
+
+	@Benchmark
+	public void writeEveryK() throws Exception {
+		final MainParamsTemplate template = MainParamsTemplate.compile(mainParams);
+		for (int k = 1; k <= MAX_POPS; ++k) {
+			final Writer writer = new OutputStreamWriter(new FileOutputStream(
+					new File(directory, StructureRun.MAINPARAMS_PREFIX + k)), "UTF-8");
+			try {
+				template.render(writer, parser.createValues(k));
+			} finally {
+				IOUtils.closeQuietly(writer);
+			}
+		}
+	}
+
+}
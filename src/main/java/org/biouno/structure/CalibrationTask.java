@@ -0,0 +1,125 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) <2012> <Bruno P. Kinoshita>
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.biouno.structure;
+
+import hudson.model.Computer;
+import hudson.model.Node;
+import hudson.util.StreamTaskListener;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.List;
+
+import org.apache.commons.io.IOUtils;
+import org.biouno.structure.calibration.Calibrator;
+import org.biouno.structure.calibration.NodeSpeed;
+import org.biouno.structure.scheduling.RunCostModel;
+import org.biouno.structure.util.Messages;
+
+/**
+ * Runs the calibration dataset with every Structure installation, on every 
+ * given node and for every model, and stores the speeds in the descriptor. 
+ * The output goes to a log file in the Jenkins home.
+ * 
+ * @author Bruno P. Kinoshita - http://www.kinoshita.eti.br
+ * @since 0.1
+ */
+public class CalibrationTask implements Runnable {
+
+	/**
+	 * Name of the log file, in the Jenkins home.
+	 */
+	public static final String LOG_FILE_NAME = "structure-calibration.log";
+
+	private static final String[] MODELS = { RunCostModel.ADMIXTURE, RunCostModel.NO_ADMIXTURE, 
+		RunCostModel.LINKAGE };
+
+	private final StructureBuilderDescriptor descriptor;
+	private final List<Node> nodes;
+	private final File log;
+
+	/**
+	 * @param descriptor descriptor storing the speeds
+	 * @param nodes nodes to calibrate
+	 * @param log log file
+	 */
+	public CalibrationTask(StructureBuilderDescriptor descriptor, List<Node> nodes, File log) {
+		this.descriptor = descriptor;
+		this.nodes = nodes;
+		this.log = log;
+	}
+
+	/* (non-Javadoc)
+	 * @see java.lang.Runnable#run()
+	 */
+	public void run() {
+		OutputStream os = null;
+		try {
+			os = new FileOutputStream(log);
+			final StreamTaskListener listener = new StreamTaskListener(os);
+			final Calibrator calibrator = new Calibrator(listener);
+			for (Node node : nodes) {
+				final Computer computer = node.toComputer();
+				if (computer == null || !computer.isOnline()) {
+					continue;
+				}
+				for (StructureInstallation installation : descriptor.getInstallations()) {
+					for (String model : MODELS) {
+						calibrate(calibrator, node, installation, model, listener);
+					}
+				}
+			}
+			listener.getLogger().println(Messages.StructureBuilder_CalibrationFinished());
+		} catch (IOException ioe) {
+			// The log file cannot be written, nothing else to report to
+		} catch (InterruptedException ie) {
+			Thread.currentThread().interrupt();
+		} finally {
+			IOUtils.closeQuietly(os);
+		}
+	}
+
+	private void calibrate(Calibrator calibrator, Node node, StructureInstallation installation, String model, 
+			StreamTaskListener listener) throws InterruptedException {
+		final String nodeName = Calibrator.getNodeName(node);
+		try {
+			final NodeSpeed speed = calibrator.calibrate(node, installation.getName(), 
+					installation.getPathToExecutable(), model);
+			if (speed == null) {
+				listener.getLogger().println(Messages.StructureBuilder_CalibrationFailed(nodeName, 
+						installation.getName(), model, ""));
+				return;
+			}
+			descriptor.setNodeSpeed(speed);
+			listener.getLogger().println(Messages.StructureBuilder_CalibrationResult(nodeName, 
+					installation.getName(), model, speed.getStepsPerSecond()));
+		} catch (IOException ioe) {
+			listener.getLogger().println(Messages.StructureBuilder_CalibrationFailed(nodeName, 
+					installation.getName(), model, ioe.getMessage()));
+		}
+	}
+
+}
@@ -0,0 +1,122 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) <2012> <Bruno P. Kinoshita>
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.biouno.structure;
+
+import hudson.model.Action;
+import hudson.model.Api;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.biouno.structure.convergence.KConvergence;
+import org.biouno.structure.util.Messages;
+import org.kohsuke.stapler.export.Exported;
+import org.kohsuke.stapler.export.ExportedBean;
+
+/**
+ * Convergence diagnostics of each K of the Structure sweep of a build, used 
+ * to adapt the burn-in of the next builds.
+ * 
+ * @author Bruno P. Kinoshita - http://www.kinoshita.eti.br
+ * @since 0.1
+ */
+@ExportedBean
+public class ConvergenceAction implements Action {
+
+	/**
+	 * R-hat below which the chains converged.
+	 */
+	private final double threshold;
+	/**
+	 * Diagnostics of each K.
+	 */
+	private final List<KConvergence> convergences;
+
+	/**
+	 * @param threshold R-hat below which the chains converged
+	 * @param convergences diagnostics of each K
+	 */
+	public ConvergenceAction(double threshold, List<KConvergence> convergences) {
+		this.threshold = threshold;
+		this.convergences = new ArrayList<KConvergence>(convergences);
+	}
+
+	/**
+	 * @return the R-hat below which the chains converged
+	 */
+	@Exported
+	public double getThreshold() {
+		return threshold;
+	}
+
+	/**
+	 * @return the diagnostics of each K
+	 */
+	@Exported
+	public List<KConvergence> getConvergences() {
+		return convergences;
+	}
+
+	/**
+	 * @param k a K
+	 * @return the diagnostics of the K, or <code>null</code>
+	 */
+	public KConvergence getConvergence(int k) {
+		for (KConvergence convergence : convergences) {
+			if (convergence.getK() == k) {
+				return convergence;
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * @return the remote API of this action
+	 */
+	public Api getApi() {
+		return new Api(this);
+	}
+
+	/* (non-Javadoc)
+	 * @see hudson.model.Action#getIconFileName()
+	 */
+	public String getIconFileName() {
+		return "graph.png";
+	}
+
+	/* (non-Javadoc)
+	 * @see hudson.model.Action#getDisplayName()
+	 */
+	public String getDisplayName() {
+		return Messages.ConvergenceAction_DisplayName();
+	}
+
+	/* (non-Javadoc)
+	 * @see hudson.model.Action#getUrlName()
+	 */
+	public String getUrlName() {
+		return "structureConvergence";
+	}
+
+}
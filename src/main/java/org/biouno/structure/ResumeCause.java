@@ -0,0 +1,66 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) <2012> <Bruno P. Kinoshita>
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.biouno.structure;
+
+import hudson.model.Cause;
+
+import org.biouno.structure.util.Messages;
+
+/**
+ * Cause of a build started to resume the Structure sweep of another build. 
+ * Only the runs that did not finish successfully in that build are executed.
+ * 
+ * @author Bruno P. Kinoshita - http://www.kinoshita.eti.br
+ * @since 0.1
+ */
+public class ResumeCause extends Cause {
+
+	/**
+	 * Number of the build whose sweep is resumed.
+	 */
+	private final int buildNumber;
+
+	/**
+	 * @param buildNumber number of the build whose sweep is resumed
+	 */
+	public ResumeCause(int buildNumber) {
+		this.buildNumber = buildNumber;
+	}
+
+	/**
+	 * @return the buildNumber
+	 */
+	public int getBuildNumber() {
+		return buildNumber;
+	}
+
+	/* (non-Javadoc)
+	 * @see hudson.model.Cause#getShortDescription()
+	 */
+	@Override
+	public String getShortDescription() {
+		return Messages.ResumeCause_ShortDescription(buildNumber);
+	}
+
+}
@@ -0,0 +1,103 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) <2012> <Bruno P. Kinoshita>
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.biouno.structure;
+
+import hudson.model.AbstractBuild;
+import hudson.model.Action;
+import hudson.model.Item;
+
+import java.io.IOException;
+
+import org.biouno.structure.util.Messages;
+import org.biouno.structure.util.Requests;
+import org.kohsuke.stapler.StaplerRequest;
+import org.kohsuke.stapler.StaplerResponse;
+
+/**
+ * Resumes the Structure sweep of a build that did not complete, scheduling a 
+ * new build that executes only the missing or failed runs. Shown only while 
+ * the sweep is incomplete.
+ * 
+ * @author Bruno P. Kinoshita - http://www.kinoshita.eti.br
+ * @since 0.1
+ */
+public class ResumeSweepAction implements Action {
+
+	/**
+	 * Whether every run of the sweep finished successfully.
+	 */
+	private volatile boolean complete = false;
+
+	/**
+	 * @return whether every run of the sweep finished successfully
+	 */
+	public boolean isComplete() {
+		return complete;
+	}
+
+	/**
+	 * @param complete whether every run of the sweep finished successfully
+	 */
+	public void setComplete(boolean complete) {
+		this.complete = complete;
+	}
+
+	/* (non-Javadoc)
+	 * @see hudson.model.Action#getIconFileName()
+	 */
+	public String getIconFileName() {
+		return complete ? null : "redo.png";
+	}
+
+	/* (non-Javadoc)
+	 * @see hudson.model.Action#getDisplayName()
+	 */
+	public String getDisplayName() {
+		return Messages.ResumeSweepAction_DisplayName();
+	}
+
+	/* (non-Javadoc)
+	 * @see hudson.model.Action#getUrlName()
+	 */
+	public String getUrlName() {
+		return "resumeSweep";
+	}
+
+	/**
+	 * Schedules a build resuming the sweep of the build owning this action. 
+	 * Only a POST, sent by the form of the index page, is accepted.
+	 */
+	public void doResume(StaplerRequest req, StaplerResponse rsp) throws IOException {
+		if (!Requests.requirePost(req, rsp)) {
+			return;
+		}
+		final AbstractBuild<?, ?> build = req.findAncestorObject(AbstractBuild.class);
+		build.getProject().checkPermission(Item.BUILD);
+		if (!complete && !build.isBuilding()) {
+			build.getProject().scheduleBuild(0, new ResumeCause(build.getNumber()));
+		}
+		rsp.sendRedirect2("../../");
+	}
+
+}
@@ -1,18 +1,91 @@
 package org.biouno.structure;
 import hudson.AbortException;
 import hudson.Extension;
+import hudson.FilePath;
 import hudson.Launcher;
+import hudson.model.Action;
 import hudson.model.BuildListener;
 import hudson.model.AbstractBuild;
+import hudson.model.AbstractProject;
+import hudson.model.Result;
 import hudson.tasks.Builder;
 
 import java.io.File;
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
 
-import org.apache.commons.io.FileUtils;
+import org.apache.commons.lang.StringUtils;
+import org.biouno.structure.alignment.KAlignment;
+import org.biouno.structure.alignment.QMatrixAligner;
+import org.biouno.structure.cache.InputTransfer;
+import org.biouno.structure.cache.RunCache;
+import org.biouno.structure.cache.RunKeys;
+import org.biouno.structure.calibration.NodeSpeed;
+import org.biouno.structure.convergence.AdaptiveBurnIn;
+import org.biouno.structure.convergence.ConvergenceAnalyzer;
+import org.biouno.structure.convergence.KConvergence;
+import org.biouno.structure.convergence.LikelihoodTrace;
+import org.biouno.structure.execution.ExecutionNode;
+import org.biouno.structure.execution.LabelNodeProvider;
+import org.biouno.structure.execution.NodeResources;
+import org.biouno.structure.execution.NodeProvider;
+import org.biouno.structure.execution.RunProgress;
+import org.biouno.structure.execution.RunResult;
+import org.biouno.structure.execution.StallCheck;
+import org.biouno.structure.execution.StructureRun;
+import org.biouno.structure.execution.StragglerDetector;
+import org.biouno.structure.execution.StructureSweep;
+import org.biouno.structure.execution.SweepManifest;
+import org.biouno.structure.execution.SweepMonitor;
+import org.biouno.structure.execution.SweepResult;
+import org.biouno.structure.input.InFileFormat;
+import org.biouno.structure.input.InFileReport;
+import org.biouno.structure.input.InFileScanner;
+import org.biouno.structure.input.InFileThinning;
+import org.biouno.structure.input.InFileThinner;
+import org.biouno.structure.input.SweepInput;
+import org.biouno.structure.input.ThinningOptions;
+import org.biouno.structure.input.ThinningReport;
+import org.biouno.structure.metrics.MetricValue;
+import org.biouno.structure.metrics.OpenMetricsWriter;
+import org.biouno.structure.metrics.SweepMetrics;
+import org.biouno.structure.metrics.SweepMetrics.Counter;
+import org.biouno.structure.metrics.SweepMetrics.Phase;
+import org.biouno.structure.parser.Defines;
+import org.biouno.structure.parser.ExtraParams;
+import org.biouno.structure.parser.GridConfiguration;
+import org.biouno.structure.parser.MainParam;
 import org.biouno.structure.parser.MainParamsParser;
+import org.biouno.structure.parser.MainParamsTemplate;
+import org.biouno.structure.parser.MainParamsValues;
+import org.biouno.structure.parser.ParamGrid;
 import org.biouno.structure.parser.ParserException;
+import org.biouno.structure.results.EvannoAggregator;
+import org.biouno.structure.results.OutputCompressor;
+import org.biouno.structure.results.QMatrixFormat;
+import org.biouno.structure.results.ResultCollector;
+import org.biouno.structure.results.ResultStore;
+import org.biouno.structure.results.ResultStoreWriter;
+import org.biouno.structure.results.RunSummary;
+import org.biouno.structure.scheduling.LongestFirstPolicy;
+import org.biouno.structure.scheduling.RunCostModel;
+import org.biouno.structure.scheduling.RunMemoryModel;
+import org.biouno.structure.scheduling.SchedulingPolicy;
+import org.biouno.structure.search.CoarseSearch;
+import org.biouno.structure.trend.BuildTrend;
+import org.biouno.structure.trend.TrendIndex;
+import org.biouno.structure.util.Digests;
 import org.biouno.structure.util.Messages;
+import org.biouno.structure.util.Paths;
+import org.kohsuke.stapler.DataBoundConstructor;
 
 /**
  * Structure builder.
@@ -25,6 +98,45 @@ public class StructureBuilder extends Builder {
 	@Extension
 	public static final StructureBuilderDescriptor DESCRIPTOR = new StructureBuilderDescriptor();
 	
+	/**
+	 * Default seed, the same used in Structure extraparams.
+	 */
+	public static final long DEFAULT_SEED = 2245L;
+	
+	/**
+	 * Suffix Structure appends to the name of the final output file.
+	 */
+	private static final String STRUCTURE_OUTPUT_SUFFIX = ResultCollector.OUTPUT_SUFFIX;
+	/**
+	 * Number of previous builds used to calibrate the cost model.
+	 */
+	private static final int COST_MODEL_HISTORY = 10;
+	/**
+	 * Suffix of the files with the consensus Q-matrix of each K.
+	 */
+	private static final String CONSENSUS_SUFFIX = ".consensus";
+	/**
+	 * Structure output files are kept in the workspace.
+	 */
+	public static final String RAW_OUTPUTS_KEEP = "keep";
+	/**
+	 * Structure output files are compressed with gzip once stored.
+	 */
+	public static final String RAW_OUTPUTS_COMPRESS = "compress";
+	/**
+	 * Structure output files are deleted once stored.
+	 */
+	public static final String RAW_OUTPUTS_DELETE = "delete";
+	/**
+	 * Name of the reduced input file, in the workspace.
+	 */
+	private static final String THINNED_IN_FILE = "structure-infile.thinned";
+	/**
+	 * Name of the file with the metrics of the sweep in the OpenMetrics text 
+	 * format, in the build directory.
+	 */
+	public static final String METRICS_FILE_NAME = "structure-metrics.txt";
+	
 	private final MainParamsParser parser;
 	
 	/**
@@ -71,6 +183,58 @@ public class StructureBuilder extends Builder {
 	 * Slave label;
 	 */
 	private final String label;
+	/**
+	 * Number of replicates for each K.
+	 */
+	private final Integer numReplicates;
+	/**
+	 * Number of failed runs after which no other run is started. Empty or 
+	 * zero means that all runs are executed.
+	 */
+	private final Integer maxFailures;
+	/**
+	 * Base seed for the random number generator. Each run gets its own seed 
+	 * derived from this one.
+	 */
+	private final Long seed;
+	/**
+	 * Stall check of the runs, or null to not check them.
+	 */
+	private final StallCheck stallCheck;
+	/**
+	 * Whether runs that fall behind the other runs of their K are copied to 
+	 * idle nodes.
+	 */
+	private final Boolean speculativeRuns;
+	/**
+	 * Adaptive burn-in of each K, from the convergence of its replicates in 
+	 * the previous builds, or null to use BURNIN for every K.
+	 */
+	private final AdaptiveBurnIn adaptiveBurnIn;
+	/**
+	 * What is done with the Structure output files once their results are 
+	 * stored: {@link #RAW_OUTPUTS_KEEP}, {@link #RAW_OUTPUTS_COMPRESS} or 
+	 * {@link #RAW_OUTPUTS_DELETE}.
+	 */
+	private final String rawOutputs;
+	/**
+	 * Coarse-to-fine K search, or null to run every K with full chains.
+	 */
+	private final CoarseSearch coarseSearch;
+	/**
+	 * Reduction of the input file the sweep runs on, or null to run on the 
+	 * input file.
+	 */
+	private final InFileThinning thinning;
+	/**
+	 * Limits on the resources used on each node, or null for no limits.
+	 */
+	private final NodeResources resources;
+	/**
+	 * Values of the extraparams swept besides K, one #define per line, or 
+	 * null.
+	 */
+	private final String paramGrid;
 	
 
     /**
@@ -87,11 +251,26 @@ public class StructureBuilder extends Builder {
 	 * @param mainParams
 	 * @param extraParams
 	 * @param label
+	 * @param numReplicates
+	 * @param maxFailures
+	 * @param seed
+	 * @param stallCheck
+	 * @param speculativeRuns
+	 * @param adaptiveBurnIn
+	 * @param rawOutputs
+	 * @param coarseSearch
+	 * @param thinning
+	 * @param resources
+	 * @param paramGrid
 	 */
+	@DataBoundConstructor
 	public StructureBuilder(String structureInstallationName, Integer maxPops,
 			Integer numLoci, Integer numInds, Long burnIn, Long numReps,
 			String inFile, String outFile, String mainParams, String extraParams, 
-			String label) {
+			String label, Integer numReplicates, Integer maxFailures, Long seed, 
+			StallCheck stallCheck, Boolean speculativeRuns, AdaptiveBurnIn adaptiveBurnIn, 
+			String rawOutputs, CoarseSearch coarseSearch, InFileThinning thinning, 
+			NodeResources resources, String paramGrid) {
 		super();
 		this.structureInstallationName = structureInstallationName;
 		this.maxPops = maxPops;
@@ -104,6 +283,17 @@ public class StructureBuilder extends Builder {
 		this.mainParams = mainParams;
 		this.extraParams = extraParams;
 		this.label = label;
+		this.numReplicates = numReplicates;
+		this.maxFailures = maxFailures;
+		this.seed = seed;
+		this.stallCheck = stallCheck;
+		this.speculativeRuns = speculativeRuns;
+		this.adaptiveBurnIn = adaptiveBurnIn;
+		this.rawOutputs = rawOutputs;
+		this.coarseSearch = coarseSearch;
+		this.thinning = thinning;
+		this.resources = resources;
+		this.paramGrid = paramGrid;
 		parser = new MainParamsParser(numLoci, numInds, burnIn, numReps, inFile, outFile);
 	}
 
@@ -183,6 +373,83 @@ public class StructureBuilder extends Builder {
 	public String getLabel() {
 		return label;
 	}
+	
+	/**
+	 * @return the numReplicates
+	 */
+	public Integer getNumReplicates() {
+		return numReplicates;
+	}
+	
+	/**
+	 * @return the maxFailures
+	 */
+	public Integer getMaxFailures() {
+		return maxFailures;
+	}
+	
+	/**
+	 * @return the seed
+	 */
+	public Long getSeed() {
+		return seed;
+	}
+	
+	/**
+	 * @return the stallCheck
+	 */
+	public StallCheck getStallCheck() {
+		return stallCheck;
+	}
+	
+	/**
+	 * @return the speculativeRuns
+	 */
+	public Boolean getSpeculativeRuns() {
+		return speculativeRuns;
+	}
+	
+	/**
+	 * @return the adaptiveBurnIn
+	 */
+	public AdaptiveBurnIn getAdaptiveBurnIn() {
+		return adaptiveBurnIn;
+	}
+	
+	/**
+	 * @return the rawOutputs
+	 */
+	public String getRawOutputs() {
+		return rawOutputs;
+	}
+	
+	/**
+	 * @return the coarseSearch
+	 */
+	public CoarseSearch getCoarseSearch() {
+		return coarseSearch;
+	}
+	
+	/**
+	 * @return the thinning
+	 */
+	public InFileThinning getThinning() {
+		return thinning;
+	}
+	
+	/**
+	 * @return the resources
+	 */
+	public NodeResources getResources() {
+		return resources;
+	}
+	
+	/**
+	 * @return the paramGrid
+	 */
+	public String getParamGrid() {
+		return paramGrid;
+	}
 
 	@Override
     public boolean perform(AbstractBuild<?, ?> build, Launcher launcher, final BuildListener listener) 
@@ -194,58 +461,709 @@ public class StructureBuilder extends Builder {
         	throw new AbortException(Messages.StructureBuilder_InvalidStructureInstallation());
         }
         
+        final FilePath workspace = build.getWorkspace();
+        final SweepMetrics metrics = new SweepMetrics();
+        
         // Replace variables with the values provided by the user in the job configuration
         // Create one mainparam file for each K value
-        for(int i = 1; 1 <= this.maxPops ; ++i) {
-        	try {
-				String mainParamContent = parser.parse(this.mainParams, i);
-				FileUtils.writeStringToFile(new File("mainparams.param_set.k"+i), mainParamContent);
-				
-				// TODO: Spawn one job for each K/mainparam
-		        
-		        // TODO: Gather all the results
-		        
-		        // TODO: Reporting
-				
-			} catch (ParserException e) {
-				// TODO Auto-generated catch block
-				e.printStackTrace();
-			}
+        long renderStart = System.currentTimeMillis();
+        final MainParamsTemplate template;
+        try {
+        	template = MainParamsTemplate.compile(this.mainParams);
+        } catch (ParserException e) {
+        	throw new AbortException(Messages.StructureBuilder_InvalidMainParams(e.getMessage()));
+        }
+        final ExtraParams extraParams;
+        try {
+        	extraParams = ExtraParams.compile(this.extraParams);
+        } catch (ParserException e) {
+        	throw new AbortException(Messages.StructureBuilder_InvalidExtraParams(e.getMessage()));
+        }
+        // The values Structure uses, as the mainparams are read before the extraparams
+        final ExtraParams effectiveParams;
+        try {
+        	effectiveParams = extraParams.withMainParams(template.getDefines());
+        } catch (ParserException e) {
+        	throw new AbortException(Messages.StructureBuilder_InvalidMainParams(e.getMessage()));
+        }
+        final ParamGrid grid;
+        try {
+        	grid = ParamGrid.parse(this.paramGrid);
+        } catch (ParserException e) {
+        	throw new AbortException(Messages.StructureBuilder_InvalidParamGrid(e.getMessage()));
+        }
+        // Every configuration and its runs are created before the sweep starts
+        if(grid.size() > DESCRIPTOR.getEffectiveMaxGridSize()) {
+        	throw new AbortException(Messages.StructureBuilder_GridTooLarge(grid.size(), 
+        			DESCRIPTOR.getEffectiveMaxGridSize()));
+        }
+        
+        metrics.timeSince(Phase.RENDER, renderStart);
+        
+        // Check the input file against NUMINDS and NUMLOCI before spending any CPU time
+        validateInFile(workspace, launcher, listener);
+        
+        // In thinning mode, the sweep runs on a reduced copy of the input file
+        final SweepInput input = this.thinning != null ? thinInFile(workspace, launcher, listener) : 
+        	new SweepInput(this.inFile, (int) valueOf(this.numInds), (int) valueOf(this.numLoci), null);
+        
+        // In adaptive mode, each K gets the burn-in its replicates needed before
+        final ConvergenceAnalyzer analyzer = this.adaptiveBurnIn != null ? this.adaptiveBurnIn.createAnalyzer() : 
+        	new ConvergenceAnalyzer(ConvergenceAnalyzer.DEFAULT_THRESHOLD);
+        final Map<Integer, Long> burnIns = createBurnIns(build, analyzer, listener);
+        
+        renderStart = System.currentTimeMillis();
+        final Map<String, String> parameterFiles = new LinkedHashMap<String, String>();
+        final SortedMap<Integer, MainParamsValues> valuesByK = new TreeMap<Integer, MainParamsValues>();
+        final StringBuilder buffer = new StringBuilder();
+        for(int i = 1; i <= this.maxPops ; ++i) {
+        	final MainParamsValues values = createValues(i, input);
+        	if(burnIns.containsKey(i)) {
+        		values.set(MainParam.BURNIN, burnIns.get(i));
+        	}
+        	valuesByK.put(i, values);
+        	template.render(buffer, values);
+        	parameterFiles.put(StructureRun.MAINPARAMS_PREFIX + i, buffer.toString());
+        }
+        
+        String extraParamsFileName = null;
+        if(!extraParams.isEmpty()) {
+        	extraParamsFileName = StructureRun.EXTRAPARAMS_FILE_NAME;
+        	parameterFiles.put(extraParamsFileName, extraParams.getText());
+        }
+        
+        // Each configuration of the extraparams grid sweeps K in the same runs as 
+        // the main sweep, with its replicates, seeds and mainparams, as a stage of its own
+        final List<StructureRun> runs = createRuns();
+        final List<GridConfiguration> configurations = createGridConfigurations(grid, extraParams, listener);
+        for(GridConfiguration gridConfiguration : configurations) {
+        	final List<StructureRun> gridRuns = createRuns(StructureSweep.GRID_STAGE + gridConfiguration.getId(), 
+        			getReplicatesCount());
+        	parameterFiles.put(gridRuns.get(0).getExtraParamsFileName(), gridConfiguration.getExtraParams());
+        	runs.addAll(gridRuns);
+        }
+        metrics.timeSince(Phase.RENDER, renderStart);
+        
+        if(this.coarseSearch != null) {
+        	runs.addAll(createRuns(StructureSweep.COARSE_STAGE, this.coarseSearch.getReplicatesCount()));
+        }
+        
+        // Record every finished run, and skip the runs already finished by an 
+        // incomplete sweep with the same configuration, every stage included
+        final ResumeSweepAction resumeAction = new ResumeSweepAction();
+        build.addAction(resumeAction);
+        final SweepManifest manifest = new SweepManifest(new File(build.getRootDir(), SweepManifest.FILE_NAME), this.outFile);
+        final String configuration = createConfigurationHash(parameterFiles, input, structureInstallation);
+        final List<RunResult> resumed = resumeRuns(build, runs, configuration, workspace, listener);
+        final RunCostModel costModel = createCostModel(build, input, effectiveParams, burnIns);
+        manifest.start(configuration, costModel.getModel(), costModel.getUnitsPerK(), costModel.getUnitsPerKByK());
+        
+        // Spawn one job for each K/replicate, at most one per free core of each node. 
+        // The workers of the fastest nodes are started first, and take the largest runs
+        final NodeResources resources = getNodeResources();
+        final List<ExecutionNode> nodes = resources.limit(
+        		createNodeProvider().getNodes(build, launcher, this.label, listener));
+        final StructureSweep sweep = new StructureSweep(nodes, workspace, structureInstallation.getPathToExecutable(), 
+        		this.outFile, build.getEnvironment(listener), metrics, listener.getLogger());
+        sweep.setParameters(template, valuesByK, extraParams, extraParamsFileName);
+        sweep.setGrid(configurations);
+        // Short chains for every K first, then full chains only around the best K
+        if(this.coarseSearch != null) {
+        	sweep.setCoarseSearch(this.coarseSearch, createCoarseValues(input));
+        }
+        sweep.setManifest(manifest);
+        sweep.setNodeSpeeds(getNodeSpeeds(nodes, structureInstallation, costModel.getModel()));
+        sweep.setNiceLevel(resources.getNiceLevel());
+        sweep.setFailureLimit(getFailureLimit());
+        sweep.setSchedulingPolicy(createSchedulingPolicy());
+        
+        // Runs whose inputs did not change are restored from the cache
+        final RunCache cache = DESCRIPTOR.getCache();
+        final RunKeys runKeys = cache == null ? null : 
+        	createRunKeys(input, workspace, launcher, structureInstallation, listener);
+        if(runKeys != null) {
+        	sweep.setCache(cache, runKeys.create(runs, parameterFiles));
+        }
+        if(resources.isMemoryBudgeted()) {
+        	sweep.admitByMemory(RunMemoryModel.create(effectiveParams, input.getIndividuals(), input.getLoci()), 
+        			resources);
+        }
+        sweep.prepare(input, new InputTransfer(DESCRIPTOR.getNodeCache(), metrics));
+        
+        final SweepProgressAction progressAction = new SweepProgressAction();
+        build.addAction(progressAction);
+        final StallCheck stall = this.stallCheck != null ? this.stallCheck : new StallCheck(null, null);
+        final SweepMonitor monitor = new SweepMonitor(progressAction.getRuns(), valueOf(this.burnIn), 
+        		valueOf(this.numReps), stall.getTimeoutMillis(), stall.isKill(), listener.getLogger());
+        for(Map.Entry<Integer, Long> entry : burnIns.entrySet()) {
+        	monitor.setBurnIn(entry.getKey(), entry.getValue());
+        }
+        monitor.setUnitsPerStep((double) input.getIndividuals() * input.getLoci());
+        // The traces are used by the convergence diagnostics and kept in the result store, 
+        // that is written by every sweep. Each trace is bounded, so they are always recorded
+        monitor.setRecordTraces(true);
+        sweep.setMonitor(monitor);
+        if(this.speculativeRuns != null && this.speculativeRuns) {
+        	sweep.setStragglerDetector(new StragglerDetector(progressAction.getRuns()));
+        }
+        
+        // Per-K statistics and Delta K are updated as each run finishes
+        final StructureResultsAction resultsAction = new StructureResultsAction();
+        build.addAction(resultsAction);
+        final EvannoAggregator aggregator = new EvannoAggregator();
+        final ResultCollector collector = new ResultCollector(workspace, this.outFile, aggregator, listener.getLogger());
+        collector.setOnUpdate(new Runnable() {
+        	public void run() {
+        		resultsAction.update(aggregator.getStatistics());
+        	}
+        });
+        final SweepResult allResults = sweep.execute(runs, resumed, costModel, collector);
+        final SweepResult sweepResult = allResults.filter(null);
+        
+        listener.getLogger().println(Messages.StructureBuilder_LogForwarded(
+        		metrics.getValue(Counter.LOG_BYTES_FORWARDED)));
+        
+        final long collectStart = System.currentTimeMillis();
+        if(this.adaptiveBurnIn != null) {
+        	build.addAction(new ConvergenceAction(analyzer.getThreshold(), 
+        			analyzeConvergence(progressAction, analyzer, burnIns, listener)));
+        }
+        
+        resultsAction.setAlignments(alignReplicates(collector, workspace, listener));
+        final boolean stored = storeResults(build, collector, progressAction, listener);
+        
+        try {
+        	TrendIndex.of(build.getProject().getRootDir()).append(BuildTrend.create(build.getNumber(), 
+        			build.getTimeInMillis(), System.currentTimeMillis() - build.getTimeInMillis(), 
+        			resultsAction.getStatistics(), sweepResult.getResults()));
+        } catch(IOException ioe) {
+        	listener.getLogger().println(Messages.StructureBuilder_TrendNotRecorded(ioe.getMessage()));
         }
+        metrics.timeSince(Phase.COLLECT, collectStart);
+        publishMetrics(build, metrics, listener);
         
-//        // create command to be executed
-//        listener.getLogger().println("Launching Structure...");
-//        
-//        final String command = structureInstallation.getPathToExecutable();
-//        final ArgumentListBuilder args = new ArgumentListBuilder();
-//        args.add(command);
-//        
-//        final String mainParamsLocation = fileNames.get("mainparams");
-//        final String extraParamsLocation = fileNames.get("extraparams");
-//        
-//        if(StringUtils.isNotBlank(mainParamsLocation)) {
-//        	args.add("-m");
-//        	args.add(mainParamsLocation);
-//        }
-//        
-//        if(StringUtils.isNotBlank(extraParamsLocation)) {
-//        	args.add("-e");
-//        	args.add(extraParamsLocation);
-//        }
-//        
-//        Map<String, String> env = build.getEnvironment(listener);
-//        
-//        final Integer exitCode = launcher.launch().cmds(args).envs(env).stdout(listener).pwd(build.getModuleRoot()).join();
-//        
-//        if(exitCode != 0) {
-//        	listener.getLogger().println("Error executing Structure. Exit code : " + exitCode);
-//        	return Boolean.FALSE;
-//        } else {
-//        	listener.getLogger().println("Successfully executed Structure.");
-//        	return Boolean.TRUE;
-//        }
+        final Integer bestK = resultsAction.getBestK();
+        if(bestK != null) {
+        	listener.getLogger().println(Messages.StructureBuilder_BestK(bestK));
+        }
+        
+        if(!sweepResult.isSuccess()) {
+        	listener.getLogger().println(Messages.StructureBuilder_SweepFailed());
+        	return false;
+        }
+        if(!sweep.isGridSuccess()) {
+        	listener.getLogger().println(Messages.StructureBuilder_GridFailed());
+        	return false;
+        }
+        resumeAction.setComplete(true);
+        // Only a complete sweep, that will not be resumed, may lose its outputs
+        if(stored) {
+        	handleRawOutputs(allResults, workspace, listener);
+        }
+        listener.getLogger().println(Messages.StructureBuilder_Success());
         return true;
     }
+	
+	/**
+	 * Creates one run for each K and replicate. Seeds are derived from the base 
+	 * seed, so that running the same configuration again gives the same results.
+	 * 
+	 * @return list of runs, ordered by K and replicate
+	 */
+	public List<StructureRun> createRuns() {
+		return createRuns(null, getReplicatesCount());
+	}
+	
+	/**
+	 * @param stage stage of the runs, <code>null</code> for the main sweep
+	 * @param replicates number of replicates of each K
+	 * @return list of runs, ordered by K and replicate
+	 */
+	private List<StructureRun> createRuns(String stage, int replicates) {
+		final long baseSeed = this.seed != null ? this.seed : DEFAULT_SEED;
+		final List<StructureRun> runs = new ArrayList<StructureRun>(this.maxPops * replicates);
+		for(int k = 1; k <= this.maxPops; ++k) {
+			for(int replicate = 1; replicate <= replicates; ++replicate) {
+				long runSeed = baseSeed + (long) (k - 1) * replicates + (replicate - 1);
+				runs.add(new StructureRun(stage, k, replicate, runSeed));
+			}
+		}
+		return runs;
+	}
+	
+	/**
+	 * Finds the runs already finished by the sweep being resumed, i.e. the 
+	 * sweep of the build given in a {@link ResumeCause}, or else the sweep of 
+	 * the previous build if it did not succeed. A run is skipped only if it 
+	 * succeeded with the same seed and its output is still in the workspace.
+	 * 
+	 * @param runs runs of the sweep. The finished runs are removed from it
+	 * @return the results of the finished runs
+	 */
+	private List<RunResult> resumeRuns(AbstractBuild<?, ?> build, List<StructureRun> runs, String configuration, 
+			FilePath workspace, BuildListener listener) throws IOException, InterruptedException {
+		final List<RunResult> resumed = new ArrayList<RunResult>();
+		AbstractBuild<?, ?> source = null;
+		final ResumeCause cause = build.getCause(ResumeCause.class);
+		if(cause != null) {
+			source = build.getProject().getBuildByNumber(cause.getBuildNumber());
+		} else {
+			final AbstractBuild<?, ?> previous = build.getPreviousBuild();
+			if(previous != null && previous.getResult() != null && previous.getResult().isWorseThan(Result.SUCCESS)) {
+				source = previous;
+			}
+		}
+		if(source == null) {
+			return resumed;
+		}
+		final SweepManifest previousManifest = SweepManifest.load(new File(source.getRootDir(), SweepManifest.FILE_NAME));
+		if(previousManifest == null) {
+			return resumed;
+		}
+		if(!configuration.equals(previousManifest.getConfiguration())) {
+			listener.getLogger().println(Messages.StructureBuilder_ConfigurationChanged(source.getNumber()));
+			return resumed;
+		}
+		for(Iterator<StructureRun> it = runs.iterator(); it.hasNext(); ) {
+			final StructureRun run = it.next();
+			final RunResult result = previousManifest.getResult(run);
+			if(result != null && result.isSuccess() 
+					&& workspace.child(previousManifest.getOutput(run) + STRUCTURE_OUTPUT_SUFFIX).exists()) {
+				resumed.add(result);
+				it.remove();
+			}
+		}
+		listener.getLogger().println(Messages.StructureBuilder_ResumingSweep(source.getNumber(), resumed.size()));
+		return resumed;
+	}
+	
+	/**
+	 * @return a hash of everything that determines the outputs of the sweep
+	 */
+	private String createConfigurationHash(Map<String, String> parameterFiles, SweepInput input, 
+			StructureInstallation installation) {
+		final List<String> values = new ArrayList<String>();
+		for(Map.Entry<String, String> entry : parameterFiles.entrySet()) {
+			values.add(entry.getKey());
+			values.add(entry.getValue());
+		}
+		values.add(this.inFile);
+		values.add(input.toString());
+		values.add(this.outFile);
+		values.add(installation.getPathToExecutable());
+		if(this.coarseSearch != null) {
+			values.add(this.coarseSearch.getFraction() + " " + this.coarseSearch.getReplicatesCount());
+		}
+		return Digests.sha256(values.toArray(new String[values.size()]));
+	}
+	
+	/**
+	 * Creates the cache keys of the runs, from their rendered mainparams, the 
+	 * extraparams, the input file contents, their seed and the Structure 
+	 * executable.
+	 * 
+	 * @return the keys, or <code>null</code> if the input file is not found, 
+	 * in which case the cache is not used
+	 */
+	private RunKeys createRunKeys(SweepInput sweepInput, FilePath workspace, Launcher launcher, 
+			StructureInstallation installation, BuildListener listener) throws IOException, InterruptedException {
+		final FilePath input = getInFilePath(sweepInput.getFileName(), workspace, launcher);
+		if(input == null || !input.exists()) {
+			listener.getLogger().println(Messages.StructureBuilder_CacheDisabled(sweepInput.getFileName()));
+			return null;
+		}
+		final FilePath executable = new FilePath(launcher.getChannel(), installation.getPathToExecutable());
+		return new RunKeys(input.digest(), 
+				executable.exists() ? executable.digest() : installation.getPathToExecutable());
+	}
+	
+	/**
+	 * Scans the input file, on the node where it is, and aborts the build if 
+	 * it does not match the data file format, NUMINDS or NUMLOCI.
+	 */
+	private void validateInFile(FilePath workspace, Launcher launcher, BuildListener listener) 
+			throws IOException, InterruptedException {
+		final FilePath input = getInFilePath(this.inFile, workspace, launcher);
+		if(input == null || !input.exists()) {
+			throw new AbortException(Messages.StructureBuilder_InFileNotFound(this.inFile));
+		}
+		final InFileFormat format = InFileFormat.fromDefines(Defines.read(this.mainParams));
+		final InFileReport report = input.act(new InFileScanner(format));
+		final List<String> problems = report.check(this.numInds, this.numLoci);
+		if(!problems.isEmpty()) {
+			for(String problem : problems) {
+				listener.getLogger().println(problem);
+			}
+			throw new AbortException(Messages.StructureBuilder_InvalidInFile(this.inFile));
+		}
+		listener.getLogger().println(Messages.StructureBuilder_InFileValidated(this.inFile, 
+				report.getIndividuals(), report.getLoci(), report.getMissing()));
+	}
+	
+	/**
+	 * Writes the reduced copy of the input file to the workspace, on the node 
+	 * where the input file is.
+	 * 
+	 * @return the reduced input file
+	 */
+	private SweepInput thinInFile(FilePath workspace, Launcher launcher, BuildListener listener) 
+			throws IOException, InterruptedException {
+		final ThinningOptions options = this.thinning.createOptions(this.seed != null ? this.seed : DEFAULT_SEED);
+		final InFileFormat format = InFileFormat.fromDefines(Defines.read(this.mainParams));
+		final ThinningReport report = getInFilePath(this.inFile, workspace, launcher).act(new InFileThinner(format, 
+				options, (int) valueOf(this.numInds), (int) valueOf(this.numLoci), 
+				workspace.child(THINNED_IN_FILE).getRemote()));
+		if(options.isStratified() && !report.isStratified()) {
+			listener.getLogger().println(Messages.StructureBuilder_ThinningNoPopData());
+		}
+		if(options.getMinDistance() > 0.0d && !report.isThinnedByDistance()) {
+			listener.getLogger().println(Messages.StructureBuilder_ThinningNoMapDistances());
+		}
+		listener.getLogger().println(Messages.StructureBuilder_InFileThinned(this.inFile, report.getIndividuals(), 
+				report.getLoci(), THINNED_IN_FILE));
+		return new SweepInput(THINNED_IN_FILE, report.getIndividuals(), report.getLoci(), options);
+	}
+	
+	/**
+	 * @return the values of mainparams for a K, with the input file of the 
+	 * sweep
+	 */
+	private MainParamsValues createValues(int k, SweepInput input) {
+		return parser.createValues(k)
+			.set(MainParam.INFILE, input.getFileName())
+			.set(MainParam.NUMINDS, input.getIndividuals())
+			.set(MainParam.NUMLOCI, input.getLoci());
+	}
+	
+	/**
+	 * @return the input file, in the workspace unless given as an absolute path
+	 */
+	private FilePath getInFilePath(String fileName, FilePath workspace, Launcher launcher) {
+		if(StringUtils.isBlank(fileName)) {
+			return null;
+		}
+		return Paths.isAbsolute(fileName) ? new FilePath(launcher.getChannel(), fileName) : workspace.child(fileName);
+	}
+	
+	/**
+	 * In adaptive mode, finds the burn-in of each K from the convergence of 
+	 * its replicates in the last successful build with diagnostics. Failed 
+	 * builds are skipped, so that a sweep is resumed with the burn-ins it 
+	 * started with.
+	 * 
+	 * @return the burn-in of each K that does not use the configured one
+	 */
+	private Map<Integer, Long> createBurnIns(AbstractBuild<?, ?> build, ConvergenceAnalyzer analyzer, 
+			BuildListener listener) {
+		final Map<Integer, Long> burnIns = new HashMap<Integer, Long>();
+		if(this.adaptiveBurnIn == null) {
+			return burnIns;
+		}
+		AbstractBuild<?, ?> previous = build.getPreviousBuild();
+		while(previous != null && (previous.getResult() != Result.SUCCESS 
+				|| previous.getAction(ConvergenceAction.class) == null)) {
+			previous = previous.getPreviousBuild();
+		}
+		if(previous == null) {
+			return burnIns;
+		}
+		final ConvergenceAction diagnostics = previous.getAction(ConvergenceAction.class);
+		final long configured = valueOf(this.burnIn);
+		for(int k = 1; k <= this.maxPops; ++k) {
+			final long adapted = analyzer.adaptBurnIn(diagnostics.getConvergence(k), configured);
+			if(adapted != configured) {
+				burnIns.put(k, adapted);
+				listener.getLogger().println(Messages.StructureBuilder_AdaptedBurnIn(k, adapted, previous.getNumber()));
+			}
+		}
+		return burnIns;
+	}
+	
+	/**
+	 * Computes the convergence diagnostics of each K, from the log-likelihood 
+	 * traces of the replicates that finished in this build.
+	 */
+	private List<KConvergence> analyzeConvergence(SweepProgressAction progressAction, ConvergenceAnalyzer analyzer, 
+			Map<Integer, Long> burnIns, BuildListener listener) {
+		final Map<Integer, List<LikelihoodTrace>> tracesByK = new TreeMap<Integer, List<LikelihoodTrace>>();
+		for(RunProgress progress : progressAction.getRuns()) {
+			// The chains of the grid configurations sample other models
+			if(RunProgress.FINISHED.equals(progress.getState()) && progress.getTrace() != null 
+					&& progress.getStage() == null) {
+				List<LikelihoodTrace> traces = tracesByK.get(progress.getK());
+				if(traces == null) {
+					traces = new ArrayList<LikelihoodTrace>();
+					tracesByK.put(progress.getK(), traces);
+				}
+				traces.add(progress.getTrace());
+			}
+		}
+		final List<KConvergence> convergences = new ArrayList<KConvergence>();
+		for(Map.Entry<Integer, List<LikelihoodTrace>> entry : tracesByK.entrySet()) {
+			final int k = entry.getKey();
+			final long kBurnIn = burnIns.containsKey(k) ? burnIns.get(k) : valueOf(this.burnIn);
+			final KConvergence convergence = analyzer.analyze(k, entry.getValue(), kBurnIn, valueOf(this.numReps));
+			if(convergence != null) {
+				convergences.add(convergence);
+				listener.getLogger().println(Messages.StructureBuilder_ConvergenceDiagnostic(k, 
+						convergence.getRHat(), convergence.getConvergedAt(), convergence.getIterations()));
+			}
+		}
+		return convergences;
+	}
+	
+	/**
+	 * Aligns the clusters of the replicates of each K, and writes the consensus 
+	 * Q-matrix of each K to the workspace, as &lt;outFile&gt;_K&lt;k&gt;.consensus.
+	 */
+	private List<KAlignment> alignReplicates(ResultCollector collector, FilePath workspace, BuildListener listener) 
+			throws IOException, InterruptedException {
+		final Map<Integer, List<double[][]>> replicatesByK = new TreeMap<Integer, List<double[][]>>();
+		final Map<Integer, String[]> labelsByK = new HashMap<Integer, String[]>();
+		for(Map.Entry<StructureRun, RunSummary> entry : collector.getSummaries().entrySet()) {
+			final int k = entry.getKey().getK();
+			final double[][] qMatrix = entry.getValue().getQMatrix();
+			if(qMatrix.length == 0 || qMatrix[0].length != k) {
+				continue;
+			}
+			List<double[][]> replicates = replicatesByK.get(k);
+			if(replicates == null) {
+				replicates = new ArrayList<double[][]>();
+				replicatesByK.put(k, replicates);
+				labelsByK.put(k, entry.getValue().getLabels());
+			}
+			// Replicates of another data set cannot be aligned
+			if(replicates.isEmpty() || qMatrix.length == replicates.get(0).length) {
+				replicates.add(qMatrix);
+			}
+		}
+		final List<KAlignment> alignments = new QMatrixAligner(Runtime.getRuntime().availableProcessors())
+				.alignAll(replicatesByK);
+		for(KAlignment alignment : alignments) {
+			final String consensusFile = this.outFile + "_K" + alignment.getK() + CONSENSUS_SUFFIX;
+			workspace.child(consensusFile).write(
+					QMatrixFormat.format(new StringBuilder(), alignment.getConsensus(), 
+							labelsByK.get(alignment.getK())).toString(), "UTF-8");
+			listener.getLogger().println(Messages.StructureBuilder_ReplicatesAligned(alignment.getK(), 
+					alignment.getReplicates(), String.format(Locale.ENGLISH, "%.3f", alignment.getSimilarity()), consensusFile));
+		}
+		return alignments;
+	}
+	
+	/**
+	 * Writes the Q-matrices, estimates and log-likelihood traces of the runs 
+	 * to the {@link ResultStore} of the build.
+	 * 
+	 * @return whether the store was written
+	 */
+	private boolean storeResults(AbstractBuild<?, ?> build, ResultCollector collector, 
+			SweepProgressAction progressAction, BuildListener listener) {
+		final Map<StructureRun, RunSummary> summaries = collector.getSummaries();
+		if(summaries.isEmpty()) {
+			return false;
+		}
+		final Map<String, LikelihoodTrace> traces = new HashMap<String, LikelihoodTrace>();
+		for(RunProgress progress : progressAction.getRuns()) {
+			// Only the copy of a run that produced its outputs, when a run was copied
+			if(RunProgress.FINISHED.equals(progress.getState())) {
+				traces.put(progress.getName(), progress.getTrace());
+			}
+		}
+		final File file = new File(build.getRootDir(), ResultStore.FILE_NAME);
+		try {
+			final ResultStoreWriter writer = new ResultStoreWriter(file, summaries.values().iterator().next().getLabels());
+			for(Map.Entry<StructureRun, RunSummary> entry : summaries.entrySet()) {
+				final StructureRun run = entry.getKey();
+				writer.add(run.getK(), run.getReplicate(), entry.getValue(), traces.get(run.getName()));
+			}
+			writer.close();
+		} catch(IOException ioe) {
+			listener.getLogger().println(ioe.getMessage());
+			return false;
+		}
+		listener.getLogger().println(Messages.StructureBuilder_ResultStoreWritten(summaries.size(), 
+				ResultStore.FILE_NAME, file.length()));
+		return true;
+	}
+	
+	/**
+	 * Compresses or deletes the Structure output files of the successful runs, 
+	 * as configured.
+	 */
+	private void handleRawOutputs(SweepResult sweepResult, FilePath workspace, BuildListener listener) 
+			throws IOException, InterruptedException {
+		final boolean compress = RAW_OUTPUTS_COMPRESS.equals(this.rawOutputs);
+		if(!compress && !RAW_OUTPUTS_DELETE.equals(this.rawOutputs)) {
+			return;
+		}
+		int handled = 0;
+		for(RunResult result : sweepResult.getResults()) {
+			final FilePath output = workspace.child(
+					result.getRun().getOutputFileName(this.outFile) + STRUCTURE_OUTPUT_SUFFIX);
+			if(compress ? output.act(new OutputCompressor()) : output.delete()) {
+				++handled;
+			}
+		}
+		listener.getLogger().println(compress ? Messages.StructureBuilder_RawOutputsCompressed(handled) 
+				: Messages.StructureBuilder_RawOutputsDeleted(handled));
+	}
+	
+	/**
+	 * Adds the metrics of the sweep to the build, and writes them in the 
+	 * OpenMetrics text format to the build directory, and to the metrics 
+	 * directory of the global configuration if set.
+	 */
+	private void publishMetrics(AbstractBuild<?, ?> build, SweepMetrics metrics, BuildListener listener) {
+		final List<MetricValue> phases = metrics.getPhases();
+		final List<MetricValue> counters = metrics.getCounters();
+		build.addAction(new SweepMetricsAction(phases, counters));
+		final String job = build.getProject().getName();
+		final List<File> files = new ArrayList<File>();
+		files.add(new File(build.getRootDir(), METRICS_FILE_NAME));
+		if(StringUtils.isNotBlank(DESCRIPTOR.getMetricsDirectory())) {
+			files.add(new File(DESCRIPTOR.getMetricsDirectory(), 
+					"structure_" + job.replaceAll("[^A-Za-z0-9_.-]", "_") + ".prom"));
+		}
+		final OpenMetricsWriter writer = new OpenMetricsWriter(job, build.getNumber());
+		for(File file : files) {
+			try {
+				writer.write(phases, counters, file);
+			} catch(IOException ioe) {
+				listener.getLogger().println(Messages.StructureBuilder_MetricsWriteFailed(file, ioe.getMessage()));
+			}
+		}
+	}
+	
+	/**
+	 * @return the values of mainparams of each K in the first stage of the 
+	 * coarse-to-fine search, with short chains
+	 */
+	private SortedMap<Integer, MainParamsValues> createCoarseValues(SweepInput input) {
+		final long coarseBurnIn = this.coarseSearch.getSteps(valueOf(this.burnIn));
+		final long coarseNumReps = this.coarseSearch.getSteps(valueOf(this.numReps));
+		final SortedMap<Integer, MainParamsValues> coarseValues = new TreeMap<Integer, MainParamsValues>();
+		for(int k = 1; k <= this.maxPops; ++k) {
+			final MainParamsValues values = createValues(k, input);
+			values.set(MainParam.BURNIN, coarseBurnIn);
+			values.set(MainParam.NUMREPS, coarseNumReps);
+			coarseValues.put(k, values);
+		}
+		return coarseValues;
+	}
+	
+	/**
+	 * Renders every configuration of the extraparams grid, and logs the 
+	 * configurations that are not run.
+	 * 
+	 * @return the configurations to run, empty if there is no grid
+	 */
+	private List<GridConfiguration> createGridConfigurations(ParamGrid grid, ExtraParams extraParams, 
+			BuildListener listener) {
+		final List<GridConfiguration> configurations = new ArrayList<GridConfiguration>();
+		if(grid.isEmpty()) {
+			return configurations;
+		}
+		listener.getLogger().println(Messages.StructureBuilder_GridStage(grid.getNames(), grid.size()));
+		final ParamGrid.Configurations iterator = grid.configurations(extraParams);
+		while(iterator.hasNext()) {
+			final GridConfiguration configuration = iterator.next();
+			listener.getLogger().println(Messages.StructureBuilder_GridConfiguration(configuration.getId(), 
+					configuration, this.maxPops * getReplicatesCount()));
+			configurations.add(configuration);
+		}
+		if(iterator.getInvalid() > 0L) {
+			listener.getLogger().println(Messages.StructureBuilder_GridInvalid(iterator.getInvalid()));
+		}
+		if(iterator.getSkipped() > 0L) {
+			listener.getLogger().println(Messages.StructureBuilder_GridSkipped(iterator.getSkipped()));
+		}
+		return configurations;
+	}
+	
+	/**
+	 * Creates the cost model of the sweep, calibrated with the runs recorded 
+	 * by the last builds of the project.
+	 */
+	private RunCostModel createCostModel(AbstractBuild<?, ?> build, SweepInput input, 
+			ExtraParams effectiveParams, Map<Integer, Long> burnIns) throws IOException {
+		// With adaptive burn-in, the chains of each K have their own length
+		final Map<Integer, Double> unitsPerKByK = new HashMap<Integer, Double>();
+		for(Map.Entry<Integer, Long> burnIn : burnIns.entrySet()) {
+			unitsPerKByK.put(burnIn.getKey(), RunCostModel.getUnitsPerK(burnIn.getValue(), valueOf(this.numReps), 
+					input.getIndividuals(), input.getLoci()));
+		}
+		final RunCostModel model = new RunCostModel(RunCostModel.getModel(effectiveParams), 
+				RunCostModel.getUnitsPerK(valueOf(this.burnIn), valueOf(this.numReps), 
+						input.getIndividuals(), input.getLoci()), unitsPerKByK);
+		final List<SweepManifest> history = new ArrayList<SweepManifest>();
+		AbstractBuild<?, ?> previous = build.getPreviousBuild();
+		for(int i = 0; i < COST_MODEL_HISTORY && previous != null; ++i) {
+			final SweepManifest manifest = SweepManifest.load(new File(previous.getRootDir(), SweepManifest.FILE_NAME));
+			if(manifest != null) {
+				history.add(manifest);
+			}
+			previous = previous.getPreviousBuild();
+		}
+		return model.calibrate(history);
+	}
+	
+	private static long valueOf(Number number) {
+		return number == null ? 0L : number.longValue();
+	}
+	
+	/**
+	 * @return the speed measured by the node calibration for each node, by 
+	 * node name. Nodes not calibrated are left out
+	 */
+	private Map<String, NodeSpeed> getNodeSpeeds(List<ExecutionNode> nodes, StructureInstallation installation, 
+			String model) {
+		final Map<String, NodeSpeed> speeds = new HashMap<String, NodeSpeed>();
+		for(ExecutionNode node : nodes) {
+			final NodeSpeed speed = DESCRIPTOR.getNodeSpeed(node.getName(), installation.getName(), model);
+			if(speed != null) {
+				speeds.put(node.getName(), speed);
+			}
+		}
+		return speeds;
+	}
+	
+	/**
+	 * @return the policy that orders the runs of the sweep
+	 */
+	protected SchedulingPolicy createSchedulingPolicy() {
+		return new LongestFirstPolicy();
+	}
+	
+	/**
+	 * @return the provider of the nodes where Structure runs are executed
+	 */
+	protected NodeProvider createNodeProvider() {
+		return new LabelNodeProvider();
+	}
+	
+	/**
+	 * @return the limits on the resources used on each node, none if not 
+	 * configured
+	 */
+	private NodeResources getNodeResources() {
+		return this.resources != null ? this.resources : new NodeResources(null, null, null);
+	}
+	
+	private int getReplicatesCount() {
+		return this.numReplicates != null && this.numReplicates > 0 ? this.numReplicates : 1;
+	}
+	
+	private int getFailureLimit() {
+		return this.maxFailures != null ? this.maxFailures : 0;
+	}
+
+	/* (non-Javadoc)
+	 * @see hudson.tasks.BuildStepCompatibilityLayer#getProjectAction(hudson.model.AbstractProject)
+	 */
+	@Override
+	public Action getProjectAction(AbstractProject<?, ?> project) {
+		return new StructureTrendAction(project);
+	}
 
     // Overridden for better type safety.
     // If your plugin doesn't really define any property on Descriptor,
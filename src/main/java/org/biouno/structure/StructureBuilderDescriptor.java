@@ -24,13 +24,36 @@
 package org.biouno.structure;
 
 import hudson.CopyOnWrite;
+import hudson.FilePath;
+import hudson.model.AbstractProject;
 import hudson.model.Descriptor;
+import hudson.model.Hudson;
+import hudson.model.Item;
+import hudson.model.Label;
+import hudson.model.Node;
 import hudson.tasks.Builder;
 import hudson.util.FormValidation;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
 import net.sf.json.JSONObject;
 
 import org.apache.commons.lang.StringUtils;
+import org.biouno.structure.cache.NodeFileCache;
+import org.biouno.structure.cache.RunCache;
+import org.biouno.structure.calibration.NodeSpeed;
+import org.biouno.structure.input.InFileFormat;
+import org.biouno.structure.input.InFileReport;
+import org.biouno.structure.input.InFileScanner;
+import org.biouno.structure.parser.ParamGrid;
+import org.biouno.structure.parser.ParserException;
 import org.biouno.structure.util.Messages;
+import org.biouno.structure.util.Paths;
+import org.kohsuke.stapler.AncestorInPath;
 import org.kohsuke.stapler.QueryParameter;
 import org.kohsuke.stapler.StaplerRequest;
 
@@ -47,9 +70,55 @@ public class StructureBuilderDescriptor extends Descriptor<Builder> {
 	
 	private static final String DISPLAY_NAME = Messages.StructureDescriptor_DisplayName();
 	
+	private static final String CACHE_DIRECTORY = "structure-cache";
+	
+	/**
+	 * Number of individuals read from the input file when validating the form.
+	 */
+	private static final int VALIDATED_INDIVIDUALS = 100;
+	
+	/**
+	 * Largest number of configurations of an extraparams grid, unless 
+	 * configured otherwise. Each configuration runs every K and replicate.
+	 */
+	public static final long DEFAULT_MAX_GRID_SIZE = 100L;
+	
 	@CopyOnWrite
 	private volatile StructureInstallation[] installations = new StructureInstallation[0];
 	
+	/**
+	 * Maximum size of the run cache, in megabytes. Empty or zero disables the 
+	 * cache.
+	 */
+	private Long cacheMaxSize;
+	
+	private transient RunCache cache;
+	
+	/**
+	 * Maximum size of the input file cache of each node, in megabytes. Empty 
+	 * or zero disables the cache.
+	 */
+	private Long nodeCacheMaxSize;
+	
+	/**
+	 * Largest number of configurations of an extraparams grid, empty for 
+	 * {@link #DEFAULT_MAX_GRID_SIZE}.
+	 */
+	private Long maxGridSize;
+	
+	/**
+	 * Directory where the metrics of each job are written for a scraper, may 
+	 * be empty.
+	 */
+	private String metricsDirectory;
+	
+	/**
+	 * Speed of each installation on each node, for each model.
+	 */
+	private List<NodeSpeed> nodeSpeeds = new CopyOnWriteArrayList<NodeSpeed>();
+	
+	private transient Thread calibration;
+	
 	public StructureBuilderDescriptor() {
 		super(StructureBuilder.class);
 		load();
@@ -67,6 +136,108 @@ public class StructureBuilderDescriptor extends Descriptor<Builder> {
 		return this.installations;
 	}
 	
+	/**
+	 * @return the maximum size of the run cache, in megabytes
+	 */
+	public Long getCacheMaxSize() {
+		return cacheMaxSize;
+	}
+	
+	/**
+	 * @return the run cache, or <code>null</code> if disabled
+	 */
+	public synchronized RunCache getCache() {
+		if(cacheMaxSize == null || cacheMaxSize <= 0) {
+			return null;
+		}
+		final long maxSize = cacheMaxSize * 1024L * 1024L;
+		if(cache == null || cache.getMaxSize() != maxSize) {
+			cache = new RunCache(new File(Hudson.getInstance().getRootDir(), CACHE_DIRECTORY), maxSize);
+		}
+		return cache;
+	}
+	
+	/**
+	 * @return the maximum size of the input file cache of each node, in 
+	 * megabytes
+	 */
+	public Long getNodeCacheMaxSize() {
+		return nodeCacheMaxSize;
+	}
+	
+	/**
+	 * @return the largest number of configurations of an extraparams grid, 
+	 * as configured, may be <code>null</code>
+	 */
+	public Long getMaxGridSize() {
+		return maxGridSize;
+	}
+	
+	/**
+	 * @return the largest number of configurations of an extraparams grid
+	 */
+	public long getEffectiveMaxGridSize() {
+		return maxGridSize == null || maxGridSize <= 0 ? DEFAULT_MAX_GRID_SIZE : maxGridSize;
+	}
+	
+	/**
+	 * @return the input file cache of the nodes, or <code>null</code> if 
+	 * disabled
+	 */
+	public NodeFileCache getNodeCache() {
+		if(nodeCacheMaxSize == null || nodeCacheMaxSize <= 0) {
+			return null;
+		}
+		return new NodeFileCache(nodeCacheMaxSize * 1024L * 1024L);
+	}
+	
+	/**
+	 * @return the directory where the metrics of each job are written, may be 
+	 * empty
+	 */
+	public String getMetricsDirectory() {
+		return metricsDirectory;
+	}
+	
+	/**
+	 * @return the speed of each installation on each node, for each model
+	 */
+	public List<NodeSpeed> getNodeSpeeds() {
+		return nodeSpeeds;
+	}
+	
+	/**
+	 * @param node name of a node
+	 * @param installation name of a Structure installation
+	 * @param model a Structure model
+	 * @return the speed measured for the node, installation and model, or 
+	 * <code>null</code> if not calibrated
+	 */
+	public NodeSpeed getNodeSpeed(String node, String installation, String model) {
+		for(NodeSpeed speed : nodeSpeeds) {
+			if(speed.matches(node, installation, model)) {
+				return speed;
+			}
+		}
+		return null;
+	}
+	
+	/**
+	 * Stores a speed, replacing the previous speed of the same node, 
+	 * installation and model.
+	 * 
+	 * @param speed the speed
+	 */
+	public synchronized void setNodeSpeed(NodeSpeed speed) {
+		for(NodeSpeed existing : nodeSpeeds) {
+			if(existing.matches(speed.getNode(), speed.getInstallation(), speed.getModel())) {
+				nodeSpeeds.remove(existing);
+			}
+		}
+		nodeSpeeds.add(speed);
+		save();
+	}
+	
 	public StructureInstallation getInstallationByName(String name) {
 		StructureInstallation found = null;
 		for(StructureInstallation installation : this.installations) {
@@ -87,10 +258,55 @@ public class StructureBuilderDescriptor extends Descriptor<Builder> {
 	public boolean configure(StaplerRequest req, JSONObject json)
 			throws hudson.model.Descriptor.FormException {
 		this.installations = req.bindParametersToList(StructureInstallation.class, "Structure.").toArray(new StructureInstallation[0]);
+		this.cacheMaxSize = parseLong(req.getParameter("Structure.cacheMaxSize"));
+		this.nodeCacheMaxSize = parseLong(req.getParameter("Structure.nodeCacheMaxSize"));
+		this.maxGridSize = parseLong(req.getParameter("Structure.maxGridSize"));
+		this.metricsDirectory = StringUtils.trimToNull(req.getParameter("Structure.metricsDirectory"));
 		save();
 		return Boolean.TRUE;
 	}
 	
+	/**
+	 * Starts the calibration of every installation on the nodes with the 
+	 * label, or on every node if the label is blank. Runs in background, and 
+	 * writes its log to the Jenkins home.
+	 */
+	public synchronized FormValidation doCalibrate(@QueryParameter String label) {
+		Hudson.getInstance().checkPermission(Hudson.ADMINISTER);
+		if(calibration != null && calibration.isAlive()) {
+			return FormValidation.warning(Messages.StructureDescriptor_CalibrationRunning());
+		}
+		final List<Node> nodes = new ArrayList<Node>();
+		if(StringUtils.isBlank(label)) {
+			nodes.add(Hudson.getInstance());
+			nodes.addAll(Hudson.getInstance().getNodes());
+		} else {
+			final Label nodeLabel = Hudson.getInstance().getLabel(label.trim());
+			if(nodeLabel != null) {
+				nodes.addAll(nodeLabel.getNodes());
+			}
+		}
+		if(nodes.isEmpty()) {
+			return FormValidation.error(Messages.StructureBuilder_NoNodeForLabel(label));
+		}
+		final File log = new File(Hudson.getInstance().getRootDir(), CalibrationTask.LOG_FILE_NAME);
+		calibration = new Thread(new CalibrationTask(this, nodes, log), "Structure calibration");
+		calibration.setDaemon(true);
+		calibration.start();
+		return FormValidation.ok(Messages.StructureDescriptor_CalibrationStarted(nodes.size(), log));
+	}
+	
+	private static Long parseLong(String value) {
+		if(StringUtils.isBlank(value)) {
+			return null;
+		}
+		try {
+			return Long.parseLong(value.trim());
+		} catch ( NumberFormatException nfe ) {
+			return null;
+		}
+	}
+	
 	public FormValidation doRequired(@QueryParameter String value) {
 		FormValidation returnValue = FormValidation.ok();
 		if(StringUtils.isBlank(value)) {
@@ -99,6 +315,83 @@ public class StructureBuilderDescriptor extends Descriptor<Builder> {
 		return returnValue;
 	}
 	
+	/**
+	 * Scans the start of the input file in the project workspace, and checks 
+	 * it against the number of individuals and loci and the data file format 
+	 * given in the form. Only users allowed to configure the project can 
+	 * validate a file, and only paths inside its workspace are read. The 
+	 * whole file is checked when the build runs.
+	 */
+	public FormValidation doValidateInFile(@AncestorInPath AbstractProject<?, ?> project, 
+			@QueryParameter String value, @QueryParameter String numInds, @QueryParameter String numLoci, 
+			@QueryParameter String ploidy, @QueryParameter String missing, @QueryParameter String oneRowPerInd, 
+			@QueryParameter String label, @QueryParameter String popData, @QueryParameter String popFlag, 
+			@QueryParameter String locData, @QueryParameter String phenotype, @QueryParameter String extraCols, 
+			@QueryParameter String markerNames, @QueryParameter String recessiveAlleles, 
+			@QueryParameter String mapDistances, @QueryParameter String phaseInfo) 
+			throws IOException, InterruptedException {
+		if(StringUtils.isBlank(value)) {
+			return FormValidation.error(Messages.StructureDescriptor_Required());
+		}
+		if(project == null) {
+			return FormValidation.warning(Messages.StructureDescriptor_InFileNotAvailable());
+		}
+		project.checkPermission(Item.CONFIGURE);
+		if(!Paths.isInside(value)) {
+			return FormValidation.warning(Messages.StructureDescriptor_InFileOutsideWorkspace());
+		}
+		final FilePath workspace = project.getSomeWorkspace();
+		final FilePath input = workspace == null ? null : workspace.child(value);
+		if(input == null || !input.exists()) {
+			return FormValidation.warning(Messages.StructureDescriptor_InFileNotAvailable());
+		}
+		final Long ploidyValue = parseLong(ploidy);
+		final Long missingValue = parseLong(missing);
+		final Long extraColsValue = parseLong(extraCols);
+		final InFileFormat format = new InFileFormat(
+				ploidyValue == null ? 2 : ploidyValue.intValue(), 
+				missingValue == null ? -9 : missingValue.intValue(), 
+				Boolean.parseBoolean(oneRowPerInd), Boolean.parseBoolean(label), 
+				Boolean.parseBoolean(popData), Boolean.parseBoolean(popFlag), 
+				Boolean.parseBoolean(locData), Boolean.parseBoolean(phenotype), 
+				extraColsValue == null ? 0 : extraColsValue.intValue(), 
+				Boolean.parseBoolean(markerNames), Boolean.parseBoolean(recessiveAlleles), 
+				Boolean.parseBoolean(mapDistances), Boolean.parseBoolean(phaseInfo));
+		final InFileReport report = input.act(new InFileScanner(format, VALIDATED_INDIVIDUALS));
+		final Long inds = parseLong(numInds);
+		final Long loci = parseLong(numLoci);
+		final List<String> problems = report.check(inds == null ? null : inds.intValue(), 
+				loci == null ? null : loci.intValue());
+		if(!problems.isEmpty()) {
+			return FormValidation.error(StringUtils.join(problems, "; "));
+		}
+		if(!report.isComplete()) {
+			return FormValidation.ok(Messages.StructureDescriptor_InFileStartValid(report.getIndividuals(), 
+					report.getLoci()));
+		}
+		return FormValidation.ok(Messages.StructureDescriptor_InFileValid(report.getIndividuals(), report.getLoci()));
+	}
+	
+	/**
+	 * Checks the extraparams grid, and the values it gives against the type 
+	 * and range of each extraparam.
+	 */
+	public FormValidation doValidateParamGrid(@QueryParameter String value) {
+		try {
+			final ParamGrid grid = ParamGrid.parse(value);
+			if(grid.isEmpty()) {
+				return FormValidation.ok();
+			}
+			if(grid.size() > getEffectiveMaxGridSize()) {
+				return FormValidation.error(Messages.StructureBuilder_GridTooLarge(grid.size(), 
+						getEffectiveMaxGridSize()));
+			}
+			return FormValidation.ok(Messages.StructureDescriptor_ParamGridValid(grid.size()));
+		} catch (ParserException e) {
+			return FormValidation.error(e.getMessage());
+		}
+	}
+	
 	public FormValidation doLongRequired(@QueryParameter String value) {
 		FormValidation returnValue = FormValidation.ok();
 		if(StringUtils.isNotBlank(value)) {
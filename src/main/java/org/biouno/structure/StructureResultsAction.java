@@ -0,0 +1,178 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) <2012> <Bruno P. Kinoshita>
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.biouno.structure;
+
+import hudson.model.AbstractBuild;
+import hudson.model.Action;
+import hudson.model.Api;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import javax.servlet.http.HttpServletResponse;
+
+import org.biouno.structure.alignment.KAlignment;
+import org.biouno.structure.results.KStatistics;
+import org.biouno.structure.results.QMatrixFormat;
+import org.biouno.structure.results.ResultStore;
+import org.biouno.structure.util.Messages;
+import org.kohsuke.stapler.StaplerRequest;
+import org.kohsuke.stapler.StaplerResponse;
+import org.kohsuke.stapler.export.Exported;
+import org.kohsuke.stapler.export.ExportedBean;
+
+/**
+ * Estimated Ln Prob of Data of each K of the Structure sweep of a build, and 
+ * the Evanno Delta K. Updated while the sweep runs, each time a run finishes.
+ * 
+ * @author Bruno P. Kinoshita - http://www.kinoshita.eti.br
+ * @since 0.1
+ */
+@ExportedBean
+public class StructureResultsAction implements Action {
+
+	/**
+	 * Statistics of each K, replaced as a whole on each update.
+	 */
+	private volatile List<KStatistics> statistics = Collections.emptyList();
+	/**
+	 * Cluster alignment of the replicates of each K, set when the sweep ends.
+	 */
+	private volatile List<KAlignment> alignments = Collections.emptyList();
+
+	/**
+	 * @param statistics statistics of each K
+	 */
+	public void update(List<KStatistics> statistics) {
+		this.statistics = Collections.unmodifiableList(new ArrayList<KStatistics>(statistics));
+	}
+
+	/**
+	 * @return the statistics of each K
+	 */
+	@Exported
+	public List<KStatistics> getStatistics() {
+		return statistics;
+	}
+
+	/**
+	 * @param alignments cluster alignment of the replicates of each K
+	 */
+	public void setAlignments(List<KAlignment> alignments) {
+		this.alignments = Collections.unmodifiableList(new ArrayList<KAlignment>(alignments));
+	}
+
+	/**
+	 * @return the cluster alignment of the replicates of each K
+	 */
+	@Exported
+	public List<KAlignment> getAlignments() {
+		return alignments;
+	}
+
+	/**
+	 * @return the K with the largest Delta K, or <code>null</code> if no 
+	 * Delta K could be computed
+	 */
+	@Exported
+	public Integer getBestK() {
+		KStatistics best = null;
+		for (KStatistics k : statistics) {
+			if (k.getDeltaK() != null && (best == null || k.getDeltaK() > best.getDeltaK())) {
+				best = k;
+			}
+		}
+		return best == null ? null : best.getK();
+	}
+
+	/**
+	 * Writes the Q-matrices of the replicates of a K, read from the 
+	 * {@link ResultStore} of the build, as text. The replicate may be given 
+	 * to get a single Q-matrix.
+	 */
+	public void doQMatrix(StaplerRequest req, StaplerResponse rsp) throws IOException {
+		final AbstractBuild<?, ?> build = req.findAncestorObject(AbstractBuild.class);
+		final ResultStore store = ResultStore.open(new File(build.getRootDir(), ResultStore.FILE_NAME));
+		final Integer k = parseInt(req.getParameter("k"));
+		final Integer replicate = parseInt(req.getParameter("replicate"));
+		if (store == null || k == null) {
+			rsp.sendError(HttpServletResponse.SC_NOT_FOUND);
+			return;
+		}
+		final StringBuilder text = new StringBuilder();
+		for (ResultStore.Entry entry : store.getEntries()) {
+			if (entry.getK() == k && entry.getClusters() > 0 
+					&& (replicate == null || entry.getReplicate() == replicate)) {
+				text.append("# K=").append(k).append(" replicate=").append(entry.getReplicate()).append('\n');
+				QMatrixFormat.format(text, store.getQMatrix(entry), store.getLabels());
+			}
+		}
+		if (text.length() == 0) {
+			rsp.sendError(HttpServletResponse.SC_NOT_FOUND);
+			return;
+		}
+		rsp.setContentType("text/plain;charset=UTF-8");
+		rsp.getWriter().print(text);
+	}
+
+	private static Integer parseInt(String value) {
+		try {
+			return value == null ? null : Integer.valueOf(value);
+		} catch (NumberFormatException nfe) {
+			return null;
+		}
+	}
+
+	/**
+	 * @return the remote API of this action
+	 */
+	public Api getApi() {
+		return new Api(this);
+	}
+
+	/* (non-Javadoc)
+	 * @see hudson.model.Action#getIconFileName()
+	 */
+	public String getIconFileName() {
+		return "document.png";
+	}
+
+	/* (non-Javadoc)
+	 * @see hudson.model.Action#getDisplayName()
+	 */
+	public String getDisplayName() {
+		return Messages.StructureResultsAction_DisplayName();
+	}
+
+	/* (non-Javadoc)
+	 * @see hudson.model.Action#getUrlName()
+	 */
+	public String getUrlName() {
+		return "structureResults";
+	}
+
+}
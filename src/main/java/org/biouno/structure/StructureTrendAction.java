@@ -0,0 +1,170 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) <2012> <Bruno P. Kinoshita>
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.biouno.structure;
+
+import hudson.model.AbstractBuild;
+import hudson.model.AbstractProject;
+import hudson.model.Action;
+import hudson.model.Api;
+import hudson.model.Item;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.biouno.structure.execution.RunResult;
+import org.biouno.structure.execution.SweepManifest;
+import org.biouno.structure.trend.BuildTrend;
+import org.biouno.structure.trend.TrendGraph;
+import org.biouno.structure.trend.TrendIndex;
+import org.biouno.structure.util.Messages;
+import org.biouno.structure.util.Requests;
+import org.kohsuke.stapler.StaplerRequest;
+import org.kohsuke.stapler.StaplerResponse;
+import org.kohsuke.stapler.export.Exported;
+import org.kohsuke.stapler.export.ExportedBean;
+
+/**
+ * Trend of the Ln Prob of Data and of the Delta K of each K across the builds 
+ * of a project, read from the {@link TrendIndex} of the project.
+ * 
+ * @author Bruno P. Kinoshita - http://www.kinoshita.eti.br
+ * @since 0.1
+ */
+@ExportedBean
+public class StructureTrendAction implements Action {
+
+	private final AbstractProject<?, ?> project;
+
+	/**
+	 * @param project the project
+	 */
+	public StructureTrendAction(AbstractProject<?, ?> project) {
+		this.project = project;
+	}
+
+	/**
+	 * @return the index of the project
+	 */
+	public TrendIndex getIndex() {
+		return TrendIndex.of(project.getRootDir());
+	}
+
+	/**
+	 * @return the summary of each build in the index that was not deleted or 
+	 * rotated, by build number
+	 * @throws IOException if the index cannot be read
+	 */
+	@Exported
+	public List<BuildTrend> getBuilds() throws IOException {
+		return getIndex().getBuilds(project.getBuildsAsMap().keySet());
+	}
+
+	/**
+	 * @return whether a line of the index could not be read, and the index 
+	 * should be rebuilt
+	 * @throws IOException if the index cannot be read
+	 */
+	@Exported
+	public boolean isDamaged() throws IOException {
+		return getIndex().isDamaged();
+	}
+
+	/**
+	 * @return the graph of the mean Ln Prob of Data of each K
+	 * @throws IOException if the index cannot be read
+	 */
+	public TrendGraph getLnProbDataGraph() throws IOException {
+		return new TrendGraph(getTimestamp(), getBuilds(), false, Messages.StructureTrendAction_LnProbData());
+	}
+
+	/**
+	 * @return the graph of the Delta K of each K
+	 * @throws IOException if the index cannot be read
+	 */
+	public TrendGraph getDeltaKGraph() throws IOException {
+		return new TrendGraph(getTimestamp(), getBuilds(), true, Messages.StructureTrendAction_DeltaK());
+	}
+
+	private long getTimestamp() {
+		return new File(project.getRootDir(), TrendIndex.FILE_NAME).lastModified();
+	}
+
+	/**
+	 * Rebuilds the index from the results recorded by each build. Only a 
+	 * POST, sent by the form of the index page, is accepted.
+	 */
+	public void doRebuild(StaplerRequest req, StaplerResponse rsp) throws IOException {
+		if (!Requests.requirePost(req, rsp)) {
+			return;
+		}
+		project.checkPermission(Item.CONFIGURE);
+		final List<BuildTrend> builds = new ArrayList<BuildTrend>();
+		for (AbstractBuild<?, ?> build : project.getBuilds()) {
+			final StructureResultsAction results = build.getAction(StructureResultsAction.class);
+			if (results == null || build.isBuilding()) {
+				continue;
+			}
+			final SweepManifest manifest = SweepManifest.load(new File(build.getRootDir(), SweepManifest.FILE_NAME));
+			final List<RunResult> runs = manifest == null ? Collections.<RunResult>emptyList() : manifest.getResults();
+			builds.add(BuildTrend.create(build.getNumber(), build.getTimeInMillis(), build.getDuration(), 
+					results.getStatistics(), runs));
+		}
+		// The builds are listed from the newest
+		Collections.reverse(builds);
+		getIndex().rebuild(builds);
+		rsp.sendRedirect2(".");
+	}
+
+	/**
+	 * @return the remote API of this action
+	 */
+	public Api getApi() {
+		return new Api(this);
+	}
+
+	/* (non-Javadoc)
+	 * @see hudson.model.Action#getIconFileName()
+	 */
+	public String getIconFileName() {
+		return "graph.png";
+	}
+
+	/* (non-Javadoc)
+	 * @see hudson.model.Action#getDisplayName()
+	 */
+	public String getDisplayName() {
+		return Messages.StructureTrendAction_DisplayName();
+	}
+
+	/* (non-Javadoc)
+	 * @see hudson.model.Action#getUrlName()
+	 */
+	public String getUrlName() {
+		return "structureTrend";
+	}
+
+}
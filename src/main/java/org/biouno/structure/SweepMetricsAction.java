@@ -0,0 +1,111 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) <2012> <Bruno P. Kinoshita>
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.biouno.structure;
+
+import hudson.model.Action;
+import hudson.model.Api;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.biouno.structure.metrics.MetricValue;
+import org.biouno.structure.util.Messages;
+import org.kohsuke.stapler.export.Exported;
+import org.kohsuke.stapler.export.ExportedBean;
+
+/**
+ * Where the time of the Structure sweep of a build went: the wall-clock time 
+ * of each phase of the sweep, and the counters of runs, bytes transferred and 
+ * process CPU time. Also written in the OpenMetrics text format with the 
+ * build, see {@link StructureBuilder#METRICS_FILE_NAME}.
+ * 
+ * @author Bruno P. Kinoshita - http://www.kinoshita.eti.br
+ * @since 0.1
+ */
+@ExportedBean
+public class SweepMetricsAction implements Action {
+
+	/**
+	 * Time of each phase.
+	 */
+	private final List<MetricValue> phases;
+	/**
+	 * Value of each counter.
+	 */
+	private final List<MetricValue> counters;
+
+	/**
+	 * @param phases time of each phase
+	 * @param counters value of each counter
+	 */
+	public SweepMetricsAction(List<MetricValue> phases, List<MetricValue> counters) {
+		this.phases = new ArrayList<MetricValue>(phases);
+		this.counters = new ArrayList<MetricValue>(counters);
+	}
+
+	/**
+	 * @return the time of each phase
+	 */
+	@Exported
+	public List<MetricValue> getPhases() {
+		return phases;
+	}
+
+	/**
+	 * @return the value of each counter
+	 */
+	@Exported
+	public List<MetricValue> getCounters() {
+		return counters;
+	}
+
+	/**
+	 * @return the remote API of this action
+	 */
+	public Api getApi() {
+		return new Api(this);
+	}
+
+	/* (non-Javadoc)
+	 * @see hudson.model.Action#getIconFileName()
+	 */
+	public String getIconFileName() {
+		return "monitor.png";
+	}
+
+	/* (non-Javadoc)
+	 * @see hudson.model.Action#getDisplayName()
+	 */
+	public String getDisplayName() {
+		return Messages.SweepMetricsAction_DisplayName();
+	}
+
+	/* (non-Javadoc)
+	 * @see hudson.model.Action#getUrlName()
+	 */
+	public String getUrlName() {
+		return "structureMetrics";
+	}
+
+}
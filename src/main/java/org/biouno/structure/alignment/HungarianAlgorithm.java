@@ -0,0 +1,100 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) <2012> <Bruno P. Kinoshita>
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.biouno.structure.alignment;
+
+import java.util.Arrays;
+
+/**
+ * Optimal assignment of a square cost matrix (Kuhn-Munkres), in O(n^3), with 
+ * row and column potentials.
+ * 
+ * @author Bruno P. Kinoshita - http://www.kinoshita.eti.br
+ * @since 0.1
+ */
+public final class HungarianAlgorithm {
+
+	private HungarianAlgorithm() {
+	}
+
+	/**
+	 * @param cost square cost matrix, <code>cost[row][column]</code>
+	 * @return the column assigned to each row, with the least total cost
+	 */
+	public static int[] solve(double[][] cost) {
+		final int n = cost.length;
+		// 1-based arrays, index 0 is the virtual column used to start each row
+		final double[] u = new double[n + 1];
+		final double[] v = new double[n + 1];
+		final int[] match = new int[n + 1];
+		final int[] way = new int[n + 1];
+		final double[] minimum = new double[n + 1];
+		final boolean[] used = new boolean[n + 1];
+		for (int row = 1; row <= n; ++row) {
+			match[0] = row;
+			int column = 0;
+			Arrays.fill(minimum, Double.POSITIVE_INFINITY);
+			Arrays.fill(used, false);
+			do {
+				used[column] = true;
+				final int current = match[column];
+				double delta = Double.POSITIVE_INFINITY;
+				int next = 0;
+				for (int j = 1; j <= n; ++j) {
+					if (!used[j]) {
+						final double reduced = cost[current - 1][j - 1] - u[current] - v[j];
+						if (reduced < minimum[j]) {
+							minimum[j] = reduced;
+							way[j] = column;
+						}
+						if (minimum[j] < delta) {
+							delta = minimum[j];
+							next = j;
+						}
+					}
+				}
+				for (int j = 0; j <= n; ++j) {
+					if (used[j]) {
+						u[match[j]] += delta;
+						v[j] -= delta;
+					} else {
+						minimum[j] -= delta;
+					}
+				}
+				column = next;
+			} while (match[column] != 0);
+			// Flip the augmenting path
+			do {
+				final int previous = way[column];
+				match[column] = match[previous];
+				column = previous;
+			} while (column != 0);
+		}
+		final int[] assignment = new int[n];
+		for (int j = 1; j <= n; ++j) {
+			assignment[match[j] - 1] = j - 1;
+		}
+		return assignment;
+	}
+
+}
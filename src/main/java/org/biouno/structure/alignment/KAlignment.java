@@ -0,0 +1,124 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) <2012> <Bruno P. Kinoshita>
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.biouno.structure.alignment;
+
+import java.io.Serializable;
+
+import org.kohsuke.stapler.export.Exported;
+import org.kohsuke.stapler.export.ExportedBean;
+
+/**
+ * Replicates of a K with their clusters aligned, and their consensus 
+ * membership matrix.
+ * 
+ * @author Bruno P. Kinoshita - http://www.kinoshita.eti.br
+ * @since 0.1
+ */
+@ExportedBean(defaultVisibility = 2)
+public class KAlignment implements Serializable {
+
+	private static final long serialVersionUID = -6148030187614587521L;
+
+	private final int k;
+	/**
+	 * Cluster of each replicate matching each consensus cluster, 
+	 * <code>permutations[replicate][cluster]</code>.
+	 */
+	private final int[][] permutations;
+	/**
+	 * Mean of the aligned Q-matrices, kept only while the build is running.
+	 */
+	private final transient double[][] consensus;
+	/**
+	 * Mean pairwise similarity G' of the aligned replicates.
+	 */
+	private final double similarity;
+	private final int iterations;
+
+	/**
+	 * @param k the K
+	 * @param permutations cluster of each replicate matching each consensus 
+	 * cluster
+	 * @param consensus mean of the aligned Q-matrices
+	 * @param similarity mean pairwise similarity G' of the aligned replicates
+	 * @param iterations number of alignment rounds
+	 */
+	public KAlignment(int k, int[][] permutations, double[][] consensus, double similarity, int iterations) {
+		this.k = k;
+		this.permutations = permutations;
+		this.consensus = consensus;
+		this.similarity = similarity;
+		this.iterations = iterations;
+	}
+
+	/**
+	 * @return the k
+	 */
+	@Exported
+	public int getK() {
+		return k;
+	}
+
+	/**
+	 * @return the number of replicates aligned
+	 */
+	@Exported
+	public int getReplicates() {
+		return permutations.length;
+	}
+
+	/**
+	 * @return the cluster of each replicate matching each consensus cluster
+	 */
+	@Exported
+	public int[][] getPermutations() {
+		return permutations;
+	}
+
+	/**
+	 * @return the consensus membership matrix, or <code>null</code> if the 
+	 * alignment was loaded from disk
+	 */
+	public double[][] getConsensus() {
+		return consensus;
+	}
+
+	/**
+	 * @return the mean pairwise similarity G' of the aligned replicates, 1 
+	 * when the replicates are identical
+	 */
+	@Exported
+	public double getSimilarity() {
+		return similarity;
+	}
+
+	/**
+	 * @return the number of alignment rounds
+	 */
+	@Exported
+	public int getIterations() {
+		return iterations;
+	}
+
+}
@@ -0,0 +1,232 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) <2012> <Bruno P. Kinoshita>
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.biouno.structure.alignment;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Aligns the cluster labels of the replicates of a K, as CLUMPP does. Each 
+ * replicate is matched against the consensus, the mean of the aligned 
+ * replicates, with the optimal permutation found by the 
+ * {@link HungarianAlgorithm}, which is exact in O(K^3) where the CLUMPP 
+ * full search is O(K!). The consensus is then recomputed, until no 
+ * permutation changes.
+ * <p>
+ * The K values are independent, and are aligned in parallel.
+ * 
+ * @author Bruno P. Kinoshita - http://www.kinoshita.eti.br
+ * @since 0.1
+ */
+public class QMatrixAligner {
+
+	/**
+	 * Greatest number of alignment rounds.
+	 */
+	private static final int MAX_ITERATIONS = 20;
+
+	private final int threads;
+
+	/**
+	 * @param threads number of K values aligned at the same time
+	 */
+	public QMatrixAligner(int threads) {
+		this.threads = Math.max(1, threads);
+	}
+
+	/**
+	 * Aligns every K, in parallel.
+	 * 
+	 * @param replicatesByK Q-matrices of the replicates of each K
+	 * @return the alignment of each K with at least one replicate, in the 
+	 * iteration order of the map
+	 * @throws InterruptedException if interrupted while aligning
+	 */
+	public List<KAlignment> alignAll(Map<Integer, List<double[][]>> replicatesByK) throws InterruptedException {
+		final ExecutorService pool = Executors.newFixedThreadPool(Math.min(threads, Math.max(1, replicatesByK.size())));
+		try {
+			final List<Future<KAlignment>> futures = new ArrayList<Future<KAlignment>>();
+			for (final Map.Entry<Integer, List<double[][]>> entry : replicatesByK.entrySet()) {
+				futures.add(pool.submit(new Callable<KAlignment>() {
+					public KAlignment call() {
+						return align(entry.getKey(), entry.getValue());
+					}
+				}));
+			}
+			final List<KAlignment> alignments = new ArrayList<KAlignment>(futures.size());
+			for (Future<KAlignment> future : futures) {
+				try {
+					final KAlignment alignment = future.get();
+					if (alignment != null) {
+						alignments.add(alignment);
+					}
+				} catch (ExecutionException ee) {
+					throw new IllegalStateException(ee.getCause());
+				}
+			}
+			return alignments;
+		} finally {
+			pool.shutdownNow();
+		}
+	}
+
+	/**
+	 * @param k the K
+	 * @param replicates Q-matrices of the replicates, with the same 
+	 * individuals and K columns
+	 * @return the alignment, or <code>null</code> if there is no replicate
+	 */
+	public KAlignment align(int k, List<double[][]> replicates) {
+		final int count = replicates.size();
+		if (count == 0) {
+			return null;
+		}
+		final int individuals = replicates.get(0).length;
+		final int[][] permutations = new int[count][];
+		for (int r = 0; r < count; ++r) {
+			permutations[r] = identity(k);
+		}
+		double[][] consensus = consensus(replicates, permutations, individuals, k);
+		int iteration = 0;
+		boolean changed = true;
+		while (changed && iteration < MAX_ITERATIONS) {
+			++iteration;
+			changed = false;
+			for (int r = 0; r < count; ++r) {
+				final int[] permutation = HungarianAlgorithm.solve(cost(consensus, replicates.get(r), k));
+				if (!Arrays.equals(permutation, permutations[r])) {
+					permutations[r] = permutation;
+					changed = true;
+				}
+			}
+			if (changed) {
+				consensus = consensus(replicates, permutations, individuals, k);
+			}
+		}
+		return new KAlignment(k, permutations, consensus, similarity(replicates, permutations, k), iteration);
+	}
+
+	/**
+	 * Cost of matching each consensus cluster with each replicate cluster, 
+	 * the sum of the squared differences of memberships over individuals.
+	 */
+	static double[][] cost(double[][] consensus, double[][] replicate, int k) {
+		final double[][] cost = new double[k][k];
+		for (int i = 0; i < consensus.length; ++i) {
+			final double[] c = consensus[i];
+			final double[] q = replicate[i];
+			for (int a = 0; a < k; ++a) {
+				final double[] row = cost[a];
+				final double ca = c[a];
+				for (int b = 0; b < k; ++b) {
+					final double d = ca - q[b];
+					row[b] += d * d;
+				}
+			}
+		}
+		return cost;
+	}
+
+	private static double[][] consensus(List<double[][]> replicates, int[][] permutations, int individuals, int k) {
+		final double[][] consensus = new double[individuals][k];
+		for (int r = 0; r < replicates.size(); ++r) {
+			final double[][] q = replicates.get(r);
+			final int[] permutation = permutations[r];
+			for (int i = 0; i < individuals; ++i) {
+				final double[] row = consensus[i];
+				final double[] qi = q[i];
+				for (int a = 0; a < k; ++a) {
+					row[a] += qi[permutation[a]];
+				}
+			}
+		}
+		final double scale = 1.0d / replicates.size();
+		for (double[] row : consensus) {
+			for (int a = 0; a < k; ++a) {
+				row[a] *= scale;
+			}
+		}
+		return consensus;
+	}
+
+	/**
+	 * Mean pairwise similarity G' of CLUMPP: 1 - ||Q1 - Q2|| / 
+	 * sqrt(||Q1 - W|| ||Q2 - W||), with W the matrix where every 
+	 * membership is 1/K.
+	 */
+	private static double similarity(List<double[][]> replicates, int[][] permutations, int k) {
+		final int count = replicates.size();
+		if (count < 2) {
+			return 1.0d;
+		}
+		final double uniform = 1.0d / k;
+		final double[] distanceToUniform = new double[count];
+		for (int r = 0; r < count; ++r) {
+			double sum = 0.0d;
+			for (double[] row : replicates.get(r)) {
+				for (double value : row) {
+					sum += (value - uniform) * (value - uniform);
+				}
+			}
+			distanceToUniform[r] = Math.sqrt(sum);
+		}
+		double total = 0.0d;
+		int pairs = 0;
+		for (int r1 = 0; r1 < count; ++r1) {
+			for (int r2 = r1 + 1; r2 < count; ++r2) {
+				final double[][] q1 = replicates.get(r1);
+				final double[][] q2 = replicates.get(r2);
+				final int[] p1 = permutations[r1];
+				final int[] p2 = permutations[r2];
+				double sum = 0.0d;
+				for (int i = 0; i < q1.length; ++i) {
+					for (int a = 0; a < k; ++a) {
+						final double d = q1[i][p1[a]] - q2[i][p2[a]];
+						sum += d * d;
+					}
+				}
+				final double norm = Math.sqrt(distanceToUniform[r1] * distanceToUniform[r2]);
+				total += norm == 0.0d ? (sum == 0.0d ? 1.0d : 0.0d) : 1.0d - Math.sqrt(sum) / norm;
+				++pairs;
+			}
+		}
+		return total / pairs;
+	}
+
+	private static int[] identity(int k) {
+		final int[] permutation = new int[k];
+		for (int a = 0; a < k; ++a) {
+			permutation[a] = a;
+		}
+		return permutation;
+	}
+
+}
@@ -0,0 +1,81 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) <2012> <Bruno P. Kinoshita>
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.biouno.structure.cache;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Hits and misses of a cache during a build.
+ * 
+ * @author Bruno P. Kinoshita - http://www.kinoshita.eti.br
+ * @since 0.1
+ */
+public class CacheStatistics {
+
+	private final AtomicInteger hits = new AtomicInteger(0);
+	private final AtomicInteger misses = new AtomicInteger(0);
+	/**
+	 * Bytes not transferred thanks to the hits.
+	 */
+	private final AtomicLong bytesSaved = new AtomicLong(0L);
+
+	public void hit() {
+		hits.incrementAndGet();
+	}
+
+	/**
+	 * @param bytes bytes not transferred thanks to the hit
+	 */
+	public void hit(long bytes) {
+		hits.incrementAndGet();
+		bytesSaved.addAndGet(bytes);
+	}
+
+	public void miss() {
+		misses.incrementAndGet();
+	}
+
+	/**
+	 * @return the hits
+	 */
+	public int getHits() {
+		return hits.get();
+	}
+
+	/**
+	 * @return the misses
+	 */
+	public int getMisses() {
+		return misses.get();
+	}
+
+	/**
+	 * @return the bytes not transferred thanks to the hits
+	 */
+	public long getBytesSaved() {
+		return bytesSaved.get();
+	}
+
+}
@@ -0,0 +1,252 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) <2012> <Bruno P. Kinoshita>
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.biouno.structure.cache;
+
+import hudson.FilePath;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.biouno.structure.execution.BatchStructureRunner;
+import org.biouno.structure.execution.RunResult;
+import org.biouno.structure.execution.StructureRun;
+import org.biouno.structure.execution.StructureRunner;
+import org.biouno.structure.util.Messages;
+
+/**
+ * Restores the outputs of a run from the {@link RunCache} when its key is 
+ * found, without launching Structure. Otherwise runs Structure, and stores 
+ * the outputs of successful runs in the cache.
+ * <p>
+ * Output files are stored without the run name, e.g. <code>_f</code>, so that 
+ * they can be restored for any run with the same key. The run log is stored 
+ * as {@link #LOG_ENTRY}. In a batch, the runs found are restored first, and 
+ * the others are executed by the delegate as a single batch. A run whose 
+ * entry cannot be restored is executed as a cache miss.
+ * 
+ * @author Bruno P. Kinoshita - http://www.kinoshita.eti.br
+ * @since 0.1
+ */
+public class CachingStructureRunner implements BatchStructureRunner {
+
+	/**
+	 * Name of the run log in a cache entry.
+	 */
+	public static final String LOG_ENTRY = ".log.gz";
+	/**
+	 * Name of the node reported for restored runs.
+	 */
+	public static final String CACHE_NODE = "cache";
+
+	private final StructureRunner delegate;
+	private final RunCache cache;
+	/**
+	 * Cache key of each run.
+	 */
+	private final Map<StructureRun, String> keys;
+	/**
+	 * Build workspace, where the outputs are.
+	 */
+	private final FilePath workspace;
+	/**
+	 * Name of output data file.
+	 */
+	private final String outFile;
+	private final CacheStatistics statistics;
+	private final PrintStream logger;
+
+	/**
+	 * @param delegate runner used on cache misses
+	 * @param cache the cache
+	 * @param keys cache key of each run
+	 * @param workspace build workspace
+	 * @param outFile name of output data file
+	 * @param statistics hits and misses of the build
+	 * @param logger build logger
+	 */
+	public CachingStructureRunner(StructureRunner delegate, RunCache cache,
+			Map<StructureRun, String> keys, FilePath workspace, String outFile,
+			CacheStatistics statistics, PrintStream logger) {
+		this.delegate = delegate;
+		this.cache = cache;
+		this.keys = keys;
+		this.workspace = workspace;
+		this.outFile = outFile;
+		this.statistics = statistics;
+		this.logger = logger;
+	}
+
+	/* (non-Javadoc)
+	 * @see org.biouno.structure.execution.StructureRunner#run(org.biouno.structure.execution.StructureRun)
+	 */
+	public RunResult run(StructureRun run) throws IOException,
+			InterruptedException {
+		if (restore(run)) {
+			return new RunResult(run, 0, 0L, CACHE_NODE);
+		}
+
+		statistics.miss();
+		final RunResult result = delegate.run(run);
+		store(run, result);
+		return result;
+	}
+
+	/**
+	 * Executes a run of a batch whose entry could not be restored, turning 
+	 * launch errors into a failed result, so that the other runs of the 
+	 * batch still run.
+	 */
+	private RunResult runMissed(StructureRun run) throws InterruptedException {
+		statistics.miss();
+		final RunResult result;
+		try {
+			result = delegate.run(run);
+		} catch (IOException ioe) {
+			logger.println(Messages.StructureBuilder_RunError(run, ioe.getMessage()));
+			return new RunResult(run, RunResult.NOT_LAUNCHED, 0L);
+		}
+		try {
+			store(run, result);
+		} catch (IOException ioe) {
+			logger.println(Messages.StructureBuilder_CacheStoreFailed(run, ioe.getMessage()));
+		}
+		return result;
+	}
+
+	/* (non-Javadoc)
+	 * @see org.biouno.structure.execution.BatchStructureRunner#run(java.util.List, org.biouno.structure.execution.BatchStructureRunner.Callback)
+	 */
+	public void run(List<StructureRun> runs, final Callback callback) throws IOException,
+			InterruptedException {
+		final List<StructureRun> misses = new ArrayList<StructureRun>();
+		for (StructureRun run : runs) {
+			final String key = keys.get(run);
+			if (key == null || !cache.isCached(key)) {
+				misses.add(run);
+			} else if (!callback.runStarting(run)) {
+				return;
+			} else if (restore(run)) {
+				callback.runFinished(new RunResult(run, 0, 0L, CACHE_NODE));
+			} else {
+				// Started already, so executed on its own
+				callback.runFinished(runMissed(run));
+			}
+		}
+		if (misses.isEmpty()) {
+			return;
+		}
+		if (!(delegate instanceof BatchStructureRunner)) {
+			for (StructureRun run : misses) {
+				if (!callback.runStarting(run)) {
+					return;
+				}
+				callback.runFinished(run(run));
+			}
+			return;
+		}
+		// The misses are executed by the delegate as a single batch
+		((BatchStructureRunner) delegate).run(misses, new Callback() {
+			public boolean runStarting(StructureRun run) {
+				if (!callback.runStarting(run)) {
+					return false;
+				}
+				statistics.miss();
+				return true;
+			}
+			public void runFinished(RunResult result) {
+				try {
+					store(result.getRun(), result);
+				} catch (IOException ioe) {
+					logger.println(Messages.StructureBuilder_CacheStoreFailed(result.getRun(), ioe.getMessage()));
+				} catch (InterruptedException ie) {
+					Thread.currentThread().interrupt();
+				}
+				callback.runFinished(result);
+			}
+		});
+	}
+
+	/**
+	 * Copies the cached outputs of a run to the build workspace, if found. 
+	 * The entry is pinned in the cache while it is copied.
+	 * 
+	 * @return <code>true</code> if the outputs were restored
+	 */
+	private boolean restore(StructureRun run) throws InterruptedException {
+		final String key = keys.get(run);
+		final File[] cached = key == null ? null : cache.lookup(key);
+		if (cached == null) {
+			return false;
+		}
+		try {
+			final FilePath output = workspace.child(run.getOutputFileName(outFile));
+			final String prefix = output.getName();
+			for (File file : cached) {
+				final FilePath target = LOG_ENTRY.equals(file.getName())
+						? workspace.child(run.getLogFileName(outFile))
+						: output.getParent().child(prefix + file.getName());
+				target.copyFrom(new FilePath(file));
+			}
+		} catch (IOException ioe) {
+			logger.println(Messages.StructureBuilder_CacheRestoreFailed(run, ioe.getMessage()));
+			return false;
+		} finally {
+			cache.release(key);
+		}
+		statistics.hit();
+		return true;
+	}
+
+	/**
+	 * Stores the outputs of a successful run in the cache.
+	 */
+	private void store(StructureRun run, RunResult result) throws IOException, InterruptedException {
+		final String key = keys.get(run);
+		if (key == null || !result.isSuccess()) {
+			return;
+		}
+		final FilePath output = workspace.child(run.getOutputFileName(outFile));
+		final String prefix = output.getName();
+		final Map<String, FilePath> files = new HashMap<String, FilePath>();
+		for (FilePath file : output.getParent().list(prefix + "_*")) {
+			files.put(file.getName().substring(prefix.length()), file);
+		}
+		final FilePath log = workspace.child(run.getLogFileName(outFile));
+		if (log.exists()) {
+			files.put(LOG_ENTRY, log);
+		}
+		try {
+			cache.store(key, files);
+		} catch (IOException ioe) {
+			// The run succeeded, only the next builds miss it
+			logger.println(Messages.StructureBuilder_CacheStoreFailed(run, ioe.getMessage()));
+		}
+	}
+
+}
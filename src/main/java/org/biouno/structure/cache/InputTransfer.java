@@ -0,0 +1,114 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) <2012> <Bruno P. Kinoshita>
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.biouno.structure.cache;
+
+import hudson.FilePath;
+
+import java.io.IOException;
+
+import org.biouno.structure.metrics.SweepMetrics;
+import org.biouno.structure.metrics.SweepMetrics.Counter;
+import org.biouno.structure.metrics.SweepMetrics.Phase;
+
+/**
+ * Sends the input file of a build to the nodes where its runs are executed,
+ * through the {@link NodeFileCache} of each node when the cache is enabled.
+ * The digest of the input file is computed once per build.
+ *
+ * @author Bruno P. Kinoshita - http://www.kinoshita.eti.br
+ * @since 0.1
+ */
+public class InputTransfer {
+
+	/**
+	 * Cache of the nodes, <code>null</code> if disabled.
+	 */
+	private final NodeFileCache cache;
+	/**
+	 * Timers and counters of the sweep, may be null.
+	 */
+	private final SweepMetrics metrics;
+	private final CacheStatistics statistics = new CacheStatistics();
+	private String source;
+	private String digest;
+
+	/**
+	 * @param cache cache of the nodes, <code>null</code> if disabled
+	 * @param metrics timers and counters of the sweep, may be null
+	 */
+	public InputTransfer(NodeFileCache cache, SweepMetrics metrics) {
+		this.cache = cache;
+		this.metrics = metrics;
+	}
+
+	/**
+	 * @return whether the files are sent through the cache of the nodes
+	 */
+	public boolean isCached() {
+		return cache != null;
+	}
+
+	/**
+	 * @return the statistics
+	 */
+	public CacheStatistics getStatistics() {
+		return statistics;
+	}
+
+	/**
+	 * Copies a file to a node.
+	 *
+	 * @param file the file to copy
+	 * @param cacheDir cache directory on the node, <code>null</code> if the
+	 * node has none
+	 * @param target where the file is needed on the node
+	 * @throws IOException if the file cannot be copied
+	 * @throws InterruptedException if the build was interrupted
+	 */
+	public void copy(FilePath file, FilePath cacheDir, FilePath target) throws IOException, InterruptedException {
+		final long start = System.currentTimeMillis();
+		long notSent = 0L;
+		if (cache == null || cacheDir == null) {
+			file.copyTo(target);
+		} else {
+			if (!file.getRemote().equals(source)) {
+				digest = file.digest();
+				source = file.getRemote();
+			}
+			notSent = cache.provide(file, digest, cacheDir, target);
+			if (notSent > 0L) {
+				statistics.hit(notSent);
+			} else {
+				statistics.miss();
+			}
+		}
+		if (metrics != null) {
+			metrics.timeSince(Phase.TRANSFER, start);
+			if (notSent == 0L) {
+				metrics.count(Counter.BYTES_TRANSFERRED, file.length());
+			}
+		}
+	}
+
+}
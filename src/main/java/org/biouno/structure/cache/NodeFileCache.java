@@ -0,0 +1,248 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) <2012> <Bruno P. Kinoshita>
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.biouno.structure.cache;
+
+import hudson.FilePath;
+import hudson.FilePath.FileCallable;
+import hudson.os.PosixAPI;
+import hudson.remoting.VirtualChannel;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.UUID;
+
+import org.apache.commons.io.FileUtils;
+
+/**
+ * Cache of input files kept on each node, keyed on the digest of their
+ * contents, so that a file already sent to a node is not sent again. A cached
+ * file is hard linked into the node work directory, or copied locally where
+ * hard links are not available. Files not cached are sent compressed, and
+ * entries are evicted least recently used first, once the total size of the
+ * cache on the node goes over its limit.
+ *
+ * @author Bruno P. Kinoshita - http://www.kinoshita.eti.br
+ * @since 0.1
+ */
+public class NodeFileCache {
+
+	/**
+	 * Cache directory, relative to the root of each node.
+	 */
+	public static final String DIRECTORY = "structure-input-cache";
+
+	private static final String TEMP_PREFIX = "tmp-";
+
+	/**
+	 * Maximum size of the cache on each node, in bytes.
+	 */
+	private final long maxSize;
+
+	/**
+	 * @param maxSize maximum size of the cache on each node, in bytes
+	 */
+	public NodeFileCache(long maxSize) {
+		this.maxSize = maxSize;
+	}
+
+	/**
+	 * @return the maxSize, in bytes
+	 */
+	public long getMaxSize() {
+		return maxSize;
+	}
+
+	/**
+	 * Provides a file to a node, from the cache of the node if it holds the
+	 * same contents, or else sending it to the cache first.
+	 *
+	 * @param source the file to provide
+	 * @param digest digest of the contents of the file
+	 * @param cacheDir cache directory on the node
+	 * @param target where the file is needed on the node
+	 * @return the number of bytes not sent to the node, because the file was
+	 * already cached there
+	 * @throws IOException if the file cannot be provided
+	 * @throws InterruptedException if the build was interrupted
+	 */
+	public long provide(FilePath source, String digest, FilePath cacheDir, FilePath target)
+			throws IOException, InterruptedException {
+		cacheDir.mkdirs();
+		final long cached = cacheDir.act(new LinkEntry(digest, target.getRemote()));
+		if (cached >= 0L) {
+			return cached;
+		}
+		final FilePath temp = cacheDir.child(TEMP_PREFIX + UUID.randomUUID().toString());
+		temp.mkdirs();
+		try {
+			// Sent as a gzip compressed tar stream between different nodes
+			source.getParent().copyRecursiveTo(source.getName(), temp);
+			if (!temp.child(source.getName()).exists()) {
+				// Excluded by the default excludes of the copy
+				source.copyTo(target);
+				return 0L;
+			}
+			cacheDir.act(new StoreEntry(digest, temp.getName(), source.getName(), target.getRemote(), maxSize));
+		} finally {
+			temp.deleteRecursive();
+		}
+		return 0L;
+	}
+
+	/**
+	 * Replaces a file with a hard link to a cache entry, or with a copy of the
+	 * entry if the link cannot be created.
+	 */
+	private static void link(File entry, File target) throws IOException {
+		if (target.exists() && !target.delete()) {
+			throw new IOException("Failed to delete " + target);
+		}
+		FileUtils.forceMkdir(target.getParentFile());
+		try {
+			if (PosixAPI.get().link(entry.getAbsolutePath(), target.getAbsolutePath()) == 0) {
+				return;
+			}
+		} catch (RuntimeException re) {
+			// Not supported on this platform
+		} catch (LinkageError le) {
+			// Native library not available
+		}
+		FileUtils.copyFile(entry, target);
+	}
+
+	/**
+	 * Links a cache entry into the work directory, if the node has it.
+	 */
+	private static final class LinkEntry implements FileCallable<Long> {
+
+		private static final long serialVersionUID = -4270339578364925617L;
+
+		private final String digest;
+		private final String target;
+
+		private LinkEntry(String digest, String target) {
+			this.digest = digest;
+			this.target = target;
+		}
+
+		/* (non-Javadoc)
+		 * @see hudson.FilePath.FileCallable#invoke(java.io.File, hudson.remoting.VirtualChannel)
+		 */
+		public Long invoke(File cacheDir, VirtualChannel channel) throws IOException {
+			synchronized (NodeFileCache.class) {
+				final File entry = new File(cacheDir, digest);
+				if (!entry.isFile()) {
+					return -1L;
+				}
+				entry.setLastModified(System.currentTimeMillis());
+				link(entry, new File(target));
+				return entry.length();
+			}
+		}
+
+	}
+
+	/**
+	 * Moves a file received in a temporary directory to the cache, links it
+	 * into the work directory and evicts the least recently used entries.
+	 */
+	private static final class StoreEntry implements FileCallable<Void> {
+
+		private static final long serialVersionUID = 6166327937811069383L;
+
+		private final String digest;
+		private final String tempDir;
+		private final String fileName;
+		private final String target;
+		private final long maxSize;
+
+		private StoreEntry(String digest, String tempDir, String fileName, String target, long maxSize) {
+			this.digest = digest;
+			this.tempDir = tempDir;
+			this.fileName = fileName;
+			this.target = target;
+			this.maxSize = maxSize;
+		}
+
+		/* (non-Javadoc)
+		 * @see hudson.FilePath.FileCallable#invoke(java.io.File, hudson.remoting.VirtualChannel)
+		 */
+		public Void invoke(File cacheDir, VirtualChannel channel) throws IOException {
+			synchronized (NodeFileCache.class) {
+				final File entry = new File(cacheDir, digest);
+				final File received = new File(new File(cacheDir, tempDir), fileName);
+				if (!entry.isFile() && !received.renameTo(entry)) {
+					throw new IOException("Failed to create cache entry " + entry);
+				}
+				entry.setLastModified(System.currentTimeMillis());
+				link(entry, new File(target));
+				evict(cacheDir, entry);
+			}
+			return null;
+		}
+
+		/**
+		 * Deletes the least recently used entries until the cache fits its
+		 * limit. The entry just stored is kept, even if larger than the limit.
+		 */
+		private void evict(File cacheDir, File stored) {
+			final File[] entries = cacheDir.listFiles();
+			if (entries == null) {
+				return;
+			}
+			long total = 0L;
+			for (File entry : entries) {
+				if (entry.isFile()) {
+					total += entry.length();
+				}
+			}
+			if (total <= maxSize) {
+				return;
+			}
+			Arrays.sort(entries, new Comparator<File>() {
+				public int compare(File a, File b) {
+					final long diff = a.lastModified() - b.lastModified();
+					return diff < 0 ? -1 : (diff > 0 ? 1 : 0);
+				}
+			});
+			for (File entry : entries) {
+				if (total <= maxSize) {
+					break;
+				}
+				if (!entry.isFile() || entry.equals(stored)) {
+					continue;
+				}
+				final long size = entry.length();
+				// Work directories linking the entry keep their own link
+				if (entry.delete()) {
+					total -= size;
+				}
+			}
+		}
+
+	}
+
+}
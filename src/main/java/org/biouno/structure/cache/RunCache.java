@@ -0,0 +1,271 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) <2012> <Bruno P. Kinoshita>
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.biouno.structure.cache;
+
+import hudson.FilePath;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.UUID;
+
+import org.apache.commons.io.FileUtils;
+import org.biouno.structure.util.Digests;
+
+/**
+ * Disk cache of Structure run outputs, keyed on a hash of everything that 
+ * determines the output of a run. Each entry is a directory named after its 
+ * key. Entries are evicted least recently used first, once the total size of 
+ * the cache goes over its limit.
+ * <p>
+ * The size and last use of the entries are indexed in memory, from a single 
+ * scan of the directory, so that storing an entry does not scan the cache 
+ * again. An entry looked up is pinned until released, and is not evicted 
+ * while its files are being restored.
+ * 
+ * @author Bruno P. Kinoshita - http://www.kinoshita.eti.br
+ * @since 0.1
+ */
+public class RunCache {
+
+	private static final String TEMP_PREFIX = "tmp-";
+
+	/**
+	 * Cache directory.
+	 */
+	private final File directory;
+	/**
+	 * Maximum size of the cache, in bytes.
+	 */
+	private final long maxSize;
+	/**
+	 * Size of each entry, by key, least recently used first. 
+	 * <code>null</code> until the directory is scanned.
+	 */
+	private LinkedHashMap<String, Long> sizes;
+	/**
+	 * Total size of the entries, in bytes.
+	 */
+	private long total = 0L;
+	/**
+	 * Number of lookups not released yet, by key.
+	 */
+	private final Map<String, Integer> pins = new HashMap<String, Integer>();
+
+	/**
+	 * @param directory cache directory
+	 * @param maxSize maximum size of the cache, in bytes
+	 */
+	public RunCache(File directory, long maxSize) {
+		this.directory = directory;
+		this.maxSize = maxSize;
+	}
+
+	/**
+	 * @return the directory
+	 */
+	public File getDirectory() {
+		return directory;
+	}
+
+	/**
+	 * @return the maxSize, in bytes
+	 */
+	public long getMaxSize() {
+		return maxSize;
+	}
+
+	/**
+	 * @return the total size of the entries, in bytes
+	 */
+	public synchronized long getSize() {
+		index();
+		return total;
+	}
+
+	/**
+	 * Computes the key of a run.
+	 * 
+	 * @param mainParams rendered mainparams
+	 * @param extraParams extraparams, may be null
+	 * @param inFileDigest digest of the input file contents
+	 * @param seed seed of the run
+	 * @param executable digest or path of the Structure executable
+	 * @return the key, as a hexadecimal SHA-256
+	 */
+	public static String createKey(String mainParams, String extraParams,
+			String inFileDigest, long seed, String executable) {
+		return Digests.sha256(mainParams, extraParams, inFileDigest, Long.toString(seed), executable);
+	}
+
+	/**
+	 * Looks up an entry, marking it as recently used. An entry found is 
+	 * pinned, and must be released with {@link #release(String)} once its 
+	 * files are copied.
+	 * 
+	 * @param key entry key
+	 * @return the files of the entry, or <code>null</code> if there is no 
+	 * entry for the key
+	 */
+	public synchronized File[] lookup(String key) {
+		index();
+		final File entry = new File(directory, key);
+		final File[] files = entry.listFiles();
+		if (files == null) {
+			final Long size = sizes.remove(key);
+			if (size != null) {
+				total -= size;
+			}
+			return null;
+		}
+		entry.setLastModified(System.currentTimeMillis());
+		Long size = sizes.remove(key);
+		if (size == null) {
+			// Stored by another instance of the cache
+			size = FileUtils.sizeOfDirectory(entry);
+			total += size;
+		}
+		sizes.put(key, size);
+		final Integer count = pins.get(key);
+		pins.put(key, count == null ? 1 : count + 1);
+		return files;
+	}
+
+	/**
+	 * @param key entry key
+	 * @return whether there is an entry for the key, without marking it as 
+	 * recently used
+	 */
+	public boolean isCached(String key) {
+		return new File(directory, key).isDirectory();
+	}
+
+	/**
+	 * Releases an entry found by {@link #lookup(String)}, that may be evicted 
+	 * again.
+	 * 
+	 * @param key entry key
+	 */
+	public synchronized void release(String key) {
+		final Integer count = pins.get(key);
+		if (count == null || count <= 1) {
+			pins.remove(key);
+		} else {
+			pins.put(key, count - 1);
+		}
+	}
+
+	/**
+	 * Stores files in an entry. The entry is written to a temporary directory 
+	 * first, and renamed when complete, so that a partial entry is never 
+	 * looked up.
+	 * 
+	 * @param key entry key
+	 * @param files files to store, by their name in the entry
+	 * @throws IOException if the files cannot be copied
+	 * @throws InterruptedException if the build was interrupted
+	 */
+	public void store(String key, Map<String, FilePath> files) 
+			throws IOException, InterruptedException {
+		final File entry = new File(directory, key);
+		if (entry.isDirectory()) {
+			return;
+		}
+		final File temp = new File(directory, TEMP_PREFIX + UUID.randomUUID().toString());
+		FileUtils.forceMkdir(temp);
+		try {
+			for (Map.Entry<String, FilePath> file : files.entrySet()) {
+				file.getValue().copyTo(new FilePath(new File(temp, file.getKey())));
+			}
+			final long size = FileUtils.sizeOfDirectory(temp);
+			synchronized (this) {
+				index();
+				if (entry.isDirectory()) {
+					return;
+				}
+				if (!temp.renameTo(entry)) {
+					throw new IOException("Failed to create cache entry " + entry);
+				}
+				sizes.put(key, size);
+				total += size;
+				evict();
+			}
+		} finally {
+			FileUtils.deleteQuietly(temp);
+		}
+	}
+
+	/**
+	 * Scans the cache directory, once, for the size and last use of the 
+	 * entries.
+	 */
+	private void index() {
+		if (sizes != null) {
+			return;
+		}
+		sizes = new LinkedHashMap<String, Long>();
+		total = 0L;
+		final File[] entries = directory.listFiles();
+		if (entries == null) {
+			return;
+		}
+		Arrays.sort(entries, new Comparator<File>() {
+			public int compare(File a, File b) {
+				final long diff = a.lastModified() - b.lastModified();
+				return diff < 0 ? -1 : (diff > 0 ? 1 : 0);
+			}
+		});
+		for (File entry : entries) {
+			if (entry.getName().startsWith(TEMP_PREFIX)) {
+				continue;
+			}
+			final long size = FileUtils.sizeOfDirectory(entry);
+			sizes.put(entry.getName(), size);
+			total += size;
+		}
+	}
+
+	/**
+	 * Deletes the least recently used entries, except the pinned ones, until 
+	 * the cache fits its limit.
+	 */
+	private void evict() {
+		for (Iterator<Map.Entry<String, Long>> it = sizes.entrySet().iterator(); 
+				total > maxSize && it.hasNext();) {
+			final Map.Entry<String, Long> entry = it.next();
+			if (pins.containsKey(entry.getKey())) {
+				continue;
+			}
+			total -= entry.getValue();
+			it.remove();
+			FileUtils.deleteQuietly(new File(directory, entry.getKey()));
+		}
+	}
+
+}
@@ -0,0 +1,70 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) <2012> <Bruno P. Kinoshita>
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.biouno.structure.cache;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.biouno.structure.execution.StructureRun;
+
+/**
+ * Computes the {@link RunCache} keys of the runs of a build, from the digests
+ * of its input file and Structure executable, computed once per build.
+ *
+ * @author Bruno P. Kinoshita - http://www.kinoshita.eti.br
+ * @since 0.1
+ */
+public class RunKeys {
+
+	private final String inFileDigest;
+	private final String executable;
+
+	/**
+	 * @param inFileDigest digest of the input file contents
+	 * @param executable digest or path of the Structure executable
+	 */
+	public RunKeys(String inFileDigest, String executable) {
+		this.inFileDigest = inFileDigest;
+		this.executable = executable;
+	}
+
+	/**
+	 * @param runs the runs
+	 * @param parameterFiles contents of the rendered mainparams and of the 
+	 * extraparams of each stage, by file name. A run without an extraparams 
+	 * file has none
+	 * @return the key of each run
+	 */
+	public Map<StructureRun, String> create(List<StructureRun> runs, Map<String, String> parameterFiles) {
+		final Map<StructureRun, String> keys = new HashMap<StructureRun, String>();
+		for (StructureRun run : runs) {
+			keys.put(run, RunCache.createKey(parameterFiles.get(run.getMainParamsFileName()), 
+					parameterFiles.get(run.getExtraParamsFileName()),
+					inFileDigest, run.getSeed(), executable));
+		}
+		return keys;
+	}
+
+}
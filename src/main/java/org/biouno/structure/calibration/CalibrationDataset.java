@@ -0,0 +1,209 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) <2012> <Bruno P. Kinoshita>
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.biouno.structure.calibration;
+
+import hudson.FilePath;
+
+import java.io.IOException;
+import java.util.Random;
+
+import org.biouno.structure.scheduling.RunCostModel;
+
+/**
+ * Small fixed dataset run on every node to measure the speed of Structure. 
+ * The genotypes are random, but always the same, so every node runs exactly 
+ * the same work. The chains are long enough for the run to last a few 
+ * seconds, and a baseline run of the same dataset with the shortest chain 
+ * measures what does not depend on the iterations, i.e. launching Structure, 
+ * reading the data and writing the outputs.
+ * 
+ * @author Bruno P. Kinoshita - http://www.kinoshita.eti.br
+ * @since 0.1
+ */
+public final class CalibrationDataset {
+
+	public static final int K = 2;
+	public static final int NUMINDS = 100;
+	public static final int NUMLOCI = 40;
+	public static final long BURNIN = 1000L;
+	public static final long NUMREPS = 2000L;
+	public static final long BASELINE_BURNIN = 1L;
+	public static final long BASELINE_NUMREPS = 1L;
+	public static final long SEED = 2245L;
+
+	private static final int ALLELES = 6;
+
+	private static final String ENCODING = "UTF-8";
+
+	private CalibrationDataset() {
+	}
+
+	/**
+	 * @param model Structure model
+	 * @return the name of the mainparams file of the model
+	 */
+	public static String getMainParamsFileName(String model) {
+		return "mainparams_" + model;
+	}
+
+	/**
+	 * @param model Structure model
+	 * @return the name of the mainparams file of the baseline run of the model
+	 */
+	public static String getBaselineMainParamsFileName(String model) {
+		return "mainparams_baseline_" + model;
+	}
+
+	/**
+	 * @param model Structure model
+	 * @return the name of the extraparams file of the model
+	 */
+	public static String getExtraParamsFileName(String model) {
+		return "extraparams_" + model;
+	}
+
+	/**
+	 * @param model Structure model
+	 * @return the name of the output file of the model
+	 */
+	public static String getOutFileName(String model) {
+		return "out_" + model;
+	}
+
+	/**
+	 * @return the work of a calibration run, in the units of 
+	 * {@link RunCostModel}
+	 */
+	public static double getWork() {
+		return RunCostModel.getUnitsPerK(BURNIN, NUMREPS, NUMINDS, NUMLOCI) * K;
+	}
+
+	/**
+	 * @return the work of a baseline run, in the units of 
+	 * {@link RunCostModel}
+	 */
+	public static double getBaselineWork() {
+		return RunCostModel.getUnitsPerK(BASELINE_BURNIN, BASELINE_NUMREPS, NUMINDS, NUMLOCI) * K;
+	}
+
+	/**
+	 * Writes the parameter files and the input file of a model.
+	 * 
+	 * @param dir directory
+	 * @param model Structure model
+	 */
+	public static void write(FilePath dir, String model) throws IOException, InterruptedException {
+		final boolean linkage = RunCostModel.LINKAGE.equals(model);
+		final String inFile = "infile_" + model;
+		dir.mkdirs();
+		dir.child(getMainParamsFileName(model)).write(
+				createMainParams(inFile, getOutFileName(model), BURNIN, NUMREPS, linkage), ENCODING);
+		dir.child(getBaselineMainParamsFileName(model)).write(
+				createMainParams(inFile, getOutFileName(model), BASELINE_BURNIN, BASELINE_NUMREPS, linkage), ENCODING);
+		dir.child(getExtraParamsFileName(model)).write(createExtraParams(model), ENCODING);
+		dir.child(inFile).write(createInFile(linkage), ENCODING);
+	}
+
+	private static String createMainParams(String inFile, String outFile, long burnIn, long numReps, 
+			boolean linkage) {
+		final StringBuilder sb = new StringBuilder();
+		define(sb, "MAXPOPS", K);
+		define(sb, "BURNIN", burnIn);
+		define(sb, "NUMREPS", numReps);
+		define(sb, "INFILE", inFile);
+		define(sb, "OUTFILE", outFile);
+		define(sb, "NUMINDS", NUMINDS);
+		define(sb, "NUMLOCI", NUMLOCI);
+		define(sb, "PLOIDY", 2);
+		define(sb, "MISSING", -9);
+		define(sb, "ONEROWPERIND", 0);
+		define(sb, "LABEL", 1);
+		define(sb, "POPDATA", 0);
+		define(sb, "POPFLAG", 0);
+		define(sb, "LOCDATA", 0);
+		define(sb, "PHENOTYPE", 0);
+		define(sb, "EXTRACOLS", 0);
+		define(sb, "MARKERNAMES", 0);
+		define(sb, "RECESSIVEALLELES", 0);
+		define(sb, "MAPDISTANCES", linkage ? 1 : 0);
+		define(sb, "PHASED", 0);
+		define(sb, "PHASEINFO", 0);
+		define(sb, "MARKOVPHASE", 0);
+		define(sb, "NOTAMBIGUOUS", -999);
+		return sb.toString();
+	}
+
+	private static String createExtraParams(String model) {
+		final StringBuilder sb = new StringBuilder();
+		define(sb, "NOADMIX", RunCostModel.NO_ADMIXTURE.equals(model) ? 1 : 0);
+		define(sb, "LINKAGE", RunCostModel.LINKAGE.equals(model) ? 1 : 0);
+		define(sb, "USEPOPINFO", 0);
+		define(sb, "LOCPRIOR", 0);
+		define(sb, "FREQSCORR", 1);
+		define(sb, "ONEFST", 0);
+		define(sb, "INFERALPHA", 1);
+		define(sb, "POPALPHAS", 0);
+		define(sb, "ALPHA", "1.0");
+		define(sb, "INFERLAMBDA", 0);
+		define(sb, "POPSPECIFICLAMBDA", 0);
+		define(sb, "LAMBDA", "1.0");
+		define(sb, "UPDATEFREQ", 100);
+		define(sb, "PRINTQHAT", 0);
+		define(sb, "ECHODATA", 0);
+		define(sb, "ANCESTDIST", 0);
+		define(sb, "COMPUTEPROB", 1);
+		define(sb, "RANDOMIZE", 0);
+		return sb.toString();
+	}
+
+	private static String createInFile(boolean linkage) {
+		final Random random = new Random(SEED);
+		final StringBuilder sb = new StringBuilder();
+		if (linkage) {
+			// Map distances, -1 for the first locus of a linkage group
+			sb.append("-1");
+			for (int locus = 1; locus < NUMLOCI; ++locus) {
+				sb.append(' ').append(5 + random.nextInt(20));
+			}
+			sb.append('\n');
+		}
+		for (int ind = 1; ind <= NUMINDS; ++ind) {
+			// Two populations, so there is something to find
+			final int offset = ind <= NUMINDS / 2 ? 0 : ALLELES / 2;
+			for (int row = 0; row < 2; ++row) {
+				sb.append("ind").append(ind);
+				for (int locus = 0; locus < NUMLOCI; ++locus) {
+					sb.append(' ').append(100 + (offset + random.nextInt(ALLELES / 2 + 1)) % ALLELES);
+				}
+				sb.append('\n');
+			}
+		}
+		return sb.toString();
+	}
+
+	private static void define(StringBuilder sb, String name, Object value) {
+		sb.append("#define ").append(name).append(' ').append(value).append('\n');
+	}
+
+}
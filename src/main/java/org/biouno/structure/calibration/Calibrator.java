@@ -0,0 +1,143 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) <2012> <Bruno P. Kinoshita>
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.biouno.structure.calibration;
+
+import hudson.FilePath;
+import hudson.Launcher;
+import hudson.model.Computer;
+import hudson.model.Node;
+import hudson.model.TaskListener;
+import hudson.util.ArgumentListBuilder;
+
+import java.io.IOException;
+
+import org.apache.commons.lang.StringUtils;
+
+/**
+ * Measures the speed of a Structure installation on a node, by running the 
+ * {@link CalibrationDataset} there. The duration of the baseline run is 
+ * subtracted from the duration of the calibration run, so that the speed 
+ * measures the iterations only, and not the overhead of launching Structure 
+ * on the node.
+ * 
+ * @author Bruno P. Kinoshita - http://www.kinoshita.eti.br
+ * @since 0.1
+ */
+public class Calibrator {
+
+	/**
+	 * Directory, in the node root, where the calibration runs.
+	 */
+	public static final String DIRECTORY = "structure-calibration";
+
+	private static final String MASTER = "master";
+
+	private final TaskListener listener;
+
+	/**
+	 * @param listener listener receiving the console output of Structure
+	 */
+	public Calibrator(TaskListener listener) {
+		this.listener = listener;
+	}
+
+	/**
+	 * @param node a node
+	 * @return the name of the node, as used by the builder
+	 */
+	public static String getNodeName(Node node) {
+		final Computer computer = node.toComputer();
+		if (computer != null && StringUtils.isNotEmpty(computer.getDisplayName())) {
+			return computer.getDisplayName();
+		}
+		return StringUtils.isEmpty(node.getNodeName()) ? MASTER : node.getNodeName();
+	}
+
+	/**
+	 * Runs the calibration dataset of a model.
+	 * 
+	 * @param node the node
+	 * @param installation name of the Structure installation
+	 * @param executable path to Structure executable
+	 * @param model Structure model
+	 * @return the speed, or <code>null</code> if Structure failed
+	 */
+	public NodeSpeed calibrate(Node node, String installation, String executable, String model) 
+			throws IOException, InterruptedException {
+		final FilePath root = node.getRootPath();
+		if (root == null) {
+			return null;
+		}
+		final FilePath dir = root.child(DIRECTORY);
+		CalibrationDataset.write(dir, model);
+		final Launcher launcher = node.createLauncher(listener);
+		final long baseline = run(launcher, dir, executable, CalibrationDataset.getBaselineMainParamsFileName(model), 
+				model);
+		if (baseline < 0L) {
+			return null;
+		}
+		final long total = run(launcher, dir, executable, CalibrationDataset.getMainParamsFileName(model), model);
+		if (total < 0L) {
+			return null;
+		}
+		long duration = total - baseline;
+		double work = CalibrationDataset.getWork() - CalibrationDataset.getBaselineWork();
+		long steps = CalibrationDataset.BURNIN + CalibrationDataset.NUMREPS 
+			- CalibrationDataset.BASELINE_BURNIN - CalibrationDataset.BASELINE_NUMREPS;
+		if (duration <= 0L) {
+			// The difference is lost in the noise of the node, use the whole run
+			duration = total;
+			work = CalibrationDataset.getWork();
+			steps = CalibrationDataset.BURNIN + CalibrationDataset.NUMREPS;
+		}
+		final double seconds = duration / 1000.0d;
+		return new NodeSpeed(getNodeName(node), installation, model, steps / seconds, work / seconds, 
+				System.currentTimeMillis());
+	}
+
+	/**
+	 * @return the duration of the run, in milliseconds, or -1 if Structure 
+	 * failed
+	 */
+	private long run(Launcher launcher, FilePath dir, String executable, String mainParamsFileName, String model) 
+			throws IOException, InterruptedException {
+		final ArgumentListBuilder args = new ArgumentListBuilder();
+		args.add(executable);
+		args.add("-m");
+		args.add(mainParamsFileName);
+		args.add("-e");
+		args.add(CalibrationDataset.getExtraParamsFileName(model));
+		args.add("-K");
+		args.add(Integer.toString(CalibrationDataset.K));
+		args.add("-o");
+		args.add(CalibrationDataset.getOutFileName(model));
+		args.add("-D");
+		args.add(Long.toString(CalibrationDataset.SEED));
+		final long start = System.currentTimeMillis();
+		final int exitCode = launcher.launch().cmds(args).stdout(listener).pwd(dir).join();
+		final long duration = Math.max(1L, System.currentTimeMillis() - start);
+		return exitCode == 0 ? duration : -1L;
+	}
+
+}
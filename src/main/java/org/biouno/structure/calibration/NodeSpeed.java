@@ -0,0 +1,127 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) <2012> <Bruno P. Kinoshita>
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.biouno.structure.calibration;
+
+import java.io.Serializable;
+
+/**
+ * Speed of a Structure installation on a node, for a model, measured by 
+ * running the calibration dataset.
+ * 
+ * @author Bruno P. Kinoshita - http://www.kinoshita.eti.br
+ * @since 0.1
+ */
+public class NodeSpeed implements Serializable {
+
+	private static final long serialVersionUID = 5903327451823095316L;
+
+	private final String node;
+	private final String installation;
+	private final String model;
+	/**
+	 * MCMC iterations per second on the calibration dataset.
+	 */
+	private final double stepsPerSecond;
+	/**
+	 * Work units per second, see 
+	 * {@link org.biouno.structure.scheduling.RunCostModel}.
+	 */
+	private final double unitsPerSecond;
+	/**
+	 * Time of the calibration, in milliseconds.
+	 */
+	private final long timestamp;
+
+	/**
+	 * @param node name of the node
+	 * @param installation name of the Structure installation
+	 * @param model Structure model
+	 * @param stepsPerSecond iterations per second on the calibration dataset
+	 * @param unitsPerSecond work units per second
+	 * @param timestamp time of the calibration, in milliseconds
+	 */
+	public NodeSpeed(String node, String installation, String model, double stepsPerSecond, 
+			double unitsPerSecond, long timestamp) {
+		this.node = node;
+		this.installation = installation;
+		this.model = model;
+		this.stepsPerSecond = stepsPerSecond;
+		this.unitsPerSecond = unitsPerSecond;
+		this.timestamp = timestamp;
+	}
+
+	/**
+	 * @param node name of a node
+	 * @param installation name of a Structure installation
+	 * @param model a Structure model
+	 * @return <code>true</code> if this speed is for the node, installation 
+	 * and model
+	 */
+	public boolean matches(String node, String installation, String model) {
+		return this.node.equals(node) && this.installation.equals(installation) && this.model.equals(model);
+	}
+
+	/**
+	 * @return the node
+	 */
+	public String getNode() {
+		return node;
+	}
+
+	/**
+	 * @return the installation
+	 */
+	public String getInstallation() {
+		return installation;
+	}
+
+	/**
+	 * @return the model
+	 */
+	public String getModel() {
+		return model;
+	}
+
+	/**
+	 * @return the iterations per second on the calibration dataset
+	 */
+	public double getStepsPerSecond() {
+		return stepsPerSecond;
+	}
+
+	/**
+	 * @return the work units per second
+	 */
+	public double getUnitsPerSecond() {
+		return unitsPerSecond;
+	}
+
+	/**
+	 * @return the time of the calibration, in milliseconds
+	 */
+	public long getTimestamp() {
+		return timestamp;
+	}
+
+}
@@ -0,0 +1,70 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) <2012> <Bruno P. Kinoshita>
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.biouno.structure.convergence;
+
+import java.io.Serializable;
+
+import org.kohsuke.stapler.DataBoundConstructor;
+
+/**
+ * Options of a sweep whose burn-in of each K is adapted to the convergence of 
+ * its replicates in the previous builds.
+ * 
+ * @author Bruno P. Kinoshita - http://www.kinoshita.eti.br
+ * @since 0.1
+ */
+public class AdaptiveBurnIn implements Serializable {
+
+	private static final long serialVersionUID = 8823937418203617447L;
+
+	/**
+	 * Gelman-Rubin R-hat below which the replicates of a K converged.
+	 */
+	private final Double rHatThreshold;
+
+	/**
+	 * @param rHatThreshold Gelman-Rubin R-hat below which the replicates of a 
+	 * K converged, empty for {@link ConvergenceAnalyzer#DEFAULT_THRESHOLD}
+	 */
+	@DataBoundConstructor
+	public AdaptiveBurnIn(Double rHatThreshold) {
+		this.rHatThreshold = rHatThreshold;
+	}
+
+	/**
+	 * @return the rHatThreshold
+	 */
+	public Double getRHatThreshold() {
+		return rHatThreshold;
+	}
+
+	/**
+	 * @return the analyzer of the convergence of the replicates
+	 */
+	public ConvergenceAnalyzer createAnalyzer() {
+		return new ConvergenceAnalyzer(rHatThreshold != null && rHatThreshold > 1.0d ? 
+				rHatThreshold : ConvergenceAnalyzer.DEFAULT_THRESHOLD);
+	}
+
+}
@@ -0,0 +1,155 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) <2012> <Bruno P. Kinoshita>
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.biouno.structure.convergence;
+
+import java.util.List;
+
+/**
+ * Finds where the replicates of a K converged, and adapts the burn-in of the 
+ * next sweep. The R-hat at an iteration is computed over the second half of 
+ * the traces up to that iteration, as the first half may still depend on the 
+ * starting point.
+ * <p>
+ * Structure cannot change the length of a run once it started, and writes 
+ * its results only at the end, so the burn-in is adapted between sweeps: a K 
+ * whose chains converged early gets a shorter burn-in in the next sweep, and 
+ * a K whose chains did not converge gets a longer one. The burn-in shrinks 
+ * gradually, and never below a fraction of the configured burn-in, as a 
+ * diagnostic over a few chains can declare convergence too early.
+ * 
+ * @author Bruno P. Kinoshita - http://www.kinoshita.eti.br
+ * @since 0.1
+ */
+public class ConvergenceAnalyzer {
+
+	/**
+	 * Default R-hat threshold.
+	 */
+	public static final double DEFAULT_THRESHOLD = 1.1d;
+	/**
+	 * Least number of values in each half trace for an R-hat, so that 
+	 * convergence is not declared from the first few updates.
+	 */
+	private static final int MIN_VALUES = 20;
+	/**
+	 * Greatest number of iterations checked for convergence.
+	 */
+	private static final int MAX_CHECKS = 200;
+	/**
+	 * Burn-in of the next sweep, relative to the iteration where the chains 
+	 * converged.
+	 */
+	private static final double SAFETY_FACTOR = 1.5d;
+	/**
+	 * Greatest burn-in, relative to the burn-in of the configuration.
+	 */
+	private static final long MAX_EXTENSION = 4L;
+	/**
+	 * Least burn-in, relative to the burn-in of the configuration.
+	 */
+	private static final double MIN_FRACTION = 0.25d;
+	/**
+	 * Least burn-in, relative to the burn-in of the previous sweep.
+	 */
+	private static final double MAX_SHRINK = 0.5d;
+
+	private final double threshold;
+
+	/**
+	 * @param threshold R-hat below which the chains converged
+	 */
+	public ConvergenceAnalyzer(double threshold) {
+		this.threshold = threshold;
+	}
+
+	/**
+	 * @return the threshold
+	 */
+	public double getThreshold() {
+		return threshold;
+	}
+
+	/**
+	 * @param k the K
+	 * @param traces log-likelihood traces of the replicates of the K
+	 * @param burnIn length of burn-in period used
+	 * @param numReps number of MCMC repetitions after burn-in used
+	 * @return the diagnostics, or <code>null</code> if there are not enough 
+	 * traces or values
+	 */
+	public KConvergence analyze(int k, List<LikelihoodTrace> traces, long burnIn, long numReps) {
+		if (traces.size() < 2) {
+			return null;
+		}
+		int length = Integer.MAX_VALUE;
+		for (LikelihoodTrace trace : traces) {
+			length = Math.min(length, trace.size());
+		}
+		if (length < 2 * MIN_VALUES) {
+			return null;
+		}
+		final LikelihoodTrace first = traces.get(0);
+		final int samplingStart = Math.min(first.indexAfter(burnIn), length - MIN_VALUES);
+		final double rHat = rHat(traces, samplingStart, length);
+		long convergedAt = -1L;
+		final int stride = Math.max(1, length / MAX_CHECKS);
+		for (int end = 2 * MIN_VALUES; end <= length; end += stride) {
+			if (rHat(traces, end / 2, end) < threshold) {
+				convergedAt = first.getStep(end - 1);
+				break;
+			}
+		}
+		return new KConvergence(k, traces.size(), rHat, convergedAt, burnIn, numReps);
+	}
+
+	/**
+	 * @param previous diagnostics of the K in the previous sweep, may be null
+	 * @param configured length of burn-in period of the configuration
+	 * @return the length of burn-in period for the K in the next sweep
+	 */
+	public long adaptBurnIn(KConvergence previous, long configured) {
+		if (previous == null) {
+			return configured;
+		}
+		long burnIn;
+		if (previous.getConvergedAt() >= 0L) {
+			burnIn = (long) Math.ceil(previous.getConvergedAt() * SAFETY_FACTOR);
+			burnIn = Math.max(burnIn, (long) Math.ceil(previous.getBurnIn() * MAX_SHRINK));
+		} else {
+			// Never converged, give the chains more time
+			burnIn = previous.getBurnIn() * 2L;
+		}
+		final long floor = Math.max(1L, (long) Math.ceil(configured * MIN_FRACTION));
+		return Math.max(floor, Math.min(burnIn, configured * MAX_EXTENSION));
+	}
+
+	private static double rHat(List<LikelihoodTrace> traces, int from, int to) {
+		final double[][] chains = new double[traces.size()][];
+		for (int i = 0; i < chains.length; ++i) {
+			chains[i] = traces.get(i).getValues(from, to);
+		}
+		return GelmanRubin.rHat(chains);
+	}
+
+}
@@ -0,0 +1,90 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) <2012> <Bruno P. Kinoshita>
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.biouno.structure.convergence;
+
+/**
+ * Gelman-Rubin potential scale reduction factor (R-hat) of parallel chains, 
+ * here the log-likelihood traces of the replicates of a K. Values close to 1 
+ * mean that the chains are sampling the same distribution.
+ * 
+ * @author Bruno P. Kinoshita - http://www.kinoshita.eti.br
+ * @since 0.1
+ */
+public final class GelmanRubin {
+
+	private GelmanRubin() {
+	}
+
+	/**
+	 * @param chains values of each chain. Only the first values, up to the 
+	 * length of the shortest chain, are used
+	 * @return the R-hat, or {@link Double#NaN} if there are less than two 
+	 * chains or less than two values per chain
+	 */
+	public static double rHat(double[][] chains) {
+		final int m = chains.length;
+		if (m < 2) {
+			return Double.NaN;
+		}
+		int n = Integer.MAX_VALUE;
+		for (double[] chain : chains) {
+			n = Math.min(n, chain.length);
+		}
+		if (n < 2) {
+			return Double.NaN;
+		}
+		final double[] means = new double[m];
+		double grandMean = 0.0d;
+		double within = 0.0d;
+		for (int j = 0; j < m; ++j) {
+			double sum = 0.0d;
+			for (int i = 0; i < n; ++i) {
+				sum += chains[j][i];
+			}
+			means[j] = sum / n;
+			grandMean += means[j];
+			double squares = 0.0d;
+			for (int i = 0; i < n; ++i) {
+				final double d = chains[j][i] - means[j];
+				squares += d * d;
+			}
+			within += squares / (n - 1);
+		}
+		grandMean /= m;
+		within /= m;
+		double between = 0.0d;
+		for (int j = 0; j < m; ++j) {
+			final double d = means[j] - grandMean;
+			between += d * d;
+		}
+		between = between * n / (m - 1);
+		if (within == 0.0d) {
+			// Constant chains agree only if they have the same value
+			return between == 0.0d ? 1.0d : Double.POSITIVE_INFINITY;
+		}
+		final double variance = (n - 1.0d) / n * within + between / n;
+		return Math.sqrt(variance / within);
+	}
+
+}
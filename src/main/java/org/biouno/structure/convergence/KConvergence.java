@@ -0,0 +1,143 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) <2012> <Bruno P. Kinoshita>
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.biouno.structure.convergence;
+
+import java.io.Serializable;
+
+import org.kohsuke.stapler.export.Exported;
+import org.kohsuke.stapler.export.ExportedBean;
+
+/**
+ * Convergence diagnostics of the replicates of a K, and the iterations the 
+ * runs used.
+ * 
+ * @author Bruno P. Kinoshita - http://www.kinoshita.eti.br
+ * @since 0.1
+ */
+@ExportedBean(defaultVisibility = 2)
+public class KConvergence implements Serializable {
+
+	private static final long serialVersionUID = -3710476839146262013L;
+
+	private final int k;
+	/**
+	 * Number of replicates with a log-likelihood trace.
+	 */
+	private final int chains;
+	/**
+	 * R-hat of the log-likelihood after the burn-in.
+	 */
+	private final double rHat;
+	/**
+	 * First iteration where the R-hat was below the threshold, or -1.
+	 */
+	private final long convergedAt;
+	private final long burnIn;
+	private final long numReps;
+
+	/**
+	 * @param k the K
+	 * @param chains number of replicates with a log-likelihood trace
+	 * @param rHat R-hat of the log-likelihood after the burn-in
+	 * @param convergedAt first iteration where the R-hat was below the 
+	 * threshold, or -1
+	 * @param burnIn length of burn-in period used
+	 * @param numReps number of MCMC repetitions after burn-in used
+	 */
+	public KConvergence(int k, int chains, double rHat, long convergedAt, long burnIn, long numReps) {
+		this.k = k;
+		this.chains = chains;
+		this.rHat = rHat;
+		this.convergedAt = convergedAt;
+		this.burnIn = burnIn;
+		this.numReps = numReps;
+	}
+
+	/**
+	 * @return the k
+	 */
+	@Exported
+	public int getK() {
+		return k;
+	}
+
+	/**
+	 * @return the number of replicates with a log-likelihood trace
+	 */
+	@Exported
+	public int getChains() {
+		return chains;
+	}
+
+	/**
+	 * @return the R-hat of the log-likelihood after the burn-in
+	 */
+	@Exported
+	public double getRHat() {
+		return rHat;
+	}
+
+	/**
+	 * @return the first iteration where the R-hat was below the threshold, 
+	 * or -1 if it never was
+	 */
+	@Exported
+	public long getConvergedAt() {
+		return convergedAt;
+	}
+
+	/**
+	 * @return the length of burn-in period used
+	 */
+	@Exported
+	public long getBurnIn() {
+		return burnIn;
+	}
+
+	/**
+	 * @return the number of MCMC repetitions after burn-in used
+	 */
+	@Exported
+	public long getNumReps() {
+		return numReps;
+	}
+
+	/**
+	 * @return the number of iterations of each run
+	 */
+	@Exported
+	public long getIterations() {
+		return burnIn + numReps;
+	}
+
+	/**
+	 * @return <code>true</code> if the chains converged before the end of 
+	 * the burn-in
+	 */
+	@Exported
+	public boolean isConverged() {
+		return convergedAt >= 0L && convergedAt <= burnIn;
+	}
+
+}
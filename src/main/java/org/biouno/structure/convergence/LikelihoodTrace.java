@@ -0,0 +1,140 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) <2012> <Bruno P. Kinoshita>
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.biouno.structure.convergence;
+
+/**
+ * Log-likelihood printed by Structure at each update of a run, with the 
+ * iteration it was printed at. At most {@link #CAPACITY} values are kept: 
+ * once full, every other value is dropped, and only one of every two values 
+ * added afterwards is kept, so that the values kept stay evenly spread over 
+ * the run, however long it is.
+ * 
+ * @author Bruno P. Kinoshita - http://www.kinoshita.eti.br
+ * @since 0.1
+ */
+public class LikelihoodTrace {
+
+	/**
+	 * Greatest number of values kept.
+	 */
+	public static final int CAPACITY = 1024;
+
+	private long[] steps = new long[64];
+	private double[] values = new double[64];
+	private int size = 0;
+	/**
+	 * Number of values added.
+	 */
+	private long added = 0L;
+	/**
+	 * Only one of every interval values added is kept.
+	 */
+	private long interval = 1L;
+
+	/**
+	 * @param step iteration
+	 * @param value log-likelihood
+	 */
+	public synchronized void add(long step, double value) {
+		final long index = added++;
+		if (index % interval != 0L) {
+			return;
+		}
+		if (size == CAPACITY) {
+			for (int i = 1; i < size / 2; ++i) {
+				steps[i] = steps[2 * i];
+				values[i] = values[2 * i];
+			}
+			size /= 2;
+			interval *= 2L;
+			if (index % interval != 0L) {
+				return;
+			}
+		} else if (size == steps.length) {
+			final long[] newSteps = new long[size * 2];
+			final double[] newValues = new double[size * 2];
+			System.arraycopy(steps, 0, newSteps, 0, size);
+			System.arraycopy(values, 0, newValues, 0, size);
+			steps = newSteps;
+			values = newValues;
+		}
+		steps[size] = step;
+		values[size] = value;
+		++size;
+	}
+
+	/**
+	 * Removes every value, e.g. once they were sent elsewhere.
+	 */
+	public synchronized void clear() {
+		size = 0;
+		added = 0L;
+		interval = 1L;
+	}
+
+	/**
+	 * @return the number of values
+	 */
+	public synchronized int size() {
+		return size;
+	}
+
+	/**
+	 * @param index index of a value
+	 * @return the iteration of the value
+	 */
+	public synchronized long getStep(int index) {
+		return steps[index];
+	}
+
+	/**
+	 * @param from first index, inclusive
+	 * @param to last index, exclusive
+	 * @return a copy of the values in the range
+	 */
+	public synchronized double[] getValues(int from, int to) {
+		final double[] copy = new double[to - from];
+		System.arraycopy(values, from, copy, 0, to - from);
+		return copy;
+	}
+
+	/**
+	 * @param step an iteration
+	 * @return the index of the first value printed after the iteration
+	 */
+	public synchronized int indexAfter(long step) {
+		int low = 0;
+		int high = size;
+		while (low < high) {
+			final int middle = (low + high) >>> 1;
+			if (steps[middle] <= step) {
+				low = middle + 1;
+			} else {
+				high = middle;
+			}
+		}
+		return low;
+	}
+
+}
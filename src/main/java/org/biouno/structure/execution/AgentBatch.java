@@ -0,0 +1,331 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) <2012> <Bruno P. Kinoshita>
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.biouno.structure.execution;
+
+import hudson.FilePath.FileCallable;
+import hudson.Launcher;
+import hudson.Proc;
+import hudson.remoting.VirtualChannel;
+import hudson.util.NullStream;
+import hudson.util.StreamTaskListener;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Timer;
+import java.util.TimerTask;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.IOUtils;
+import org.biouno.structure.parser.MainParamsTemplate;
+import org.biouno.structure.parser.MainParamsValues;
+
+/**
+ * Executes a batch of runs on the node where it is sent, with a single
+ * request from the master. The parameter files of the batch are rendered on
+ * the node from the compiled mainparams template, the runs are executed one
+ * after the other, and their console output is parsed and written compressed
+ * to their logs on the node by a {@link RunLogSink}. Only a compact
+ * {@link RunStatus} of the running run, with the few lines of output
+ * forwarded to the build log, is sent to the master, every
+ * {@link #STATUS_INTERVAL} milliseconds.
+ * <p>
+ * As in {@link LauncherStructureRunner}, Structure writes its outputs with a
+ * partial name, renamed to the final name only when the master accepts the
+ * result of the run.
+ *
+ * @author Bruno P. Kinoshita - http://www.kinoshita.eti.br
+ * @since 0.1
+ */
+public class AgentBatch implements FileCallable<List<RunResult>> {
+
+	private static final long serialVersionUID = 2704391780562014365L;
+
+	/**
+	 * Interval between two status sent to the master, in milliseconds.
+	 */
+	public static final long STATUS_INTERVAL = 5000L;
+	/**
+	 * Interval between two samples of the CPU time of a run, in milliseconds.
+	 */
+	public static final long CPU_SAMPLE_INTERVAL = 1000L;
+
+	private static final String ENCODING = "UTF-8";
+
+	/**
+	 * Serializes the rendering of the parameter files by the batches running
+	 * on the same node.
+	 */
+	private static final Object PARAMETER_FILES_LOCK = new Object();
+
+	private final MainParamsTemplate template;
+	/**
+	 * Values of the mainparams of each K of the batch.
+	 */
+	private final Map<Integer, MainParamsValues> values;
+	/**
+	 * Extraparams of the stages of the batch, by file name. The runs of a 
+	 * stage without an extraparams file are run without one.
+	 */
+	private final Map<String, String> extraParams;
+	/**
+	 * Path to Structure executable.
+	 */
+	private final String executable;
+	/**
+	 * Name of output data file.
+	 */
+	private final String outFile;
+	/**
+	 * Build environment.
+	 */
+	private final Map<String, String> env;
+	/**
+	 * Nice level of the Structure processes on Unix nodes, may be null.
+	 */
+	private final Integer niceLevel;
+	/**
+	 * Whether the log-likelihood trace of the runs is sent to the master.
+	 */
+	private final boolean recordTraces;
+	private final List<StructureRun> runs;
+	/**
+	 * Proxy to the master.
+	 */
+	private final BatchStatus status;
+
+	/**
+	 * @param template compiled mainparams
+	 * @param values values of the mainparams of each K of the batch
+	 * @param extraParams extraparams of the stages of the batch, by file name
+	 * @param executable path to Structure executable
+	 * @param outFile name of output data file
+	 * @param env build environment
+	 * @param niceLevel nice level of the Structure processes on Unix nodes, 
+	 * may be null
+	 * @param recordTraces whether the log-likelihood trace of the runs is 
+	 * sent to the master
+	 * @param runs runs of the batch, in the order they should be started
+	 * @param status proxy to the master
+	 */
+	public AgentBatch(MainParamsTemplate template, Map<Integer, MainParamsValues> values,
+			Map<String, String> extraParams, String executable, String outFile,
+			Map<String, String> env, Integer niceLevel, boolean recordTraces, List<StructureRun> runs, 
+			BatchStatus status) {
+		this.template = template;
+		this.values = values;
+		this.extraParams = extraParams;
+		this.executable = executable;
+		this.outFile = outFile;
+		this.env = env;
+		this.niceLevel = niceLevel;
+		this.recordTraces = recordTraces;
+		this.runs = runs;
+		this.status = status;
+	}
+
+	/* (non-Javadoc)
+	 * @see hudson.FilePath.FileCallable#invoke(java.io.File, hudson.remoting.VirtualChannel)
+	 */
+	public List<RunResult> invoke(File workDir, VirtualChannel channel)
+			throws IOException, InterruptedException {
+		final long start = System.currentTimeMillis();
+		writeParameterFiles(workDir);
+		status.parametersWritten(System.currentTimeMillis() - start);
+		final Launcher launcher = new Launcher.LocalLauncher(new StreamTaskListener(new NullStream()));
+		final List<RunResult> results = new ArrayList<RunResult>(runs.size());
+		for (StructureRun run : runs) {
+			if (!status.runStarting(run)) {
+				break;
+			}
+			results.add(execute(run, launcher, workDir));
+		}
+		return results;
+	}
+
+	/**
+	 * Writes the parameter files of the batch. A file is written only if its
+	 * content changed, as another batch may be reading it.
+	 */
+	private void writeParameterFiles(File workDir) throws IOException {
+		synchronized (PARAMETER_FILES_LOCK) {
+			final StringBuilder buffer = new StringBuilder();
+			for (Map.Entry<Integer, MainParamsValues> entry : values.entrySet()) {
+				template.render(buffer, entry.getValue());
+				writeIfChanged(new File(workDir, StructureRun.MAINPARAMS_PREFIX + entry.getKey()),
+						buffer.toString());
+			}
+			for (Map.Entry<String, String> entry : extraParams.entrySet()) {
+				writeIfChanged(new File(workDir, entry.getKey()), entry.getValue());
+			}
+		}
+	}
+
+	private void writeIfChanged(File file, String content) throws IOException {
+		if (!file.isFile() || !content.equals(FileUtils.readFileToString(file, ENCODING))) {
+			FileUtils.writeStringToFile(file, content, ENCODING);
+		}
+	}
+
+	/**
+	 * Executes a run, sending its status to the master while it runs.
+	 */
+	private RunResult execute(StructureRun run, Launcher launcher, File workDir)
+			throws IOException, InterruptedException {
+		final long start = System.currentTimeMillis();
+		final RunProgress progress = new RunProgress(run, 0L, 0L, start);
+		if (recordTraces) {
+			progress.recordTrace();
+		}
+		final Execution execution = new Execution(progress);
+		final ProcessCpuSampler cpu = new ProcessCpuSampler();
+		final Map<String, String> runEnv = new HashMap<String, String>(env);
+		runEnv.put(ProcessCpuSampler.VARIABLE, cpu.getId());
+		final String extraParamsFileName = extraParams.containsKey(run.getExtraParamsFileName()) ? 
+				run.getExtraParamsFileName() : null;
+		final Timer timer = new Timer("Structure batch status", true);
+		int exitCode = RunResult.NOT_LAUNCHED;
+		String failure = null;
+		OutputStream log = null;
+		try {
+			execution.sink = new RunLogSink(new FileOutputStream(new File(workDir, run.getLogFileName(outFile))));
+			log = new ProgressOutputStream(execution.sink, execution.progress);
+			execution.proc = launcher.launch()
+				.cmds(LauncherStructureRunner.createCommand(executable, run, extraParamsFileName, outFile, 
+						File.pathSeparatorChar == ':' ? niceLevel : null))
+				.envs(runEnv).stdout(log).pwd(workDir).start();
+			timer.schedule(new TimerTask() {
+				@Override
+				public void run() {
+					execution.sendStatus();
+				}
+			}, STATUS_INTERVAL, STATUS_INTERVAL);
+			timer.schedule(new TimerTask() {
+				@Override
+				public void run() {
+					cpu.sample();
+				}
+			}, 0L, CPU_SAMPLE_INTERVAL);
+			exitCode = execution.proc.join();
+		} catch (IOException ioe) {
+			// Reported to the master as a run that could not be launched, with the reason
+			failure = "Failed to launch Structure: " + ioe.getMessage();
+		} finally {
+			timer.cancel();
+			IOUtils.closeQuietly(log);
+		}
+		final RunStatus last = execution.nextStatus();
+		last.setCpuTime(cpu.getCpuTime());
+		if (failure != null) {
+			final List<String> lines = new ArrayList<String>(last.getLines());
+			lines.add(failure);
+			last.setLines(lines);
+		}
+		if (execution.sink != null) {
+			last.setDropped(execution.sink.getDropped());
+			if (exitCode != 0) {
+				last.setTail(execution.sink.getTail());
+			}
+		}
+		final int reported = status.settle(run, exitCode, last);
+		if (reported == 0) {
+			publishOutputs(workDir, run);
+		}
+		final RunResult result = new RunResult(run, reported, System.currentTimeMillis() - start);
+		status.runFinished(result);
+		return result;
+	}
+
+	/**
+	 * Renames the outputs of a run to their final names.
+	 */
+	private void publishOutputs(File workDir, StructureRun run) throws IOException {
+		final File output = new File(workDir, run.getOutputFileName(outFile));
+		final String partialPrefix = output.getName() + LauncherStructureRunner.PARTIAL + "_";
+		final File[] partials = output.getParentFile().listFiles();
+		if (partials == null) {
+			return;
+		}
+		for (File partial : partials) {
+			if (!partial.getName().startsWith(partialPrefix)) {
+				continue;
+			}
+			final File target = new File(partial.getParentFile(),
+					output.getName() + partial.getName().substring(partialPrefix.length() - 1));
+			if (target.exists() && !target.delete() || !partial.renameTo(target)) {
+				throw new IOException("Failed to rename " + partial + " to " + target);
+			}
+		}
+	}
+
+	/**
+	 * The run being executed, and its progress not sent yet.
+	 */
+	private final class Execution {
+		private final RunProgress progress;
+		private volatile Proc proc;
+		/**
+		 * Console output of the run, <code>null</code> until it is launched.
+		 */
+		private volatile RunLogSink sink;
+
+		private Execution(RunProgress progress) {
+			this.progress = progress;
+		}
+
+		/**
+		 * @return the status not sent yet
+		 */
+		private synchronized RunStatus nextStatus() {
+			final RunStatus next = RunStatus.create(progress);
+			if (sink != null) {
+				next.setLines(sink.drain());
+			}
+			return next;
+		}
+
+		/**
+		 * Sends the status of the run, and kills it if the master asks so.
+		 */
+		private synchronized void sendStatus() {
+			try {
+				final List<String> kills = status.update(Collections.singletonList(nextStatus()));
+				if (kills.contains(progress.getName()) && proc != null) {
+					proc.kill();
+				}
+			} catch (IOException ioe) {
+				// The master is not reachable, the batch request fails too
+			} catch (InterruptedException ie) {
+				Thread.currentThread().interrupt();
+			}
+		}
+	}
+
+}
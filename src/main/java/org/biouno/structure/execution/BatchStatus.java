@@ -0,0 +1,85 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) <2012> <Bruno P. Kinoshita>
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.biouno.structure.execution;
+
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * Receives, on the master, the status of the runs of an {@link AgentBatch}
+ * executed on a node. The node calls it through a remoting proxy, so each
+ * method is one round-trip between the node and the master.
+ *
+ * @author Bruno P. Kinoshita - http://www.kinoshita.eti.br
+ * @since 0.1
+ */
+public interface BatchStatus {
+
+	/**
+	 * @param run a run about to be launched
+	 * @return <code>false</code> if the run, and the rest of the batch, must
+	 * not be started
+	 * @throws IOException if the master could not be reached
+	 * @throws InterruptedException if the build was interrupted
+	 */
+	boolean runStarting(StructureRun run) throws IOException, InterruptedException;
+
+	/**
+	 * @param millis time spent writing the parameter files of the batch, in 
+	 * milliseconds
+	 * @throws IOException if the master could not be reached
+	 * @throws InterruptedException if the build was interrupted
+	 */
+	void parametersWritten(long millis) throws IOException, InterruptedException;
+
+	/**
+	 * @param statuses status of the runs being executed
+	 * @return the names of the runs that must be killed
+	 * @throws IOException if the master could not be reached
+	 * @throws InterruptedException if the build was interrupted
+	 */
+	List<String> update(List<RunStatus> statuses) throws IOException, InterruptedException;
+
+	/**
+	 * Decides the exit code reported for a run whose process exited, before
+	 * its outputs are published.
+	 *
+	 * @param run the run
+	 * @param exitCode exit code of the process
+	 * @param status status of the run not sent yet
+	 * @return the exit code reported for the run
+	 * @throws IOException if the master could not be reached
+	 * @throws InterruptedException if the build was interrupted
+	 */
+	int settle(StructureRun run, int exitCode, RunStatus status) throws IOException, InterruptedException;
+
+	/**
+	 * @param result result of a run, whose outputs were published
+	 * @throws IOException if the outputs could not be copied to the build
+	 * workspace
+	 * @throws InterruptedException if the build was interrupted
+	 */
+	void runFinished(RunResult result) throws IOException, InterruptedException;
+
+}
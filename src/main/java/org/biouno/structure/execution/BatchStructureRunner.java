@@ -0,0 +1,68 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) <2012> <Bruno P. Kinoshita>
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.biouno.structure.execution;
+
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * A {@link StructureRunner} that can also execute several runs, one after the
+ * other, with a single request to the node where they are executed.
+ *
+ * @author Bruno P. Kinoshita - http://www.kinoshita.eti.br
+ * @since 0.1
+ */
+public interface BatchStructureRunner extends StructureRunner {
+
+	/**
+	 * Runs Structure for each run of a batch, and waits for them to finish.
+	 * The runs not reported to the callback were not executed.
+	 *
+	 * @param runs the runs, in the order they should be started
+	 * @param callback notified about each run
+	 * @throws IOException if the batch failed
+	 * @throws InterruptedException if the build was interrupted
+	 */
+	void run(List<StructureRun> runs, Callback callback) throws IOException, InterruptedException;
+
+	/**
+	 * Notified about each run of a batch.
+	 */
+	interface Callback {
+
+		/**
+		 * @param run a run about to be launched
+		 * @return <code>false</code> if the run, and the rest of the batch,
+		 * must not be started
+		 */
+		boolean runStarting(StructureRun run);
+
+		/**
+		 * @param result result of a run of the batch
+		 */
+		void runFinished(RunResult result);
+
+	}
+
+}
@@ -0,0 +1,143 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) <2012> <Bruno P. Kinoshita>
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.biouno.structure.execution;
+
+import hudson.FilePath;
+import hudson.Launcher;
+
+/**
+ * A node where Structure runs are executed, with the number of runs it can 
+ * execute at the same time.
+ * 
+ * @author Bruno P. Kinoshita - http://www.kinoshita.eti.br
+ * @since 0.1
+ */
+public class ExecutionNode {
+
+	/**
+	 * Node name, used in the build log.
+	 */
+	private final String name;
+	/**
+	 * Number of runs executed at the same time on this node.
+	 */
+	private final int slots;
+	/**
+	 * Directory where the parameter files are written and Structure is run.
+	 */
+	private final FilePath workDir;
+	private final Launcher launcher;
+	/**
+	 * Whether the work directory is the build workspace, so that the outputs 
+	 * need not be copied back.
+	 */
+	private final boolean buildWorkspace;
+	/**
+	 * Directory where the input files sent to this node are cached, may be 
+	 * <code>null</code>.
+	 */
+	private final FilePath cacheDir;
+
+	/**
+	 * @param name node name
+	 * @param slots number of runs executed at the same time
+	 * @param workDir directory where Structure is run
+	 * @param launcher launcher for this node
+	 * @param buildWorkspace whether workDir is the build workspace
+	 */
+	public ExecutionNode(String name, int slots, FilePath workDir,
+			Launcher launcher, boolean buildWorkspace) {
+		this(name, slots, workDir, launcher, buildWorkspace, null);
+	}
+
+	/**
+	 * @param name node name
+	 * @param slots number of runs executed at the same time
+	 * @param workDir directory where Structure is run
+	 * @param launcher launcher for this node
+	 * @param buildWorkspace whether workDir is the build workspace
+	 * @param cacheDir directory where the input files are cached, may be 
+	 * <code>null</code>
+	 */
+	public ExecutionNode(String name, int slots, FilePath workDir,
+			Launcher launcher, boolean buildWorkspace, FilePath cacheDir) {
+		this.name = name;
+		this.slots = slots;
+		this.workDir = workDir;
+		this.launcher = launcher;
+		this.buildWorkspace = buildWorkspace;
+		this.cacheDir = cacheDir;
+	}
+
+	/**
+	 * @return the name
+	 */
+	public String getName() {
+		return name;
+	}
+
+	/**
+	 * @return the slots
+	 */
+	public int getSlots() {
+		return slots;
+	}
+
+	/**
+	 * @return the workDir
+	 */
+	public FilePath getWorkDir() {
+		return workDir;
+	}
+
+	/**
+	 * @return the launcher
+	 */
+	public Launcher getLauncher() {
+		return launcher;
+	}
+
+	/**
+	 * @return whether the work directory is the build workspace
+	 */
+	public boolean isBuildWorkspace() {
+		return buildWorkspace;
+	}
+
+	/**
+	 * @return the cacheDir, may be <code>null</code>
+	 */
+	public FilePath getCacheDir() {
+		return cacheDir;
+	}
+
+	/* (non-Javadoc)
+	 * @see java.lang.Object#toString()
+	 */
+	@Override
+	public String toString() {
+		return name;
+	}
+
+}
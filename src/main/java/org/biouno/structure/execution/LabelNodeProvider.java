@@ -0,0 +1,133 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) <2012> <Bruno P. Kinoshita>
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.biouno.structure.execution;
+
+import hudson.AbortException;
+import hudson.FilePath;
+import hudson.Launcher;
+import hudson.model.AbstractBuild;
+import hudson.model.Computer;
+import hudson.model.Hudson;
+import hudson.model.Label;
+import hudson.model.Node;
+import hudson.model.TaskListener;
+import hudson.model.TopLevelItem;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.commons.lang.StringUtils;
+import org.biouno.structure.cache.NodeFileCache;
+import org.biouno.structure.util.Messages;
+
+/**
+ * Provides every online node matching a label. Each node is given one slot 
+ * for each processor not used by a busy executor. Without a label, the runs 
+ * are executed only on the node running the build.
+ * <p>
+ * On the other nodes, the runs are executed in a directory of their own 
+ * build, next to the workspace of the project, so that they do not collide 
+ * with other builds of the project using the node.
+ * 
+ * @author Bruno P. Kinoshita - http://www.kinoshita.eti.br
+ * @since 0.1
+ */
+public class LabelNodeProvider implements NodeProvider {
+
+	private static final String MASTER = "master";
+
+	/**
+	 * Suffix of the directory of the sweeps of a project on a node, after the 
+	 * name of the project workspace.
+	 */
+	public static final String WORK_DIR_SUFFIX = "@structure";
+
+	/* (non-Javadoc)
+	 * @see org.biouno.structure.execution.NodeProvider#getNodes(hudson.model.AbstractBuild, hudson.Launcher, java.lang.String, hudson.model.TaskListener)
+	 */
+	public List<ExecutionNode> getNodes(AbstractBuild<?, ?> build,
+			Launcher launcher, String label, TaskListener listener)
+			throws IOException, InterruptedException {
+		final List<ExecutionNode> nodes = new ArrayList<ExecutionNode>();
+		final FilePath workspace = build.getWorkspace();
+		if (StringUtils.isBlank(label)) {
+			final int slots = workspace.act(new AvailableProcessors());
+			final String name = StringUtils.isEmpty(build.getBuiltOnStr()) ? MASTER : build.getBuiltOnStr();
+			nodes.add(new ExecutionNode(name, slots, workspace, launcher, true));
+			return nodes;
+		}
+
+		final Label nodeLabel = Hudson.getInstance().getLabel(label);
+		final Node buildNode = build.getBuiltOn();
+		if (nodeLabel != null) {
+			for (Node node : nodeLabel.getNodes()) {
+				final Computer computer = node.toComputer();
+				if (computer == null || !computer.isOnline()) {
+					continue;
+				}
+				final boolean isBuildNode = node == buildNode;
+				final FilePath workDir = isBuildNode ? workspace : getWorkDir(build, node);
+				if (workDir == null) {
+					continue;
+				}
+				final int processors = workDir.act(new AvailableProcessors());
+				// The executor running this build is not taking a processor
+				final int busy = computer.countBusy() - (isBuildNode ? 1 : 0);
+				final int slots = processors - busy;
+				if (slots <= 0) {
+					continue;
+				}
+				final Launcher nodeLauncher = isBuildNode ? launcher : node.createLauncher(listener);
+				final FilePath root = node.getRootPath();
+				final FilePath cacheDir = isBuildNode || root == null ? null : root.child(NodeFileCache.DIRECTORY);
+				nodes.add(new ExecutionNode(computer.getDisplayName(), slots, workDir, nodeLauncher, isBuildNode, 
+						cacheDir));
+			}
+		}
+		if (nodes.isEmpty()) {
+			throw new AbortException(Messages.StructureBuilder_NoNodeForLabel(label));
+		}
+		return nodes;
+	}
+
+	/**
+	 * @return the directory of the build on the node, 
+	 * <code>&lt;workspace&gt;@structure/&lt;build number&gt;</code>
+	 */
+	private FilePath getWorkDir(AbstractBuild<?, ?> build, Node node) {
+		FilePath workspace = null;
+		if (build.getProject() instanceof TopLevelItem) {
+			workspace = node.getWorkspaceFor((TopLevelItem) build.getProject());
+		} else if (node.getRootPath() != null) {
+			workspace = node.getRootPath().child("workspace").child(build.getProject().getName());
+		}
+		if (workspace == null || workspace.getParent() == null) {
+			return null;
+		}
+		return workspace.getParent().child(workspace.getName() + WORK_DIR_SUFFIX)
+				.child(String.valueOf(build.getNumber()));
+	}
+
+}
@@ -0,0 +1,387 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) <2012> <Bruno P. Kinoshita>
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.biouno.structure.execution;
+
+import hudson.FilePath;
+import hudson.Launcher;
+import hudson.Proc;
+import hudson.util.ArgumentListBuilder;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.commons.io.IOUtils;
+import org.apache.commons.lang.StringUtils;
+import org.biouno.structure.metrics.SweepMetrics;
+import org.biouno.structure.metrics.SweepMetrics.Counter;
+import org.biouno.structure.metrics.SweepMetrics.Phase;
+import org.biouno.structure.util.Messages;
+
+/**
+ * Runs Structure with a Jenkins {@link Launcher}, in the directory where the
+ * parameter files were written. The console output of each run goes to its
+ * own compressed log file, as the output of concurrent runs would be
+ * unreadable if mixed in the build log. Only the lines a {@link RunLogSink}
+ * forwards, and the last lines of failed runs, are written to the build log.
+ * <p>
+ * Structure writes its outputs with a {@link #PARTIAL} name, renamed to the
+ * final name only when the run exits successfully, so an output file with the
+ * final name is always complete.
+ *
+ * @author Bruno P. Kinoshita - http://www.kinoshita.eti.br
+ * @since 0.1
+ */
+public class LauncherStructureRunner implements StructureRunner {
+
+	/**
+	 * Added to the output file name while Structure is running.
+	 */
+	public static final String PARTIAL = ".partial";
+
+	private final Launcher launcher;
+	/**
+	 * Directory containing the parameter files. Also the working directory.
+	 */
+	private final FilePath workDir;
+	/**
+	 * Path to Structure executable.
+	 */
+	private final String executable;
+	/**
+	 * Name of the extraparams file, may be blank.
+	 */
+	private final String extraParamsFileName;
+	/**
+	 * Name of output data file.
+	 */
+	private final String outFile;
+	/**
+	 * Build environment.
+	 */
+	private final Map<String, String> env;
+	/**
+	 * Monitor tracking the progress of the runs, may be null.
+	 */
+	private SweepMonitor monitor;
+	/**
+	 * Speed of the node, in work units per second, zero if not calibrated.
+	 */
+	private double unitsPerSecond = 0.0d;
+	/**
+	 * Timers and counters of the sweep, may be null.
+	 */
+	private SweepMetrics metrics;
+	/**
+	 * Admits the runs on the node, may be null.
+	 */
+	private NodeAdmission admission;
+	/**
+	 * Nice level of the Structure processes on Unix nodes, may be null.
+	 */
+	private Integer niceLevel;
+	/**
+	 * Build log, receiving the few lines of console output forwarded, may be
+	 * null.
+	 */
+	private PrintStream logger;
+
+	/**
+	 * @param launcher the launcher
+	 * @param workDir directory containing the parameter files
+	 * @param executable path to Structure executable
+	 * @param extraParamsFileName name of the extraparams file, may be blank
+	 * @param outFile name of output data file
+	 * @param env build environment
+	 */
+	public LauncherStructureRunner(Launcher launcher, FilePath workDir,
+			String executable, String extraParamsFileName, String outFile,
+			Map<String, String> env) {
+		this.launcher = launcher;
+		this.workDir = workDir;
+		this.executable = executable;
+		this.extraParamsFileName = extraParamsFileName;
+		this.outFile = outFile;
+		this.env = env;
+	}
+
+	/**
+	 * @param monitor monitor tracking the progress of the runs, may be null
+	 */
+	public void setMonitor(SweepMonitor monitor) {
+		this.monitor = monitor;
+	}
+
+	/**
+	 * @return the monitor tracking the progress of the runs, may be null
+	 */
+	public SweepMonitor getMonitor() {
+		return monitor;
+	}
+
+	/**
+	 * @param metrics timers and counters of the sweep, may be null
+	 */
+	public void setMetrics(SweepMetrics metrics) {
+		this.metrics = metrics;
+	}
+
+	/**
+	 * @return the timers and counters of the sweep, may be null
+	 */
+	public SweepMetrics getMetrics() {
+		return metrics;
+	}
+
+	/**
+	 * @param admission admits the runs on the node, may be null
+	 */
+	public void setAdmission(NodeAdmission admission) {
+		this.admission = admission;
+	}
+
+	/**
+	 * @return the admission of the runs on the node, may be null
+	 */
+	public NodeAdmission getAdmission() {
+		return admission;
+	}
+
+	/**
+	 * @param niceLevel nice level of the Structure processes on Unix nodes, 
+	 * may be null
+	 */
+	public void setNiceLevel(Integer niceLevel) {
+		this.niceLevel = niceLevel;
+	}
+
+	/**
+	 * @return the nice level of the Structure processes, may be null
+	 */
+	public Integer getNiceLevel() {
+		return niceLevel;
+	}
+
+	/**
+	 * @param logger build log, receiving the few lines of console output
+	 * forwarded, may be null
+	 */
+	public void setLogger(PrintStream logger) {
+		this.logger = logger;
+	}
+
+	/**
+	 * @return the build log, may be null
+	 */
+	public PrintStream getLogger() {
+		return logger;
+	}
+
+	/**
+	 * Writes lines of the console output of a run to the build log, each
+	 * after the name of the run.
+	 *
+	 * @param name name of the run
+	 * @param lines lines of the console output
+	 */
+	protected void printOutput(String name, List<String> lines) {
+		if (logger == null || lines.isEmpty()) {
+			return;
+		}
+		long bytes = 0L;
+		for (String line : lines) {
+			final String forwarded = "[" + name + "] " + line;
+			logger.println(forwarded);
+			bytes += forwarded.length() + 1;
+		}
+		if (metrics != null) {
+			metrics.count(Counter.LOG_BYTES_FORWARDED, bytes);
+		}
+	}
+
+	/**
+	 * Writes the last lines of the console output of a failed run to the
+	 * build log, and the number of lines not forwarded.
+	 *
+	 * @param run the run
+	 * @param exitCode exit code reported for the run
+	 * @param tail last lines of the console output
+	 * @param dropped number of lines not forwarded
+	 */
+	protected void printFinished(StructureRun run, int exitCode, List<String> tail, long dropped) {
+		if (logger == null) {
+			return;
+		}
+		if (exitCode != 0 && exitCode != RunResult.CANCELLED && !tail.isEmpty()) {
+			logger.println(Messages.StructureBuilder_RunOutputTail(run, tail.size(), run.getLogFileName(outFile)));
+			printOutput(run.getName(), tail);
+		}
+		if (dropped > 0L) {
+			logger.println(Messages.StructureBuilder_RunOutputDropped(run, dropped, run.getLogFileName(outFile)));
+		}
+	}
+
+	/**
+	 * Waits until a run is admitted on the node, if runs are admitted.
+	 *
+	 * @param run the run
+	 * @throws InterruptedException if the build was interrupted
+	 */
+	protected void admit(StructureRun run) throws InterruptedException {
+		if (admission != null) {
+			final long waited = admission.admit(run);
+			if (metrics != null) {
+				metrics.time(Phase.ADMISSION, waited);
+			}
+		}
+	}
+
+	/**
+	 * Releases the memory of a run on the node, if runs are admitted.
+	 *
+	 * @param run the run
+	 */
+	protected void release(StructureRun run) {
+		if (admission != null) {
+			admission.release(run);
+		}
+	}
+
+	/**
+	 * @param unitsPerSecond speed of the node, in work units per second
+	 */
+	public void setUnitsPerSecond(double unitsPerSecond) {
+		this.unitsPerSecond = unitsPerSecond;
+	}
+
+	/**
+	 * @return the speed of the node, in work units per second
+	 */
+	public double getUnitsPerSecond() {
+		return unitsPerSecond;
+	}
+
+	/**
+	 * Creates the command line for a run.
+	 *
+	 * @param executable path to Structure executable
+	 * @param run the run
+	 * @param extraParamsFileName name of the extraparams file, may be blank
+	 * @param outFile name of output data file
+	 * @param niceLevel nice level of the process, or <code>null</code> to
+	 * start it without <code>nice</code>
+	 * @return Structure command line
+	 */
+	public static ArgumentListBuilder createCommand(String executable,
+			StructureRun run, String extraParamsFileName, String outFile, Integer niceLevel) {
+		final ArgumentListBuilder args = new ArgumentListBuilder();
+		if (niceLevel != null) {
+			args.add("nice");
+			args.add("-n");
+			args.add(niceLevel.toString());
+		}
+		args.add(executable);
+		args.add("-m");
+		args.add(run.getMainParamsFileName());
+		if (StringUtils.isNotBlank(extraParamsFileName)) {
+			args.add("-e");
+			args.add(extraParamsFileName);
+		}
+		args.add("-K");
+		args.add(Integer.toString(run.getK()));
+		args.add("-o");
+		args.add(run.getOutputFileName(outFile) + PARTIAL);
+		args.add("-D");
+		args.add(Long.toString(run.getSeed()));
+		return args;
+	}
+
+	/**
+	 * Renames the outputs of a successful run to their final names.
+	 */
+	private void publishOutputs(StructureRun run) throws IOException, InterruptedException {
+		final String output = run.getOutputFileName(outFile);
+		final String partialName = workDir.child(output + PARTIAL).getName();
+		final String finalName = workDir.child(output).getName();
+		for (FilePath partial : workDir.list(output + PARTIAL + "_*")) {
+			final String suffix = partial.getName().substring(partialName.length());
+			partial.renameTo(partial.getParent().child(finalName + suffix));
+		}
+	}
+
+	/* (non-Javadoc)
+	 * @see org.biouno.structure.execution.StructureRunner#run(org.biouno.structure.execution.StructureRun)
+	 */
+	public RunResult run(final StructureRun run) throws IOException,
+			InterruptedException {
+		final ArgumentListBuilder args = createCommand(executable, run, extraParamsFileName, outFile, 
+				launcher.isUnix() ? niceLevel : null);
+		admit(run);
+		final long start = System.currentTimeMillis();
+		OutputStream log = null;
+		RunLogSink sink = null;
+		RunProgress progress = null;
+		int exitCode = RunResult.NOT_LAUNCHED;
+		try {
+			sink = new RunLogSink(workDir.child(run.getLogFileName(outFile)).write()) {
+				@Override
+				protected void forward(String text) {
+					printOutput(run.getName(), Collections.singletonList(text));
+				}
+			};
+			log = sink;
+			if (monitor != null) {
+				// Parse the iteration counters as the output arrives
+				progress = monitor.runStarted(run, unitsPerSecond);
+				log = new ProgressOutputStream(log, progress);
+			}
+			final Proc proc = launcher.launch().cmds(args).envs(env).stdout(log).pwd(workDir).start();
+			if (progress != null) {
+				monitor.processStarted(progress, proc);
+			}
+			exitCode = proc.join();
+			if (metrics != null) {
+				metrics.timeSince(Phase.PROCESS, start);
+			}
+			// Another copy of the run may have finished first
+			final int reported = progress != null ? monitor.settle(progress, exitCode) : exitCode;
+			if (reported == 0) {
+				publishOutputs(run);
+			}
+			IOUtils.closeQuietly(log);
+			printFinished(run, reported, sink.getTail(), sink.getDropped());
+			return new RunResult(run, reported, System.currentTimeMillis() - start);
+		} finally {
+			release(run);
+			if (progress != null) {
+				monitor.runFinished(progress, exitCode);
+			}
+			IOUtils.closeQuietly(log);
+		}
+	}
+
+}
@@ -0,0 +1,95 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) <2012> <Bruno P. Kinoshita>
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.biouno.structure.execution;
+
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Parses the console output of Structure. While the MCMC is running, 
+ * Structure prints one line for each update, starting with the iteration 
+ * (burn-in included), e.g.
+ * <pre>
+ *  1000:    0.043    -4402.1       --
+ *  1100:    0.041    -4398.7    -4420.3
+ * </pre>
+ * The last column is the estimated Ln P(D), printed as <code>--</code> 
+ * during the burn-in, and the column before it is the log-likelihood.
+ * 
+ * @author Bruno P. Kinoshita - http://www.kinoshita.eti.br
+ * @since 0.1
+ */
+public final class McmcProgressParser {
+
+	private static final Pattern UPDATE = Pattern.compile("^\\s*(\\d+):\\s+(.*)$");
+
+	private McmcProgressParser() {
+	}
+
+	/**
+	 * @param line line printed by Structure
+	 * @return whether the line is an update line
+	 */
+	public static boolean isUpdate(String line) {
+		return UPDATE.matcher(line).matches();
+	}
+
+	/**
+	 * @param line line printed by Structure
+	 * @param progress progress updated if the line is an update line
+	 * @param now time, in milliseconds
+	 * @return <code>true</code> if the line was an update line
+	 */
+	public static boolean parse(String line, RunProgress progress, long now) {
+		final Matcher matcher = UPDATE.matcher(line);
+		if (!matcher.matches()) {
+			return false;
+		}
+		final long step;
+		try {
+			step = Long.parseLong(matcher.group(1));
+		} catch (NumberFormatException nfe) {
+			return false;
+		}
+		progress.advance(step, parseLikelihood(matcher.group(2)), now);
+		return true;
+	}
+
+	/**
+	 * @return the log-likelihood in the columns of an update line, or 
+	 * <code>null</code> if not found
+	 */
+	private static Double parseLikelihood(String columns) {
+		final String[] values = columns.trim().split("\\s+");
+		if (values.length < 2) {
+			return null;
+		}
+		try {
+			return Double.valueOf(values[values.length - 2]);
+		} catch (NumberFormatException nfe) {
+			return null;
+		}
+	}
+
+}
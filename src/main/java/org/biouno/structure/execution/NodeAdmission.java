@@ -0,0 +1,148 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) <2012> <Bruno P. Kinoshita>
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.biouno.structure.execution;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import org.biouno.structure.scheduling.RunMemoryModel;
+
+/**
+ * Admits the runs of a build on a node while their estimated memory fits the 
+ * memory budget of the node, so that large runs do not make the node swap. A 
+ * run that does not fit waits until enough runs of the node finish. A run 
+ * larger than the whole budget is admitted alone.
+ * 
+ * @author Bruno P. Kinoshita - http://www.kinoshita.eti.br
+ * @since 0.1
+ */
+public class NodeAdmission {
+
+	private final RunMemoryModel memoryModel;
+	/**
+	 * Memory budget of the node, in bytes.
+	 */
+	private final long budget;
+	/**
+	 * Estimated memory of each admitted run, by run name.
+	 */
+	private final Map<String, Long> admitted = new HashMap<String, Long>();
+	private long used = 0L;
+	private int waits = 0;
+	private long waitTime = 0L;
+	private long longestWait = 0L;
+
+	/**
+	 * @param memoryModel estimates the memory of the runs
+	 * @param budget memory budget of the node, in bytes
+	 */
+	public NodeAdmission(RunMemoryModel memoryModel, long budget) {
+		this.memoryModel = memoryModel;
+		this.budget = budget;
+	}
+
+	/**
+	 * @return the budget, in bytes
+	 */
+	public long getBudget() {
+		return budget;
+	}
+
+	/**
+	 * Waits until a run fits the memory budget, and admits it.
+	 * 
+	 * @param run the run
+	 * @return the time waited, in milliseconds
+	 * @throws InterruptedException if the build was interrupted
+	 */
+	public synchronized long admit(StructureRun run) throws InterruptedException {
+		final long memory = memoryModel.estimate(run.getK());
+		final long start = System.currentTimeMillis();
+		boolean waited = false;
+		// A copy of the run replaces its previous admission, so it waits for other runs only
+		while (!isAlone(run) && used - getAdmitted(run) + memory > budget) {
+			waited = true;
+			wait();
+		}
+		final long time = System.currentTimeMillis() - start;
+		if (waited) {
+			waits++;
+			waitTime += time;
+			longestWait = Math.max(longestWait, time);
+		}
+		used += memory - getAdmitted(run);
+		admitted.put(run.getName(), memory);
+		return time;
+	}
+
+	/**
+	 * @return the memory admitted for the run, zero if not admitted
+	 */
+	private long getAdmitted(StructureRun run) {
+		final Long memory = admitted.get(run.getName());
+		return memory == null ? 0L : memory;
+	}
+
+	/**
+	 * @return whether no other run is admitted
+	 */
+	private boolean isAlone(StructureRun run) {
+		return admitted.isEmpty() || admitted.size() == 1 && admitted.containsKey(run.getName());
+	}
+
+	/**
+	 * Releases the memory of a run, if admitted.
+	 * 
+	 * @param run the run
+	 */
+	public synchronized void release(StructureRun run) {
+		final Long memory = admitted.remove(run.getName());
+		if (memory != null) {
+			used -= memory;
+			notifyAll();
+		}
+	}
+
+	/**
+	 * @return the number of runs that waited to be admitted
+	 */
+	public synchronized int getWaits() {
+		return waits;
+	}
+
+	/**
+	 * @return the total time runs waited to be admitted, in milliseconds
+	 */
+	public synchronized long getWaitTime() {
+		return waitTime;
+	}
+
+	/**
+	 * @return the longest time a run waited to be admitted, in milliseconds
+	 */
+	public synchronized long getLongestWait() {
+		return longestWait;
+	}
+
+}
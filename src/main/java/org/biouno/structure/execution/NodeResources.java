@@ -0,0 +1,124 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) <2012> <Bruno P. Kinoshita>
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.biouno.structure.execution;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.kohsuke.stapler.DataBoundConstructor;
+
+/**
+ * Limits on the resources the Structure processes of a build use on each 
+ * node: the number of processes, their memory and their priority.
+ * 
+ * @author Bruno P. Kinoshita - http://www.kinoshita.eti.br
+ * @since 0.1
+ */
+public class NodeResources implements Serializable {
+
+	private static final long serialVersionUID = 5043527391420337818L;
+
+	/**
+	 * Percentage of the physical memory of each node that its Structure 
+	 * processes may use, or null to not admit runs by their memory.
+	 */
+	private final Integer memoryBudget;
+	/**
+	 * Maximum number of Structure processes on each node, or null for one 
+	 * for each free processor.
+	 */
+	private final Integer maxProcesses;
+	/**
+	 * Nice level of the Structure processes on Unix nodes, or null.
+	 */
+	private final Integer niceLevel;
+
+	/**
+	 * @param memoryBudget percentage of the physical memory of each node that 
+	 * its Structure processes may use, or null
+	 * @param maxProcesses maximum number of Structure processes on each node, 
+	 * or null
+	 * @param niceLevel nice level of the Structure processes, or null
+	 */
+	@DataBoundConstructor
+	public NodeResources(Integer memoryBudget, Integer maxProcesses, Integer niceLevel) {
+		this.memoryBudget = memoryBudget;
+		this.maxProcesses = maxProcesses;
+		this.niceLevel = niceLevel;
+	}
+
+	/**
+	 * @return the memoryBudget
+	 */
+	public Integer getMemoryBudget() {
+		return memoryBudget;
+	}
+
+	/**
+	 * @return the maxProcesses
+	 */
+	public Integer getMaxProcesses() {
+		return maxProcesses;
+	}
+
+	/**
+	 * @return the niceLevel
+	 */
+	public Integer getNiceLevel() {
+		return niceLevel;
+	}
+
+	/**
+	 * @return whether runs are admitted on each node by their memory
+	 */
+	public boolean isMemoryBudgeted() {
+		return memoryBudget != null && memoryBudget > 0;
+	}
+
+	/**
+	 * @param memory physical memory of a node, in bytes
+	 * @return the memory its Structure processes may use, in bytes
+	 */
+	public long getBudget(long memory) {
+		return memory / 100L * Math.min(100, memoryBudget);
+	}
+
+	/**
+	 * @param nodes the nodes
+	 * @return the nodes, with at most the maximum number of processes on each
+	 */
+	public List<ExecutionNode> limit(List<ExecutionNode> nodes) {
+		if (maxProcesses == null || maxProcesses <= 0) {
+			return nodes;
+		}
+		final List<ExecutionNode> limited = new ArrayList<ExecutionNode>(nodes.size());
+		for (ExecutionNode node : nodes) {
+			limited.add(node.getSlots() <= maxProcesses ? node : new ExecutionNode(node.getName(), maxProcesses, 
+					node.getWorkDir(), node.getLauncher(), node.isBuildWorkspace(), node.getCacheDir()));
+		}
+		return limited;
+	}
+
+}
@@ -0,0 +1,383 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) <2012> <Bruno P. Kinoshita>
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.biouno.structure.execution;
+
+import hudson.FilePath;
+import hudson.Proc;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.apache.commons.lang.StringUtils;
+import org.biouno.structure.metrics.SweepMetrics;
+import org.biouno.structure.metrics.SweepMetrics.Counter;
+import org.biouno.structure.metrics.SweepMetrics.Phase;
+import org.biouno.structure.parser.MainParamsTemplate;
+import org.biouno.structure.parser.MainParamsValues;
+
+/**
+ * Runs Structure on an {@link ExecutionNode}. When the node works outside the 
+ * build workspace, the outputs and the log of each run are copied back to the 
+ * build workspace once the run finishes, so that all results of the sweep end 
+ * up in the same place.
+ * <p>
+ * Once the compiled mainparams are set, runs are executed by an 
+ * {@link AgentBatch} sent to the node, so that a batch of runs costs a single 
+ * request, instead of a few requests for each file written and each process 
+ * launched. The progress of the runs is received from the batch.
+ * 
+ * @author Bruno P. Kinoshita - http://www.kinoshita.eti.br
+ * @since 0.1
+ */
+public class NodeStructureRunner extends LauncherStructureRunner implements BatchStructureRunner {
+
+	private final ExecutionNode node;
+	/**
+	 * Build workspace.
+	 */
+	private final FilePath workspace;
+	/**
+	 * Path to Structure executable.
+	 */
+	private final String executable;
+	/**
+	 * Name of output data file.
+	 */
+	private final String outFile;
+	/**
+	 * Build environment.
+	 */
+	private final Map<String, String> env;
+	/**
+	 * Compiled mainparams, <code>null</code> if the parameter files are 
+	 * written to the node beforehand.
+	 */
+	private MainParamsTemplate template;
+	/**
+	 * Values of the mainparams of each K.
+	 */
+	private Map<Integer, MainParamsValues> values;
+	private String extraParams;
+	/**
+	 * Extraparams of the runs of other stages, by stage.
+	 */
+	private Map<String, String> stageExtraParams = Collections.emptyMap();
+
+	/**
+	 * @param node the node
+	 * @param workspace build workspace
+	 * @param executable path to Structure executable
+	 * @param extraParamsFileName name of the extraparams file, may be blank
+	 * @param outFile name of output data file
+	 * @param env build environment
+	 */
+	public NodeStructureRunner(ExecutionNode node, FilePath workspace,
+			String executable, String extraParamsFileName, String outFile,
+			Map<String, String> env) {
+		super(node.getLauncher(), node.getWorkDir(), executable, extraParamsFileName, outFile, env);
+		this.node = node;
+		this.workspace = workspace;
+		this.executable = executable;
+		this.outFile = outFile;
+		this.env = env;
+	}
+
+	/**
+	 * @return the node
+	 */
+	public ExecutionNode getNode() {
+		return node;
+	}
+
+	/**
+	 * Sets the parameters rendered on the node by each batch.
+	 * 
+	 * @param template compiled mainparams
+	 * @param values values of the mainparams of each K
+	 * @param extraParams extraparams text
+	 */
+	public void setParameters(MainParamsTemplate template, Map<Integer, MainParamsValues> values, 
+			String extraParams) {
+		this.template = template;
+		this.values = values;
+		this.extraParams = extraParams;
+	}
+
+	/**
+	 * Sets the extraparams of the runs of some stages, e.g. the 
+	 * configurations of an extraparams grid, written to the node with the 
+	 * extraparams file name of their stage. The runs of the other stages use 
+	 * the extraparams given with the mainparams.
+	 * 
+	 * @param stageExtraParams extraparams text, by stage
+	 */
+	public void setStageExtraParams(Map<String, String> stageExtraParams) {
+		this.stageExtraParams = stageExtraParams;
+	}
+
+	/* (non-Javadoc)
+	 * @see org.biouno.structure.execution.LauncherStructureRunner#run(org.biouno.structure.execution.StructureRun)
+	 */
+	@Override
+	public RunResult run(StructureRun run) throws IOException,
+			InterruptedException {
+		if (template != null) {
+			final List<RunResult> results = new ArrayList<RunResult>(1);
+			run(Collections.singletonList(run), new Callback() {
+				public boolean runStarting(StructureRun run) {
+					return true;
+				}
+				public void runFinished(RunResult result) {
+					results.add(result);
+				}
+			});
+			return results.get(0);
+		}
+		final RunResult result = super.run(run);
+		// A cancelled copy must not replace the outputs of the copy that finished first
+		if (!node.isBuildWorkspace() && result.getExitCode() != RunResult.CANCELLED) {
+			copyBack(run);
+		}
+		return new RunResult(run, result.getExitCode(), result.getDuration(), node.getName());
+	}
+
+	/* (non-Javadoc)
+	 * @see org.biouno.structure.execution.BatchStructureRunner#run(java.util.List, org.biouno.structure.execution.BatchStructureRunner.Callback)
+	 */
+	public void run(List<StructureRun> runs, Callback callback) throws IOException,
+			InterruptedException {
+		if (template == null) {
+			for (StructureRun run : runs) {
+				if (!callback.runStarting(run)) {
+					return;
+				}
+				callback.runFinished(run(run));
+			}
+			return;
+		}
+		final Map<Integer, MainParamsValues> batchValues = new TreeMap<Integer, MainParamsValues>();
+		final Map<String, String> batchExtraParams = new TreeMap<String, String>();
+		for (StructureRun run : runs) {
+			batchValues.put(run.getK(), values.get(run.getK()));
+			final String text = run.getStage() != null && stageExtraParams.containsKey(run.getStage()) ? 
+					stageExtraParams.get(run.getStage()) : extraParams;
+			if (StringUtils.isNotBlank(text)) {
+				batchExtraParams.put(run.getExtraParamsFileName(), text);
+			}
+		}
+		final FilePath workDir = node.getWorkDir();
+		final Receiver receiver = new Receiver(callback);
+		final BatchStatus status = workDir.getChannel().export(BatchStatus.class, receiver);
+		try {
+			workDir.act(new AgentBatch(template, batchValues, batchExtraParams, executable, 
+					outFile, env, getNiceLevel(), getMonitor() != null && getMonitor().isRecordTraces(), runs, status));
+		} finally {
+			// Runs the batch did not report as finished
+			for (StructureRun run : runs) {
+				release(run);
+			}
+		}
+	}
+
+	/**
+	 * Copies the outputs and the log of a run to the build workspace.
+	 */
+	private void copyBack(StructureRun run) throws IOException, InterruptedException {
+		final long start = System.currentTimeMillis();
+		node.getWorkDir().copyRecursiveTo(run.getOutputFileName(outFile) + "_*," + run.getLogFileName(outFile), workspace);
+		if (getMetrics() != null) {
+			getMetrics().timeSince(Phase.TRANSFER, start);
+		}
+	}
+
+	/**
+	 * Receives the status of the runs of a batch, on the master.
+	 */
+	private final class Receiver implements BatchStatus {
+
+		private final Callback callback;
+		/**
+		 * Progress of the runs of the batch being executed.
+		 */
+		private final Map<String, RunProgress> progresses = new ConcurrentHashMap<String, RunProgress>();
+		/**
+		 * Names of the runs to kill, sent with the next update.
+		 */
+		private final List<String> kills = new ArrayList<String>();
+		/**
+		 * Start time of the runs of the batch being executed.
+		 */
+		private final Map<String, Long> starts = new ConcurrentHashMap<String, Long>();
+
+		private Receiver(Callback callback) {
+			this.callback = callback;
+		}
+
+		/* (non-Javadoc)
+		 * @see org.biouno.structure.execution.BatchStatus#runStarting(org.biouno.structure.execution.StructureRun)
+		 */
+		public boolean runStarting(StructureRun run) throws InterruptedException {
+			if (!callback.runStarting(run)) {
+				return false;
+			}
+			admit(run);
+			starts.put(run.getName(), System.currentTimeMillis());
+			final SweepMonitor monitor = getMonitor();
+			if (monitor != null) {
+				final RunProgress progress = monitor.runStarted(run, getUnitsPerSecond());
+				progresses.put(run.getName(), progress);
+				monitor.processStarted(progress, new BatchProc(run.getName()));
+			}
+			return true;
+		}
+
+		/* (non-Javadoc)
+		 * @see org.biouno.structure.execution.BatchStatus#parametersWritten(long)
+		 */
+		public void parametersWritten(long millis) {
+			if (getMetrics() != null) {
+				getMetrics().time(Phase.RENDER, millis);
+			}
+		}
+
+		/* (non-Javadoc)
+		 * @see org.biouno.structure.execution.BatchStatus#update(java.util.List)
+		 */
+		public List<String> update(List<RunStatus> statuses) {
+			final long now = System.currentTimeMillis();
+			for (RunStatus status : statuses) {
+				printOutput(status.getName(), status.getLines());
+				final RunProgress progress = progresses.get(status.getName());
+				if (progress != null) {
+					status.applyTo(progress, now);
+				}
+			}
+			synchronized (kills) {
+				final List<String> names = new ArrayList<String>(kills);
+				kills.clear();
+				return names;
+			}
+		}
+
+		/* (non-Javadoc)
+		 * @see org.biouno.structure.execution.BatchStatus#settle(org.biouno.structure.execution.StructureRun, int, org.biouno.structure.execution.RunStatus)
+		 */
+		public int settle(StructureRun run, int exitCode, RunStatus status) throws InterruptedException {
+			final Long start = starts.remove(run.getName());
+			final SweepMetrics metrics = getMetrics();
+			if (metrics != null && start != null) {
+				metrics.timeSince(Phase.PROCESS, start);
+				if (status.getCpuTime() >= 0L) {
+					metrics.count(Counter.PROCESS_CPU_MILLIS, status.getCpuTime());
+				}
+			}
+			printOutput(run.getName(), status.getLines());
+			final RunProgress progress = progresses.get(run.getName());
+			int reported = exitCode;
+			if (progress != null) {
+				status.applyTo(progress, System.currentTimeMillis());
+				reported = getMonitor().settle(progress, exitCode);
+			}
+			printFinished(run, reported, status.getTail(), status.getDropped());
+			return reported;
+		}
+
+		/* (non-Javadoc)
+		 * @see org.biouno.structure.execution.BatchStatus#runFinished(org.biouno.structure.execution.RunResult)
+		 */
+		public void runFinished(RunResult result) throws IOException, InterruptedException {
+			final StructureRun run = result.getRun();
+			release(run);
+			final RunProgress progress = progresses.remove(run.getName());
+			if (progress != null) {
+				getMonitor().runFinished(progress, result.getExitCode());
+			}
+			if (!node.isBuildWorkspace() && result.getExitCode() != RunResult.CANCELLED) {
+				copyBack(run);
+			}
+			callback.runFinished(new RunResult(run, result.getExitCode(), result.getDuration(), node.getName()));
+		}
+
+		/**
+		 * Process of a run of the batch, killed with the next update.
+		 */
+		private final class BatchProc extends Proc {
+
+			private final String name;
+
+			private BatchProc(String name) {
+				this.name = name;
+			}
+
+			/* (non-Javadoc)
+			 * @see hudson.Proc#isAlive()
+			 */
+			@Override
+			public boolean isAlive() {
+				return progresses.containsKey(name);
+			}
+
+			/* (non-Javadoc)
+			 * @see hudson.Proc#kill()
+			 */
+			@Override
+			public void kill() {
+				synchronized (kills) {
+					kills.add(name);
+				}
+			}
+
+			/* (non-Javadoc)
+			 * @see hudson.Proc#join()
+			 */
+			@Override
+			public int join() throws IOException {
+				throw new IOException("The runs of a batch are joined on the node");
+			}
+
+			// The console output of the runs of a batch stays on the node
+			public InputStream getStdout() {
+				return null;
+			}
+
+			public InputStream getStderr() {
+				return null;
+			}
+
+			public OutputStream getStdin() {
+				return null;
+			}
+
+		}
+
+	}
+
+}
@@ -0,0 +1,138 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) <2012> <Bruno P. Kinoshita>
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.biouno.structure.execution;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.UUID;
+
+import org.apache.commons.io.FileUtils;
+
+/**
+ * Samples the CPU time of a process launched on a Linux node. The process is 
+ * found in <code>/proc</code> by the value of {@link #VARIABLE} in its 
+ * environment, and its CPU time is read from <code>/proc/PID/stat</code>. On 
+ * other systems the CPU time is unknown.
+ * <p>
+ * The CPU time is the one of the last sample, so the time used after the 
+ * last sample and before the process exited is not counted.
+ * 
+ * @author Bruno P. Kinoshita - http://www.kinoshita.eti.br
+ * @since 0.1
+ */
+public class ProcessCpuSampler {
+
+	/**
+	 * Environment variable identifying the process.
+	 */
+	public static final String VARIABLE = "STRUCTURE_RUN_ID";
+
+	private static final File PROC = new File("/proc");
+	/**
+	 * Clock ticks per second of the times in <code>/proc</code>, 
+	 * <code>USER_HZ</code> on Linux.
+	 */
+	private static final long TICKS_PER_SECOND = 100L;
+
+	/**
+	 * Value of {@link #VARIABLE} in the environment of the process.
+	 */
+	private final String id = UUID.randomUUID().toString();
+	/**
+	 * Status file of the process, once found.
+	 */
+	private File stat;
+	/**
+	 * CPU time of the last sample, in milliseconds, or -1.
+	 */
+	private long cpuTime = -1L;
+
+	/**
+	 * @return the value of {@link #VARIABLE} in the environment of the process
+	 */
+	public String getId() {
+		return id;
+	}
+
+	/**
+	 * @return the CPU time of the process at the last sample, in 
+	 * milliseconds, or -1 if unknown
+	 */
+	public synchronized long getCpuTime() {
+		return cpuTime;
+	}
+
+	/**
+	 * Reads the CPU time of the process, if it is still running.
+	 */
+	public synchronized void sample() {
+		if (stat == null) {
+			stat = find();
+			if (stat == null) {
+				return;
+			}
+		}
+		try {
+			final String content = FileUtils.readFileToString(stat, "US-ASCII");
+			// The command name, in parentheses, may contain spaces
+			final String[] fields = content.substring(content.lastIndexOf(')') + 2).split(" ");
+			// utime and stime, the 14th and 15th fields of the file
+			final long ticks = Long.parseLong(fields[11]) + Long.parseLong(fields[12]);
+			cpuTime = ticks * 1000L / TICKS_PER_SECOND;
+		} catch (IOException ioe) {
+			// The process exited
+		} catch (RuntimeException re) {
+			// Not the format of a Linux status file
+		}
+	}
+
+	/**
+	 * @return the status file of the process, or <code>null</code> if not 
+	 * found
+	 */
+	private File find() {
+		final File[] processes = PROC.listFiles();
+		if (processes == null) {
+			return null;
+		}
+		final String marker = VARIABLE + "=" + id;
+		for (File process : processes) {
+			if (!process.getName().matches("\\d+")) {
+				continue;
+			}
+			try {
+				final String environ = FileUtils.readFileToString(new File(process, "environ"), "US-ASCII");
+				for (String variable : environ.split("\u0000")) {
+					if (variable.equals(marker)) {
+						return new File(process, "stat");
+					}
+				}
+			} catch (IOException ioe) {
+				// Exited, or not readable by this user
+			}
+		}
+		return null;
+	}
+
+}
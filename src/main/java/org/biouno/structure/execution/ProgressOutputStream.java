@@ -0,0 +1,118 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) <2012> <Bruno P. Kinoshita>
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.biouno.structure.execution;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * Copies the console output of a run to its log, and parses each line to 
+ * update the progress of the run as the output arrives.
+ * 
+ * @author Bruno P. Kinoshita - http://www.kinoshita.eti.br
+ * @since 0.1
+ */
+public class ProgressOutputStream extends OutputStream {
+
+	/**
+	 * Longest line parsed. Update lines are short, longer lines are only 
+	 * copied to the log.
+	 */
+	private static final int MAX_LINE = 4096;
+
+	private final OutputStream out;
+	private final RunProgress progress;
+	private final ByteArrayOutputStream line = new ByteArrayOutputStream(256);
+	private boolean overflow = false;
+
+	/**
+	 * @param out log of the run
+	 * @param progress progress of the run
+	 */
+	public ProgressOutputStream(OutputStream out, RunProgress progress) {
+		this.out = out;
+		this.progress = progress;
+	}
+
+	/* (non-Javadoc)
+	 * @see java.io.OutputStream#write(int)
+	 */
+	@Override
+	public void write(int b) throws IOException {
+		out.write(b);
+		append(b);
+	}
+
+	/* (non-Javadoc)
+	 * @see java.io.OutputStream#write(byte[], int, int)
+	 */
+	@Override
+	public void write(byte[] b, int off, int len) throws IOException {
+		out.write(b, off, len);
+		for (int i = off; i < off + len; ++i) {
+			append(b[i]);
+		}
+	}
+
+	private void append(int b) {
+		if (b == '\n' || b == '\r') {
+			endLine();
+		} else if (line.size() < MAX_LINE) {
+			line.write(b);
+		} else {
+			overflow = true;
+		}
+	}
+
+	private void endLine() {
+		if (line.size() > 0 && !overflow) {
+			try {
+				McmcProgressParser.parse(line.toString("US-ASCII"), progress, System.currentTimeMillis());
+			} catch (IOException ioe) {
+				// US-ASCII is always supported
+			}
+		}
+		line.reset();
+		overflow = false;
+	}
+
+	/* (non-Javadoc)
+	 * @see java.io.OutputStream#flush()
+	 */
+	@Override
+	public void flush() throws IOException {
+		out.flush();
+	}
+
+	/* (non-Javadoc)
+	 * @see java.io.OutputStream#close()
+	 */
+	@Override
+	public void close() throws IOException {
+		endLine();
+		out.close();
+	}
+
+}
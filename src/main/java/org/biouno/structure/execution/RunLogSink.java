@@ -0,0 +1,245 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) <2012> <Bruno P. Kinoshita>
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.biouno.structure.execution;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Pattern;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Receives the console output of a run. The whole output is written
+ * compressed to the log of the run, the last {@link #TAIL_LINES} lines are
+ * kept to be shown if the run fails, and only a few lines are forwarded to
+ * the build log: the lines that report a problem, at most
+ * {@link #MAX_PROBLEMS} per run, and one update line every
+ * {@link #SAMPLE_INTERVAL} milliseconds, at most {@link #MAX_FORWARDED}
+ * per run. The two limits are separate, so that the update lines of a long
+ * run never hide its problems.
+ * <p>
+ * Forwarded lines are queued until {@link #drain()}, unless
+ * {@link #forward(String)} is overridden.
+ *
+ * @author Bruno P. Kinoshita - http://www.kinoshita.eti.br
+ * @since 0.1
+ */
+public class RunLogSink extends OutputStream {
+
+	/**
+	 * Number of last lines kept.
+	 */
+	public static final int TAIL_LINES = 20;
+	/**
+	 * Time between two update lines forwarded, in milliseconds.
+	 */
+	public static final long SAMPLE_INTERVAL = 5L * 60L * 1000L;
+	/**
+	 * Most update lines forwarded for a run.
+	 */
+	public static final int MAX_FORWARDED = 100;
+	/**
+	 * Most lines reporting a problem forwarded for a run.
+	 */
+	public static final int MAX_PROBLEMS = 100;
+
+	/**
+	 * Longest line kept. Longer lines are only written to the log.
+	 */
+	private static final int MAX_LINE = 4096;
+
+	private static final Pattern PROBLEM = Pattern.compile(
+			"(?i).*\\b(error|warning|unable|cannot|can't|fatal)\\b.*");
+
+	private final OutputStream log;
+	private final ByteArrayOutputStream line = new ByteArrayOutputStream(256);
+	private boolean overflow = false;
+	/**
+	 * Last lines, in a ring starting at {@link #tailStart}.
+	 */
+	private final String[] tail = new String[TAIL_LINES];
+	private int tailStart = 0;
+	private int tailSize = 0;
+	private final List<String> queue = new ArrayList<String>();
+	private int forwarded = 0;
+	private int problems = 0;
+	private long dropped = 0L;
+	/**
+	 * Time the last update line was forwarded, or -1 if none was.
+	 */
+	private long lastSample = -1L;
+	private boolean closed = false;
+
+	/**
+	 * @param log log of the run, written compressed and closed with the sink
+	 * @throws IOException if the log cannot be written
+	 */
+	public RunLogSink(OutputStream log) throws IOException {
+		this.log = new GZIPOutputStream(log, 8192);
+	}
+
+	/* (non-Javadoc)
+	 * @see java.io.OutputStream#write(int)
+	 */
+	@Override
+	public synchronized void write(int b) throws IOException {
+		log.write(b);
+		append(b);
+	}
+
+	/* (non-Javadoc)
+	 * @see java.io.OutputStream#write(byte[], int, int)
+	 */
+	@Override
+	public synchronized void write(byte[] b, int off, int len) throws IOException {
+		log.write(b, off, len);
+		for (int i = off; i < off + len; ++i) {
+			append(b[i]);
+		}
+	}
+
+	private void append(int b) {
+		if (b == '\n' || b == '\r') {
+			endLine();
+		} else if (line.size() < MAX_LINE) {
+			line.write(b);
+		} else {
+			overflow = true;
+		}
+	}
+
+	private void endLine() {
+		if (line.size() > 0 && !overflow) {
+			try {
+				keep(line.toString("US-ASCII"));
+			} catch (IOException ioe) {
+				// US-ASCII is always supported
+			}
+		}
+		line.reset();
+		overflow = false;
+	}
+
+	/**
+	 * Adds a line to the tail, and forwards it if needed.
+	 */
+	private void keep(String text) {
+		tail[(tailStart + tailSize) % TAIL_LINES] = text;
+		if (tailSize < TAIL_LINES) {
+			++tailSize;
+		} else {
+			tailStart = (tailStart + 1) % TAIL_LINES;
+		}
+		if (PROBLEM.matcher(text).matches()) {
+			if (problems < MAX_PROBLEMS) {
+				++problems;
+				forward(text);
+			} else {
+				++dropped;
+			}
+		} else if (isSampled(text, currentTimeMillis())) {
+			if (forwarded < MAX_FORWARDED) {
+				++forwarded;
+				forward(text);
+			} else {
+				++dropped;
+			}
+		}
+	}
+
+	private boolean isSampled(String text, long now) {
+		if (McmcProgressParser.isUpdate(text) && (lastSample < 0L || now - lastSample >= SAMPLE_INTERVAL)) {
+			lastSample = now;
+			return true;
+		}
+		return false;
+	}
+
+	/**
+	 * @return the current time, in milliseconds
+	 */
+	long currentTimeMillis() {
+		return System.currentTimeMillis();
+	}
+
+	/**
+	 * Forwards a line to the build log. Queues it by default.
+	 *
+	 * @param text the line
+	 */
+	protected void forward(String text) {
+		queue.add(text);
+	}
+
+	/**
+	 * @return the lines queued since the previous call
+	 */
+	public synchronized List<String> drain() {
+		final List<String> lines = new ArrayList<String>(queue);
+		queue.clear();
+		return lines;
+	}
+
+	/**
+	 * @return the last lines, oldest first
+	 */
+	public synchronized List<String> getTail() {
+		final List<String> lines = new ArrayList<String>(tailSize);
+		for (int i = 0; i < tailSize; ++i) {
+			lines.add(tail[(tailStart + i) % TAIL_LINES]);
+		}
+		return lines;
+	}
+
+	/**
+	 * @return the number of lines not forwarded because the run reached
+	 * {@link #MAX_FORWARDED} or {@link #MAX_PROBLEMS}
+	 */
+	public synchronized long getDropped() {
+		return dropped;
+	}
+
+	/* (non-Javadoc)
+	 * @see java.io.OutputStream#flush()
+	 */
+	@Override
+	public synchronized void flush() throws IOException {
+		log.flush();
+	}
+
+	/* (non-Javadoc)
+	 * @see java.io.OutputStream#close()
+	 */
+	@Override
+	public synchronized void close() throws IOException {
+		if (!closed) {
+			closed = true;
+			endLine();
+			log.close();
+		}
+	}
+
+}
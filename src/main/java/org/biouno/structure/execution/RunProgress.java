@@ -0,0 +1,348 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) <2012> <Bruno P. Kinoshita>
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.biouno.structure.execution;
+
+import java.io.Serializable;
+
+import org.biouno.structure.convergence.LikelihoodTrace;
+import org.kohsuke.stapler.export.Exported;
+import org.kohsuke.stapler.export.ExportedBean;
+
+/**
+ * Progress of a Structure run, updated from the iteration counters Structure 
+ * prints while the run is executing.
+ * 
+ * @author Bruno P. Kinoshita - http://www.kinoshita.eti.br
+ * @since 0.1
+ */
+@ExportedBean(defaultVisibility = 2)
+public class RunProgress implements Serializable {
+
+	private static final long serialVersionUID = 6281931380853623309L;
+
+	public static final String BURNIN = "burnin";
+	public static final String SAMPLING = "sampling";
+
+	public static final String RUNNING = "running";
+	public static final String STALLED = "stalled";
+	public static final String KILLED = "killed";
+	public static final String CANCELLED = "cancelled";
+	public static final String FINISHED = "finished";
+	public static final String FAILED = "failed";
+
+	private final String name;
+	/**
+	 * Stage of the build, <code>null</code> for the main sweep.
+	 */
+	private final String stage;
+	private final int k;
+	private final int replicate;
+	/**
+	 * Length of burn-in period.
+	 */
+	private final long burnIn;
+	/**
+	 * Number of iterations of the run, burn-in included.
+	 */
+	private final long totalSteps;
+	/**
+	 * Last iteration printed by Structure.
+	 */
+	private long step = 0L;
+	/**
+	 * Log-likelihood printed with the last iteration, or <code>null</code>.
+	 */
+	private Double logLikelihood = null;
+	/**
+	 * First iteration seen and its time, the origin of the throughput.
+	 */
+	private long firstStep = -1L;
+	private long firstStepTime = 0L;
+	/**
+	 * Time the last iteration was seen, or the run started.
+	 */
+	private long lastAdvance;
+	private final long startTime;
+	private long duration = -1L;
+	private String state = RUNNING;
+	/**
+	 * Whether this is a copy of a run started on another node, because the 
+	 * run fell behind its peers.
+	 */
+	private boolean speculative = false;
+	/**
+	 * Iterations per second expected from the node calibration, or zero.
+	 */
+	private double expectedStepsPerSecond = 0.0d;
+	/**
+	 * Log-likelihood of the iterations printed, kept only while the build 
+	 * is running, and only if recorded.
+	 */
+	private transient LikelihoodTrace trace;
+
+	/**
+	 * @param run the run
+	 * @param burnIn length of burn-in period
+	 * @param totalSteps number of iterations, burn-in included
+	 * @param now start time, in milliseconds
+	 */
+	public RunProgress(StructureRun run, long burnIn, long totalSteps, long now) {
+		this.name = run.getName();
+		this.stage = run.getStage();
+		this.k = run.getK();
+		this.replicate = run.getReplicate();
+		this.burnIn = burnIn;
+		this.totalSteps = totalSteps;
+		this.startTime = now;
+		this.lastAdvance = now;
+	}
+
+	/**
+	 * Records an iteration printed by Structure. Counters that do not move 
+	 * forward, e.g. a repeated line, are ignored.
+	 * 
+	 * @param newStep iteration
+	 * @param likelihood log-likelihood, or <code>null</code>
+	 * @param now time, in milliseconds
+	 * @return <code>true</code> if the run advanced
+	 */
+	public synchronized boolean advance(long newStep, Double likelihood, long now) {
+		if (newStep <= step) {
+			return false;
+		}
+		if (firstStep < 0L) {
+			firstStep = newStep;
+			firstStepTime = now;
+		}
+		step = newStep;
+		logLikelihood = likelihood;
+		if (likelihood != null && trace != null) {
+			trace.add(newStep, likelihood);
+		}
+		lastAdvance = now;
+		if (STALLED.equals(state)) {
+			state = RUNNING;
+		}
+		return true;
+	}
+
+	/**
+	 * @param expectedStepsPerSecond iterations per second expected from the 
+	 * node calibration, used until the run prints its own iterations
+	 */
+	public synchronized void setExpectedStepsPerSecond(double expectedStepsPerSecond) {
+		this.expectedStepsPerSecond = expectedStepsPerSecond;
+	}
+
+	/**
+	 * @param now time, in milliseconds
+	 * @param timeout time without new iterations after which the run is 
+	 * stalled, in milliseconds
+	 * @return <code>true</code> if the run is still running, but did not 
+	 * advance within the timeout
+	 */
+	public synchronized boolean isStalledAt(long now, long timeout) {
+		return (RUNNING.equals(state) || STALLED.equals(state)) && now - lastAdvance >= timeout;
+	}
+
+	/**
+	 * Flags the run as stalled, or as killed after a stall.
+	 * 
+	 * @param killed whether the run was killed
+	 */
+	public synchronized void stalled(boolean killed) {
+		state = killed ? KILLED : STALLED;
+	}
+
+	/**
+	 * Flags the run as cancelled, because another copy of the run finished 
+	 * first.
+	 */
+	public synchronized void cancel() {
+		state = CANCELLED;
+	}
+
+	/**
+	 * @param exitCode exit code of the run
+	 * @param now time, in milliseconds
+	 */
+	public synchronized void finish(int exitCode, long now) {
+		duration = now - startTime;
+		if (!KILLED.equals(state) && !CANCELLED.equals(state)) {
+			state = exitCode == 0 ? FINISHED : FAILED;
+		}
+	}
+
+	/**
+	 * Records the log-likelihood of the iterations printed from now on.
+	 */
+	public synchronized void recordTrace() {
+		if (trace == null) {
+			trace = new LikelihoodTrace();
+		}
+	}
+
+	/**
+	 * @return the log-likelihood of the iterations printed, or 
+	 * <code>null</code> if it is not recorded, or the progress was loaded 
+	 * from disk
+	 */
+	public LikelihoodTrace getTrace() {
+		return trace;
+	}
+
+	/**
+	 * @return the name of the run
+	 */
+	@Exported
+	public String getName() {
+		return name;
+	}
+
+	/**
+	 * @return the stage of the build, <code>null</code> for the main sweep
+	 */
+	@Exported
+	public String getStage() {
+		return stage;
+	}
+
+	/**
+	 * @return the K
+	 */
+	@Exported
+	public int getK() {
+		return k;
+	}
+
+	/**
+	 * @return the replicate
+	 */
+	@Exported
+	public int getReplicate() {
+		return replicate;
+	}
+
+	/**
+	 * @return the start time, in milliseconds
+	 */
+	public long getStartTime() {
+		return startTime;
+	}
+
+	/**
+	 * @return whether this is a copy of a run started on another node
+	 */
+	@Exported
+	public synchronized boolean isSpeculative() {
+		return speculative;
+	}
+
+	/**
+	 * @param speculative whether this is a copy of a run started on another 
+	 * node
+	 */
+	public synchronized void setSpeculative(boolean speculative) {
+		this.speculative = speculative;
+	}
+
+	/**
+	 * @return the last iteration printed by Structure
+	 */
+	@Exported
+	public synchronized long getStep() {
+		return step;
+	}
+
+	/**
+	 * @return the number of iterations, burn-in included
+	 */
+	@Exported
+	public long getTotalSteps() {
+		return totalSteps;
+	}
+
+	/**
+	 * @return {@link #BURNIN} or {@link #SAMPLING}
+	 */
+	@Exported
+	public synchronized String getPhase() {
+		return step <= burnIn ? BURNIN : SAMPLING;
+	}
+
+	/**
+	 * @return the state of the run
+	 */
+	@Exported
+	public synchronized String getState() {
+		return state;
+	}
+
+	/**
+	 * @return the log-likelihood of the last iteration, or <code>null</code>
+	 */
+	@Exported
+	public synchronized Double getLogLikelihood() {
+		return logLikelihood;
+	}
+
+	/**
+	 * @return the iterations per second, or zero if not known yet
+	 */
+	@Exported
+	public synchronized double getStepsPerSecond() {
+		final long elapsed = lastAdvance - firstStepTime;
+		if (firstStep < 0L || elapsed <= 0L) {
+			return 0.0d;
+		}
+		return (step - firstStep) * 1000.0d / elapsed;
+	}
+
+	/**
+	 * @return the estimated time to finish, in seconds, or -1 if not known
+	 */
+	@Exported
+	public synchronized long getEta() {
+		if (!RUNNING.equals(state) && !STALLED.equals(state)) {
+			return 0L;
+		}
+		double rate = getStepsPerSecond();
+		if (rate <= 0.0d) {
+			rate = expectedStepsPerSecond;
+		}
+		if (rate <= 0.0d) {
+			return -1L;
+		}
+		return Math.round((totalSteps - step) / rate);
+	}
+
+	/**
+	 * @return the duration of the run, in milliseconds, or -1 if running
+	 */
+	@Exported
+	public synchronized long getDuration() {
+		return duration;
+	}
+
+}
@@ -0,0 +1,122 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) <2012> <Bruno P. Kinoshita>
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.biouno.structure.execution;
+
+import java.io.Serializable;
+
+/**
+ * Outcome of a single Structure run.
+ *
+ * @author Bruno P. Kinoshita - http://www.kinoshita.eti.br
+ * @since 0.1
+ */
+public class RunResult implements Serializable {
+
+	private static final long serialVersionUID = -2482946218440151372L;
+
+	/**
+	 * Exit code used when the process could not be launched at all.
+	 */
+	public static final int NOT_LAUNCHED = -1;
+	/**
+	 * Exit code used for a copy of a run that was killed, or discarded, 
+	 * because another copy of the run finished first.
+	 */
+	public static final int CANCELLED = -2;
+
+	/**
+	 * The run.
+	 */
+	private final StructureRun run;
+	/**
+	 * Process exit code.
+	 */
+	private final int exitCode;
+	/**
+	 * Time spent in the run, in milliseconds.
+	 */
+	private final long duration;
+	/**
+	 * Name of the node where the run was executed.
+	 */
+	private final String node;
+
+	/**
+	 * @param run the run
+	 * @param exitCode process exit code
+	 * @param duration time spent in the run, in milliseconds
+	 */
+	public RunResult(StructureRun run, int exitCode, long duration) {
+		this(run, exitCode, duration, null);
+	}
+
+	/**
+	 * @param run the run
+	 * @param exitCode process exit code
+	 * @param duration time spent in the run, in milliseconds
+	 * @param node name of the node where the run was executed
+	 */
+	public RunResult(StructureRun run, int exitCode, long duration, String node) {
+		this.run = run;
+		this.exitCode = exitCode;
+		this.duration = duration;
+		this.node = node;
+	}
+
+	/**
+	 * @return the run
+	 */
+	public StructureRun getRun() {
+		return run;
+	}
+
+	/**
+	 * @return the exitCode
+	 */
+	public int getExitCode() {
+		return exitCode;
+	}
+
+	/**
+	 * @return the duration, in milliseconds
+	 */
+	public long getDuration() {
+		return duration;
+	}
+
+	/**
+	 * @return the name of the node where the run was executed, may be null
+	 */
+	public String getNode() {
+		return node;
+	}
+
+	/**
+	 * @return <code>true</code> if Structure exited with 0
+	 */
+	public boolean isSuccess() {
+		return exitCode == 0;
+	}
+
+}
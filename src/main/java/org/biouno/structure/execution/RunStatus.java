@@ -0,0 +1,195 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) <2012> <Bruno P. Kinoshita>
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.biouno.structure.execution;
+
+import java.io.Serializable;
+import java.util.Arrays;
+import java.util.List;
+
+import org.biouno.structure.convergence.LikelihoodTrace;
+
+/**
+ * Progress of a run executed by an {@link AgentBatch}, sent from the node to
+ * the master. Only the iterations printed since the previous status are sent.
+ *
+ * @author Bruno P. Kinoshita - http://www.kinoshita.eti.br
+ * @since 0.1
+ */
+public class RunStatus implements Serializable {
+
+	private static final long serialVersionUID = -3387460237791532871L;
+
+	private final String name;
+	/**
+	 * Last iteration printed by Structure.
+	 */
+	private final long step;
+	/**
+	 * Iterations printed with a log-likelihood since the previous status.
+	 */
+	private final long[] traceSteps;
+	/**
+	 * Log-likelihood of each of these iterations.
+	 */
+	private final double[] traceValues;
+	/**
+	 * CPU time of the process, in milliseconds, or -1 if unknown.
+	 */
+	private long cpuTime = -1L;
+	/**
+	 * Lines of the console output forwarded to the build log.
+	 */
+	private String[] lines = new String[0];
+	/**
+	 * Last lines of the console output, sent when the process failed.
+	 */
+	private String[] tail = new String[0];
+	/**
+	 * Lines of the console output not forwarded, over the limit of the run.
+	 */
+	private long dropped = 0L;
+
+	/**
+	 * @param name name of the run
+	 * @param step last iteration printed by Structure
+	 * @param traceSteps iterations printed with a log-likelihood
+	 * @param traceValues log-likelihood of each iteration
+	 */
+	public RunStatus(String name, long step, long[] traceSteps, double[] traceValues) {
+		this.name = name;
+		this.step = step;
+		this.traceSteps = traceSteps;
+		this.traceValues = traceValues;
+	}
+
+	/**
+	 * Creates the status of a run from its progress on the node. The trace 
+	 * values sent are removed from the progress.
+	 *
+	 * @param progress progress of the run on the node
+	 * @return the status
+	 */
+	public static RunStatus create(RunProgress progress) {
+		final LikelihoodTrace trace = progress.getTrace();
+		if (trace == null) {
+			return new RunStatus(progress.getName(), progress.getStep(), new long[0], new double[0]);
+		}
+		synchronized (trace) {
+			final int size = trace.size();
+			final long[] steps = new long[size];
+			for (int i = 0; i < size; ++i) {
+				steps[i] = trace.getStep(i);
+			}
+			final RunStatus status = new RunStatus(progress.getName(), progress.getStep(), steps, 
+					trace.getValues(0, size));
+			trace.clear();
+			return status;
+		}
+	}
+
+	/**
+	 * @return the name
+	 */
+	public String getName() {
+		return name;
+	}
+
+	/**
+	 * @return the number of trace values in this status
+	 */
+	public int getTraceSize() {
+		return traceSteps.length;
+	}
+
+	/**
+	 * @return the CPU time of the process, in milliseconds, or -1 if unknown
+	 */
+	public long getCpuTime() {
+		return cpuTime;
+	}
+
+	/**
+	 * @param cpuTime CPU time of the process, in milliseconds, or -1 if unknown
+	 */
+	public void setCpuTime(long cpuTime) {
+		this.cpuTime = cpuTime;
+	}
+
+	/**
+	 * @return the lines of the console output forwarded to the build log
+	 */
+	public List<String> getLines() {
+		return Arrays.asList(lines);
+	}
+
+	/**
+	 * @param lines lines of the console output forwarded to the build log
+	 */
+	public void setLines(List<String> lines) {
+		this.lines = lines.toArray(new String[lines.size()]);
+	}
+
+	/**
+	 * @return the last lines of the console output, empty unless the
+	 * process failed
+	 */
+	public List<String> getTail() {
+		return Arrays.asList(tail);
+	}
+
+	/**
+	 * @param tail last lines of the console output
+	 */
+	public void setTail(List<String> tail) {
+		this.tail = tail.toArray(new String[tail.size()]);
+	}
+
+	/**
+	 * @return the number of lines of the console output not forwarded
+	 */
+	public long getDropped() {
+		return dropped;
+	}
+
+	/**
+	 * @param dropped number of lines of the console output not forwarded
+	 */
+	public void setDropped(long dropped) {
+		this.dropped = dropped;
+	}
+
+	/**
+	 * Updates the progress of the run on the master.
+	 *
+	 * @param progress progress of the run
+	 * @param now time, in milliseconds
+	 */
+	public void applyTo(RunProgress progress, long now) {
+		for (int i = 0; i < traceSteps.length; ++i) {
+			progress.advance(traceSteps[i], traceValues[i], now);
+		}
+		progress.advance(step, null, now);
+	}
+
+}
@@ -0,0 +1,89 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) <2012> <Bruno P. Kinoshita>
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.biouno.structure.execution;
+
+import java.io.Serializable;
+
+import org.kohsuke.stapler.DataBoundConstructor;
+
+/**
+ * How the runs whose iteration counter stops advancing are handled.
+ * 
+ * @author Bruno P. Kinoshita - http://www.kinoshita.eti.br
+ * @since 0.1
+ */
+public class StallCheck implements Serializable {
+
+	private static final long serialVersionUID = -1815006829165787270L;
+
+	/**
+	 * Minutes without new iterations after which a run is stalled. Empty or 
+	 * zero disables the check.
+	 */
+	private final Integer timeout;
+	/**
+	 * Whether stalled runs are killed, or only flagged.
+	 */
+	private final Boolean kill;
+
+	/**
+	 * @param timeout minutes without new iterations after which a run is 
+	 * stalled
+	 * @param kill whether stalled runs are killed, or only flagged
+	 */
+	@DataBoundConstructor
+	public StallCheck(Integer timeout, Boolean kill) {
+		this.timeout = timeout;
+		this.kill = kill;
+	}
+
+	/**
+	 * @return the timeout, in minutes
+	 */
+	public Integer getTimeout() {
+		return timeout;
+	}
+
+	/**
+	 * @return the kill
+	 */
+	public Boolean getKill() {
+		return kill;
+	}
+
+	/**
+	 * @return the timeout, in milliseconds, zero if disabled
+	 */
+	public long getTimeoutMillis() {
+		return timeout != null && timeout > 0 ? timeout * 60000L : 0L;
+	}
+
+	/**
+	 * @return whether stalled runs are killed
+	 */
+	public boolean isKill() {
+		return kill != null && kill;
+	}
+
+}
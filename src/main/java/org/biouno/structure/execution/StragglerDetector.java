@@ -0,0 +1,150 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) <2012> <Bruno P. Kinoshita>
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.biouno.structure.execution;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Finds the runs of a sweep that fall behind the other runs of the same K,
+ * i.e. runs that are expected to finish later than a new copy of the run
+ * would, if the copy ran at the speed of its peers.
+ * <p>
+ * The speed of the peers of a run is the median number of iterations per
+ * second of the other runs of its K, running or finished. A run is a
+ * straggler when its own estimate to finish is longer than {@link #SLOWDOWN}
+ * times the time its peers take for a whole run. Runs are not judged before
+ * a quarter of that time, nor when the K has less than {@link #MIN_PEERS}
+ * peers with a known speed.
+ *
+ * @author Bruno P. Kinoshita - http://www.kinoshita.eti.br
+ * @since 0.1
+ */
+public class StragglerDetector {
+
+	/**
+	 * How much longer than a whole run of its peers a run must still take
+	 * to be a straggler.
+	 */
+	public static final double SLOWDOWN = 1.5d;
+	/**
+	 * Smallest number of peers with a known speed.
+	 */
+	public static final int MIN_PEERS = 2;
+
+	/**
+	 * Progress of every run started, e.g. the runs of a build action.
+	 */
+	private final Collection<RunProgress> runs;
+
+	/**
+	 * @param runs progress of every run started
+	 */
+	public StragglerDetector(Collection<RunProgress> runs) {
+		this.runs = runs;
+	}
+
+	/**
+	 * @param now time, in milliseconds
+	 * @return the names of the runs that are stragglers, the slowest first
+	 */
+	public List<String> findStragglers(long now) {
+		final List<RunProgress> snapshot = new ArrayList<RunProgress>(runs);
+		final Map<Integer, List<RunProgress>> byK = new HashMap<Integer, List<RunProgress>>();
+		for (RunProgress progress : snapshot) {
+			List<RunProgress> peers = byK.get(progress.getK());
+			if (peers == null) {
+				peers = new ArrayList<RunProgress>();
+				byK.put(progress.getK(), peers);
+			}
+			peers.add(progress);
+		}
+		final Map<String, Double> delays = new HashMap<String, Double>();
+		for (RunProgress progress : snapshot) {
+			if (!RunProgress.RUNNING.equals(progress.getState())
+					&& !RunProgress.STALLED.equals(progress.getState())) {
+				continue;
+			}
+			final double peerRate = getPeerRate(progress, byK.get(progress.getK()));
+			if (peerRate <= 0.0d) {
+				continue;
+			}
+			// Seconds the peers take for a whole run
+			final double peerTime = progress.getTotalSteps() / peerRate;
+			final double elapsed = (now - progress.getStartTime()) / 1000.0d;
+			if (elapsed < peerTime / 4.0d) {
+				continue;
+			}
+			final double rate = progress.getStepsPerSecond();
+			final double remaining = rate > 0.0d
+					? (progress.getTotalSteps() - progress.getStep()) / rate
+					: Double.POSITIVE_INFINITY;
+			final double delay = remaining / peerTime;
+			if (delay > SLOWDOWN) {
+				final Double other = delays.get(progress.getName());
+				if (other == null || other < delay) {
+					delays.put(progress.getName(), delay);
+				}
+			}
+		}
+		final List<String> stragglers = new ArrayList<String>(delays.keySet());
+		Collections.sort(stragglers, new Comparator<String>() {
+			public int compare(String o1, String o2) {
+				return delays.get(o2).compareTo(delays.get(o1));
+			}
+		});
+		return stragglers;
+	}
+
+	/**
+	 * @return the median iterations per second of the other runs of the K,
+	 * or zero if there are not enough of them
+	 */
+	private double getPeerRate(RunProgress progress, List<RunProgress> peers) {
+		final double[] rates = new double[peers.size()];
+		int count = 0;
+		for (RunProgress peer : peers) {
+			// Copies of the same run are not its peers
+			if (peer.getName().equals(progress.getName())) {
+				continue;
+			}
+			final double rate = peer.getStepsPerSecond();
+			if (rate > 0.0d) {
+				rates[count++] = rate;
+			}
+		}
+		if (count < MIN_PEERS) {
+			return 0.0d;
+		}
+		Arrays.sort(rates, 0, count);
+		return count % 2 == 1 ? rates[count / 2] : (rates[count / 2 - 1] + rates[count / 2]) / 2.0d;
+	}
+
+}
@@ -0,0 +1,195 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) <2012> <Bruno P. Kinoshita>
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.biouno.structure.execution;
+
+import java.io.Serializable;
+
+/**
+ * A single execution of Structure, identified by the number of populations
+ * assumed (K) and the replicate number for that K. Each run carries its own
+ * random seed, so that the same run can be reproduced later. 
+ * <p>
+ * The runs of a stage of the build other than the main sweep, e.g. the short 
+ * chains of a coarse K search or a configuration of the extraparams grid, are 
+ * identified by their stage as well, which prefixes their name and output 
+ * files, and suffixes their extraparams file.
+ *
+ * @author Bruno P. Kinoshita - http://www.kinoshita.eti.br
+ * @since 0.1
+ */
+public class StructureRun implements Serializable {
+
+	private static final long serialVersionUID = 5029335915440286373L;
+
+	/**
+	 * Prefix of the mainparams file created for each K.
+	 */
+	public static final String MAINPARAMS_PREFIX = "mainparams.param_set.k";
+	/**
+	 * Name of the extraparams file of the main sweep.
+	 */
+	public static final String EXTRAPARAMS_FILE_NAME = "extraparams";
+
+	/**
+	 * Stage of the build, <code>null</code> for the main sweep.
+	 */
+	private final String stage;
+	/**
+	 * Number of populations assumed (MAXPOPS).
+	 */
+	private final int k;
+	/**
+	 * Replicate number, starting at 1.
+	 */
+	private final int replicate;
+	/**
+	 * Seed for the random number generator (-D).
+	 */
+	private final long seed;
+
+	/**
+	 * @param k number of populations assumed
+	 * @param replicate replicate number
+	 * @param seed seed for the random number generator
+	 */
+	public StructureRun(int k, int replicate, long seed) {
+		this(null, k, replicate, seed);
+	}
+
+	/**
+	 * @param stage stage of the build, <code>null</code> for the main sweep
+	 * @param k number of populations assumed
+	 * @param replicate replicate number
+	 * @param seed seed for the random number generator
+	 */
+	public StructureRun(String stage, int k, int replicate, long seed) {
+		this.stage = stage;
+		this.k = k;
+		this.replicate = replicate;
+		this.seed = seed;
+	}
+
+	/**
+	 * @return the stage of the build, <code>null</code> for the main sweep
+	 */
+	public String getStage() {
+		return stage;
+	}
+
+	/**
+	 * @return the k
+	 */
+	public int getK() {
+		return k;
+	}
+
+	/**
+	 * @return the replicate
+	 */
+	public int getReplicate() {
+		return replicate;
+	}
+
+	/**
+	 * @return the seed
+	 */
+	public long getSeed() {
+		return seed;
+	}
+
+	/**
+	 * @return a name that identifies this run within a build, e.g. k3_r2, or 
+	 * coarse_k3_r2 for a run of the coarse stage
+	 */
+	public String getName() {
+		return (stage == null ? "" : stage + "_") + "k" + k + "_r" + replicate;
+	}
+
+	/**
+	 * @return the name of the mainparams file used for this run's K
+	 */
+	public String getMainParamsFileName() {
+		return MAINPARAMS_PREFIX + k;
+	}
+
+	/**
+	 * @return the name of the extraparams file used for this run's stage, 
+	 * e.g. extraparams, or extraparams_g2 for a run of the second 
+	 * configuration of the extraparams grid
+	 */
+	public String getExtraParamsFileName() {
+		return EXTRAPARAMS_FILE_NAME + (stage == null ? "" : "_" + stage);
+	}
+
+	/**
+	 * @param outFile the output file name configured in the job
+	 * @return the output file name for this run. Structure appends _f to it
+	 */
+	public String getOutputFileName(String outFile) {
+		return outFile + "_" + getName();
+	}
+
+	/**
+	 * @param outFile the output file name configured in the job
+	 * @return the name of the file that receives this run's console output,
+	 * gzip compressed. Named after the output file, so that sweeps with other 
+	 * output files do not overwrite it
+	 */
+	public String getLogFileName(String outFile) {
+		return getOutputFileName(outFile) + ".log.gz";
+	}
+
+	/* (non-Javadoc)
+	 * @see java.lang.Object#hashCode()
+	 */
+	@Override
+	public int hashCode() {
+		return 31 * (31 * k + replicate) + (stage == null ? 0 : stage.hashCode());
+	}
+
+	/* (non-Javadoc)
+	 * @see java.lang.Object#equals(java.lang.Object)
+	 */
+	@Override
+	public boolean equals(Object obj) {
+		if (this == obj) {
+			return true;
+		}
+		if (!(obj instanceof StructureRun)) {
+			return false;
+		}
+		StructureRun other = (StructureRun) obj;
+		return k == other.k && replicate == other.replicate 
+				&& (stage == null ? other.stage == null : stage.equals(other.stage));
+	}
+
+	/* (non-Javadoc)
+	 * @see java.lang.Object#toString()
+	 */
+	@Override
+	public String toString() {
+		return (stage == null ? "" : stage + " ") + "K=" + k + ", replicate " + replicate + " (seed " + seed + ")";
+	}
+
+}
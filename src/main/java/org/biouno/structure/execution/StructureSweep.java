@@ -0,0 +1,681 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) <2012> <Bruno P. Kinoshita>
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.biouno.structure.execution;
+
+import hudson.FilePath;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.SortedSet;
+
+import org.apache.commons.lang.StringUtils;
+import org.biouno.structure.cache.CacheStatistics;
+import org.biouno.structure.cache.CachingStructureRunner;
+import org.biouno.structure.cache.InputTransfer;
+import org.biouno.structure.cache.RunCache;
+import org.biouno.structure.calibration.NodeSpeed;
+import org.biouno.structure.input.SweepInput;
+import org.biouno.structure.metrics.SweepMetrics;
+import org.biouno.structure.metrics.SweepMetrics.Counter;
+import org.biouno.structure.parser.ExtraParams;
+import org.biouno.structure.parser.GridConfiguration;
+import org.biouno.structure.parser.MainParam;
+import org.biouno.structure.parser.MainParamsTemplate;
+import org.biouno.structure.parser.MainParamsValues;
+import org.biouno.structure.results.EvannoAggregator;
+import org.biouno.structure.results.KStatistics;
+import org.biouno.structure.results.ResultCollector;
+import org.biouno.structure.scheduling.LongestFirstPolicy;
+import org.biouno.structure.scheduling.PredictionListener;
+import org.biouno.structure.scheduling.RunCostModel;
+import org.biouno.structure.scheduling.RunMemoryModel;
+import org.biouno.structure.scheduling.SchedulingPolicy;
+import org.biouno.structure.search.CoarseSearch;
+import org.biouno.structure.search.KWindowSelector;
+import org.biouno.structure.util.Messages;
+import org.biouno.structure.util.Paths;
+
+/**
+ * Runs the sweep of a build on its nodes. The first stage of a coarse-to-fine
+ * search, if any, runs every K with short chains, and only the K values it
+ * selects are then run with full chains, along with the runs of each
+ * configuration of the extraparams grid. Every run is recorded in the
+ * manifest of the build, and restored from the run cache when its inputs did
+ * not change.
+ * <p>
+ * The runs are executed on one worker for each slot of the nodes, the
+ * fastest nodes first, in the order of the {@link SchedulingPolicy}, and
+ * admitted on each node by their memory when the node has a memory budget.
+ *
+ * @author Bruno P. Kinoshita - http://www.kinoshita.eti.br
+ * @since 0.1
+ */
+public class StructureSweep {
+
+	/**
+	 * Stage of the runs of the first stage of a coarse-to-fine search, which
+	 * prefixes their names and output files.
+	 */
+	public static final String COARSE_STAGE = "coarse";
+	/**
+	 * Stage of the runs of each configuration of the extraparams grid,
+	 * followed by the configuration number.
+	 */
+	public static final String GRID_STAGE = "g";
+	/**
+	 * Suffix of the summary of the extraparams grid, written to the workspace
+	 * after the output file name.
+	 */
+	public static final String GRID_SUMMARY_SUFFIX = "_grid.txt";
+
+	private final List<ExecutionNode> nodes;
+	/**
+	 * Build workspace.
+	 */
+	private final FilePath workspace;
+	/**
+	 * Path to Structure executable.
+	 */
+	private final String executable;
+	/**
+	 * Name of output data file.
+	 */
+	private final String outFile;
+	/**
+	 * Build environment.
+	 */
+	private final Map<String, String> env;
+	private final SweepMetrics metrics;
+	private final PrintStream logger;
+
+	private MainParamsTemplate template;
+	/**
+	 * Values of the mainparams of each K.
+	 */
+	private SortedMap<Integer, MainParamsValues> values;
+	private ExtraParams extraParams;
+	private String extraParamsFileName;
+	private List<GridConfiguration> configurations = Collections.emptyList();
+	private CoarseSearch coarseSearch;
+	/**
+	 * Values of the mainparams of each K in the first stage.
+	 */
+	private SortedMap<Integer, MainParamsValues> coarseValues;
+	private SweepManifest manifest;
+	private RunCache cache;
+	/**
+	 * Cache key of each run, or <code>null</code> if the cache is not used.
+	 */
+	private Map<StructureRun, String> cacheKeys;
+	private final CacheStatistics cacheStatistics = new CacheStatistics();
+	/**
+	 * Speed of each calibrated node, by node name.
+	 */
+	private Map<String, NodeSpeed> speeds = Collections.emptyMap();
+	/**
+	 * Admission of the runs on each node, by node name.
+	 */
+	private final Map<String, NodeAdmission> admissions = new HashMap<String, NodeAdmission>();
+	private Integer niceLevel;
+	private int failureLimit = 0;
+	private SchedulingPolicy schedulingPolicy = new LongestFirstPolicy();
+	private SweepMonitor monitor;
+	private StragglerDetector stragglerDetector;
+	/**
+	 * Whether the runs of every configuration of the grid succeeded.
+	 */
+	private boolean gridSuccess = true;
+
+	/**
+	 * @param nodes nodes where the runs are executed
+	 * @param workspace build workspace
+	 * @param executable path to Structure executable
+	 * @param outFile name of output data file
+	 * @param env build environment
+	 * @param metrics metrics of the sweep
+	 * @param logger build logger
+	 */
+	public StructureSweep(List<ExecutionNode> nodes, FilePath workspace, String executable, String outFile,
+			Map<String, String> env, SweepMetrics metrics, PrintStream logger) {
+		this.nodes = new ArrayList<ExecutionNode>(nodes);
+		this.workspace = workspace;
+		this.executable = executable;
+		this.outFile = outFile;
+		this.env = env;
+		this.metrics = metrics;
+		this.logger = logger;
+	}
+
+	/**
+	 * Sets the parameters rendered on the nodes by each batch of runs.
+	 *
+	 * @param template compiled mainparams
+	 * @param values values of the mainparams of each K, from 1 to MAXPOPS
+	 * @param extraParams extraparams of the job
+	 * @param extraParamsFileName name of the extraparams file,
+	 * <code>null</code> if the job has no extraparams
+	 */
+	public void setParameters(MainParamsTemplate template, SortedMap<Integer, MainParamsValues> values,
+			ExtraParams extraParams, String extraParamsFileName) {
+		this.template = template;
+		this.values = values;
+		this.extraParams = extraParams;
+		this.extraParamsFileName = extraParamsFileName;
+	}
+
+	/**
+	 * @param configurations configurations of the extraparams grid, whose
+	 * runs are in the stage {@link #GRID_STAGE} followed by their number
+	 */
+	public void setGrid(List<GridConfiguration> configurations) {
+		this.configurations = configurations;
+	}
+
+	/**
+	 * @param coarseSearch options of the coarse-to-fine search
+	 * @param coarseValues values of the mainparams of each K in the first
+	 * stage, whose runs are in the stage {@link #COARSE_STAGE}
+	 */
+	public void setCoarseSearch(CoarseSearch coarseSearch, SortedMap<Integer, MainParamsValues> coarseValues) {
+		this.coarseSearch = coarseSearch;
+		this.coarseValues = coarseValues;
+	}
+
+	/**
+	 * @param manifest manifest of the build, already started, where every
+	 * run is recorded
+	 */
+	public void setManifest(SweepManifest manifest) {
+		this.manifest = manifest;
+	}
+
+	/**
+	 * @param cache the run cache
+	 * @param cacheKeys cache key of each run of the main sweep and of the
+	 * grid
+	 */
+	public void setCache(RunCache cache, Map<StructureRun, String> cacheKeys) {
+		this.cache = cache;
+		this.cacheKeys = cacheKeys;
+	}
+
+	/**
+	 * @param speeds speed measured by the node calibration for each node, by
+	 * node name. Nodes not calibrated are left out
+	 */
+	public void setNodeSpeeds(Map<String, NodeSpeed> speeds) {
+		this.speeds = speeds;
+	}
+
+	/**
+	 * @param niceLevel nice level of the Structure processes, or
+	 * <code>null</code>
+	 */
+	public void setNiceLevel(Integer niceLevel) {
+		this.niceLevel = niceLevel;
+	}
+
+	/**
+	 * @param failureLimit number of failed runs after which no other run is
+	 * started, zero to execute every run
+	 */
+	public void setFailureLimit(int failureLimit) {
+		this.failureLimit = failureLimit;
+	}
+
+	/**
+	 * @param schedulingPolicy policy that orders the runs of the sweep
+	 */
+	public void setSchedulingPolicy(SchedulingPolicy schedulingPolicy) {
+		this.schedulingPolicy = schedulingPolicy;
+	}
+
+	/**
+	 * @param monitor monitor of the runs of the main sweep and of the grid
+	 */
+	public void setMonitor(SweepMonitor monitor) {
+		this.monitor = monitor;
+	}
+
+	/**
+	 * @param stragglerDetector finds the runs to copy to idle workers, or
+	 * <code>null</code>
+	 */
+	public void setStragglerDetector(StragglerDetector stragglerDetector) {
+		this.stragglerDetector = stragglerDetector;
+	}
+
+	/**
+	 * @return whether the runs of every configuration of the grid succeeded
+	 */
+	public boolean isGridSuccess() {
+		return gridSuccess;
+	}
+
+	/**
+	 * Sorts the nodes from the fastest to the slowest, creates their work
+	 * directories and copies the input file to them.
+	 *
+	 * @param input input file of the sweep
+	 * @param transfer copies the input file, through the cache of the nodes
+	 * when enabled
+	 * @throws IOException if a node cannot be prepared
+	 * @throws InterruptedException if the build was interrupted
+	 */
+	public void prepare(SweepInput input, InputTransfer transfer) throws IOException, InterruptedException {
+		sortBySpeed();
+		for (ExecutionNode node : nodes) {
+			logger.println(Messages.StructureBuilder_UsingNode(node.getName(), node.getSlots()));
+			prepareNode(node, input, transfer);
+		}
+		if (transfer.isCached()) {
+			final CacheStatistics transferStatistics = transfer.getStatistics();
+			logger.println(Messages.StructureBuilder_NodeCacheStatistics(transferStatistics.getHits(),
+					transferStatistics.getMisses(), transferStatistics.getBytesSaved() / (1024L * 1024L)));
+		}
+	}
+
+	/**
+	 * Admits the runs on each node while their estimated memory fits a share
+	 * of the physical memory of the node. Nodes whose memory is not known
+	 * admit every run.
+	 *
+	 * @param memoryModel estimates the memory of the runs
+	 * @param resources memory budget of the nodes
+	 * @throws IOException if the memory of a node cannot be read
+	 * @throws InterruptedException if the build was interrupted
+	 */
+	public void admitByMemory(RunMemoryModel memoryModel, NodeResources resources)
+			throws IOException, InterruptedException {
+		final long largest = memoryModel.estimate(values.lastKey()) / (1024L * 1024L);
+		for (ExecutionNode node : nodes) {
+			final long memory = node.getWorkDir().act(new PhysicalMemory());
+			if (memory <= 0L) {
+				logger.println(Messages.StructureBuilder_MemoryUnknown(node.getName()));
+				continue;
+			}
+			final long budget = resources.getBudget(memory);
+			admissions.put(node.getName(), new NodeAdmission(memoryModel, budget));
+			logger.println(Messages.StructureBuilder_MemoryBudget(node.getName(), budget / (1024L * 1024L),
+					largest));
+		}
+	}
+
+	/**
+	 * Executes the runs of the sweep: the first stage of the coarse-to-fine
+	 * search if set, then the runs of the main sweep and of the grid. The
+	 * work directories of the nodes are deleted once the runs finished.
+	 *
+	 * @param runs runs not finished yet, every stage included
+	 * @param resumed results of the runs already finished by the sweep being
+	 * resumed
+	 * @param costModel cost model of the runs
+	 * @param collector collector of the results of the main sweep
+	 * @return the results of every run of the main sweep and of the grid,
+	 * resumed runs included
+	 * @throws IOException if the runs cannot be executed
+	 * @throws InterruptedException if the build was interrupted
+	 */
+	public SweepResult execute(List<StructureRun> runs, List<RunResult> resumed, RunCostModel costModel,
+			ResultCollector collector) throws IOException, InterruptedException {
+		final List<StructureRun> mainRuns = new ArrayList<StructureRun>(runs);
+		final List<RunResult> mainResumed = new ArrayList<RunResult>(resumed);
+		final List<StructureRun> coarseRuns = new ArrayList<StructureRun>();
+		for (Iterator<StructureRun> iterator = mainRuns.iterator(); iterator.hasNext();) {
+			final StructureRun run = iterator.next();
+			if (COARSE_STAGE.equals(run.getStage())) {
+				coarseRuns.add(run);
+				iterator.remove();
+			}
+		}
+		final List<RunResult> coarseResumed = new ArrayList<RunResult>();
+		for (Iterator<RunResult> iterator = mainResumed.iterator(); iterator.hasNext();) {
+			final RunResult result = iterator.next();
+			if (COARSE_STAGE.equals(result.getRun().getStage())) {
+				coarseResumed.add(result);
+				iterator.remove();
+			}
+		}
+		try {
+			// Short chains for every K first, then full chains only around the best K
+			if (coarseSearch != null) {
+				final SortedSet<Integer> selected = runCoarseStage(coarseRuns, coarseResumed);
+				for (Iterator<StructureRun> iterator = mainRuns.iterator(); iterator.hasNext();) {
+					if (!selected.contains(iterator.next().getK())) {
+						iterator.remove();
+					}
+				}
+			}
+			return runMainStage(mainRuns, mainResumed, costModel, collector);
+		} finally {
+			deleteWorkDirs();
+		}
+	}
+
+	/**
+	 * Runs the first stage of a coarse-to-fine search: every K, with few
+	 * replicates and short chains, named after their stage. The runs are
+	 * recorded in the manifest, so that a resumed sweep does not run them
+	 * again. The batches of the second stage render the parameter files of
+	 * the full chains on the nodes again.
+	 *
+	 * @param runs runs of the coarse stage not finished yet
+	 * @param resumed results of the runs of the coarse stage already finished
+	 * @return the K values to run in the second stage, every K if a run of
+	 * the coarse stage failed
+	 */
+	private SortedSet<Integer> runCoarseStage(List<StructureRun> runs, List<RunResult> resumed)
+			throws IOException, InterruptedException {
+		final int maxPops = values.lastKey();
+		final List<StructureRunner> slotRunners = new ArrayList<StructureRunner>();
+		for (ExecutionNode node : nodes) {
+			final NodeStructureRunner runner = createRunner(node, coarseValues);
+			for (int slot = 0; slot < node.getSlots(); ++slot) {
+				slotRunners.add(runner);
+			}
+		}
+		final MainParamsValues firstK = coarseValues.get(coarseValues.firstKey());
+		logger.println(Messages.StructureBuilder_CoarseStage(maxPops, coarseSearch.getReplicatesCount(),
+				firstK.get(MainParam.BURNIN), firstK.get(MainParam.NUMREPS)));
+		final EvannoAggregator aggregator = new EvannoAggregator();
+		final ResultCollector collector = new ResultCollector(workspace, outFile, COARSE_STAGE, aggregator, logger);
+		collectResumed(resumed, Collections.singletonList(collector));
+		final SweepExecutor executor = createExecutor(slotRunners.size());
+		executor.addListener(collector);
+		final SweepResult executed = executor.execute(runs, slotRunners);
+
+		final List<KStatistics> statistics = aggregator.getStatistics();
+		for (KStatistics k : statistics) {
+			logger.println(Messages.StructureBuilder_CoarseStatistics(k.getK(), k.getRuns(),
+					k.getMeanLnProbData(), k.getDeltaK() == null ? "-" : k.getDeltaK()));
+		}
+		final KWindowSelector selector = coarseSearch.createSelector();
+		// A window chosen from the replicates that succeeded could miss the best K
+		if (!executed.isSuccess()) {
+			logger.println(Messages.StructureBuilder_CoarseRunsFailed(executed.getFailed(),
+					executed.getNotStarted().size()));
+			return selector.select(Collections.<KStatistics>emptyList(), maxPops);
+		}
+		final SortedSet<Integer> selected = selector.select(statistics, maxPops);
+		final Integer center = selector.getCenter(statistics);
+		if (center == null) {
+			logger.println(Messages.StructureBuilder_CoarseStageFailed());
+		} else {
+			logger.println(Messages.StructureBuilder_CoarseSelection(center, selected));
+		}
+		return selected;
+	}
+
+	/**
+	 * Runs the main sweep and the configurations of the grid, the most
+	 * expensive runs first, so they do not set the sweep duration.
+	 */
+	private SweepResult runMainStage(List<StructureRun> runs, List<RunResult> resumed, RunCostModel costModel,
+			ResultCollector collector) throws IOException, InterruptedException {
+		final Map<String, String> gridExtraParams = new HashMap<String, String>();
+		for (GridConfiguration configuration : configurations) {
+			gridExtraParams.put(GRID_STAGE + configuration.getId(), configuration.getExtraParams());
+		}
+		final List<StructureRunner> slotRunners = new ArrayList<StructureRunner>();
+		for (ExecutionNode node : nodes) {
+			final NodeStructureRunner nodeRunner = createRunner(node, values);
+			nodeRunner.setStageExtraParams(gridExtraParams);
+			nodeRunner.setMonitor(monitor);
+			if (speeds.containsKey(node.getName())) {
+				nodeRunner.setUnitsPerSecond(speeds.get(node.getName()).getUnitsPerSecond());
+			}
+			StructureRunner runner = nodeRunner;
+			if (cacheKeys != null) {
+				runner = new CachingStructureRunner(runner, cache, cacheKeys, workspace, outFile, cacheStatistics,
+						logger);
+			}
+			for (int slot = 0; slot < node.getSlots(); ++slot) {
+				slotRunners.add(runner);
+			}
+		}
+
+		final List<StructureRun> orderedRuns = schedulingPolicy.order(runs, costModel);
+		RunCostModel model = costModel;
+		if (!model.isCalibrated() && speeds.size() == nodes.size()) {
+			model = model.calibrate(getMeanSpeed());
+		}
+		if (model.getSamples() > 0) {
+			logger.println(Messages.StructureBuilder_PredictedSweep(
+					model.predictMakespan(orderedRuns, slotRunners.size()), model.getSamples()));
+		} else if (model.isCalibrated()) {
+			logger.println(Messages.StructureBuilder_PredictedSweepFromSpeeds(
+					model.predictMakespan(orderedRuns, slotRunners.size())));
+		} else {
+			logger.println(Messages.StructureBuilder_CostModelNotCalibrated(model.getModel()));
+		}
+
+		// The statistics of each configuration of the grid go to its summary
+		final List<ResultCollector> collectors = new ArrayList<ResultCollector>();
+		collectors.add(collector);
+		final Map<GridConfiguration, EvannoAggregator> gridAggregators =
+			new LinkedHashMap<GridConfiguration, EvannoAggregator>();
+		for (GridConfiguration configuration : configurations) {
+			final EvannoAggregator gridAggregator = new EvannoAggregator();
+			gridAggregators.put(configuration, gridAggregator);
+			collectors.add(new ResultCollector(workspace, outFile, GRID_STAGE + configuration.getId(),
+					gridAggregator, logger));
+		}
+		collectResumed(resumed, collectors);
+
+		final SweepExecutor executor = createExecutor(slotRunners.size());
+		for (ResultCollector stageCollector : collectors) {
+			executor.addListener(stageCollector);
+		}
+		if (model.isCalibrated()) {
+			executor.addListener(new PredictionListener(model, logger));
+		}
+		executor.setStragglerDetector(stragglerDetector);
+		final SweepResult executed;
+		if (monitor != null) {
+			monitor.start();
+		}
+		try {
+			executed = executor.execute(orderedRuns, slotRunners);
+		} finally {
+			if (monitor != null) {
+				monitor.stop();
+			}
+		}
+
+		final List<RunResult> completed = new ArrayList<RunResult>(resumed);
+		completed.addAll(executed.getResults());
+		final SweepResult results = new SweepResult(completed, executed.getNotStarted());
+		gridSuccess = configurations.isEmpty() || writeGridSummary(gridAggregators, results);
+		for (ExecutionNode node : nodes) {
+			final NodeAdmission admission = admissions.get(node.getName());
+			if (admission != null && admission.getWaits() > 0) {
+				logger.println(Messages.StructureBuilder_AdmissionSummary(node.getName(), admission.getWaits(),
+						admission.getWaitTime() / 1000L, admission.getLongestWait() / 1000L));
+			}
+		}
+		if (cacheKeys != null) {
+			logger.println(Messages.StructureBuilder_CacheStatistics(cacheStatistics.getHits(),
+					cacheStatistics.getMisses()));
+			metrics.count(Counter.RUNS_CACHED, cacheStatistics.getHits());
+		}
+		return results;
+	}
+
+	/**
+	 * Records the runs already finished in the manifest and the collectors.
+	 */
+	private void collectResumed(List<RunResult> resumed, List<ResultCollector> collectors)
+			throws IOException {
+		for (RunResult result : resumed) {
+			if (manifest != null) {
+				manifest.runResumed(result);
+			}
+			for (ResultCollector collector : collectors) {
+				try {
+					collector.runFinished(result);
+				} catch (IOException ioe) {
+					logger.println(Messages.StructureBuilder_ListenerError(result.getRun(), ioe.getMessage()));
+				}
+			}
+		}
+	}
+
+	/**
+	 * @return the runner of the batches of a node, rendering the mainparams
+	 * with the given values
+	 */
+	private NodeStructureRunner createRunner(ExecutionNode node, Map<Integer, MainParamsValues> kValues) {
+		final NodeStructureRunner runner = new NodeStructureRunner(node, workspace, executable,
+				extraParamsFileName, outFile, env);
+		runner.setParameters(template, kValues, extraParams.getText());
+		runner.setMetrics(metrics);
+		runner.setLogger(logger);
+		runner.setAdmission(admissions.get(node.getName()));
+		runner.setNiceLevel(niceLevel);
+		return runner;
+	}
+
+	private SweepExecutor createExecutor(int slots) {
+		final SweepExecutor executor = new SweepExecutor(slots, failureLimit, logger);
+		executor.setMetrics(metrics);
+		if (manifest != null) {
+			executor.addListener(manifest);
+		}
+		return executor;
+	}
+
+	/**
+	 * Logs the best K of each configuration of the extraparams grid, and
+	 * writes the statistics of every K of each configuration to a summary
+	 * in the workspace.
+	 *
+	 * @param aggregators statistics of each configuration
+	 * @param results results of every run of the build
+	 * @return whether the runs of every configuration succeeded
+	 */
+	private boolean writeGridSummary(Map<GridConfiguration, EvannoAggregator> aggregators, SweepResult results)
+			throws IOException, InterruptedException {
+		final StringBuilder summary = new StringBuilder("configuration\tsettings\tK\truns\tmean_ln_p_d\tsd_ln_p_d\tdelta_k\n");
+		boolean success = true;
+		for (Map.Entry<GridConfiguration, EvannoAggregator> entry : aggregators.entrySet()) {
+			final GridConfiguration configuration = entry.getKey();
+			if (!results.filter(GRID_STAGE + configuration.getId()).isSuccess()) {
+				success = false;
+			}
+			KStatistics best = null;
+			for (KStatistics k : entry.getValue().getStatistics()) {
+				summary.append(configuration.getId()).append('\t').append(configuration).append('\t')
+					.append(k.getK()).append('\t').append(k.getRuns()).append('\t')
+					.append(k.getMeanLnProbData()).append('\t').append(k.getSdLnProbData()).append('\t')
+					.append(k.getDeltaK() == null ? "" : k.getDeltaK()).append('\n');
+				if (k.getDeltaK() != null && (best == null || k.getDeltaK() > best.getDeltaK())) {
+					best = k;
+				}
+			}
+			logger.println(Messages.StructureBuilder_GridBestK(configuration.getId(),
+					best == null ? "-" : best.getK()));
+		}
+		final FilePath summaryFile = workspace.child(outFile + GRID_SUMMARY_SUFFIX);
+		summaryFile.write(summary.toString(), "UTF-8");
+		logger.println(Messages.StructureBuilder_GridSummary(summaryFile.getRemote()));
+		return success;
+	}
+
+	/**
+	 * Sorts the nodes from the fastest to the slowest. Nodes not calibrated
+	 * keep their order, after the calibrated ones.
+	 */
+	private void sortBySpeed() {
+		Collections.sort(nodes, new Comparator<ExecutionNode>() {
+			public int compare(ExecutionNode o1, ExecutionNode o2) {
+				final NodeSpeed s1 = speeds.get(o1.getName());
+				final NodeSpeed s2 = speeds.get(o2.getName());
+				final double u1 = s1 == null ? 0.0d : s1.getUnitsPerSecond();
+				final double u2 = s2 == null ? 0.0d : s2.getUnitsPerSecond();
+				return Double.compare(u2, u1);
+			}
+		});
+	}
+
+	/**
+	 * @return the speed of a slot, in work units per second, averaged over
+	 * every slot of the nodes
+	 */
+	private double getMeanSpeed() {
+		double total = 0.0d;
+		int slots = 0;
+		for (ExecutionNode node : nodes) {
+			total += speeds.get(node.getName()).getUnitsPerSecond() * node.getSlots();
+			slots += node.getSlots();
+		}
+		return slots == 0 ? 0.0d : total / slots;
+	}
+
+	/**
+	 * Creates the node work directory, and copies the input file from the
+	 * build workspace, through the cache of the node when enabled, unless
+	 * given as an absolute path, that must then be valid on every node. The
+	 * parameter files are rendered on the node by each batch of runs.
+	 */
+	private void prepareNode(ExecutionNode node, SweepInput input, InputTransfer transfer)
+			throws IOException, InterruptedException {
+		final FilePath workDir = node.getWorkDir();
+		workDir.mkdirs();
+		final String inFileName = input.getFileName();
+		if (!node.isBuildWorkspace() && StringUtils.isNotBlank(inFileName) && !Paths.isAbsolute(inFileName)) {
+			final FilePath source = workspace.child(inFileName);
+			if (source.exists()) {
+				transfer.copy(source, node.getCacheDir(), workDir.child(inFileName));
+			}
+		}
+	}
+
+	/**
+	 * Deletes the work directories of the build on the nodes other than the
+	 * node of the build. The outputs of the runs were already copied to the
+	 * build workspace.
+	 */
+	private void deleteWorkDirs() throws InterruptedException {
+		for (ExecutionNode node : nodes) {
+			if (node.isBuildWorkspace()) {
+				continue;
+			}
+			try {
+				node.getWorkDir().deleteRecursive();
+			} catch (IOException ioe) {
+				logger.println(Messages.StructureBuilder_WorkDirNotDeleted(node.getName(), ioe.getMessage()));
+			}
+		}
+	}
+
+}
@@ -0,0 +1,477 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) <2012> <Bruno P. Kinoshita>
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.biouno.structure.execution;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.biouno.structure.metrics.SweepMetrics;
+import org.biouno.structure.metrics.SweepMetrics.Counter;
+import org.biouno.structure.metrics.SweepMetrics.Phase;
+import org.biouno.structure.util.Messages;
+
+/**
+ * Executes the runs of a sweep through a bounded pool of workers. Each worker
+ * takes the next pending run from a shared queue, so no more than one
+ * Structure process is alive for each slot at the same time. Workers whose
+ * runner is a {@link BatchStructureRunner} take batches of runs, executed one
+ * after the other with a single request.
+ * <p>
+ * A failed run does not stop the others. Once the number of failures reaches
+ * the failure limit, the pending runs are not started, but the runs already
+ * started are allowed to finish.
+ * <p>
+ * When a {@link StragglerDetector} is set, the workers left without pending 
+ * runs start a copy, with the same seed, of the runs that fell behind their 
+ * peers. A copy is only started by a worker with another runner than the 
+ * run, i.e. on another node, as the slots of a node share their runner. The 
+ * result of a run is the result of its first copy that succeeds, or of its 
+ * last copy if none does.
+ *
+ * @author Bruno P. Kinoshita - http://www.kinoshita.eti.br
+ * @since 0.1
+ */
+public class SweepExecutor {
+
+	/**
+	 * Longest time an idle worker waits before looking for stragglers again.
+	 */
+	private static final long SPECULATION_INTERVAL = 15000L;
+	/**
+	 * A worker with a batch runner takes at most this fraction of its share 
+	 * of the pending runs at a time.
+	 */
+	private static final int BATCH_SHARE = 2;
+
+	/**
+	 * Maximum number of concurrent runs, when using a single runner.
+	 */
+	private final int slots;
+	/**
+	 * Number of failed runs after which no other run is started. Zero or
+	 * less means no limit.
+	 */
+	private final int maxFailures;
+	private final PrintStream logger;
+	/**
+	 * Listeners notified about each run.
+	 */
+	private final List<SweepListener> listeners = new CopyOnWriteArrayList<SweepListener>();
+	/**
+	 * Finds the runs worth copying, <code>null</code> if runs are not copied.
+	 */
+	private StragglerDetector stragglerDetector;
+	/**
+	 * Timers and counters of the sweep, may be null.
+	 */
+	private SweepMetrics metrics;
+	/**
+	 * Start time of the sweep, in milliseconds.
+	 */
+	private volatile long sweepStart;
+
+	/**
+	 * @param slots maximum number of concurrent runs, when using a single runner
+	 * @param maxFailures failure limit, zero or less for no limit
+	 * @param logger build logger
+	 */
+	public SweepExecutor(int slots, int maxFailures, PrintStream logger) {
+		this.slots = Math.max(1, slots);
+		this.maxFailures = maxFailures;
+		this.logger = logger;
+	}
+
+	/**
+	 * @return the slots
+	 */
+	public int getSlots() {
+		return slots;
+	}
+
+	/**
+	 * @return the maxFailures
+	 */
+	public int getMaxFailures() {
+		return maxFailures;
+	}
+
+	/**
+	 * @param listener listener notified about each run
+	 */
+	public void addListener(SweepListener listener) {
+		listeners.add(listener);
+	}
+
+	/**
+	 * @param stragglerDetector finds the runs that idle workers copy, 
+	 * <code>null</code> to never copy runs
+	 */
+	public void setStragglerDetector(StragglerDetector stragglerDetector) {
+		this.stragglerDetector = stragglerDetector;
+	}
+
+	/**
+	 * @param metrics timers and counters of the sweep, may be null
+	 */
+	public void setMetrics(SweepMetrics metrics) {
+		this.metrics = metrics;
+	}
+
+	/**
+	 * Executes all runs with the same runner, and waits for them to finish.
+	 *
+	 * @param runs runs, in the order they should be started
+	 * @param runner runner used to execute each run
+	 * @return the results of the sweep
+	 * @throws IOException if a worker failed unexpectedly
+	 * @throws InterruptedException if the build was interrupted
+	 */
+	public SweepResult execute(List<StructureRun> runs, StructureRunner runner)
+			throws IOException, InterruptedException {
+		return execute(runs, Collections.nCopies(slots, runner));
+	}
+
+	/**
+	 * Executes all runs and waits for them to finish. One worker is started 
+	 * for each slot runner, e.g. one for each free processor of each node, 
+	 * and each worker executes its runs with its runner.
+	 *
+	 * @param runs runs, in the order they should be started
+	 * @param slotRunners one runner for each slot
+	 * @return the results of the sweep
+	 * @throws IOException if a worker failed unexpectedly
+	 * @throws InterruptedException if the build was interrupted
+	 */
+	public SweepResult execute(List<StructureRun> runs, List<? extends StructureRunner> slotRunners)
+			throws IOException, InterruptedException {
+		final Queue<StructureRun> pending = new ConcurrentLinkedQueue<StructureRun>(runs);
+		final List<RunResult> results = Collections.synchronizedList(new ArrayList<RunResult>());
+		final AtomicInteger failures = new AtomicInteger(0);
+		final List<StructureRun> notStarted = Collections.synchronizedList(new ArrayList<StructureRun>());
+		final Map<String, Attempt> inFlight = new HashMap<String, Attempt>();
+		final AtomicInteger copies = new AtomicInteger(0);
+		final AtomicInteger copiesFirst = new AtomicInteger(0);
+		final AtomicInteger dealt = new AtomicInteger(0);
+		sweepStart = System.currentTimeMillis();
+
+		final int workers = Math.min(slotRunners.size(), Math.max(1, runs.size()));
+		logger.println(Messages.StructureBuilder_LaunchingSweep(runs.size(), workers));
+
+		final ExecutorService pool = Executors.newFixedThreadPool(workers);
+		try {
+			final List<Future<Void>> futures = new ArrayList<Future<Void>>(workers);
+			for (int i = 0; i < workers; ++i) {
+				final StructureRunner runner = slotRunners.get(i);
+				futures.add(pool.submit(new Callable<Void>() {
+					public Void call() throws Exception {
+						List<StructureRun> batch;
+						while (!isFailureLimitReached(failures.get()) 
+								&& !(batch = pollBatch(pending, runner, workers, dealt)).isEmpty()) {
+							final List<Attempt> attempts = new ArrayList<Attempt>(batch.size());
+							synchronized (inFlight) {
+								for (StructureRun run : batch) {
+									final Attempt attempt = new Attempt(run, runner);
+									inFlight.put(run.getName(), attempt);
+									attempts.add(attempt);
+								}
+							}
+							if (attempts.size() == 1) {
+								runDequeued();
+								record(attempts.get(0), execute(batch.get(0), runner), inFlight, results, failures);
+							} else {
+								execute(attempts, (BatchStructureRunner) runner, inFlight, results, failures, 
+										notStarted);
+							}
+						}
+						// No pending runs left, copy the runs that fall behind on other nodes
+						while (stragglerDetector != null && !isFailureLimitReached(failures.get())) {
+							final Attempt attempt;
+							synchronized (inFlight) {
+								if (inFlight.isEmpty()) {
+									break;
+								}
+								attempt = findStraggler(inFlight, runner);
+								if (attempt == null) {
+									inFlight.wait(SPECULATION_INTERVAL);
+									continue;
+								}
+								attempt.copied = true;
+								attempt.running++;
+							}
+							copies.incrementAndGet();
+							logger.println(Messages.StructureBuilder_SpeculativeRun(attempt.run));
+							final RunResult result = execute(attempt.run, runner);
+							if (record(attempt, result, inFlight, results, failures) && result.isSuccess()) {
+								copiesFirst.incrementAndGet();
+							}
+						}
+						return null;
+					}
+				}));
+			}
+			for (Future<Void> future : futures) {
+				try {
+					future.get();
+				} catch (ExecutionException ee) {
+					final Throwable cause = ee.getCause();
+					if (cause instanceof InterruptedException) {
+						throw (InterruptedException) cause;
+					}
+					throw new IOException(cause.getMessage(), cause);
+				}
+			}
+		} finally {
+			pool.shutdownNow();
+		}
+
+		if (copies.get() > 0) {
+			logger.println(Messages.StructureBuilder_SpeculativeSummary(copies.get(), copiesFirst.get()));
+		}
+		notStarted.addAll(pending);
+		final SweepResult sweepResult = new SweepResult(results, new ArrayList<StructureRun>(notStarted));
+		logger.println(Messages.StructureBuilder_SweepSummary(sweepResult.getSucceeded(),
+				sweepResult.getFailed(), sweepResult.getNotStarted().size()));
+		return sweepResult;
+	}
+
+	/**
+	 * Executes a single run, turning launch errors into a failed result.
+	 */
+	private RunResult execute(StructureRun run, StructureRunner runner)
+			throws InterruptedException {
+		try {
+			return runner.run(run);
+		} catch (IOException ioe) {
+			logger.println(Messages.StructureBuilder_RunError(run, ioe.getMessage()));
+			return new RunResult(run, RunResult.NOT_LAUNCHED, 0L);
+		}
+	}
+
+	/**
+	 * Takes the next runs of a worker. The first run handed to each worker is 
+	 * taken alone, as the runs at the front of the queue are usually the most 
+	 * expensive ones. After that, a worker with a {@link BatchStructureRunner} 
+	 * takes a share of the pending runs that decreases as the queue drains, so 
+	 * that the workers still finish together. The runs of a batch are dealt 
+	 * from the queue one in every <code>workers</code>, so that the runs of 
+	 * similar cost at the front of the queue go to different workers rather 
+	 * than one after the other to the same worker. Other workers take one run 
+	 * at a time.
+	 *
+	 * @param pending pending runs, in the order they should be started
+	 * @param runner runner of the worker
+	 * @param workers number of workers
+	 * @param dealt number of runs already handed to the workers
+	 * @return the next runs of the worker, empty if no run is pending
+	 */
+	static List<StructureRun> pollBatch(Queue<StructureRun> pending, StructureRunner runner, int workers, 
+			AtomicInteger dealt) {
+		synchronized (pending) {
+			final int size = runner instanceof BatchStructureRunner && dealt.get() >= workers
+					? Math.max(1, pending.size() / (workers * BATCH_SHARE)) : 1;
+			final List<StructureRun> batch = new ArrayList<StructureRun>(size);
+			final Iterator<StructureRun> iterator = pending.iterator();
+			for (int i = 0; batch.size() < size && iterator.hasNext(); ++i) {
+				final StructureRun run = iterator.next();
+				if (i % workers == 0) {
+					batch.add(run);
+					iterator.remove();
+				}
+			}
+			dealt.addAndGet(batch.size());
+			return batch;
+		}
+	}
+
+	/**
+	 * Executes a batch of runs with a single request to the runner. The runs 
+	 * of a batch that failed are failed runs, unless the batch stopped 
+	 * because the failure limit was reached before they started.
+	 */
+	private void execute(List<Attempt> attempts, BatchStructureRunner runner, 
+			final Map<String, Attempt> inFlight, final List<RunResult> results, 
+			final AtomicInteger failures, List<StructureRun> notStarted) throws InterruptedException {
+		final Map<StructureRun, Attempt> byRun = new HashMap<StructureRun, Attempt>();
+		final List<StructureRun> batch = new ArrayList<StructureRun>(attempts.size());
+		for (Attempt attempt : attempts) {
+			byRun.put(attempt.run, attempt);
+			batch.add(attempt.run);
+		}
+		final Set<StructureRun> started = Collections.synchronizedSet(new HashSet<StructureRun>());
+		final Set<StructureRun> finished = Collections.synchronizedSet(new HashSet<StructureRun>());
+		try {
+			runner.run(batch, new BatchStructureRunner.Callback() {
+				public boolean runStarting(StructureRun run) {
+					if (isFailureLimitReached(failures.get())) {
+						return false;
+					}
+					started.add(run);
+					runDequeued();
+					return true;
+				}
+				public void runFinished(RunResult result) {
+					finished.add(result.getRun());
+					record(byRun.get(result.getRun()), result, inFlight, results, failures);
+				}
+			});
+		} catch (IOException ioe) {
+			logger.println(Messages.StructureBuilder_BatchError(batch.size(), ioe.getMessage()));
+		}
+		for (Attempt attempt : attempts) {
+			if (finished.contains(attempt.run)) {
+				continue;
+			}
+			if (started.contains(attempt.run) || !isFailureLimitReached(failures.get())) {
+				record(attempt, new RunResult(attempt.run, RunResult.NOT_LAUNCHED, 0L), inFlight, results, failures);
+			} else {
+				synchronized (inFlight) {
+					attempt.finished = true;
+					inFlight.remove(attempt.run.getName());
+					inFlight.notifyAll();
+				}
+				notStarted.add(attempt.run);
+			}
+		}
+	}
+
+	/**
+	 * Records the result of a copy of a run, if it is the result of the run: 
+	 * the first copy that succeeds, or the last copy that finishes.
+	 *
+	 * @return <code>true</code> if the result was recorded
+	 */
+	private boolean record(Attempt attempt, RunResult result, Map<String, Attempt> inFlight,
+			List<RunResult> results, AtomicInteger failures) {
+		final StructureRun run = attempt.run;
+		synchronized (inFlight) {
+			attempt.running--;
+			if (attempt.finished) {
+				return false;
+			}
+			if (!result.isSuccess() && attempt.running > 0) {
+				// Another copy is still running, and decides the result
+				if (result.getExitCode() != RunResult.CANCELLED) {
+					attempt.failure = result;
+				}
+				return false;
+			}
+			attempt.finished = true;
+			inFlight.remove(run.getName());
+			inFlight.notifyAll();
+		}
+		if (result.getExitCode() == RunResult.CANCELLED && attempt.failure != null) {
+			result = attempt.failure;
+		}
+		results.add(result);
+		if (!result.isSuccess() && failures.incrementAndGet() == maxFailures) {
+			logger.println(Messages.StructureBuilder_FailureLimitReached(maxFailures));
+		}
+		logger.println(Messages.StructureBuilder_RunFinished(run, result.getExitCode(), result.getDuration()));
+		final long start = System.currentTimeMillis();
+		for (SweepListener listener : listeners) {
+			try {
+				listener.runFinished(result);
+			} catch (IOException ioe) {
+				logger.println(Messages.StructureBuilder_ListenerError(run, ioe.getMessage()));
+			}
+		}
+		if (metrics != null) {
+			metrics.count(result.isSuccess() ? Counter.RUNS_FINISHED : Counter.RUNS_FAILED, 1L);
+			metrics.timeSince(Phase.COLLECT, start);
+		}
+		return true;
+	}
+
+	/**
+	 * @return the slowest run being executed by another runner and not copied 
+	 * yet, or <code>null</code>
+	 */
+	private Attempt findStraggler(Map<String, Attempt> inFlight, StructureRunner runner) {
+		for (String name : stragglerDetector.findStragglers(System.currentTimeMillis())) {
+			final Attempt attempt = inFlight.get(name);
+			if (attempt != null && !attempt.copied && attempt.runner != runner) {
+				return attempt;
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * Counts a run leaving the queue, and the time it waited for a slot.
+	 */
+	private void runDequeued() {
+		if (metrics != null) {
+			metrics.timeSince(Phase.QUEUE, sweepStart);
+			metrics.count(Counter.RUNS_STARTED, 1L);
+		}
+	}
+
+	private boolean isFailureLimitReached(int failures) {
+		return maxFailures > 0 && failures >= maxFailures;
+	}
+
+	/**
+	 * A run being executed, and its copies.
+	 */
+	private static final class Attempt {
+		private final StructureRun run;
+		/**
+		 * Runner of the first copy.
+		 */
+		private final StructureRunner runner;
+		/**
+		 * Number of copies running.
+		 */
+		private int running = 1;
+		private boolean copied = false;
+		private boolean finished = false;
+		/**
+		 * Result of a copy that failed while another copy was running.
+		 */
+		private RunResult failure;
+
+		private Attempt(StructureRun run, StructureRunner runner) {
+			this.run = run;
+			this.runner = runner;
+		}
+	}
+
+}
@@ -0,0 +1,344 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) <2012> <Bruno P. Kinoshita>
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.biouno.structure.execution;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.IOUtils;
+
+/**
+ * Durable record of the runs of a sweep that finished, kept in the build
+ * directory. Each finished run is appended as one line, and the file is synced
+ * to disk before the next run is recorded. A run that was interrupted is never
+ * recorded, and a line left incomplete by a crash is ignored when the manifest
+ * is loaded, so a run is in the manifest only if it really finished.
+ * <p>
+ * The first line holds a hash of the sweep configuration. A sweep is resumed
+ * from a manifest only if the configuration did not change. The second line
+ * holds the model and the work of the sweep, used with the recorded durations
+ * to calibrate the cost model of later sweeps, with the work of the K whose
+ * chains have another length, e.g. with an adapted burn-in. The runs taken from the sweep
+ * being resumed are recorded again, marked as resumed, as their durations
+ * were measured by another build.
+ *
+ * @author Bruno P. Kinoshita - http://www.kinoshita.eti.br
+ * @since 0.1
+ */
+public class SweepManifest implements SweepListener {
+
+	/**
+	 * Name of the manifest file in the build directory.
+	 */
+	public static final String FILE_NAME = "structure-sweep.manifest";
+
+	private static final String CONFIGURATION = "#configuration ";
+	private static final String WORKLOAD = "#workload ";
+	private static final String SEPARATOR = "\t";
+	/**
+	 * Columns of a run line.
+	 */
+	private static final int COLUMNS = 9;
+	private static final String RESUMED = "resumed";
+	private static final String ENCODING = "UTF-8";
+
+	private final File file;
+	/**
+	 * Name of output data file.
+	 */
+	private final String outFile;
+	/**
+	 * Hash of the sweep configuration.
+	 */
+	private String configuration;
+	/**
+	 * Model used by Structure in the sweep.
+	 */
+	private String model;
+	/**
+	 * Work of a run with K=1.
+	 */
+	private double unitsPerK;
+	/**
+	 * Work per K of the K whose chains have another length, by K.
+	 */
+	private final Map<Integer, Double> unitsPerKByK = new TreeMap<Integer, Double>();
+	/**
+	 * Last result recorded for each run.
+	 */
+	private final Map<StructureRun, RunResult> results = new LinkedHashMap<StructureRun, RunResult>();
+	/**
+	 * Output file of each run, relative to the build workspace.
+	 */
+	private final Map<StructureRun, String> outputs = new LinkedHashMap<StructureRun, String>();
+	/**
+	 * Runs whose result was taken from the sweep being resumed.
+	 */
+	private final Set<StructureRun> resumed = new HashSet<StructureRun>();
+
+	/**
+	 * @param file manifest file
+	 * @param outFile name of output data file
+	 */
+	public SweepManifest(File file, String outFile) {
+		this.file = file;
+		this.outFile = outFile;
+	}
+
+	/**
+	 * Loads a manifest.
+	 *
+	 * @param file manifest file
+	 * @return the manifest, or <code>null</code> if the file does not exist
+	 * @throws IOException if the file cannot be read
+	 */
+	public static SweepManifest load(File file) throws IOException {
+		if (!file.isFile()) {
+			return null;
+		}
+		final SweepManifest manifest = new SweepManifest(file, null);
+		final String content = FileUtils.readFileToString(file, ENCODING);
+		final String[] lines = content.split("\n", -1);
+		// The last element is empty, or a line not completely written
+		for (int i = 0; i < lines.length - 1; ++i) {
+			final String line = lines[i];
+			if (line.startsWith(CONFIGURATION)) {
+				manifest.configuration = line.substring(CONFIGURATION.length());
+				continue;
+			}
+			if (line.startsWith(WORKLOAD)) {
+				final String[] workload = line.substring(WORKLOAD.length()).split(" ");
+				if (workload.length >= 2) {
+					try {
+						final Map<Integer, Double> unitsPerKByK = new TreeMap<Integer, Double>();
+						for (int j = 2; j < workload.length; ++j) {
+							final String[] units = workload[j].split(":");
+							if (units.length != 2) {
+								throw new NumberFormatException(workload[j]);
+							}
+							unitsPerKByK.put(Integer.parseInt(units[0]), Double.parseDouble(units[1]));
+						}
+						manifest.unitsPerK = Double.parseDouble(workload[1]);
+						manifest.unitsPerKByK.putAll(unitsPerKByK);
+						manifest.model = workload[0];
+					} catch (NumberFormatException nfe) {
+						// Damaged line, not used for calibration
+					}
+				}
+				continue;
+			}
+			final String[] columns = line.split(SEPARATOR, -1);
+			if (columns.length != COLUMNS) {
+				continue;
+			}
+			try {
+				final String stage = columns[7].length() == 0 ? null : columns[7];
+				final StructureRun run = new StructureRun(stage, Integer.parseInt(columns[0]),
+						Integer.parseInt(columns[1]), Long.parseLong(columns[2]));
+				final String node = columns[5].length() == 0 ? null : columns[5];
+				manifest.results.put(run, new RunResult(run, Integer.parseInt(columns[3]),
+						Long.parseLong(columns[4]), node));
+				manifest.outputs.put(run, columns[6]);
+				if (RESUMED.equals(columns[8])) {
+					manifest.resumed.add(run);
+				} else {
+					manifest.resumed.remove(run);
+				}
+			} catch (NumberFormatException nfe) {
+				// Damaged line, the run is executed again
+			}
+		}
+		return manifest;
+	}
+
+	/**
+	 * Starts a new manifest, replacing any existing file.
+	 *
+	 * @param configuration hash of the sweep configuration
+	 * @param model model used by Structure in the sweep
+	 * @param unitsPerK work of a run with K=1
+	 * @throws IOException if the file cannot be written
+	 */
+	public void start(String configuration, String model, double unitsPerK) throws IOException {
+		start(configuration, model, unitsPerK, Collections.<Integer, Double>emptyMap());
+	}
+
+	/**
+	 * Starts a new manifest, replacing any existing file.
+	 *
+	 * @param configuration hash of the sweep configuration
+	 * @param model model used by Structure in the sweep
+	 * @param unitsPerK work of a run with K=1
+	 * @param unitsPerKByK work per K of the K whose chains have another length
+	 * @throws IOException if the file cannot be written
+	 */
+	public synchronized void start(String configuration, String model, double unitsPerK, 
+			Map<Integer, Double> unitsPerKByK) throws IOException {
+		this.configuration = configuration;
+		this.model = model;
+		this.unitsPerK = unitsPerK;
+		this.unitsPerKByK.clear();
+		this.unitsPerKByK.putAll(unitsPerKByK);
+		results.clear();
+		outputs.clear();
+		resumed.clear();
+		final StringBuilder header = new StringBuilder();
+		header.append(CONFIGURATION).append(configuration).append('\n')
+			.append(WORKLOAD).append(model).append(' ').append(unitsPerK);
+		for (Map.Entry<Integer, Double> units : this.unitsPerKByK.entrySet()) {
+			header.append(' ').append(units.getKey()).append(':').append(units.getValue());
+		}
+		write(header.append('\n').toString(), false);
+	}
+
+	/* (non-Javadoc)
+	 * @see org.biouno.structure.execution.SweepListener#runFinished(org.biouno.structure.execution.RunResult)
+	 */
+	public synchronized void runFinished(RunResult result) throws IOException {
+		record(result, false);
+	}
+
+	/**
+	 * Records a run taken from the sweep being resumed.
+	 *
+	 * @param result result of the run, as recorded by the resumed sweep
+	 * @throws IOException if the file cannot be written
+	 */
+	public synchronized void runResumed(RunResult result) throws IOException {
+		record(result, true);
+	}
+
+	private void record(RunResult result, boolean fromResumed) throws IOException {
+		final StructureRun run = result.getRun();
+		final String output = run.getOutputFileName(outFile);
+		final StringBuilder line = new StringBuilder();
+		line.append(run.getK()).append(SEPARATOR)
+			.append(run.getReplicate()).append(SEPARATOR)
+			.append(run.getSeed()).append(SEPARATOR)
+			.append(result.getExitCode()).append(SEPARATOR)
+			.append(result.getDuration()).append(SEPARATOR)
+			.append(result.getNode() == null ? "" : result.getNode()).append(SEPARATOR)
+			.append(output).append(SEPARATOR)
+			.append(run.getStage() == null ? "" : run.getStage()).append(SEPARATOR)
+			.append(fromResumed ? RESUMED : "").append('\n');
+		write(line.toString(), true);
+		results.put(run, result);
+		outputs.put(run, output);
+		if (fromResumed) {
+			resumed.add(run);
+		} else {
+			resumed.remove(run);
+		}
+	}
+
+	/**
+	 * @return the hash of the sweep configuration
+	 */
+	public synchronized String getConfiguration() {
+		return configuration;
+	}
+
+	/**
+	 * @return the model used by Structure in the sweep, or <code>null</code> 
+	 * if not recorded
+	 */
+	public synchronized String getModel() {
+		return model;
+	}
+
+	/**
+	 * @return the work of a run with K=1, or zero if not recorded
+	 */
+	public synchronized double getUnitsPerK() {
+		return unitsPerK;
+	}
+
+	/**
+	 * @param k a K
+	 * @return the work per K of the runs of the K, or zero if not recorded
+	 */
+	public synchronized double getUnitsPerK(int k) {
+		final Double units = unitsPerKByK.get(k);
+		return units == null ? unitsPerK : units;
+	}
+
+	/**
+	 * @param run a run
+	 * @return the last result recorded for the run, or <code>null</code>
+	 */
+	public synchronized RunResult getResult(StructureRun run) {
+		final RunResult result = results.get(run);
+		// A run with the same K and replicate but another seed is another run
+		if (result != null && result.getRun().getSeed() != run.getSeed()) {
+			return null;
+		}
+		return result;
+	}
+
+	/**
+	 * @param run a run
+	 * @return the output file recorded for the run, or <code>null</code>
+	 */
+	public synchronized String getOutput(StructureRun run) {
+		return outputs.get(run);
+	}
+
+	/**
+	 * @param run a run
+	 * @return whether the last result of the run was taken from the sweep
+	 * being resumed, and not measured by this sweep
+	 */
+	public synchronized boolean isResumed(StructureRun run) {
+		return resumed.contains(run);
+	}
+
+	/**
+	 * @return the last result recorded for each run
+	 */
+	public synchronized List<RunResult> getResults() {
+		return new ArrayList<RunResult>(results.values());
+	}
+
+	private void write(String text, boolean append) throws IOException {
+		final FileOutputStream os = new FileOutputStream(file, append);
+		try {
+			os.write(text.getBytes(ENCODING));
+			os.flush();
+			os.getFD().sync();
+		} finally {
+			IOUtils.closeQuietly(os);
+		}
+	}
+
+}
@@ -0,0 +1,326 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) <2012> <Bruno P. Kinoshita>
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.biouno.structure.execution;
+
+import hudson.Proc;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.Timer;
+import java.util.TimerTask;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.biouno.structure.util.Messages;
+
+/**
+ * Tracks the progress of the runs of a sweep, and watches for stalled runs, 
+ * i.e. runs whose iteration counter did not advance for a given time. A 
+ * stalled run is flagged in its progress and in the build log, and killed if 
+ * so configured.
+ * <p>
+ * A run may have more than one copy running, when it was copied to another 
+ * node because it fell behind its peers. The first copy that succeeds claims 
+ * the run, before publishing its outputs, and the other copies are killed.
+ * 
+ * @author Bruno P. Kinoshita - http://www.kinoshita.eti.br
+ * @since 0.1
+ */
+public class SweepMonitor {
+
+	/**
+	 * Longest interval between two checks for stalled runs.
+	 */
+	private static final long MAX_CHECK_INTERVAL = 30000L;
+
+	/**
+	 * Progress of every run started, e.g. the runs of a build action.
+	 */
+	private final Collection<RunProgress> runs;
+	private final long burnIn;
+	private final long numReps;
+	/**
+	 * Length of burn-in period of the K that do not use the default one.
+	 */
+	private final Map<Integer, Long> burnIns = new ConcurrentHashMap<Integer, Long>();
+	/**
+	 * Work units of one iteration with K=1, used to turn node speeds into 
+	 * iterations per second.
+	 */
+	private volatile double unitsPerStep = 0.0d;
+	/**
+	 * Whether the log-likelihood trace of the runs is recorded.
+	 */
+	private volatile boolean recordTraces = false;
+	/**
+	 * Time without new iterations after which a run is stalled, in 
+	 * milliseconds. Zero or less disables the check.
+	 */
+	private final long stallTimeout;
+	private final boolean killStalled;
+	private final PrintStream logger;
+	/**
+	 * Processes of the runs being executed.
+	 */
+	private final Map<RunProgress, Proc> processes = new ConcurrentHashMap<RunProgress, Proc>();
+	/**
+	 * Copies of each run being executed, by run name.
+	 */
+	private final Map<String, List<RunProgress>> copies = new HashMap<String, List<RunProgress>>();
+	/**
+	 * Names of the runs claimed by one of their copies.
+	 */
+	private final Set<String> claimed = new HashSet<String>();
+	private Timer timer;
+
+	/**
+	 * @param runs progress of every run started, updated by this monitor
+	 * @param burnIn length of burn-in period
+	 * @param numReps number of MCMC repetitions after burn-in
+	 * @param stallTimeout time without new iterations after which a run is 
+	 * stalled, in milliseconds, zero or less to disable the check
+	 * @param killStalled whether stalled runs are killed
+	 * @param logger build logger
+	 */
+	public SweepMonitor(Collection<RunProgress> runs, long burnIn, long numReps, long stallTimeout, 
+			boolean killStalled, PrintStream logger) {
+		this.runs = runs;
+		this.burnIn = burnIn;
+		this.numReps = numReps;
+		this.stallTimeout = stallTimeout;
+		this.killStalled = killStalled;
+		this.logger = logger;
+	}
+
+	/**
+	 * @param k a K
+	 * @param burnIn length of burn-in period of the runs of the K
+	 */
+	public void setBurnIn(int k, long burnIn) {
+		burnIns.put(k, burnIn);
+	}
+
+	/**
+	 * @param unitsPerStep work units of one iteration with K=1
+	 */
+	public void setUnitsPerStep(double unitsPerStep) {
+		this.unitsPerStep = unitsPerStep;
+	}
+
+	/**
+	 * @param recordTraces whether the log-likelihood trace of the runs is 
+	 * recorded, for the convergence diagnostics and the result store
+	 */
+	public void setRecordTraces(boolean recordTraces) {
+		this.recordTraces = recordTraces;
+	}
+
+	/**
+	 * @return whether the log-likelihood trace of the runs is recorded
+	 */
+	public boolean isRecordTraces() {
+		return recordTraces;
+	}
+
+	/**
+	 * @return the time without new iterations after which a run is stalled
+	 */
+	public long getStallTimeout() {
+		return stallTimeout;
+	}
+
+	/**
+	 * Starts checking for stalled runs, if enabled.
+	 */
+	public synchronized void start() {
+		if (stallTimeout <= 0L || timer != null) {
+			return;
+		}
+		final long interval = Math.max(1000L, Math.min(MAX_CHECK_INTERVAL, stallTimeout / 4));
+		timer = new Timer("Structure stall monitor", true);
+		timer.schedule(new TimerTask() {
+			@Override
+			public void run() {
+				checkStalled(System.currentTimeMillis());
+			}
+		}, interval, interval);
+	}
+
+	/**
+	 * Stops checking for stalled runs.
+	 */
+	public synchronized void stop() {
+		if (timer != null) {
+			timer.cancel();
+			timer = null;
+		}
+	}
+
+	/**
+	 * @param run a run about to be launched
+	 * @param unitsPerSecond speed of the node, in work units per second, 
+	 * zero if not calibrated
+	 * @return the progress of the run
+	 */
+	public RunProgress runStarted(StructureRun run, double unitsPerSecond) {
+		final Long runBurnIn = burnIns.get(run.getK());
+		final long steps = runBurnIn != null ? runBurnIn : burnIn;
+		final RunProgress progress = new RunProgress(run, steps, steps + numReps, System.currentTimeMillis());
+		if (recordTraces) {
+			progress.recordTrace();
+		}
+		if (unitsPerSecond > 0.0d && unitsPerStep > 0.0d) {
+			progress.setExpectedStepsPerSecond(unitsPerSecond / (unitsPerStep * run.getK()));
+		}
+		synchronized (copies) {
+			List<RunProgress> runCopies = copies.get(progress.getName());
+			if (runCopies == null) {
+				runCopies = new ArrayList<RunProgress>();
+				copies.put(progress.getName(), runCopies);
+			}
+			progress.setSpeculative(!runCopies.isEmpty() || claimed.contains(progress.getName()));
+			runCopies.add(progress);
+			if (claimed.contains(progress.getName())) {
+				progress.cancel();
+			}
+		}
+		runs.add(progress);
+		return progress;
+	}
+
+	/**
+	 * @param progress progress of a run
+	 * @param proc process of the run
+	 * @throws InterruptedException if interrupted while killing a copy that 
+	 * is no longer needed
+	 */
+	public void processStarted(RunProgress progress, Proc proc) throws InterruptedException {
+		processes.put(progress, proc);
+		if (RunProgress.CANCELLED.equals(progress.getState())) {
+			cancel(progress, proc);
+		}
+	}
+
+	/**
+	 * Decides the exit code reported for a copy of a run whose process 
+	 * exited, before its outputs are published. The first copy that succeeds 
+	 * claims the run, and kills the other copies. A copy of a run already 
+	 * claimed is reported as {@link RunResult#CANCELLED}.
+	 * 
+	 * @param progress progress of a run
+	 * @param exitCode exit code of the process
+	 * @return the exit code reported for the copy
+	 * @throws InterruptedException if interrupted while killing the other 
+	 * copies
+	 */
+	public int settle(RunProgress progress, int exitCode) throws InterruptedException {
+		final List<RunProgress> others = new ArrayList<RunProgress>();
+		synchronized (copies) {
+			if (claimed.contains(progress.getName())) {
+				progress.cancel();
+				return RunResult.CANCELLED;
+			}
+			if (exitCode != 0) {
+				return exitCode;
+			}
+			claimed.add(progress.getName());
+			for (RunProgress other : copies.get(progress.getName())) {
+				if (other != progress) {
+					other.cancel();
+					others.add(other);
+				}
+			}
+		}
+		for (RunProgress other : others) {
+			final Proc proc = processes.get(other);
+			if (proc != null) {
+				cancel(other, proc);
+			}
+		}
+		return exitCode;
+	}
+
+	/**
+	 * @param progress progress of a run
+	 * @param exitCode exit code of the run
+	 */
+	public void runFinished(RunProgress progress, int exitCode) {
+		processes.remove(progress);
+		synchronized (copies) {
+			final List<RunProgress> runCopies = copies.get(progress.getName());
+			if (runCopies != null) {
+				runCopies.remove(progress);
+			}
+		}
+		progress.finish(exitCode, System.currentTimeMillis());
+	}
+
+	/**
+	 * Kills a copy of a run that is no longer needed.
+	 */
+	private void cancel(RunProgress progress, Proc proc) throws InterruptedException {
+		logger.println(Messages.StructureBuilder_SpeculativeRunCancelled(progress.getName()));
+		try {
+			proc.kill();
+		} catch (IOException ioe) {
+			logger.println(Messages.StructureBuilder_CancelFailed(progress.getName(), ioe.getMessage()));
+		}
+	}
+
+	/**
+	 * Flags, and kills if so configured, the runs that stalled.
+	 * 
+	 * @param now time, in milliseconds
+	 */
+	void checkStalled(long now) {
+		for (Map.Entry<RunProgress, Proc> entry : processes.entrySet()) {
+			final RunProgress progress = entry.getKey();
+			if (!progress.isStalledAt(now, stallTimeout) || RunProgress.STALLED.equals(progress.getState())) {
+				continue;
+			}
+			logger.println(Messages.StructureBuilder_RunStalled(progress.getName(), progress.getStep(), 
+					stallTimeout / 1000L));
+			if (killStalled) {
+				progress.stalled(true);
+				try {
+					entry.getValue().kill();
+				} catch (IOException ioe) {
+					logger.println(Messages.StructureBuilder_KillFailed(progress.getName(), ioe.getMessage()));
+				} catch (InterruptedException ie) {
+					Thread.currentThread().interrupt();
+					return;
+				}
+			} else {
+				progress.stalled(false);
+			}
+		}
+	}
+
+}
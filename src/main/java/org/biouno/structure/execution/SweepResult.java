@@ -0,0 +1,124 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) <2012> <Bruno P. Kinoshita>
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.biouno.structure.execution;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Results of all runs of a sweep.
+ *
+ * @author Bruno P. Kinoshita - http://www.kinoshita.eti.br
+ * @since 0.1
+ */
+public class SweepResult implements Serializable {
+
+	private static final long serialVersionUID = 3418823160458416702L;
+
+	/**
+	 * Results of the runs that were started.
+	 */
+	private final List<RunResult> results;
+	/**
+	 * Runs never started because the failure limit was hit.
+	 */
+	private final List<StructureRun> notStarted;
+
+	/**
+	 * @param results results of the runs that were started
+	 * @param notStarted runs never started
+	 */
+	public SweepResult(List<RunResult> results, List<StructureRun> notStarted) {
+		this.results = Collections.unmodifiableList(new ArrayList<RunResult>(results));
+		this.notStarted = Collections.unmodifiableList(new ArrayList<StructureRun>(notStarted));
+	}
+
+	/**
+	 * @param stage stage of the build, <code>null</code> for the main sweep
+	 * @return the results and the runs not started of a stage
+	 */
+	public SweepResult filter(String stage) {
+		final List<RunResult> stageResults = new ArrayList<RunResult>();
+		for (RunResult result : results) {
+			if (isStage(result.getRun(), stage)) {
+				stageResults.add(result);
+			}
+		}
+		final List<StructureRun> stageNotStarted = new ArrayList<StructureRun>();
+		for (StructureRun run : notStarted) {
+			if (isStage(run, stage)) {
+				stageNotStarted.add(run);
+			}
+		}
+		return new SweepResult(stageResults, stageNotStarted);
+	}
+
+	private static boolean isStage(StructureRun run, String stage) {
+		return stage == null ? run.getStage() == null : stage.equals(run.getStage());
+	}
+
+	/**
+	 * @return the results of the runs that were started
+	 */
+	public List<RunResult> getResults() {
+		return results;
+	}
+
+	/**
+	 * @return the runs never started
+	 */
+	public List<StructureRun> getNotStarted() {
+		return notStarted;
+	}
+
+	/**
+	 * @return the number of runs that exited with 0
+	 */
+	public int getSucceeded() {
+		int succeeded = 0;
+		for (RunResult result : results) {
+			if (result.isSuccess()) {
+				++succeeded;
+			}
+		}
+		return succeeded;
+	}
+
+	/**
+	 * @return the number of runs that failed
+	 */
+	public int getFailed() {
+		return results.size() - getSucceeded();
+	}
+
+	/**
+	 * @return <code>true</code> if every run was started and succeeded
+	 */
+	public boolean isSuccess() {
+		return notStarted.isEmpty() && getFailed() == 0;
+	}
+
+}
@@ -0,0 +1,210 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) <2012> <Bruno P. Kinoshita>
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.biouno.structure.input;
+
+import java.io.Serializable;
+import java.util.Map;
+
+/**
+ * Layout of a Structure input file, as described by the data file format 
+ * parameters of mainparams.
+ * 
+ * @author Bruno P. Kinoshita - http://www.kinoshita.eti.br
+ * @since 0.1
+ */
+public class InFileFormat implements Serializable {
+
+	private static final long serialVersionUID = -3326476452207366082L;
+
+	private final int ploidy;
+	private final int missing;
+	private final boolean oneRowPerInd;
+	private final boolean label;
+	private final boolean popData;
+	private final boolean popFlag;
+	private final boolean locData;
+	private final boolean phenotype;
+	private final int extraCols;
+	private final boolean markerNames;
+	private final boolean recessiveAlleles;
+	private final boolean mapDistances;
+	private final boolean phaseInfo;
+
+	/**
+	 * @param ploidy ploidy of data (PLOIDY)
+	 * @param missing value given to missing genotype data (MISSING)
+	 * @param oneRowPerInd data for individuals in a single line (ONEROWPERIND)
+	 * @param label individual labels (LABEL)
+	 * @param popData population identifier (POPDATA)
+	 * @param popFlag popinfo flag (POPFLAG)
+	 * @param locData location identifier (LOCDATA)
+	 * @param phenotype phenotype information (PHENOTYPE)
+	 * @param extraCols number of additional columns (EXTRACOLS)
+	 * @param markerNames row of marker names (MARKERNAMES)
+	 * @param recessiveAlleles row of recessive alleles (RECESSIVEALLELES)
+	 * @param mapDistances row of map distances (MAPDISTANCES)
+	 * @param phaseInfo line with phase information (PHASEINFO)
+	 */
+	public InFileFormat(int ploidy, int missing, boolean oneRowPerInd,
+			boolean label, boolean popData, boolean popFlag, boolean locData,
+			boolean phenotype, int extraCols, boolean markerNames,
+			boolean recessiveAlleles, boolean mapDistances, boolean phaseInfo) {
+		this.ploidy = ploidy;
+		this.missing = missing;
+		this.oneRowPerInd = oneRowPerInd;
+		this.label = label;
+		this.popData = popData;
+		this.popFlag = popFlag;
+		this.locData = locData;
+		this.phenotype = phenotype;
+		this.extraCols = extraCols;
+		this.markerNames = markerNames;
+		this.recessiveAlleles = recessiveAlleles;
+		this.mapDistances = mapDistances;
+		this.phaseInfo = phaseInfo;
+	}
+
+	/**
+	 * Creates the format from the #define values of mainparams. Parameters 
+	 * not defined take the Structure defaults.
+	 * 
+	 * @param defines #define values
+	 * @return the format
+	 */
+	public static InFileFormat fromDefines(Map<String, String> defines) {
+		return new InFileFormat(
+				getInt(defines, "PLOIDY", 2),
+				getInt(defines, "MISSING", -9),
+				getInt(defines, "ONEROWPERIND", 0) != 0,
+				getInt(defines, "LABEL", 0) != 0,
+				getInt(defines, "POPDATA", 0) != 0,
+				getInt(defines, "POPFLAG", 0) != 0,
+				getInt(defines, "LOCDATA", 0) != 0,
+				getInt(defines, "PHENOTYPE", 0) != 0,
+				getInt(defines, "EXTRACOLS", 0),
+				getInt(defines, "MARKERNAMES", 0) != 0,
+				getInt(defines, "RECESSIVEALLELES", 0) != 0,
+				getInt(defines, "MAPDISTANCES", 0) != 0,
+				getInt(defines, "PHASEINFO", 0) != 0);
+	}
+
+	private static int getInt(Map<String, String> defines, String name, int defaultValue) {
+		final String value = defines.get(name);
+		if (value == null) {
+			return defaultValue;
+		}
+		try {
+			return Integer.parseInt(value.trim());
+		} catch (NumberFormatException nfe) {
+			return defaultValue;
+		}
+	}
+
+	/**
+	 * @return the ploidy
+	 */
+	public int getPloidy() {
+		return ploidy;
+	}
+
+	/**
+	 * @return the missing
+	 */
+	public int getMissing() {
+		return missing;
+	}
+
+	/**
+	 * @return the oneRowPerInd
+	 */
+	public boolean isOneRowPerInd() {
+		return oneRowPerInd;
+	}
+
+	/**
+	 * @return the markerNames
+	 */
+	public boolean isMarkerNames() {
+		return markerNames;
+	}
+
+	/**
+	 * @return the recessiveAlleles
+	 */
+	public boolean isRecessiveAlleles() {
+		return recessiveAlleles;
+	}
+
+	/**
+	 * @return the mapDistances
+	 */
+	public boolean isMapDistances() {
+		return mapDistances;
+	}
+
+	/**
+	 * @return index of the population identifier column, or -1 if there is 
+	 * none
+	 */
+	public int getPopDataColumn() {
+		return popData ? (label ? 1 : 0) : -1;
+	}
+
+	/**
+	 * @return number of rows before the individuals
+	 */
+	public int getHeaderRows() {
+		return (markerNames ? 1 : 0) + (recessiveAlleles ? 1 : 0) + (mapDistances ? 1 : 0);
+	}
+
+	/**
+	 * @return number of columns before the genotype data, in each row
+	 */
+	public int getLeadingColumns() {
+		return (label ? 1 : 0) + (popData ? 1 : 0) + (popFlag ? 1 : 0)
+				+ (locData ? 1 : 0) + (phenotype ? 1 : 0) + extraCols;
+	}
+
+	/**
+	 * @return number of genotype rows of each individual
+	 */
+	public int getGenotypeRowsPerInd() {
+		return oneRowPerInd ? 1 : ploidy;
+	}
+
+	/**
+	 * @return number of rows of each individual, including phase information
+	 */
+	public int getRowsPerInd() {
+		return getGenotypeRowsPerInd() + (phaseInfo && !oneRowPerInd ? 1 : 0);
+	}
+
+	/**
+	 * @return number of genotype values per locus in each genotype row
+	 */
+	public int getValuesPerLocus() {
+		return oneRowPerInd ? ploidy : 1;
+	}
+
+}
@@ -0,0 +1,162 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) <2012> <Bruno P. Kinoshita>
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.biouno.structure.input;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * What {@link InFileScanner} found in a Structure input file.
+ * 
+ * @author Bruno P. Kinoshita - http://www.kinoshita.eti.br
+ * @since 0.1
+ */
+public class InFileReport implements Serializable {
+
+	private static final long serialVersionUID = 6504393045562294331L;
+
+	/**
+	 * Maximum number of error messages kept.
+	 */
+	public static final int MAX_ERRORS = 20;
+
+	private final int individuals;
+	private final int loci;
+	private final long genotypes;
+	private final long missing;
+	private final int errorCount;
+	private final List<String> errors;
+	private final boolean complete;
+
+	/**
+	 * @param individuals number of individuals found
+	 * @param loci number of loci found, -1 if the file has no data
+	 * @param genotypes number of allele values found
+	 * @param missing number of allele values equal to MISSING
+	 * @param errorCount number of errors found
+	 * @param errors first error messages
+	 */
+	public InFileReport(int individuals, int loci, long genotypes,
+			long missing, int errorCount, List<String> errors) {
+		this(individuals, loci, genotypes, missing, errorCount, errors, true);
+	}
+
+	/**
+	 * @param individuals number of individuals found
+	 * @param loci number of loci found, -1 if the file has no data
+	 * @param genotypes number of allele values found
+	 * @param missing number of allele values equal to MISSING
+	 * @param errorCount number of errors found
+	 * @param errors first error messages
+	 * @param complete <code>false</code> if only the start of the file was 
+	 * scanned
+	 */
+	public InFileReport(int individuals, int loci, long genotypes,
+			long missing, int errorCount, List<String> errors, boolean complete) {
+		this.individuals = individuals;
+		this.loci = loci;
+		this.genotypes = genotypes;
+		this.missing = missing;
+		this.errorCount = errorCount;
+		this.errors = Collections.unmodifiableList(new ArrayList<String>(errors));
+		this.complete = complete;
+	}
+
+	/**
+	 * @return the individuals
+	 */
+	public int getIndividuals() {
+		return individuals;
+	}
+
+	/**
+	 * @return the loci
+	 */
+	public int getLoci() {
+		return loci;
+	}
+
+	/**
+	 * @return the genotypes
+	 */
+	public long getGenotypes() {
+		return genotypes;
+	}
+
+	/**
+	 * @return the missing
+	 */
+	public long getMissing() {
+		return missing;
+	}
+
+	/**
+	 * @return the errorCount
+	 */
+	public int getErrorCount() {
+		return errorCount;
+	}
+
+	/**
+	 * @return the first error messages
+	 */
+	public List<String> getErrors() {
+		return errors;
+	}
+
+	/**
+	 * @return <code>false</code> if only the start of the file was scanned, 
+	 * and the file has more individuals
+	 */
+	public boolean isComplete() {
+		return complete;
+	}
+
+	/**
+	 * Checks the file against the configured number of individuals and loci. 
+	 * When only the start of the file was scanned, the file is only known to 
+	 * have at least the individuals found.
+	 * 
+	 * @param numInds number of individuals (NUMINDS), may be null
+	 * @param numLoci number of loci (NUMLOCI), may be null
+	 * @return the problems found, empty if the file matches
+	 */
+	public List<String> check(Integer numInds, Integer numLoci) {
+		final List<String> problems = new ArrayList<String>(errors);
+		if (errorCount > errors.size()) {
+			problems.add((errorCount - errors.size()) + " more errors");
+		}
+		if (numInds != null && (complete ? numInds != individuals : numInds < individuals)) {
+			problems.add("NUMINDS is " + numInds + ", but the file contains " + (complete ? "" : "more than ") 
+					+ individuals + " individuals");
+		}
+		if (numLoci != null && numLoci != loci) {
+			problems.add("NUMLOCI is " + numLoci + ", but the file contains " + loci + " loci");
+		}
+		return problems;
+	}
+
+}
@@ -0,0 +1,288 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) <2012> <Bruno P. Kinoshita>
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.biouno.structure.input;
+
+import hudson.FilePath.FileCallable;
+import hudson.remoting.VirtualChannel;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.commons.io.IOUtils;
+
+/**
+ * Scans a Structure input file in a single pass, counting individuals and 
+ * loci and checking every allele code. The file is read through a 
+ * {@link FileChannel} into a fixed direct buffer and tokenized byte by byte, 
+ * so memory use does not depend on the file size. Executed on the node where 
+ * the file is, so the file is never transferred. 
+ * <p>
+ * The scan can be limited to the first individuals of the file, e.g. to 
+ * check the layout of the file from a form, in which case the report is 
+ * not complete.
+ * 
+ * @author Bruno P. Kinoshita - http://www.kinoshita.eti.br
+ * @since 0.1
+ */
+public class InFileScanner implements FileCallable<InFileReport> {
+
+	private static final long serialVersionUID = -5148335458562717049L;
+
+	private static final int BUFFER_SIZE = 1 << 20;
+	/**
+	 * Maximum number of bytes of a token kept for error messages.
+	 */
+	private static final int MAX_TOKEN = 32;
+
+	private static final int HEADER = 0;
+	private static final int GENOTYPE = 1;
+	private static final int PHASE = 2;
+
+	private final InFileFormat format;
+	/**
+	 * Number of individuals scanned, zero or less to scan the whole file.
+	 */
+	private final int maxIndividuals;
+
+	// Scanner state, only used during invoke
+	private transient int line;
+	private transient int rows;
+	private transient int rowKind;
+	private transient int column;
+	private transient int loci;
+	private transient int dataRows;
+	private transient long genotypes;
+	private transient long missing;
+	private transient int errorCount;
+	private transient List<String> errors;
+	private transient boolean inToken;
+	private transient boolean integer;
+	private transient boolean negative;
+	private transient long value;
+	private transient int digits;
+	private transient byte[] token;
+	private transient int tokenLength;
+
+	/**
+	 * @param format the layout of the file
+	 */
+	public InFileScanner(InFileFormat format) {
+		this(format, 0);
+	}
+
+	/**
+	 * @param format the layout of the file
+	 * @param maxIndividuals number of individuals scanned from the start of 
+	 * the file, zero or less to scan the whole file
+	 */
+	public InFileScanner(InFileFormat format, int maxIndividuals) {
+		this.format = format;
+		this.maxIndividuals = maxIndividuals;
+	}
+
+	/* (non-Javadoc)
+	 * @see hudson.FilePath.FileCallable#invoke(java.io.File, hudson.remoting.VirtualChannel)
+	 */
+	public InFileReport invoke(File f, VirtualChannel channel)
+			throws IOException, InterruptedException {
+		final FileInputStream is = new FileInputStream(f);
+		try {
+			return scan(is.getChannel());
+		} finally {
+			IOUtils.closeQuietly(is);
+		}
+	}
+
+	/**
+	 * @param channel channel positioned at the start of the file
+	 * @return what was found in the file
+	 * @throws IOException if the file cannot be read
+	 */
+	public synchronized InFileReport scan(FileChannel channel) throws IOException {
+		line = 1;
+		rows = 0;
+		column = 0;
+		loci = -1;
+		dataRows = 0;
+		genotypes = 0L;
+		missing = 0L;
+		errorCount = 0;
+		errors = new ArrayList<String>();
+		inToken = false;
+		token = new byte[MAX_TOKEN];
+
+		final int rowsPerInd = format.getRowsPerInd();
+		final int maxRows = maxIndividuals > 0 ? maxIndividuals * rowsPerInd : Integer.MAX_VALUE;
+		final ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+		boolean complete = true;
+		while (channel.read(buffer) != -1) {
+			buffer.flip();
+			while (buffer.hasRemaining() && dataRows < maxRows) {
+				accept(buffer.get());
+			}
+			if (dataRows >= maxRows) {
+				complete = buffer.hasRemaining() ? !hasData(buffer) : channel.position() == channel.size();
+				break;
+			}
+			buffer.clear();
+		}
+		accept((byte) '\n');
+
+		if (dataRows % rowsPerInd != 0) {
+			error("The last individual has " + (dataRows % rowsPerInd) + " rows, " + rowsPerInd + " were expected");
+		}
+		return new InFileReport(dataRows / rowsPerInd, loci, genotypes, missing, errorCount, errors, complete);
+	}
+
+	/**
+	 * @return whether the rest of the buffer has other bytes than whitespace
+	 */
+	private static boolean hasData(ByteBuffer buffer) {
+		while (buffer.hasRemaining()) {
+			final byte b = buffer.get();
+			if (b != ' ' && b != '\t' && b != '\r' && b != '\n') {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	private void accept(byte b) {
+		switch (b) {
+		case '\n':
+			endToken();
+			endRow();
+			++line;
+			break;
+		case ' ':
+		case '\t':
+		case '\r':
+			endToken();
+			break;
+		default:
+			if (!inToken) {
+				startToken();
+			}
+			if (tokenLength < MAX_TOKEN) {
+				token[tokenLength] = b;
+			}
+			++tokenLength;
+			if (b >= '0' && b <= '9') {
+				value = value * 10 + (b - '0');
+				++digits;
+			} else if (b == '-' && tokenLength == 1) {
+				negative = true;
+			} else {
+				integer = false;
+			}
+		}
+	}
+
+	private void startToken() {
+		if (column == 0) {
+			startRow();
+		}
+		inToken = true;
+		integer = true;
+		negative = false;
+		value = 0L;
+		digits = 0;
+		tokenLength = 0;
+	}
+
+	private void startRow() {
+		final int headerRows = format.getHeaderRows();
+		if (rows < headerRows) {
+			rowKind = HEADER;
+		} else {
+			final int position = (rows - headerRows) % format.getRowsPerInd();
+			rowKind = position < format.getGenotypeRowsPerInd() ? GENOTYPE : PHASE;
+		}
+	}
+
+	private void endToken() {
+		if (!inToken) {
+			return;
+		}
+		inToken = false;
+		if (rowKind == GENOTYPE && column >= format.getLeadingColumns()) {
+			++genotypes;
+			if (!integer || digits == 0) {
+				error("Line " + line + ": invalid allele code " + tokenText());
+			} else if ((negative ? -value : value) == format.getMissing()) {
+				++missing;
+			} else if (negative) {
+				error("Line " + line + ": negative allele code " + tokenText() + " is not the MISSING value " + format.getMissing());
+			}
+		}
+		++column;
+	}
+
+	private void endRow() {
+		if (column == 0) {
+			// Blank line
+			return;
+		}
+		final int columns = column;
+		column = 0;
+		++rows;
+		int rowLoci;
+		if (rowKind == GENOTYPE) {
+			++dataRows;
+			final int values = columns - format.getLeadingColumns();
+			if (values < 0 || values % format.getValuesPerLocus() != 0) {
+				error("Line " + line + ": " + columns + " columns do not match the data file format");
+				return;
+			}
+			rowLoci = values / format.getValuesPerLocus();
+		} else {
+			if (rowKind == PHASE) {
+				++dataRows;
+			}
+			rowLoci = columns;
+		}
+		if (loci < 0) {
+			loci = rowLoci;
+		} else if (rowLoci != loci) {
+			error("Line " + line + ": found " + rowLoci + " loci, " + loci + " were expected");
+		}
+	}
+
+	private String tokenText() {
+		return new String(token, 0, Math.min(tokenLength, MAX_TOKEN));
+	}
+
+	private void error(String message) {
+		++errorCount;
+		if (errors.size() < InFileReport.MAX_ERRORS) {
+			errors.add(message);
+		}
+	}
+
+}
@@ -0,0 +1,321 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) <2012> <Bruno P. Kinoshita>
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.biouno.structure.input;
+
+import hudson.FilePath.FileCallable;
+import hudson.remoting.VirtualChannel;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.regex.Pattern;
+
+import org.apache.commons.io.IOUtils;
+
+/**
+ * Writes a reduced copy of a Structure input file, for exploratory sweeps. The 
+ * file is read once, one line at a time; only the header rows, with one value 
+ * per locus, are held in memory, since the loci kept are known only after the 
+ * map distances are read.
+ * <p>
+ * Individuals are sampled at random (selection sampling, keeping exactly the 
+ * requested number out of NUMINDS), or stratified by POPDATA: each population 
+ * keeps the same fraction of its individuals, with a systematic sample from a 
+ * random start, as the size of each population is not known in advance.
+ * <p>
+ * Loci are thinned by map distance, keeping a locus when it starts a linkage 
+ * group or is at least the given distance from the last locus kept, and then 
+ * by count, keeping evenly spaced loci. The map distances written are those 
+ * between the loci kept.
+ * <p>
+ * Executed on the node where the file is, so the file is never transferred.
+ * 
+ * @author Bruno P. Kinoshita - http://www.kinoshita.eti.br
+ * @since 0.1
+ */
+public class InFileThinner implements FileCallable<ThinningReport> {
+
+	private static final long serialVersionUID = 4617094180255037436L;
+
+	private static final int BUFFER_SIZE = 1 << 16;
+	/**
+	 * Every byte is read and written as is.
+	 */
+	private static final String ENCODING = "ISO-8859-1";
+	private static final Pattern WHITESPACE = Pattern.compile("\\s+");
+
+	private final InFileFormat format;
+	private final ThinningOptions options;
+	private final int numInds;
+	private final int numLoci;
+	/**
+	 * Path of the reduced file, on the same node.
+	 */
+	private final String output;
+
+	/**
+	 * @param format the layout of the file
+	 * @param options how the file is reduced
+	 * @param numInds number of individuals in the file (NUMINDS)
+	 * @param numLoci number of loci in the file (NUMLOCI)
+	 * @param output path of the reduced file, on the node of the input file
+	 */
+	public InFileThinner(InFileFormat format, ThinningOptions options, int numInds, int numLoci, String output) {
+		this.format = format;
+		this.options = options;
+		this.numInds = numInds;
+		this.numLoci = numLoci;
+		this.output = output;
+	}
+
+	/* (non-Javadoc)
+	 * @see hudson.FilePath.FileCallable#invoke(java.io.File, hudson.remoting.VirtualChannel)
+	 */
+	public ThinningReport invoke(File f, VirtualChannel channel) throws IOException, InterruptedException {
+		final BufferedReader reader = new BufferedReader(new InputStreamReader(new FileInputStream(f), ENCODING), 
+				BUFFER_SIZE);
+		Writer writer = null;
+		try {
+			writer = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(output), ENCODING), BUFFER_SIZE);
+			return thin(reader, writer);
+		} finally {
+			IOUtils.closeQuietly(reader);
+			IOUtils.closeQuietly(writer);
+		}
+	}
+
+	/**
+	 * @param reader the input file
+	 * @param writer the reduced file
+	 * @return what was written
+	 * @throws IOException if a file cannot be read or written
+	 */
+	public ThinningReport thin(BufferedReader reader, Writer writer) throws IOException {
+		final Random random = new Random(options.getSeed());
+		final boolean stratified = options.isStratified() && format.getPopDataColumn() >= 0;
+		final boolean byDistance = options.getMinDistance() > 0.0d && format.isMapDistances();
+		final int wanted = options.getIndividuals() > 0 ? Math.min(options.getIndividuals(), numInds) : numInds;
+		final double fraction = numInds == 0 ? 1.0d : (double) wanted / numInds;
+		final Map<String, double[]> strata = new HashMap<String, double[]>();
+
+		final List<String[]> headers = new ArrayList<String[]>();
+		boolean[] keepLocus = null;
+		int keptLoci = 0;
+		int rows = 0;
+		int seen = 0;
+		int kept = 0;
+		boolean keepIndividual = false;
+		final int headerRows = format.getHeaderRows();
+		final int rowsPerInd = format.getRowsPerInd();
+		String line;
+		while ((line = reader.readLine()) != null) {
+			final String trimmed = line.trim();
+			if (trimmed.length() == 0) {
+				continue;
+			}
+			final String[] tokens = WHITESPACE.split(trimmed);
+			if (rows < headerRows) {
+				headers.add(tokens);
+				++rows;
+				continue;
+			}
+			if (keepLocus == null) {
+				keepLocus = selectLoci(headers, byDistance);
+				for (boolean keep : keepLocus) {
+					if (keep) {
+						++keptLoci;
+					}
+				}
+				writeHeaders(writer, headers, keepLocus);
+			}
+			final int position = (rows - headerRows) % rowsPerInd;
+			if (position == 0) {
+				if (stratified) {
+					keepIndividual = sampleStratum(strata, tokens[format.getPopDataColumn()], fraction, random);
+				} else {
+					// Selection sampling: keeps exactly the wanted number
+					keepIndividual = (numInds - seen) * random.nextDouble() < wanted - kept;
+				}
+				++seen;
+				if (keepIndividual) {
+					++kept;
+				}
+			}
+			if (keepIndividual) {
+				if (position < format.getGenotypeRowsPerInd()) {
+					writeRow(writer, tokens, format.getLeadingColumns(), format.getValuesPerLocus(), keepLocus);
+				} else {
+					writeRow(writer, tokens, 0, 1, keepLocus);
+				}
+			}
+			++rows;
+		}
+		if (keepLocus == null) {
+			keepLocus = selectLoci(headers, byDistance);
+			writeHeaders(writer, headers, keepLocus);
+		}
+		return new ThinningReport(kept, keptLoci, strata.size(), stratified, byDistance);
+	}
+
+	/**
+	 * Systematic sampling within a population: the individual is kept when 
+	 * the running count of the population, times the fraction, plus the random 
+	 * start of the population, crosses an integer.
+	 */
+	private static boolean sampleStratum(Map<String, double[]> strata, String population, double fraction, 
+			Random random) {
+		double[] stratum = strata.get(population);
+		if (stratum == null) {
+			// Random start, and individuals seen
+			stratum = new double[] { random.nextDouble(), 0.0d };
+			strata.put(population, stratum);
+		}
+		final double before = Math.floor(stratum[1] * fraction + stratum[0]);
+		stratum[1] += 1.0d;
+		return Math.floor(stratum[1] * fraction + stratum[0]) > before;
+	}
+
+	private boolean[] selectLoci(List<String[]> headers, boolean byDistance) {
+		final boolean[] keep = new boolean[numLoci];
+		final double[] distances = byDistance ? parseDistances(headers.get(headers.size() - 1)) : null;
+		int survivors = 0;
+		double sinceKept = 0.0d;
+		for (int locus = 0; locus < numLoci; ++locus) {
+			if (distances == null) {
+				keep[locus] = true;
+			} else if (locus == 0 || distances[locus] < 0.0d) {
+				// Start of a linkage group
+				keep[locus] = true;
+				sinceKept = 0.0d;
+			} else {
+				sinceKept += distances[locus];
+				if (sinceKept >= options.getMinDistance()) {
+					keep[locus] = true;
+					sinceKept = 0.0d;
+				}
+			}
+			if (keep[locus]) {
+				++survivors;
+			}
+		}
+		final int wanted = options.getLoci();
+		if (wanted > 0 && wanted < survivors) {
+			// Evenly spaced among the loci left by the distance thinning
+			int index = 0;
+			for (int locus = 0; locus < numLoci; ++locus) {
+				if (keep[locus]) {
+					keep[locus] = (long) (index + 1) * wanted / survivors > (long) index * wanted / survivors;
+					++index;
+				}
+			}
+		}
+		return keep;
+	}
+
+	private double[] parseDistances(String[] row) {
+		final double[] distances = new double[numLoci];
+		for (int locus = 0; locus < numLoci && locus < row.length; ++locus) {
+			try {
+				distances[locus] = Double.parseDouble(row[locus]);
+			} catch (NumberFormatException nfe) {
+				distances[locus] = -1.0d;
+			}
+		}
+		return distances;
+	}
+
+	private void writeHeaders(Writer writer, List<String[]> headers, boolean[] keepLocus) throws IOException {
+		for (int i = 0; i < headers.size(); ++i) {
+			final String[] row = headers.get(i);
+			if (format.isMapDistances() && i == headers.size() - 1) {
+				writeDistances(writer, row, keepLocus);
+			} else {
+				writeRow(writer, row, 0, 1, keepLocus);
+			}
+		}
+	}
+
+	/**
+	 * Writes the distance of each locus kept to the previous locus kept, or -1 
+	 * when a linkage group starts between them.
+	 */
+	private void writeDistances(Writer writer, String[] row, boolean[] keepLocus) throws IOException {
+		final double[] distances = parseDistances(row);
+		boolean first = true;
+		boolean newGroup = true;
+		double sum = 0.0d;
+		for (int locus = 0; locus < numLoci; ++locus) {
+			if (distances[locus] < 0.0d) {
+				newGroup = true;
+				sum = 0.0d;
+			} else {
+				sum += distances[locus];
+			}
+			if (keepLocus[locus]) {
+				if (!first) {
+					writer.write(' ');
+				}
+				first = false;
+				writer.write(newGroup ? "-1" : String.valueOf(sum));
+				newGroup = false;
+				sum = 0.0d;
+			}
+		}
+		writer.write('\n');
+	}
+
+	/**
+	 * Writes the leading columns, and the values of the loci kept.
+	 */
+	private static void writeRow(Writer writer, String[] tokens, int leading, int valuesPerLocus, boolean[] keepLocus) 
+			throws IOException {
+		boolean first = true;
+		for (int i = 0; i < tokens.length; ++i) {
+			if (i >= leading) {
+				final int locus = (i - leading) / valuesPerLocus;
+				if (locus < keepLocus.length && !keepLocus[locus]) {
+					continue;
+				}
+			}
+			if (!first) {
+				writer.write(' ');
+			}
+			first = false;
+			writer.write(tokens[i]);
+		}
+		writer.write('\n');
+	}
+
+}
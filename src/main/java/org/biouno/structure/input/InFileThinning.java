@@ -0,0 +1,112 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) <2012> <Bruno P. Kinoshita>
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.biouno.structure.input;
+
+import java.io.Serializable;
+
+import org.kohsuke.stapler.DataBoundConstructor;
+
+/**
+ * Options of a sweep run on a reduced copy of the input file, as set in the 
+ * job configuration. See {@link ThinningOptions} for the options of one 
+ * reduction.
+ * 
+ * @author Bruno P. Kinoshita - http://www.kinoshita.eti.br
+ * @since 0.1
+ */
+public class InFileThinning implements Serializable {
+
+	private static final long serialVersionUID = -2519440330283524398L;
+
+	/**
+	 * Number of individuals kept in the reduced input file.
+	 */
+	private final Integer individuals;
+	/**
+	 * Whether individuals are sampled in proportion to their population.
+	 */
+	private final Boolean stratified;
+	/**
+	 * Number of loci kept in the reduced input file.
+	 */
+	private final Integer loci;
+	/**
+	 * Smallest map distance between two loci kept in the reduced input file.
+	 */
+	private final Double minDistance;
+
+	/**
+	 * @param individuals number of individuals kept, empty to keep all
+	 * @param stratified whether individuals are sampled in proportion to 
+	 * their population (POPDATA)
+	 * @param loci number of loci kept, empty to keep all
+	 * @param minDistance smallest map distance between two loci kept, empty 
+	 * to not thin by distance
+	 */
+	@DataBoundConstructor
+	public InFileThinning(Integer individuals, Boolean stratified, Integer loci, Double minDistance) {
+		this.individuals = individuals;
+		this.stratified = stratified;
+		this.loci = loci;
+		this.minDistance = minDistance;
+	}
+
+	/**
+	 * @return the individuals
+	 */
+	public Integer getIndividuals() {
+		return individuals;
+	}
+
+	/**
+	 * @return the stratified
+	 */
+	public Boolean getStratified() {
+		return stratified;
+	}
+
+	/**
+	 * @return the loci
+	 */
+	public Integer getLoci() {
+		return loci;
+	}
+
+	/**
+	 * @return the minDistance
+	 */
+	public Double getMinDistance() {
+		return minDistance;
+	}
+
+	/**
+	 * @param seed seed of the random sampling
+	 * @return the options of the reduction
+	 */
+	public ThinningOptions createOptions(long seed) {
+		return new ThinningOptions(individuals != null ? individuals : 0, stratified != null && stratified, 
+				loci != null ? loci : 0, minDistance != null ? minDistance : 0.0d, seed);
+	}
+
+}
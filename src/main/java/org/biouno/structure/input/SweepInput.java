@@ -0,0 +1,96 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) <2012> <Bruno P. Kinoshita>
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.biouno.structure.input;
+
+/**
+ * The input file a sweep runs on: the configured INFILE, or the reduced copy 
+ * written by the {@link InFileThinner}, with its number of individuals and 
+ * loci.
+ * 
+ * @author Bruno P. Kinoshita - http://www.kinoshita.eti.br
+ * @since 0.1
+ */
+public class SweepInput {
+
+	private final String fileName;
+	private final int individuals;
+	private final int loci;
+	/**
+	 * How the file was derived from INFILE, or <code>null</code> if it is 
+	 * INFILE.
+	 */
+	private final ThinningOptions thinning;
+
+	/**
+	 * @param fileName input file, relative to the workspace unless absolute
+	 * @param individuals number of individuals (NUMINDS)
+	 * @param loci number of loci (NUMLOCI)
+	 * @param thinning how the file was derived from INFILE, or 
+	 * <code>null</code>
+	 */
+	public SweepInput(String fileName, int individuals, int loci, ThinningOptions thinning) {
+		this.fileName = fileName;
+		this.individuals = individuals;
+		this.loci = loci;
+		this.thinning = thinning;
+	}
+
+	/**
+	 * @return the fileName
+	 */
+	public String getFileName() {
+		return fileName;
+	}
+
+	/**
+	 * @return the individuals
+	 */
+	public int getIndividuals() {
+		return individuals;
+	}
+
+	/**
+	 * @return the loci
+	 */
+	public int getLoci() {
+		return loci;
+	}
+
+	/**
+	 * @return how the file was derived from INFILE, or <code>null</code> if 
+	 * it is INFILE
+	 */
+	public ThinningOptions getThinning() {
+		return thinning;
+	}
+
+	/* (non-Javadoc)
+	 * @see java.lang.Object#toString()
+	 */
+	@Override
+	public String toString() {
+		return thinning == null ? fileName : fileName + " (" + thinning + ")";
+	}
+
+}
@@ -0,0 +1,105 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) <2012> <Bruno P. Kinoshita>
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.biouno.structure.input;
+
+import java.io.Serializable;
+
+/**
+ * How an input file is reduced by the {@link InFileThinner}.
+ * 
+ * @author Bruno P. Kinoshita - http://www.kinoshita.eti.br
+ * @since 0.1
+ */
+public class ThinningOptions implements Serializable {
+
+	private static final long serialVersionUID = 7290166415733960018L;
+
+	private final int individuals;
+	private final boolean stratified;
+	private final int loci;
+	private final double minDistance;
+	private final long seed;
+
+	/**
+	 * @param individuals number of individuals kept, zero to keep all
+	 * @param stratified whether individuals are sampled in proportion to 
+	 * their population (POPDATA), instead of at random
+	 * @param loci number of loci kept, zero to keep all
+	 * @param minDistance smallest map distance between two loci kept in the 
+	 * same linkage group, zero to not thin by distance
+	 * @param seed seed of the random sampling
+	 */
+	public ThinningOptions(int individuals, boolean stratified, int loci, double minDistance, long seed) {
+		this.individuals = individuals;
+		this.stratified = stratified;
+		this.loci = loci;
+		this.minDistance = minDistance;
+		this.seed = seed;
+	}
+
+	/**
+	 * @return the number of individuals kept, zero to keep all
+	 */
+	public int getIndividuals() {
+		return individuals;
+	}
+
+	/**
+	 * @return the stratified
+	 */
+	public boolean isStratified() {
+		return stratified;
+	}
+
+	/**
+	 * @return the number of loci kept, zero to keep all
+	 */
+	public int getLoci() {
+		return loci;
+	}
+
+	/**
+	 * @return the minDistance
+	 */
+	public double getMinDistance() {
+		return minDistance;
+	}
+
+	/**
+	 * @return the seed
+	 */
+	public long getSeed() {
+		return seed;
+	}
+
+	/* (non-Javadoc)
+	 * @see java.lang.Object#toString()
+	 */
+	@Override
+	public String toString() {
+		return "individuals=" + individuals + ", stratified=" + stratified + ", loci=" + loci 
+				+ ", minDistance=" + minDistance + ", seed=" + seed;
+	}
+
+}
@@ -0,0 +1,94 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) <2012> <Bruno P. Kinoshita>
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.biouno.structure.input;
+
+import java.io.Serializable;
+
+/**
+ * What the {@link InFileThinner} wrote.
+ * 
+ * @author Bruno P. Kinoshita - http://www.kinoshita.eti.br
+ * @since 0.1
+ */
+public class ThinningReport implements Serializable {
+
+	private static final long serialVersionUID = -2630483357020384177L;
+
+	private final int individuals;
+	private final int loci;
+	private final int populations;
+	private final boolean stratified;
+	private final boolean thinnedByDistance;
+
+	/**
+	 * @param individuals number of individuals written
+	 * @param loci number of loci written
+	 * @param populations number of populations seen, zero without POPDATA
+	 * @param stratified whether individuals were sampled by population
+	 * @param thinnedByDistance whether loci were thinned by map distance
+	 */
+	public ThinningReport(int individuals, int loci, int populations, boolean stratified, boolean thinnedByDistance) {
+		this.individuals = individuals;
+		this.loci = loci;
+		this.populations = populations;
+		this.stratified = stratified;
+		this.thinnedByDistance = thinnedByDistance;
+	}
+
+	/**
+	 * @return the number of individuals written
+	 */
+	public int getIndividuals() {
+		return individuals;
+	}
+
+	/**
+	 * @return the number of loci written
+	 */
+	public int getLoci() {
+		return loci;
+	}
+
+	/**
+	 * @return the number of populations seen, zero without POPDATA
+	 */
+	public int getPopulations() {
+		return populations;
+	}
+
+	/**
+	 * @return whether individuals were sampled by population
+	 */
+	public boolean isStratified() {
+		return stratified;
+	}
+
+	/**
+	 * @return whether loci were thinned by map distance
+	 */
+	public boolean isThinnedByDistance() {
+		return thinnedByDistance;
+	}
+
+}
@@ -0,0 +1,101 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) <2012> <Bruno P. Kinoshita>
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.biouno.structure.metrics;
+
+import java.io.Serializable;
+
+import org.kohsuke.stapler.export.Exported;
+import org.kohsuke.stapler.export.ExportedBean;
+
+/**
+ * Value of a timer or a counter of a sweep, kept with the build.
+ * 
+ * @author Bruno P. Kinoshita - http://www.kinoshita.eti.br
+ * @since 0.1
+ */
+@ExportedBean(defaultVisibility = 2)
+public class MetricValue implements Serializable {
+
+	private static final long serialVersionUID = 4411653059417846130L;
+
+	private final String name;
+	/**
+	 * Value of a counter, or time of a timer in milliseconds.
+	 */
+	private final long value;
+	/**
+	 * Number of times a timer was timed, zero for a counter.
+	 */
+	private final long count;
+
+	/**
+	 * @param name the name
+	 * @param value value of a counter, or time of a timer in milliseconds
+	 * @param count number of times a timer was timed, zero for a counter
+	 */
+	public MetricValue(String name, long value, long count) {
+		this.name = name;
+		this.value = value;
+		this.count = count;
+	}
+
+	/**
+	 * @return the name
+	 */
+	@Exported
+	public String getName() {
+		return name;
+	}
+
+	/**
+	 * @return the value
+	 */
+	@Exported
+	public long getValue() {
+		return value;
+	}
+
+	/**
+	 * @return the count
+	 */
+	@Exported
+	public long getCount() {
+		return count;
+	}
+
+	/**
+	 * @return the time of a timer, in seconds
+	 */
+	public double getSeconds() {
+		return value / 1000.0d;
+	}
+
+	/**
+	 * @return the mean time of a timer, in seconds
+	 */
+	public double getMeanSeconds() {
+		return count > 0L ? getSeconds() / count : 0.0d;
+	}
+
+}
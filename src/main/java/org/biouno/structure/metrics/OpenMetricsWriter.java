@@ -0,0 +1,108 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) <2012> <Bruno P. Kinoshita>
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.biouno.structure.metrics;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+import java.util.Locale;
+
+import org.apache.commons.io.FileUtils;
+
+/**
+ * Writes the metrics of a sweep in the OpenMetrics text format, for a scraper
+ * reading files, e.g. the textfile collector of the node exporter. The file
+ * is written to a temporary file first, and renamed when complete, so that a
+ * scraper never reads a partial file.
+ * 
+ * @author Bruno P. Kinoshita - http://www.kinoshita.eti.br
+ * @since 0.1
+ */
+public class OpenMetricsWriter {
+
+	private static final String PREFIX = "structure_";
+	private static final String ENCODING = "UTF-8";
+
+	private final String job;
+	private final int build;
+
+	/**
+	 * @param job name of the job
+	 * @param build number of the build
+	 */
+	public OpenMetricsWriter(String job, int build) {
+		this.job = job;
+		this.build = build;
+	}
+
+	/**
+	 * @param phases time of each phase
+	 * @param counters value of each counter
+	 * @return the metrics, in the OpenMetrics text format
+	 */
+	public String format(List<MetricValue> phases, List<MetricValue> counters) {
+		final String labels = "job=\"" + escape(job) + "\"";
+		final StringBuilder text = new StringBuilder();
+		text.append("# TYPE ").append(PREFIX).append("build_number gauge\n");
+		text.append("# HELP ").append(PREFIX).append("build_number Number of the last build.\n");
+		text.append(PREFIX).append("build_number{").append(labels).append("} ").append(build).append('\n');
+		final String seconds = PREFIX + "phase_seconds";
+		text.append("# TYPE ").append(seconds).append(" counter\n");
+		text.append("# UNIT ").append(seconds).append(" seconds\n");
+		text.append("# HELP ").append(seconds).append(" Wall-clock time spent in each phase of the sweep.\n");
+		for (MetricValue phase : phases) {
+			text.append(seconds).append("_total{").append(labels).append(",phase=\"").append(phase.getName())
+				.append("\"} ").append(String.format(Locale.ENGLISH, "%.3f", phase.getSeconds())).append('\n');
+		}
+		for (MetricValue counter : counters) {
+			final String name = PREFIX + counter.getName();
+			text.append("# TYPE ").append(name).append(" counter\n");
+			text.append(name).append("_total{").append(labels).append("} ").append(counter.getValue()).append('\n');
+		}
+		text.append("# EOF\n");
+		return text.toString();
+	}
+
+	/**
+	 * Writes the metrics to a file.
+	 * 
+	 * @param phases time of each phase
+	 * @param counters value of each counter
+	 * @param file the file
+	 * @throws IOException if the file cannot be written
+	 */
+	public void write(List<MetricValue> phases, List<MetricValue> counters, File file) throws IOException {
+		final File temp = new File(file.getParentFile(), file.getName() + ".tmp");
+		FileUtils.writeStringToFile(temp, format(phases, counters), ENCODING);
+		if (file.exists() && !file.delete() || !temp.renameTo(file)) {
+			FileUtils.deleteQuietly(temp);
+			throw new IOException("Failed to rename " + temp + " to " + file);
+		}
+	}
+
+	private static String escape(String value) {
+		return value.replace("\\", "\\\\").replace("\"", "\\\"").replace("\n", "\\n");
+	}
+
+}
@@ -0,0 +1,198 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) <2012> <Bruno P. Kinoshita>
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.biouno.structure.metrics;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Timers and counters of the phases of a Structure sweep, updated by the
+ * threads executing the sweep. Times are wall-clock, so the phases of runs
+ * executed in parallel add up to more than the duration of the build.
+ *
+ * @author Bruno P. Kinoshita - http://www.kinoshita.eti.br
+ * @since 0.1
+ */
+public class SweepMetrics {
+
+	/**
+	 * Phases of a sweep.
+	 */
+	public enum Phase {
+		/**
+		 * Compiling and rendering the parameter files.
+		 */
+		RENDER("render"),
+		/**
+		 * Sending the input file to the nodes, and copying the outputs back.
+		 */
+		TRANSFER("transfer"),
+		/**
+		 * Runs waiting for a free slot, from the start of the sweep.
+		 */
+		QUEUE("queue"),
+		/**
+		 * Runs waiting for memory on their node.
+		 */
+		ADMISSION("admission"),
+		/**
+		 * Structure processes.
+		 */
+		PROCESS("process"),
+		/**
+		 * Collecting, aggregating and storing the results.
+		 */
+		COLLECT("collect");
+
+		private final String label;
+
+		private Phase(String label) {
+			this.label = label;
+		}
+
+		/**
+		 * @return the label
+		 */
+		public String getLabel() {
+			return label;
+		}
+	}
+
+	/**
+	 * Counters of a sweep.
+	 */
+	public enum Counter {
+		RUNS_STARTED("runs_started"),
+		RUNS_FINISHED("runs_finished"),
+		RUNS_FAILED("runs_failed"),
+		RUNS_CACHED("runs_cached"),
+		/**
+		 * Bytes of input files sent to the nodes.
+		 */
+		BYTES_TRANSFERRED("bytes_transferred"),
+		/**
+		 * CPU time of the Structure processes, in milliseconds, where the
+		 * node can measure it.
+		 */
+		PROCESS_CPU_MILLIS("process_cpu_milliseconds"),
+		/**
+		 * Bytes of console output of the runs written to the build log.
+		 */
+		LOG_BYTES_FORWARDED("log_bytes_forwarded");
+
+		private final String label;
+
+		private Counter(String label) {
+			this.label = label;
+		}
+
+		/**
+		 * @return the label
+		 */
+		public String getLabel() {
+			return label;
+		}
+	}
+
+	private final AtomicLongArray phaseMillis = new AtomicLongArray(Phase.values().length);
+	private final AtomicLongArray phaseCounts = new AtomicLongArray(Phase.values().length);
+	private final AtomicLongArray counters = new AtomicLongArray(Counter.values().length);
+
+	/**
+	 * Adds time to a phase.
+	 *
+	 * @param phase the phase
+	 * @param millis time spent, in milliseconds
+	 */
+	public void time(Phase phase, long millis) {
+		phaseMillis.addAndGet(phase.ordinal(), Math.max(0L, millis));
+		phaseCounts.incrementAndGet(phase.ordinal());
+	}
+
+	/**
+	 * Adds the time elapsed since a start time to a phase.
+	 *
+	 * @param phase the phase
+	 * @param start start time, in milliseconds
+	 */
+	public void timeSince(Phase phase, long start) {
+		time(phase, System.currentTimeMillis() - start);
+	}
+
+	/**
+	 * @param counter a counter
+	 * @param amount amount added to the counter
+	 */
+	public void count(Counter counter, long amount) {
+		counters.addAndGet(counter.ordinal(), amount);
+	}
+
+	/**
+	 * @param phase a phase
+	 * @return the time spent in the phase, in milliseconds
+	 */
+	public long getMillis(Phase phase) {
+		return phaseMillis.get(phase.ordinal());
+	}
+
+	/**
+	 * @param phase a phase
+	 * @return the number of times the phase was timed
+	 */
+	public long getCount(Phase phase) {
+		return phaseCounts.get(phase.ordinal());
+	}
+
+	/**
+	 * @param counter a counter
+	 * @return the value of the counter
+	 */
+	public long getValue(Counter counter) {
+		return counters.get(counter.ordinal());
+	}
+
+	/**
+	 * @return the time of each phase
+	 */
+	public List<MetricValue> getPhases() {
+		final List<MetricValue> phases = new ArrayList<MetricValue>();
+		for (Phase phase : Phase.values()) {
+			phases.add(new MetricValue(phase.getLabel(), getMillis(phase), getCount(phase)));
+		}
+		return phases;
+	}
+
+	/**
+	 * @return the value of each counter
+	 */
+	public List<MetricValue> getCounters() {
+		final List<MetricValue> values = new ArrayList<MetricValue>();
+		for (Counter counter : Counter.values()) {
+			values.add(new MetricValue(counter.getLabel(), getValue(counter), 0L));
+		}
+		return values;
+	}
+
+}
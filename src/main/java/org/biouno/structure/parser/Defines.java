@@ -0,0 +1,70 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) <2012> <Bruno P. Kinoshita>
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.biouno.structure.parser;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Reads the values of the #define lines of mainparams and extraparams.
+ * 
+ * @author Bruno P. Kinoshita - http://www.kinoshita.eti.br
+ * @since 0.1
+ */
+public final class Defines {
+
+	private static final Pattern PATTERN = Pattern.compile(MainParamsParser.REGEX);
+
+	private static final String COMMENT = "//";
+
+	private Defines() {
+	}
+
+	/**
+	 * @param text parameters text, may be null
+	 * @return the value of each #define, without comments, in file order
+	 */
+	public static Map<String, String> read(String text) {
+		final Map<String, String> defines = new LinkedHashMap<String, String>();
+		if (text == null) {
+			return defines;
+		}
+		final Matcher matcher = PATTERN.matcher("");
+		for (String line : text.split("\r?\n")) {
+			matcher.reset(line);
+			if (matcher.matches()) {
+				String value = matcher.group(6);
+				final int comment = value.indexOf(COMMENT);
+				if (comment >= 0) {
+					value = value.substring(0, comment);
+				}
+				defines.put(matcher.group(4), value.trim());
+			}
+		}
+		return defines;
+	}
+
+}
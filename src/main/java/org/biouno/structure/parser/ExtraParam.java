@@ -0,0 +1,194 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) <2012> <Bruno P. Kinoshita>
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.biouno.structure.parser;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Parameters of extraparams, with the type, default value and valid range
+ * given in src/main/doc/extraparams. Booleans (B) are 0 or 1, integers (int)
+ * and doubles (d) must be within their range.
+ *
+ * @author Bruno P. Kinoshita - http://www.kinoshita.eti.br
+ * @since 0.1
+ */
+public enum ExtraParam {
+
+	// Program options
+	NOADMIX(Type.BOOLEAN, "0"),
+	LINKAGE(Type.BOOLEAN, "0"),
+	USEPOPINFO(Type.BOOLEAN, "0"),
+	LOCPRIOR(Type.BOOLEAN, "0"),
+	FREQSCORR(Type.BOOLEAN, "1"),
+	ONEFST(Type.BOOLEAN, "0"),
+	INFERALPHA(Type.BOOLEAN, "1"),
+	POPALPHAS(Type.BOOLEAN, "0"),
+	ALPHA(Type.DOUBLE, "1.0", ExtraParam.POSITIVE, Double.MAX_VALUE),
+	INFERLAMBDA(Type.BOOLEAN, "0"),
+	POPSPECIFICLAMBDA(Type.BOOLEAN, "0"),
+	LAMBDA(Type.DOUBLE, "1.0", ExtraParam.POSITIVE, Double.MAX_VALUE),
+	// Priors
+	FPRIORMEAN(Type.DOUBLE, "0.01", ExtraParam.POSITIVE, Double.MAX_VALUE),
+	FPRIORSD(Type.DOUBLE, "0.05", ExtraParam.POSITIVE, Double.MAX_VALUE),
+	UNIFPRIORALPHA(Type.BOOLEAN, "1"),
+	ALPHAMAX(Type.DOUBLE, "10.0", ExtraParam.POSITIVE, Double.MAX_VALUE),
+	ALPHAPRIORA(Type.DOUBLE, "1.0", ExtraParam.POSITIVE, Double.MAX_VALUE),
+	ALPHAPRIORB(Type.DOUBLE, "2.0", ExtraParam.POSITIVE, Double.MAX_VALUE),
+	LOG10RMIN(Type.DOUBLE, "-4.0", -Double.MAX_VALUE, Double.MAX_VALUE),
+	LOG10RMAX(Type.DOUBLE, "1.0", -Double.MAX_VALUE, Double.MAX_VALUE),
+	LOG10RPROPSD(Type.DOUBLE, "0.1", ExtraParam.POSITIVE, Double.MAX_VALUE),
+	LOG10RSTART(Type.DOUBLE, "-2.0", -Double.MAX_VALUE, Double.MAX_VALUE),
+	// Using prior population info
+	GENSBACK(Type.INTEGER, "2", 0, Integer.MAX_VALUE),
+	MIGRPRIOR(Type.DOUBLE, "0.01", 0, 1),
+	PFROMPOPFLAGONLY(Type.BOOLEAN, "0"),
+	// Locprior model
+	LOCISPOP(Type.BOOLEAN, "1"),
+	LOCPRIORINIT(Type.DOUBLE, "1.0", ExtraParam.POSITIVE, Double.MAX_VALUE),
+	MAXLOCPRIOR(Type.DOUBLE, "20.0", ExtraParam.POSITIVE, Double.MAX_VALUE),
+	// Output options
+	PRINTNET(Type.BOOLEAN, "1"),
+	PRINTLAMBDA(Type.BOOLEAN, "1"),
+	PRINTQSUM(Type.BOOLEAN, "1"),
+	SITEBYSITE(Type.BOOLEAN, "0"),
+	PRINTQHAT(Type.BOOLEAN, "0"),
+	UPDATEFREQ(Type.INTEGER, "100", 0, Integer.MAX_VALUE),
+	PRINTLIKES(Type.BOOLEAN, "0"),
+	INTERMEDSAVE(Type.INTEGER, "0", 0, Integer.MAX_VALUE),
+	ECHODATA(Type.BOOLEAN, "1"),
+	ANCESTDIST(Type.BOOLEAN, "0"),
+	NUMBOXES(Type.INTEGER, "1000", 1, Integer.MAX_VALUE),
+	ANCESTPINT(Type.DOUBLE, "0.90", 0, 1),
+	// Miscellaneous
+	COMPUTEPROB(Type.BOOLEAN, "1"),
+	ADMBURNIN(Type.INTEGER, "500", 0, Integer.MAX_VALUE),
+	ALPHAPROPSD(Type.DOUBLE, "0.025", ExtraParam.POSITIVE, Double.MAX_VALUE),
+	STARTATPOPINFO(Type.BOOLEAN, "0"),
+	RANDOMIZE(Type.BOOLEAN, "1"),
+	SEED(Type.INTEGER, "2245", Integer.MIN_VALUE, Integer.MAX_VALUE),
+	METROFREQ(Type.INTEGER, "10", 0, Integer.MAX_VALUE),
+	REPORTHITRATE(Type.BOOLEAN, "0");
+
+	/**
+	 * Types of the values of extraparams.
+	 */
+	public enum Type {
+		BOOLEAN, INTEGER, DOUBLE
+	}
+
+	/**
+	 * Smallest value of the parameters that must be larger than zero.
+	 */
+	private static final double POSITIVE = Double.MIN_VALUE;
+
+	private static final Map<String, ExtraParam> BY_NAME = new HashMap<String, ExtraParam>();
+
+	static {
+		for (ExtraParam param : values()) {
+			BY_NAME.put(param.name(), param);
+		}
+	}
+
+	private final Type type;
+	private final String defaultValue;
+	private final double min;
+	private final double max;
+
+	private ExtraParam(Type type, String defaultValue) {
+		this(type, defaultValue, 0, 1);
+	}
+
+	private ExtraParam(Type type, String defaultValue, double min, double max) {
+		this.type = type;
+		this.defaultValue = defaultValue;
+		this.min = min;
+		this.max = max;
+	}
+
+	/**
+	 * @param name the name used in the #define
+	 * @return the parameter, or <code>null</code> if the name is not an
+	 * extraparam
+	 */
+	public static ExtraParam forName(String name) {
+		return BY_NAME.get(name);
+	}
+
+	/**
+	 * @return the type
+	 */
+	public Type getType() {
+		return type;
+	}
+
+	/**
+	 * @return the defaultValue, used by Structure when not defined
+	 */
+	public String getDefaultValue() {
+		return defaultValue;
+	}
+
+	/**
+	 * Parses a value of this parameter.
+	 *
+	 * @param value the value, as in the #define
+	 * @return the value, as a Long for booleans and integers and a Double for
+	 * doubles
+	 * @throws ParserException if the value is not of the type of the
+	 * parameter, or not within its range
+	 */
+	public Number parse(String value) throws ParserException {
+		final Number number;
+		try {
+			if (type == Type.DOUBLE) {
+				number = Double.valueOf(value.trim());
+			} else {
+				number = Long.valueOf(value.trim());
+			}
+		} catch (NumberFormatException nfe) {
+			throw new ParserException(name() + " must be " + describe() + ", not " + value);
+		}
+		final double d = number.doubleValue();
+		if (Double.isNaN(d) || d < min || d > max) {
+			throw new ParserException(name() + " must be " + describe() + ", not " + value);
+		}
+		return number;
+	}
+
+	private String describe() {
+		switch (type) {
+		case BOOLEAN:
+			return "0 or 1";
+		case INTEGER:
+			return min == Integer.MIN_VALUE ? "an integer" : "an integer of at least " + (long) min;
+		default:
+			if (min == POSITIVE) {
+				return "a number larger than 0";
+			}
+			return max == Double.MAX_VALUE ? "a number" : "a number between " + min + " and " + max;
+		}
+	}
+
+}
@@ -0,0 +1,286 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) <2012> <Bruno P. Kinoshita>
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.biouno.structure.parser;
+
+import java.io.IOException;
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.apache.commons.lang.StringUtils;
+import org.biouno.structure.util.Digests;
+
+/**
+ * An extraparams file, parsed and checked against the types and ranges of
+ * {@link ExtraParam}. The text is parsed and checked only once, in
+ * {@link #compile(String)}, and rendered once, so that writing it for each
+ * batch of runs copies the rendered text.
+ * <p>
+ * As in {@link MainParamsTemplate}, only #define lines are kept, written as
+ * <code>#define NAME value</code>. The names of mainparams may be defined,
+ * except those the job sets for each run, and are not checked.
+ *
+ * @author Bruno P. Kinoshita - http://www.kinoshita.eti.br
+ * @since 0.1
+ */
+public class ExtraParams implements Serializable {
+
+	private static final long serialVersionUID = -2446113587130592427L;
+
+	private static final Pattern PATTERN = Pattern.compile(MainParamsParser.REGEX);
+
+	private static final String COMMENT = "//";
+
+	/**
+	 * Names of mainparams that may be defined in extraparams too.
+	 */
+	private static final String[] MAINPARAMS = { "PLOIDY", "MISSING", "ONEROWPERIND", "LABEL", "POPDATA",
+			"POPFLAG", "LOCDATA", "PHENOTYPE", "EXTRACOLS", "MARKERNAMES", "RECESSIVEALLELES", "MAPDISTANCES",
+			"PHASED", "PHASEINFO", "MARKOVPHASE", "NOTAMBIGUOUS" };
+
+	/**
+	 * Value of each #define, in file order.
+	 */
+	private final Map<String, String> values;
+	/**
+	 * Parsed values of the extraparams.
+	 */
+	private final Map<ExtraParam, Number> parsed;
+	private final String text;
+
+	private ExtraParams(Map<String, String> values, Map<ExtraParam, Number> parsed) {
+		this.values = Collections.unmodifiableMap(values);
+		this.parsed = parsed;
+		final StringBuilder buffer = new StringBuilder();
+		for (Map.Entry<String, String> value : values.entrySet()) {
+			buffer.append("#define ").append(value.getKey()).append(' ').append(value.getValue()).append('\n');
+		}
+		this.text = buffer.toString();
+	}
+
+	/**
+	 * Parses and checks the extraparams text.
+	 *
+	 * @param extraParams extraparams text, may be blank
+	 * @return the checked extraparams
+	 * @throws ParserException listing every invalid #define
+	 */
+	public static ExtraParams compile(String extraParams) throws ParserException {
+		final Map<String, String> values = new LinkedHashMap<String, String>();
+		if (extraParams != null) {
+			final Matcher matcher = PATTERN.matcher("");
+			for (String line : extraParams.split("\r?\n")) {
+				matcher.reset(line);
+				if (matcher.matches()) {
+					String value = matcher.group(6);
+					final int comment = value.indexOf(COMMENT);
+					if (comment >= 0) {
+						value = value.substring(0, comment);
+					}
+					values.put(matcher.group(4), value.trim());
+				}
+			}
+		}
+		return create(values);
+	}
+
+	private static ExtraParams create(Map<String, String> values) throws ParserException {
+		final List<String> problems = new ArrayList<String>();
+		final Map<ExtraParam, Number> parsed = new LinkedHashMap<ExtraParam, Number>();
+		for (Map.Entry<String, String> value : values.entrySet()) {
+			final String name = value.getKey();
+			final ExtraParam param = ExtraParam.forName(name);
+			if (param != null) {
+				try {
+					parsed.put(param, param.parse(value.getValue()));
+				} catch (ParserException pe) {
+					problems.add(pe.getMessage());
+				}
+			} else if (MainParam.forName(name) != null) {
+				problems.add(name + " is set for each run, and cannot be defined in extraparams");
+			} else if (!isMainParam(name)) {
+				problems.add("Unknown parameter " + name);
+			}
+		}
+		final ExtraParams extraParams = new ExtraParams(values, parsed);
+		if (problems.isEmpty()
+				&& extraParams.getDouble(ExtraParam.LOG10RMIN) >= extraParams.getDouble(ExtraParam.LOG10RMAX)) {
+			problems.add("LOG10RMIN must be smaller than LOG10RMAX");
+		}
+		if (!problems.isEmpty()) {
+			throw new ParserException(StringUtils.join(problems, "; "));
+		}
+		return extraParams;
+	}
+
+	private static boolean isMainParam(String name) {
+		for (String mainParam : MAINPARAMS) {
+			if (mainParam.equals(name)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Creates extraparams with other values for some #defines. The #defines
+	 * already defined keep their place, and the others are added at the end.
+	 *
+	 * @param settings values of the #defines
+	 * @return the checked extraparams
+	 * @throws ParserException listing every invalid #define
+	 */
+	public ExtraParams with(Map<String, String> settings) throws ParserException {
+		final Map<String, String> merged = new LinkedHashMap<String, String>(values);
+		merged.putAll(settings);
+		return create(merged);
+	}
+
+	/**
+	 * Creates the extraparams in effect for Structure, that reads the
+	 * mainparams before the extraparams. The #defines of the mainparams that
+	 * may be defined in extraparams are used when these extraparams do not
+	 * define them, and the others are ignored.
+	 *
+	 * @param mainParams values of the #defines of the mainparams, e.g.
+	 * {@link MainParamsTemplate#getDefines()}
+	 * @return the checked extraparams
+	 * @throws ParserException listing every invalid #define of the mainparams
+	 */
+	public ExtraParams withMainParams(Map<String, String> mainParams) throws ParserException {
+		final Map<String, String> merged = new LinkedHashMap<String, String>();
+		for (Map.Entry<String, String> value : mainParams.entrySet()) {
+			if (ExtraParam.forName(value.getKey()) != null || isMainParam(value.getKey())) {
+				merged.put(value.getKey(), value.getValue());
+			}
+		}
+		merged.putAll(values);
+		return create(merged);
+	}
+
+	/**
+	 * @return a digest of the values of the #defines, the same for
+	 * extraparams that differ only in the order of the #defines, or in how
+	 * their numbers are written
+	 */
+	public String digest() {
+		final List<String> defines = new ArrayList<String>();
+		for (Map.Entry<String, String> value : new TreeMap<String, String>(values).entrySet()) {
+			defines.add(value.getKey());
+			final ExtraParam param = ExtraParam.forName(value.getKey());
+			defines.add(param == null ? value.getValue() : String.valueOf(parsed.get(param)));
+		}
+		return Digests.sha256(defines.toArray(new String[defines.size()]));
+	}
+
+	/**
+	 * @return the value of each #define, in file order
+	 */
+	public Map<String, String> getValues() {
+		return values;
+	}
+
+	/**
+	 * @return whether no #define is given
+	 */
+	public boolean isEmpty() {
+		return values.isEmpty();
+	}
+
+	/**
+	 * @param param a parameter
+	 * @return whether the parameter is defined
+	 */
+	public boolean isDefined(ExtraParam param) {
+		return parsed.containsKey(param);
+	}
+
+	/**
+	 * @param param a boolean parameter
+	 * @return its value, or its default value if not defined
+	 */
+	public boolean getBoolean(ExtraParam param) {
+		return get(param).longValue() == 1L;
+	}
+
+	/**
+	 * @param param an integer parameter
+	 * @return its value, or its default value if not defined
+	 */
+	public int getInt(ExtraParam param) {
+		return get(param).intValue();
+	}
+
+	/**
+	 * @param param a double parameter
+	 * @return its value, or its default value if not defined
+	 */
+	public double getDouble(ExtraParam param) {
+		return get(param).doubleValue();
+	}
+
+	private Number get(ExtraParam param) {
+		final Number value = parsed.get(param);
+		if (value != null) {
+			return value;
+		}
+		try {
+			return param.parse(param.getDefaultValue());
+		} catch (ParserException pe) {
+			throw new IllegalStateException(pe);
+		}
+	}
+
+	/**
+	 * Appends the rendered extraparams to an output.
+	 *
+	 * @param out output, e.g. a Writer
+	 * @throws IOException if the output fails
+	 */
+	public void render(Appendable out) throws IOException {
+		out.append(text);
+	}
+
+	/**
+	 * @return the rendered extraparams
+	 */
+	public String getText() {
+		return text;
+	}
+
+	/* (non-Javadoc)
+	 * @see java.lang.Object#toString()
+	 */
+	@Override
+	public String toString() {
+		return text;
+	}
+
+}
@@ -0,0 +1,91 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) <2012> <Bruno P. Kinoshita>
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.biouno.structure.parser;
+
+import java.util.Map;
+
+/**
+ * A configuration of a {@link ParamGrid}: the value of each swept #define,
+ * and the extraparams rendered with them.
+ *
+ * @author Bruno P. Kinoshita - http://www.kinoshita.eti.br
+ * @since 0.1
+ */
+public class GridConfiguration {
+
+	/**
+	 * Number of the configuration in the grid, starting at 1.
+	 */
+	private final int id;
+	private final Map<String, String> settings;
+	private final String extraParams;
+
+	/**
+	 * @param id number of the configuration in the grid, starting at 1
+	 * @param settings value of each swept #define
+	 * @param extraParams extraparams rendered with the settings
+	 */
+	public GridConfiguration(int id, Map<String, String> settings, String extraParams) {
+		this.id = id;
+		this.settings = settings;
+		this.extraParams = extraParams;
+	}
+
+	/**
+	 * @return the id
+	 */
+	public int getId() {
+		return id;
+	}
+
+	/**
+	 * @return the settings
+	 */
+	public Map<String, String> getSettings() {
+		return settings;
+	}
+
+	/**
+	 * @return the extraParams
+	 */
+	public String getExtraParams() {
+		return extraParams;
+	}
+
+	/* (non-Javadoc)
+	 * @see java.lang.Object#toString()
+	 */
+	@Override
+	public String toString() {
+		final StringBuilder buffer = new StringBuilder();
+		for (Map.Entry<String, String> setting : settings.entrySet()) {
+			if (buffer.length() > 0) {
+				buffer.append(", ");
+			}
+			buffer.append(setting.getKey()).append('=').append(setting.getValue());
+		}
+		return buffer.toString();
+	}
+
+}
@@ -0,0 +1,56 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) <2012> <Bruno P. Kinoshita>
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.biouno.structure.parser;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Parameters of mainparams whose values are replaced with the values given in
+ * the job configuration.
+ *
+ * @author Bruno P. Kinoshita - http://www.kinoshita.eti.br
+ * @since 0.1
+ */
+public enum MainParam {
+
+	MAXPOPS, NUMLOCI, NUMINDS, BURNIN, NUMREPS, INFILE, OUTFILE;
+
+	private static final Map<String, MainParam> BY_NAME = new HashMap<String, MainParam>();
+
+	static {
+		for (MainParam param : values()) {
+			BY_NAME.put(param.name(), param);
+		}
+	}
+
+	/**
+	 * @param name the name used in the #define
+	 * @return the parameter, or <code>null</code> if the name is not replaced
+	 */
+	public static MainParam forName(String name) {
+		return BY_NAME.get(name);
+	}
+
+}
@@ -34,7 +34,7 @@ import java.util.regex.Pattern;
  */
 public class MainParamsParser {
 
-	private static final String REGEX = "(\\t*|\\s*)?#(\\t*|\\s*)?define(\\t*|\\s*)+(\\w+)(\\t*|\\s*)+(.*)";
+	static final String REGEX = "(\\t*|\\s*)?#(\\t*|\\s*)?define(\\t*|\\s*)+(\\w+)(\\t*|\\s*)+(.*)";
 	
 	private final Pattern pattern = Pattern.compile(REGEX);
 	
@@ -148,6 +148,24 @@ public class MainParamsParser {
 		return outFile;
 	}
 
+	/**
+	 * Creates the values used to render a {@link MainParamsTemplate} for a K, 
+	 * taken from this parser.
+	 * 
+	 * @param maxPops number of populations assumed (MAXPOPS)
+	 * @return values for the template
+	 */
+	public MainParamsValues createValues(int maxPops) {
+		return new MainParamsValues()
+			.set(MainParam.MAXPOPS, maxPops)
+			.set(MainParam.NUMLOCI, this.numLoci)
+			.set(MainParam.NUMINDS, this.numInds)
+			.set(MainParam.BURNIN, this.burnIn)
+			.set(MainParam.NUMREPS, this.numReps)
+			.set(MainParam.INFILE, this.inFile)
+			.set(MainParam.OUTFILE, this.outFile);
+	}
+
 	public String parse(String mainParams, int maxPops) throws ParserException {
 		StringBuilder sb = new StringBuilder();
 		for (String line : mainParams.split("\n")) {
@@ -177,58 +195,4 @@ public class MainParamsParser {
 		return sb.toString();
 	}
 
-	public static void main(String[] args) throws Exception {
-		String mainParams = "#define OUTFILE /home/kinow/java/biouno-workspace/biology-data/structure-bodega/sample_1/param_set_1/Results\n"
-				+ "#define INFILE /home/kinow/java/biouno-workspace/biology-data/structure-bodega/sample_1/project_data\n"
-				+ "#define NUMINDS 43\n"
-				+ "#define NUMLOCI 6\n"
-				+ "#define LABEL 1 \n"
-				+ "#define POPDATA 0 \n"
-				+ "#define POPFLAG 1 \n"
-				+ "#define LOCDATA 0 \n"
-				+ "#define PHENOTYPE 0 \n"
-				+ "#define MARKERNAMES 0 \n"
-				+ "#define MAPDISTANCES 0 \n"
-				+ "#define ONEROWPERIND 0 \n"
-				+ "#define PHASEINFO 0 \n"
-				+ "#define PHASED 0 \n"
-				+ "#define RECESSIVEALLELES 0 \n"
-				+ "#define EXTRACOLS 0\n"
-				+ "#define MISSING -9\n"
-				+ "#define PLOIDY 2\n"
-				+ "#define MAXPOPS 2\n"
-				+ "#define BURNIN 10000\n"
-				+ "#define NUMREPS 20000\n"
-				+ "\n"
-				+ "\n"
-				+ "#define NOADMIX 0\n"
-				+ "#define LINKAGE 0\n"
-				+ "#define USEPOPINFO 0\n"
-				+ "\n"
-				+ "#define LOCPRIOR 0\n"
-				+ "#define INFERALPHA 1\n"
-				+ "#define ALPHA 1.0\n"
-				+ "#define POPALPHAS 0 \n"
-				+ "#define UNIFPRIORALPHA 1 \n"
-				+ "#define ALPHAMAX 10.0\n"
-				+ "#define ALPHAPROPSD 0.025\n"
-				+ "\n"
-				+ "\n"
-				+ "#define FREQSCORR 1 \n"
-				+ "#define ONEFST 0\n"
-				+ "#define FPRIORMEAN 0.01\n"
-				+ "#define FPRIORSD 0.05\n"
-				+ "\n"
-				+ "\n"
-				+ "#define INFERLAMBDA 0 \n"
-				+ "#define LAMBDA 1.0\n"
-				+ "#define COMPUTEPROB 1 \n"
-				+ "#define PFROMPOPFLAGONLY 0 \n"
-				+ "#define ANCESTDIST 0 \n"
-				+ "#define STARTATPOPINFO 0 \n"
-				+ "#define METROFREQ 10\n"
-				+ "\n" + "\n" + "#define UPDATEFREQ 1 \n" + "";
-		System.out.println(new MainParamsParser(2000, 3000, 4000L, 5000L, "oi", "tchau").parse(mainParams, 10));
-	}
-
 }
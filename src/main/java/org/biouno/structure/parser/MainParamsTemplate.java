@@ -0,0 +1,183 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) <2012> <Bruno P. Kinoshita>
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.biouno.structure.parser;
+
+import java.io.IOException;
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * A mainparams file compiled into literal segments and substitution slots.
+ * The text is parsed only once, in {@link #compile(String)}. Rendering a K,
+ * or any other set of values, appends the segments and the slot values to the
+ * output, without parsing the text again.
+ * <p>
+ * The output is the same as {@link MainParamsParser#parse(String, int)}: only
+ * #define lines are kept, and the replaced lines are written as
+ * <code>#define NAME value</code>.
+ *
+ * @author Bruno P. Kinoshita - http://www.kinoshita.eti.br
+ * @since 0.1
+ */
+public class MainParamsTemplate implements Serializable {
+
+	private static final long serialVersionUID = 8218043624713549612L;
+
+	private static final Pattern PATTERN = Pattern.compile(MainParamsParser.REGEX);
+
+	/**
+	 * Literal text. The segment <code>i</code> comes before the slot
+	 * <code>i</code>, and the last segment comes after all slots.
+	 */
+	private final String[] segments;
+	/**
+	 * Substitution slots.
+	 */
+	private final MainParam[] slots;
+	/**
+	 * Length of all segments, used to size the output buffers.
+	 */
+	private final int literalLength;
+	/**
+	 * Value of each #define that is not replaced, in file order.
+	 */
+	private final Map<String, String> defines;
+
+	private MainParamsTemplate(String[] segments, MainParam[] slots, Map<String, String> defines) {
+		this.segments = segments;
+		this.slots = slots;
+		this.defines = Collections.unmodifiableMap(defines);
+		int length = 0;
+		for (String segment : segments) {
+			length += segment.length();
+		}
+		this.literalLength = length;
+	}
+
+	/**
+	 * Compiles the mainparams text.
+	 *
+	 * @param mainParams mainparams text
+	 * @return compiled template
+	 * @throws ParserException if the text is missing
+	 */
+	public static MainParamsTemplate compile(String mainParams) throws ParserException {
+		if (mainParams == null) {
+			throw new ParserException("Missing mainparams");
+		}
+		final List<String> segments = new ArrayList<String>();
+		final List<MainParam> slots = new ArrayList<MainParam>();
+		final Map<String, String> defines = new LinkedHashMap<String, String>();
+		final Matcher matcher = PATTERN.matcher("");
+		StringBuilder segment = new StringBuilder();
+		for (String line : mainParams.split("\r?\n")) {
+			matcher.reset(line);
+			if (matcher.matches()) {
+				String name = matcher.group(4);
+				MainParam param = MainParam.forName(name);
+				if (param != null) {
+					segment.append("#define ").append(name).append(' ');
+					segments.add(segment.toString());
+					slots.add(param);
+					segment = new StringBuilder();
+					segment.append('\n');
+				} else {
+					segment.append(line).append('\n');
+					String value = matcher.group(6);
+					final int comment = value.indexOf("//");
+					if (comment >= 0) {
+						value = value.substring(0, comment);
+					}
+					defines.put(name, value.trim());
+				}
+			}
+		}
+		segments.add(segment.toString());
+		return new MainParamsTemplate(segments.toArray(new String[segments.size()]),
+				slots.toArray(new MainParam[slots.size()]), defines);
+	}
+
+	/**
+	 * @return the parameters replaced in this template, in order
+	 */
+	public MainParam[] getSlots() {
+		return slots.clone();
+	}
+
+	/**
+	 * @return the value of each #define that is not replaced, without its
+	 * comment, in file order
+	 */
+	public Map<String, String> getDefines() {
+		return defines;
+	}
+
+	/**
+	 * Appends the rendered template to an output.
+	 *
+	 * @param out output, e.g. a Writer
+	 * @param values values for the slots
+	 * @throws IOException if the output fails
+	 */
+	public void render(Appendable out, MainParamsValues values) throws IOException {
+		for (int i = 0; i < slots.length; ++i) {
+			out.append(segments[i]);
+			out.append(values.get(slots[i]));
+		}
+		out.append(segments[slots.length]);
+	}
+
+	/**
+	 * Renders the template into a buffer, that may be reused between calls.
+	 *
+	 * @param buffer output buffer. Its content is replaced
+	 * @param values values for the slots
+	 * @return the buffer
+	 */
+	public StringBuilder render(StringBuilder buffer, MainParamsValues values) {
+		buffer.setLength(0);
+		buffer.ensureCapacity(literalLength + 16 * slots.length);
+		for (int i = 0; i < slots.length; ++i) {
+			buffer.append(segments[i]);
+			buffer.append(values.get(slots[i]));
+		}
+		buffer.append(segments[slots.length]);
+		return buffer;
+	}
+
+	/**
+	 * @param values values for the slots
+	 * @return the rendered template
+	 */
+	public String render(MainParamsValues values) {
+		return render(new StringBuilder(), values).toString();
+	}
+
+}
@@ -0,0 +1,75 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) <2012> <Bruno P. Kinoshita>
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.biouno.structure.parser;
+
+import java.io.Serializable;
+
+/**
+ * Values used to render a {@link MainParamsTemplate}. Values are kept already
+ * converted to text, so rendering the same values many times does not convert
+ * them again.
+ *
+ * @author Bruno P. Kinoshita - http://www.kinoshita.eti.br
+ * @since 0.1
+ */
+public class MainParamsValues implements Serializable {
+
+	private static final long serialVersionUID = -4420834377498932585L;
+
+	private final String[] values;
+
+	public MainParamsValues() {
+		this.values = new String[MainParam.values().length];
+	}
+
+	private MainParamsValues(String[] values) {
+		this.values = values.clone();
+	}
+
+	/**
+	 * @param param the parameter
+	 * @param value the value, written as {@link String#valueOf(Object)}
+	 * @return this object
+	 */
+	public MainParamsValues set(MainParam param, Object value) {
+		values[param.ordinal()] = String.valueOf(value);
+		return this;
+	}
+
+	/**
+	 * @param param the parameter
+	 * @return the value as text
+	 */
+	public String get(MainParam param) {
+		return values[param.ordinal()];
+	}
+
+	/**
+	 * @return a copy of these values, that can be changed independently
+	 */
+	public MainParamsValues copy() {
+		return new MainParamsValues(values);
+	}
+
+}
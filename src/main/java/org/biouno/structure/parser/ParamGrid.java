@@ -0,0 +1,260 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) <2012> <Bruno P. Kinoshita>
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.biouno.structure.parser;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * A grid of extraparams values, swept besides K. Each line of the grid gives
+ * the values of one #define, e.g. <code>ALPHA = 0.5, 1.0, 2.0</code>, and
+ * lines starting with // are comments. Every combination of the values is a
+ * configuration, and the configurations are rendered one at a time, as they
+ * are iterated, into the extraparams of the job.
+ * <p>
+ * Values are checked against the type and range of their {@link ExtraParam}.
+ * A configuration whose extraparams have the same values as the extraparams
+ * of the job, or as a configuration rendered before, is skipped, since its
+ * runs would give the same results. Configurations whose values are not
+ * valid together are skipped too.
+ *
+ * @author Bruno P. Kinoshita - http://www.kinoshita.eti.br
+ * @since 0.1
+ */
+public class ParamGrid {
+
+	private static final String COMMENT = "//";
+
+	private static final Pattern LINE = Pattern.compile("\\s*(\\w+)\\s*=\\s*(.*?)\\s*");
+
+	/**
+	 * Names of the swept #defines, in grid order.
+	 */
+	private final List<String> names;
+	/**
+	 * Values of each swept #define.
+	 */
+	private final List<List<String>> values;
+
+	private ParamGrid(List<String> names, List<List<String>> values) {
+		this.names = names;
+		this.values = values;
+	}
+
+	/**
+	 * @param text grid text, may be null
+	 * @return the grid
+	 * @throws ParserException if a line does not give a #define and its
+	 * values, or gives a #define of mainparams
+	 */
+	public static ParamGrid parse(String text) throws ParserException {
+		final List<String> names = new ArrayList<String>();
+		final List<List<String>> values = new ArrayList<List<String>>();
+		if (text == null) {
+			return new ParamGrid(names, values);
+		}
+		final Matcher matcher = LINE.matcher("");
+		for (String line : text.split("\r?\n")) {
+			if (line.trim().length() == 0 || line.trim().startsWith(COMMENT)) {
+				continue;
+			}
+			matcher.reset(line);
+			if (!matcher.matches()) {
+				throw new ParserException("Expected NAME = value, value... in: " + line.trim());
+			}
+			final String name = matcher.group(1).toUpperCase();
+			if (MainParam.forName(name) != null) {
+				throw new ParserException(name + " is set for each run, and cannot be swept");
+			}
+			final ExtraParam param = ExtraParam.forName(name);
+			if (param == null) {
+				throw new ParserException("Unknown extraparam " + name);
+			}
+			if (names.contains(name)) {
+				throw new ParserException(name + " is given more than once");
+			}
+			// Repeated values would give the same configuration twice
+			final Set<String> lineValues = new LinkedHashSet<String>();
+			for (String value : matcher.group(2).split(",")) {
+				if (value.trim().length() == 0) {
+					throw new ParserException("Empty value of " + name);
+				}
+				param.parse(value);
+				lineValues.add(value.trim());
+			}
+			names.add(name);
+			values.add(Collections.unmodifiableList(new ArrayList<String>(lineValues)));
+		}
+		return new ParamGrid(Collections.unmodifiableList(names), Collections.unmodifiableList(values));
+	}
+
+	/**
+	 * @return the names of the swept #defines
+	 */
+	public List<String> getNames() {
+		return names;
+	}
+
+	/**
+	 * @return whether the grid sweeps no #define
+	 */
+	public boolean isEmpty() {
+		return names.isEmpty();
+	}
+
+	/**
+	 * @return the number of combinations of the values, before identical
+	 * configurations are skipped, or {@link Long#MAX_VALUE} if larger
+	 */
+	public long size() {
+		if (names.isEmpty()) {
+			return 0L;
+		}
+		long size = 1L;
+		for (List<String> options : values) {
+			if (size > Long.MAX_VALUE / options.size()) {
+				return Long.MAX_VALUE;
+			}
+			size *= options.size();
+		}
+		return size;
+	}
+
+	/**
+	 * @param extraParams extraparams of the job
+	 * @return the configurations of the grid, rendered as they are iterated
+	 */
+	public Configurations configurations(ExtraParams extraParams) {
+		return new Configurations(extraParams);
+	}
+
+	/**
+	 * Iterates over the combinations of the values, the last #define of the
+	 * grid changing fastest, rendering each one and skipping those already
+	 * rendered. Only the digests of the rendered extraparams are kept.
+	 */
+	public final class Configurations implements Iterator<GridConfiguration> {
+
+		private final ExtraParams extraParams;
+		private final Set<String> seen = new HashSet<String>();
+		/**
+		 * Index of the value of each #define in the next combination,
+		 * <code>null</code> once every combination was iterated.
+		 */
+		private int[] indexes;
+		private GridConfiguration next;
+		private int id = 0;
+		private long skipped = 0L;
+		private long invalid = 0L;
+
+		private Configurations(ExtraParams extraParams) {
+			this.extraParams = extraParams;
+			this.seen.add(extraParams.digest());
+			this.indexes = names.isEmpty() ? null : new int[names.size()];
+		}
+
+		/**
+		 * @return the number of combinations skipped so far, because they
+		 * render to extraparams already run
+		 */
+		public long getSkipped() {
+			return skipped;
+		}
+
+		/**
+		 * @return the number of combinations skipped so far, because their
+		 * values are not valid together
+		 */
+		public long getInvalid() {
+			return invalid;
+		}
+
+		/* (non-Javadoc)
+		 * @see java.util.Iterator#hasNext()
+		 */
+		public boolean hasNext() {
+			while (next == null && indexes != null) {
+				final Map<String, String> settings = new LinkedHashMap<String, String>();
+				for (int i = 0; i < names.size(); ++i) {
+					settings.put(names.get(i), values.get(i).get(indexes[i]));
+				}
+				advance();
+				final ExtraParams rendered;
+				try {
+					rendered = extraParams.with(settings);
+				} catch (ParserException pe) {
+					++invalid;
+					continue;
+				}
+				if (seen.add(rendered.digest())) {
+					next = new GridConfiguration(++id, settings, rendered.getText());
+				} else {
+					++skipped;
+				}
+			}
+			return next != null;
+		}
+
+		/* (non-Javadoc)
+		 * @see java.util.Iterator#next()
+		 */
+		public GridConfiguration next() {
+			if (!hasNext()) {
+				throw new NoSuchElementException();
+			}
+			final GridConfiguration configuration = next;
+			next = null;
+			return configuration;
+		}
+
+		/* (non-Javadoc)
+		 * @see java.util.Iterator#remove()
+		 */
+		public void remove() {
+			throw new UnsupportedOperationException();
+		}
+
+		private void advance() {
+			for (int i = indexes.length - 1; i >= 0; --i) {
+				if (++indexes[i] < values.get(i).size()) {
+					return;
+				}
+				indexes[i] = 0;
+			}
+			indexes = null;
+		}
+
+	}
+
+}
@@ -0,0 +1,145 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) <2012> <Bruno P. Kinoshita>
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.biouno.structure.results;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Aggregates the estimates of the runs of a sweep as they finish. The mean 
+ * and variance of each K are updated in constant time for each run, with 
+ * Welford's method, and the Evanno Delta K is derived from them.
+ * 
+ * @author Bruno P. Kinoshita - http://www.kinoshita.eti.br
+ * @since 0.1
+ */
+public class EvannoAggregator {
+
+	/**
+	 * Running statistics of a K.
+	 */
+	private static final class Accumulator {
+		private int count = 0;
+		private double mean = 0.0d;
+		private double squares = 0.0d;
+		private final Mean lnLikelihood = new Mean();
+		private final Mean varLnLikelihood = new Mean();
+		private final Mean alpha = new Mean();
+
+		private void add(double value) {
+			++count;
+			final double delta = value - mean;
+			mean += delta / count;
+			squares += delta * (value - mean);
+		}
+
+		private double getSd() {
+			return count < 2 ? 0.0d : Math.sqrt(squares / (count - 1));
+		}
+	}
+
+	/**
+	 * Mean of an estimate that may be missing from some runs.
+	 */
+	private static final class Mean {
+		private int count = 0;
+		private double sum = 0.0d;
+
+		private void add(Double value) {
+			if (value != null && !value.isNaN()) {
+				++count;
+				sum += value;
+			}
+		}
+
+		private Double get() {
+			return count == 0 ? null : sum / count;
+		}
+	}
+
+	private final Map<Integer, Accumulator> accumulators = new TreeMap<Integer, Accumulator>();
+
+	/**
+	 * @param k K of the run
+	 * @param summary estimates of the run
+	 * @return <code>true</code> if the run had an estimated Ln Prob of Data
+	 */
+	public synchronized boolean add(int k, RunSummary summary) {
+		final Double lnProbData = summary.getLnProbData();
+		if (lnProbData == null || lnProbData.isNaN()) {
+			return false;
+		}
+		Accumulator accumulator = accumulators.get(k);
+		if (accumulator == null) {
+			accumulator = new Accumulator();
+			accumulators.put(k, accumulator);
+		}
+		accumulator.add(lnProbData);
+		accumulator.lnLikelihood.add(summary.getMeanLnLikelihood());
+		accumulator.varLnLikelihood.add(summary.getVarLnLikelihood());
+		accumulator.alpha.add(summary.getMeanAlpha());
+		return true;
+	}
+
+	/**
+	 * @return the statistics of each K with runs, ordered by K
+	 */
+	public synchronized List<KStatistics> getStatistics() {
+		final List<KStatistics> statistics = new ArrayList<KStatistics>(accumulators.size());
+		for (Map.Entry<Integer, Accumulator> entry : accumulators.entrySet()) {
+			final int k = entry.getKey();
+			final Accumulator current = entry.getValue();
+			final Double lnPrime = getLnPrime(k);
+			final Double nextLnPrime = getLnPrime(k + 1);
+			Double lnDoublePrime = null;
+			Double deltaK = null;
+			if (lnPrime != null && nextLnPrime != null) {
+				lnDoublePrime = Math.abs(nextLnPrime - lnPrime);
+				final double sd = current.getSd();
+				if (sd > 0.0d) {
+					deltaK = lnDoublePrime / sd;
+				}
+			}
+			statistics.add(new KStatistics(k, current.count, current.mean, current.getSd(), 
+					current.lnLikelihood.get(), current.varLnLikelihood.get(), current.alpha.get(), 
+					lnPrime, lnDoublePrime, deltaK));
+		}
+		return statistics;
+	}
+
+	/**
+	 * @return L'(K) = L(K) - L(K-1), or <code>null</code>
+	 */
+	private Double getLnPrime(int k) {
+		final Accumulator current = accumulators.get(k);
+		final Accumulator previous = accumulators.get(k - 1);
+		if (current == null || previous == null) {
+			return null;
+		}
+		return current.mean - previous.mean;
+	}
+
+}
@@ -0,0 +1,157 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) <2012> <Bruno P. Kinoshita>
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.biouno.structure.results;
+
+import java.io.Serializable;
+
+import org.kohsuke.stapler.export.Exported;
+import org.kohsuke.stapler.export.ExportedBean;
+
+/**
+ * Statistics of the replicates of a K, and the Evanno et al. (2005) values 
+ * computed from them and the neighbour K values.
+ * 
+ * @author Bruno P. Kinoshita - http://www.kinoshita.eti.br
+ * @since 0.1
+ */
+@ExportedBean(defaultVisibility = 2)
+public class KStatistics implements Serializable {
+
+	private static final long serialVersionUID = 7215893314006512390L;
+
+	private final int k;
+	private final int runs;
+	private final double meanLnProbData;
+	private final double sdLnProbData;
+	private final Double meanLnLikelihood;
+	private final Double meanVarLnLikelihood;
+	private final Double meanAlpha;
+	/**
+	 * L'(K) = L(K) - L(K-1), or <code>null</code>.
+	 */
+	private final Double lnPrime;
+	/**
+	 * |L''(K)| = |L'(K+1) - L'(K)|, or <code>null</code>.
+	 */
+	private final Double lnDoublePrime;
+	/**
+	 * Delta K = |L''(K)| / sd(L(K)), or <code>null</code>.
+	 */
+	private final Double deltaK;
+
+	public KStatistics(int k, int runs, double meanLnProbData, double sdLnProbData, Double meanLnLikelihood, 
+			Double meanVarLnLikelihood, Double meanAlpha, Double lnPrime, Double lnDoublePrime, Double deltaK) {
+		this.k = k;
+		this.runs = runs;
+		this.meanLnProbData = meanLnProbData;
+		this.sdLnProbData = sdLnProbData;
+		this.meanLnLikelihood = meanLnLikelihood;
+		this.meanVarLnLikelihood = meanVarLnLikelihood;
+		this.meanAlpha = meanAlpha;
+		this.lnPrime = lnPrime;
+		this.lnDoublePrime = lnDoublePrime;
+		this.deltaK = deltaK;
+	}
+
+	/**
+	 * @return the k
+	 */
+	@Exported
+	public int getK() {
+		return k;
+	}
+
+	/**
+	 * @return the number of runs with an estimated Ln Prob of Data
+	 */
+	@Exported
+	public int getRuns() {
+		return runs;
+	}
+
+	/**
+	 * @return the mean estimated Ln Prob of Data, L(K)
+	 */
+	@Exported
+	public double getMeanLnProbData() {
+		return meanLnProbData;
+	}
+
+	/**
+	 * @return the standard deviation of the estimated Ln Prob of Data
+	 */
+	@Exported
+	public double getSdLnProbData() {
+		return sdLnProbData;
+	}
+
+	/**
+	 * @return the mean value of ln likelihood, or <code>null</code>
+	 */
+	@Exported
+	public Double getMeanLnLikelihood() {
+		return meanLnLikelihood;
+	}
+
+	/**
+	 * @return the mean variance of ln likelihood, or <code>null</code>
+	 */
+	@Exported
+	public Double getMeanVarLnLikelihood() {
+		return meanVarLnLikelihood;
+	}
+
+	/**
+	 * @return the mean value of alpha, or <code>null</code>
+	 */
+	@Exported
+	public Double getMeanAlpha() {
+		return meanAlpha;
+	}
+
+	/**
+	 * @return L'(K), or <code>null</code> if K-1 has no runs
+	 */
+	@Exported
+	public Double getLnPrime() {
+		return lnPrime;
+	}
+
+	/**
+	 * @return |L''(K)|, or <code>null</code> if K-1 or K+1 has no runs
+	 */
+	@Exported
+	public Double getLnDoublePrime() {
+		return lnDoublePrime;
+	}
+
+	/**
+	 * @return Delta K, or <code>null</code> if it cannot be computed
+	 */
+	@Exported
+	public Double getDeltaK() {
+		return deltaK;
+	}
+
+}
@@ -0,0 +1,173 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) <2012> <Bruno P. Kinoshita>
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.biouno.structure.results;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Pattern;
+
+/**
+ * Streaming parser of the output file of a Structure run (the file ending 
+ * in <code>_f</code>). The file is read one line at a time, and only the 
+ * estimates and the Q-matrix are kept, so the allele frequencies that make 
+ * most of a large output are never held in memory.
+ * 
+ * @author Bruno P. Kinoshita - http://www.kinoshita.eti.br
+ * @since 0.1
+ */
+public class OutputFileParser {
+
+	private static final String LN_PROB_DATA = "Estimated Ln Prob of Data";
+	private static final String MEAN_LN_LIKELIHOOD = "Mean value of ln likelihood";
+	private static final String VAR_LN_LIKELIHOOD = "Variance of ln likelihood";
+	private static final String MEAN_ALPHA = "Mean value of alpha";
+	private static final String MEAN_FST = "Mean value of Fst_";
+	private static final String ANCESTRY = "Inferred ancestry of individuals";
+	private static final String ENCODING = "UTF-8";
+	private static final Pattern WHITESPACE = Pattern.compile("\\s+");
+
+	/**
+	 * @param in output file contents. Not closed
+	 * @return the estimates of the run
+	 * @throws IOException if the stream cannot be read
+	 */
+	public RunSummary parse(InputStream in) throws IOException {
+		return parse(new InputStreamReader(in, ENCODING));
+	}
+
+	/**
+	 * @param reader output file contents. Not closed
+	 * @return the estimates of the run
+	 * @throws IOException if the stream cannot be read
+	 */
+	public RunSummary parse(Reader reader) throws IOException {
+		final BufferedReader lines = new BufferedReader(reader);
+		final RunSummary summary = new RunSummary();
+		final List<Double> fst = new ArrayList<Double>();
+		final List<double[]> qMatrix = new ArrayList<double[]>();
+		final List<String> labels = new ArrayList<String>();
+		boolean inAncestry = false;
+		boolean headerSeen = false;
+		String line;
+		while ((line = lines.readLine()) != null) {
+			if (inAncestry) {
+				if (line.trim().length() == 0) {
+					// The rows end with a blank line
+					inAncestry = !headerSeen;
+					continue;
+				}
+				if (!headerSeen) {
+					headerSeen = true;
+					continue;
+				}
+				parseAncestry(line, qMatrix, labels);
+				continue;
+			}
+			final String trimmed = line.trim();
+			if (trimmed.startsWith(LN_PROB_DATA)) {
+				summary.setLnProbData(parseValue(trimmed));
+			} else if (trimmed.startsWith(MEAN_LN_LIKELIHOOD)) {
+				summary.setMeanLnLikelihood(parseValue(trimmed));
+			} else if (trimmed.startsWith(VAR_LN_LIKELIHOOD)) {
+				summary.setVarLnLikelihood(parseValue(trimmed));
+			} else if (trimmed.startsWith(MEAN_ALPHA)) {
+				// With POPALPHAS there is one alpha per cluster, keep the first
+				if (summary.getMeanAlpha() == null) {
+					summary.setMeanAlpha(parseValue(trimmed));
+				}
+			} else if (trimmed.startsWith(MEAN_FST)) {
+				final Double value = parseValue(trimmed);
+				if (value != null) {
+					fst.add(value);
+				}
+			} else if (trimmed.startsWith(ANCESTRY)) {
+				inAncestry = true;
+				headerSeen = false;
+			}
+		}
+		final double[] fstValues = new double[fst.size()];
+		for (int i = 0; i < fstValues.length; ++i) {
+			fstValues[i] = fst.get(i);
+		}
+		summary.setFst(fstValues);
+		summary.setQMatrix(qMatrix.toArray(new double[qMatrix.size()][]));
+		summary.setLabels(labels.toArray(new String[labels.size()]));
+		return summary;
+	}
+
+	/**
+	 * @return the number after the <code>=</code> of a line, or 
+	 * <code>null</code>
+	 */
+	static Double parseValue(String line) {
+		final int equals = line.indexOf('=');
+		if (equals < 0) {
+			return null;
+		}
+		try {
+			return Double.valueOf(line.substring(equals + 1).trim());
+		} catch (NumberFormatException nfe) {
+			return null;
+		}
+	}
+
+	/**
+	 * Parses a row of the inferred ancestry, e.g. 
+	 * <code>  1   ind1    (0)    1 :  0.012 0.988</code>. The row number 
+	 * and the label come before the colon, and the membership of each 
+	 * cluster after it.
+	 */
+	private static void parseAncestry(String line, List<double[]> qMatrix, List<String> labels) {
+		final int colon = line.indexOf(':');
+		if (colon < 0) {
+			return;
+		}
+		final String[] head = WHITESPACE.split(line.substring(0, colon).trim());
+		final String[] values = WHITESPACE.split(line.substring(colon + 1).trim());
+		final double[] row = new double[values.length];
+		int count = 0;
+		for (String value : values) {
+			try {
+				row[count] = Double.parseDouble(value);
+				++count;
+			} catch (NumberFormatException nfe) {
+				// Population information, e.g. with USEPOPINFO, ends the row
+				break;
+			}
+		}
+		if (count == 0) {
+			return;
+		}
+		final double[] q = new double[count];
+		System.arraycopy(row, 0, q, 0, count);
+		qMatrix.add(q);
+		labels.add(head.length > 1 ? head[1] : head[0]);
+	}
+
+}
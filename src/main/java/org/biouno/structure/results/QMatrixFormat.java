@@ -0,0 +1,60 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) <2012> <Bruno P. Kinoshita>
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.biouno.structure.results;
+
+import java.util.Locale;
+
+/**
+ * Writes a Q-matrix as in the Structure output: one individual per line, with 
+ * its index, its label, a colon, and its membership of each cluster.
+ * 
+ * @author Bruno P. Kinoshita - http://www.kinoshita.eti.br
+ * @since 0.1
+ */
+public final class QMatrixFormat {
+
+	private QMatrixFormat() {
+	}
+
+	/**
+	 * @param out output
+	 * @param qMatrix Q-matrix, one row per individual
+	 * @param labels label of each individual, or <code>null</code> to use the 
+	 * index
+	 * @return the output
+	 */
+	public static StringBuilder format(StringBuilder out, double[][] qMatrix, String[] labels) {
+		for (int i = 0; i < qMatrix.length; ++i) {
+			out.append(i + 1).append(' ');
+			out.append(labels != null && i < labels.length ? labels[i] : String.valueOf(i + 1));
+			out.append(" :");
+			for (double membership : qMatrix[i]) {
+				out.append(' ').append(String.format(Locale.ENGLISH, "%.3f", membership));
+			}
+			out.append('\n');
+		}
+		return out;
+	}
+
+}
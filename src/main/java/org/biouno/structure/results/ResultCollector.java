@@ -0,0 +1,144 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) <2012> <Bruno P. Kinoshita>
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.biouno.structure.results;
+
+import hudson.FilePath;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.biouno.structure.execution.RunResult;
+import org.biouno.structure.execution.StructureRun;
+import org.biouno.structure.execution.SweepListener;
+import org.biouno.structure.util.Messages;
+
+/**
+ * Parses the output file of each run of a stage as soon as the run succeeds, 
+ * and adds its estimates to the statistics of the stage. The runs of the 
+ * other stages are ignored, so that the collectors of every stage of a 
+ * sweep may listen to the same executor.
+ * 
+ * @author Bruno P. Kinoshita - http://www.kinoshita.eti.br
+ * @since 0.1
+ */
+public class ResultCollector implements SweepListener {
+
+	/**
+	 * Suffix Structure appends to the name of the final output file.
+	 */
+	public static final String OUTPUT_SUFFIX = "_f";
+
+	private final FilePath workspace;
+	private final String outFile;
+	/**
+	 * Stage of the runs collected, <code>null</code> for the main sweep.
+	 */
+	private final String stage;
+	private final EvannoAggregator aggregator;
+	private final PrintStream logger;
+	/**
+	 * Estimates of every run parsed.
+	 */
+	private final Map<StructureRun, RunSummary> summaries = 
+		Collections.synchronizedMap(new LinkedHashMap<StructureRun, RunSummary>());
+	/**
+	 * Notified after the estimates of a run were added, may be null.
+	 */
+	private Runnable onUpdate;
+
+	/**
+	 * Collects the runs of the main sweep.
+	 * 
+	 * @param workspace build workspace, where the outputs are
+	 * @param outFile name of output data file
+	 * @param aggregator statistics of the sweep
+	 * @param logger build logger
+	 */
+	public ResultCollector(FilePath workspace, String outFile, EvannoAggregator aggregator, PrintStream logger) {
+		this(workspace, outFile, null, aggregator, logger);
+	}
+
+	/**
+	 * @param workspace build workspace, where the outputs are
+	 * @param outFile name of output data file
+	 * @param stage stage of the runs collected, <code>null</code> for the 
+	 * main sweep
+	 * @param aggregator statistics of the stage
+	 * @param logger build logger
+	 */
+	public ResultCollector(FilePath workspace, String outFile, String stage, EvannoAggregator aggregator, 
+			PrintStream logger) {
+		this.workspace = workspace;
+		this.outFile = outFile;
+		this.stage = stage;
+		this.aggregator = aggregator;
+		this.logger = logger;
+	}
+
+	/**
+	 * @param onUpdate notified after the estimates of a run were added
+	 */
+	public void setOnUpdate(Runnable onUpdate) {
+		this.onUpdate = onUpdate;
+	}
+
+	/**
+	 * @return the estimates of every run parsed, in the order they finished
+	 */
+	public Map<StructureRun, RunSummary> getSummaries() {
+		synchronized (summaries) {
+			return new LinkedHashMap<StructureRun, RunSummary>(summaries);
+		}
+	}
+
+	/* (non-Javadoc)
+	 * @see org.biouno.structure.execution.SweepListener#runFinished(org.biouno.structure.execution.RunResult)
+	 */
+	public void runFinished(RunResult result) throws IOException {
+		final StructureRun run = result.getRun();
+		if (!result.isSuccess() || !(stage == null ? run.getStage() == null : stage.equals(run.getStage()))) {
+			return;
+		}
+		final FilePath output = workspace.child(run.getOutputFileName(outFile) + OUTPUT_SUFFIX);
+		final RunSummary summary;
+		try {
+			summary = output.act(new OutputFileReader());
+		} catch (InterruptedException ie) {
+			Thread.currentThread().interrupt();
+			throw new IOException(Messages.StructureBuilder_OutputNotParsed(run, ie.getMessage()));
+		}
+		summaries.put(run, summary);
+		if (!aggregator.add(run.getK(), summary)) {
+			logger.println(Messages.StructureBuilder_OutputNotParsed(run, output.getName()));
+			return;
+		}
+		if (onUpdate != null) {
+			onUpdate.run();
+		}
+	}
+
+}
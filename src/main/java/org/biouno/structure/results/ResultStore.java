@@ -0,0 +1,314 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) <2012> <Bruno P. Kinoshita>
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.biouno.structure.results;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.biouno.structure.util.Messages;
+
+/**
+ * Results of the runs of a build, read from the binary store written by 
+ * {@link ResultStoreWriter} in the build directory. The file is memory-mapped, 
+ * and a column is only read when requested, so a report that needs the 
+ * estimates or a single Q-matrix does not parse the Structure text outputs.
+ * <p>
+ * The store holds, in this order: a header with the labels of the 
+ * individuals; one block per run, with each cluster of the Q-matrix as a 
+ * column of floats indexed by individual, followed by the iterations and 
+ * log-likelihoods of the trace; a directory with one fixed-size entry per 
+ * run; and the offset of the directory, in the last 8 bytes.
+ * <p>
+ * Reads use absolute positions, so a store can be shared between threads.
+ * 
+ * @author Bruno P. Kinoshita - http://www.kinoshita.eti.br
+ * @since 0.1
+ */
+public class ResultStore {
+
+	/**
+	 * Name of the store in the build directory.
+	 */
+	public static final String FILE_NAME = "structure-results.bin";
+
+	static final int MAGIC = 0x53545251; // STRQ
+	static final int VERSION = 1;
+	/**
+	 * k, replicate, clusters, Q offset, trace length, trace offset, Ln Prob of 
+	 * Data and mean alpha.
+	 */
+	static final int ENTRY_SIZE = 4 + 4 + 4 + 8 + 4 + 8 + 8 + 8;
+
+	private final ByteBuffer buffer;
+	private final String[] labels;
+	private final List<Entry> entries;
+
+	private ResultStore(ByteBuffer buffer, String[] labels, List<Entry> entries) {
+		this.buffer = buffer;
+		this.labels = labels;
+		this.entries = Collections.unmodifiableList(entries);
+	}
+
+	/**
+	 * Maps a store.
+	 * 
+	 * @param file store file
+	 * @return the store, or <code>null</code> if the file does not exist
+	 * @throws IOException if the file cannot be read, or is not a store
+	 */
+	public static ResultStore open(File file) throws IOException {
+		if (!file.isFile()) {
+			return null;
+		}
+		final MappedByteBuffer buffer;
+		final RandomAccessFile raf = new RandomAccessFile(file, "r");
+		try {
+			final FileChannel channel = raf.getChannel();
+			// The mapping stays valid after the channel is closed
+			buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+		} finally {
+			raf.close();
+		}
+		try {
+			final long capacity = buffer.capacity();
+			check(capacity >= 24 && buffer.getInt(0) == MAGIC && buffer.getInt(4) == VERSION, file);
+			// Every count and offset is checked against the size of the file, so that a damaged store 
+			// cannot allocate a huge array or point outside the file
+			final int individuals = buffer.getInt(8);
+			check(individuals >= 0 && 4L * individuals <= capacity - 12, file);
+			final String[] labels = new String[individuals];
+			int position = 12;
+			for (int i = 0; i < labels.length; ++i) {
+				final int length = buffer.getInt(position);
+				check(length >= 0 && position + 4L + length <= capacity, file);
+				final byte[] bytes = new byte[length];
+				final ByteBuffer view = buffer.duplicate();
+				view.position(position + 4);
+				view.get(bytes);
+				labels[i] = new String(bytes, ResultStoreWriter.ENCODING);
+				position += 4 + bytes.length;
+			}
+			final long directory = buffer.getLong((int) capacity - 8);
+			check(directory >= position && directory <= capacity - 12, file);
+			final int count = buffer.getInt((int) directory);
+			check(count >= 0 && directory + 4L + (long) count * ENTRY_SIZE == capacity - 8, file);
+			final List<Entry> entries = new ArrayList<Entry>(count);
+			for (int i = 0; i < count; ++i) {
+				final int offset = (int) directory + 4 + i * ENTRY_SIZE;
+				final Entry entry = new Entry(buffer.getInt(offset), buffer.getInt(offset + 4), 
+						buffer.getInt(offset + 8), buffer.getLong(offset + 12), buffer.getInt(offset + 20), 
+						buffer.getLong(offset + 24), buffer.getDouble(offset + 32), buffer.getDouble(offset + 40));
+				check(entry.clusters >= 0 && entry.qOffset >= position 
+						&& entry.qOffset + 4L * individuals * entry.clusters <= directory, file);
+				check(entry.traceLength >= 0 && entry.traceOffset >= position 
+						&& entry.traceOffset + 16L * entry.traceLength <= directory, file);
+				entries.add(entry);
+			}
+			return new ResultStore(buffer, labels, entries);
+		} catch (IndexOutOfBoundsException ioobe) {
+			// A truncated file
+			throw new IOException(Messages.StructureBuilder_ResultStoreInvalid(file));
+		}
+	}
+
+	private static void check(boolean valid, File file) throws IOException {
+		if (!valid) {
+			throw new IOException(Messages.StructureBuilder_ResultStoreInvalid(file));
+		}
+	}
+
+	/**
+	 * @return the number of individuals, i.e. of rows of each Q-matrix
+	 */
+	public int getIndividuals() {
+		return labels.length;
+	}
+
+	/**
+	 * @return the label of each individual
+	 */
+	public String[] getLabels() {
+		return labels.clone();
+	}
+
+	/**
+	 * @return the runs in the store, in the order they were written
+	 */
+	public List<Entry> getEntries() {
+		return entries;
+	}
+
+	/**
+	 * @param k a K
+	 * @param replicate a replicate
+	 * @return the run, or <code>null</code> if not in the store
+	 */
+	public Entry getEntry(int k, int replicate) {
+		for (Entry entry : entries) {
+			if (entry.getK() == k && entry.getReplicate() == replicate) {
+				return entry;
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * @param entry a run of this store
+	 * @param cluster a cluster, from 0
+	 * @return the membership of each individual in the cluster
+	 */
+	public float[] getMembership(Entry entry, int cluster) {
+		final float[] column = new float[labels.length];
+		final ByteBuffer view = buffer.duplicate();
+		view.position((int) (entry.qOffset + 4L * labels.length * cluster));
+		view.asFloatBuffer().get(column);
+		return column;
+	}
+
+	/**
+	 * @param entry a run of this store
+	 * @return the Q-matrix of the run, one row per individual
+	 */
+	public double[][] getQMatrix(Entry entry) {
+		final double[][] qMatrix = new double[labels.length][entry.getClusters()];
+		for (int cluster = 0; cluster < entry.getClusters(); ++cluster) {
+			final float[] column = getMembership(entry, cluster);
+			for (int i = 0; i < column.length; ++i) {
+				qMatrix[i][cluster] = column[i];
+			}
+		}
+		return qMatrix;
+	}
+
+	/**
+	 * @param entry a run of this store
+	 * @return the iteration of each value of the trace
+	 */
+	public long[] getTraceSteps(Entry entry) {
+		final long[] steps = new long[entry.getTraceLength()];
+		final ByteBuffer view = buffer.duplicate();
+		view.position((int) entry.traceOffset);
+		view.asLongBuffer().get(steps);
+		return steps;
+	}
+
+	/**
+	 * @param entry a run of this store
+	 * @return the log-likelihoods of the trace
+	 */
+	public double[] getTraceValues(Entry entry) {
+		final double[] values = new double[entry.getTraceLength()];
+		final ByteBuffer view = buffer.duplicate();
+		view.position((int) (entry.traceOffset + 8L * entry.getTraceLength()));
+		view.asDoubleBuffer().get(values);
+		return values;
+	}
+
+	/**
+	 * A run in the store.
+	 */
+	public static class Entry {
+
+		private final int k;
+		private final int replicate;
+		private final int clusters;
+		private final long qOffset;
+		private final int traceLength;
+		private final long traceOffset;
+		private final double lnProbData;
+		private final double meanAlpha;
+
+		Entry(int k, int replicate, int clusters, long qOffset, int traceLength, long traceOffset, 
+				double lnProbData, double meanAlpha) {
+			this.k = k;
+			this.replicate = replicate;
+			this.clusters = clusters;
+			this.qOffset = qOffset;
+			this.traceLength = traceLength;
+			this.traceOffset = traceOffset;
+			this.lnProbData = lnProbData;
+			this.meanAlpha = meanAlpha;
+		}
+
+		/**
+		 * @return the k
+		 */
+		public int getK() {
+			return k;
+		}
+
+		/**
+		 * @return the replicate
+		 */
+		public int getReplicate() {
+			return replicate;
+		}
+
+		/**
+		 * @return the number of columns of the Q-matrix, zero if it was not 
+		 * stored
+		 */
+		public int getClusters() {
+			return clusters;
+		}
+
+		long qOffset() {
+			return qOffset;
+		}
+
+		long traceOffset() {
+			return traceOffset;
+		}
+
+		/**
+		 * @return the number of values of the log-likelihood trace
+		 */
+		public int getTraceLength() {
+			return traceLength;
+		}
+
+		/**
+		 * @return the estimated Ln Prob of Data, or <code>null</code>
+		 */
+		public Double getLnProbData() {
+			return Double.isNaN(lnProbData) ? null : lnProbData;
+		}
+
+		/**
+		 * @return the mean value of alpha, or <code>null</code>
+		 */
+		public Double getMeanAlpha() {
+			return Double.isNaN(meanAlpha) ? null : meanAlpha;
+		}
+
+	}
+
+}
@@ -0,0 +1,171 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) <2012> <Bruno P. Kinoshita>
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.biouno.structure.results;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.commons.io.IOUtils;
+import org.biouno.structure.convergence.LikelihoodTrace;
+import org.biouno.structure.util.Messages;
+
+/**
+ * Writes the {@link ResultStore} of a build. The store is written to a 
+ * temporary file, and renamed when closed, so a reader never maps an 
+ * incomplete store.
+ * 
+ * @author Bruno P. Kinoshita - http://www.kinoshita.eti.br
+ * @since 0.1
+ */
+public class ResultStoreWriter {
+
+	static final String ENCODING = "UTF-8";
+
+	private static final int BUFFER_SIZE = 64 * 1024;
+
+	private final File file;
+	private final File temporary;
+	private final FileOutputStream fos;
+	private final DataOutputStream out;
+	private final int individuals;
+	private final List<ResultStore.Entry> entries = new ArrayList<ResultStore.Entry>();
+	/**
+	 * Bytes written so far.
+	 */
+	private long position = 0L;
+
+	/**
+	 * @param file store file
+	 * @param labels label of each individual
+	 * @throws IOException if the file cannot be written
+	 */
+	public ResultStoreWriter(File file, String[] labels) throws IOException {
+		this.file = file;
+		this.temporary = new File(file.getPath() + ".tmp");
+		this.individuals = labels.length;
+		this.fos = new FileOutputStream(temporary);
+		this.out = new DataOutputStream(new BufferedOutputStream(fos, BUFFER_SIZE));
+		boolean written = false;
+		try {
+			writeInt(ResultStore.MAGIC);
+			writeInt(ResultStore.VERSION);
+			writeInt(individuals);
+			for (String label : labels) {
+				final byte[] bytes = (label == null ? "" : label).getBytes(ENCODING);
+				writeInt(bytes.length);
+				out.write(bytes);
+				position += bytes.length;
+			}
+			written = true;
+		} finally {
+			if (!written) {
+				IOUtils.closeQuietly(out);
+			}
+		}
+	}
+
+	/**
+	 * Adds a run. The Q-matrix is stored only if it has one row per individual.
+	 * 
+	 * @param k the K
+	 * @param replicate the replicate
+	 * @param summary estimates read from the output of the run
+	 * @param trace log-likelihood trace of the run, or <code>null</code>
+	 * @throws IOException if the file cannot be written
+	 */
+	public void add(int k, int replicate, RunSummary summary, LikelihoodTrace trace) throws IOException {
+		final double[][] qMatrix = summary.getQMatrix();
+		int clusters = qMatrix.length == individuals && individuals > 0 ? qMatrix[0].length : 0;
+		for (double[] row : qMatrix) {
+			if (row.length != clusters) {
+				clusters = 0;
+			}
+		}
+		final long qOffset = position;
+		for (int cluster = 0; cluster < clusters; ++cluster) {
+			for (int i = 0; i < individuals; ++i) {
+				out.writeFloat((float) qMatrix[i][cluster]);
+			}
+		}
+		position += 4L * individuals * clusters;
+		final int traceLength = trace == null ? 0 : trace.size();
+		final long traceOffset = position;
+		for (int i = 0; i < traceLength; ++i) {
+			out.writeLong(trace.getStep(i));
+		}
+		if (traceLength > 0) {
+			for (double value : trace.getValues(0, traceLength)) {
+				out.writeDouble(value);
+			}
+		}
+		position += 16L * traceLength;
+		entries.add(new ResultStore.Entry(k, replicate, clusters, qOffset, traceLength, traceOffset, 
+				valueOf(summary.getLnProbData()), valueOf(summary.getMeanAlpha())));
+	}
+
+	/**
+	 * Writes the directory, and moves the store to its final name.
+	 * 
+	 * @throws IOException if the file cannot be written
+	 */
+	public void close() throws IOException {
+		try {
+			final long directory = position;
+			writeInt(entries.size());
+			for (ResultStore.Entry entry : entries) {
+				out.writeInt(entry.getK());
+				out.writeInt(entry.getReplicate());
+				out.writeInt(entry.getClusters());
+				out.writeLong(entry.qOffset());
+				out.writeInt(entry.getTraceLength());
+				out.writeLong(entry.traceOffset());
+				out.writeDouble(valueOf(entry.getLnProbData()));
+				out.writeDouble(valueOf(entry.getMeanAlpha()));
+			}
+			out.writeLong(directory);
+			out.flush();
+			fos.getFD().sync();
+		} finally {
+			IOUtils.closeQuietly(out);
+		}
+		if (file.exists() && !file.delete() || !temporary.renameTo(file)) {
+			throw new IOException(Messages.StructureBuilder_ResultStoreNotWritten(file));
+		}
+	}
+
+	private void writeInt(int value) throws IOException {
+		out.writeInt(value);
+		position += 4;
+	}
+
+	private static double valueOf(Double value) {
+		return value == null ? Double.NaN : value;
+	}
+
+}
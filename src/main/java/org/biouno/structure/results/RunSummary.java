@@ -0,0 +1,151 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) <2012> <Bruno P. Kinoshita>
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.biouno.structure.results;
+
+import java.io.Serializable;
+
+/**
+ * Estimates read from the output file of a Structure run.
+ * 
+ * @author Bruno P. Kinoshita - http://www.kinoshita.eti.br
+ * @since 0.1
+ */
+public class RunSummary implements Serializable {
+
+	private static final long serialVersionUID = -1962094737012869245L;
+
+	private Double lnProbData;
+	private Double meanLnLikelihood;
+	private Double varLnLikelihood;
+	private Double meanAlpha;
+	private double[] fst = new double[0];
+	/**
+	 * Inferred ancestry of each individual, one row per individual and one 
+	 * column per cluster.
+	 */
+	private double[][] qMatrix = new double[0][];
+	/**
+	 * Label of each individual, in the order of the Q-matrix rows.
+	 */
+	private String[] labels = new String[0];
+
+	/**
+	 * @return the estimated Ln Prob of Data, or <code>null</code>
+	 */
+	public Double getLnProbData() {
+		return lnProbData;
+	}
+
+	/**
+	 * @param lnProbData the estimated Ln Prob of Data
+	 */
+	public void setLnProbData(Double lnProbData) {
+		this.lnProbData = lnProbData;
+	}
+
+	/**
+	 * @return the mean value of ln likelihood, or <code>null</code>
+	 */
+	public Double getMeanLnLikelihood() {
+		return meanLnLikelihood;
+	}
+
+	/**
+	 * @param meanLnLikelihood the mean value of ln likelihood
+	 */
+	public void setMeanLnLikelihood(Double meanLnLikelihood) {
+		this.meanLnLikelihood = meanLnLikelihood;
+	}
+
+	/**
+	 * @return the variance of ln likelihood, or <code>null</code>
+	 */
+	public Double getVarLnLikelihood() {
+		return varLnLikelihood;
+	}
+
+	/**
+	 * @param varLnLikelihood the variance of ln likelihood
+	 */
+	public void setVarLnLikelihood(Double varLnLikelihood) {
+		this.varLnLikelihood = varLnLikelihood;
+	}
+
+	/**
+	 * @return the mean value of alpha, or <code>null</code>
+	 */
+	public Double getMeanAlpha() {
+		return meanAlpha;
+	}
+
+	/**
+	 * @param meanAlpha the mean value of alpha
+	 */
+	public void setMeanAlpha(Double meanAlpha) {
+		this.meanAlpha = meanAlpha;
+	}
+
+	/**
+	 * @return the mean value of Fst of each cluster
+	 */
+	public double[] getFst() {
+		return fst;
+	}
+
+	/**
+	 * @param fst the mean value of Fst of each cluster
+	 */
+	public void setFst(double[] fst) {
+		this.fst = fst;
+	}
+
+	/**
+	 * @return the inferred ancestry of each individual
+	 */
+	public double[][] getQMatrix() {
+		return qMatrix;
+	}
+
+	/**
+	 * @param qMatrix the inferred ancestry of each individual
+	 */
+	public void setQMatrix(double[][] qMatrix) {
+		this.qMatrix = qMatrix;
+	}
+
+	/**
+	 * @return the label of each individual
+	 */
+	public String[] getLabels() {
+		return labels;
+	}
+
+	/**
+	 * @param labels the label of each individual
+	 */
+	public void setLabels(String[] labels) {
+		this.labels = labels;
+	}
+
+}
@@ -0,0 +1,58 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) <2012> <Bruno P. Kinoshita>
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.biouno.structure.scheduling;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+import org.biouno.structure.execution.StructureRun;
+
+/**
+ * Starts the most expensive runs first (longest processing time first). With 
+ * workers taking the next run as soon as they are free, the cheap runs fill 
+ * the gaps at the end of the sweep, instead of a large K starting last and 
+ * running alone.
+ * 
+ * @author Bruno P. Kinoshita - http://www.kinoshita.eti.br
+ * @since 0.1
+ */
+public class LongestFirstPolicy implements SchedulingPolicy {
+
+	/* (non-Javadoc)
+	 * @see org.biouno.structure.scheduling.SchedulingPolicy#order(java.util.List, org.biouno.structure.scheduling.RunCostModel)
+	 */
+	public List<StructureRun> order(List<StructureRun> runs, final RunCostModel model) {
+		final List<StructureRun> ordered = new ArrayList<StructureRun>(runs);
+		// Stable sort, runs with the same cost keep their K/replicate order
+		Collections.sort(ordered, new Comparator<StructureRun>() {
+			public int compare(StructureRun o1, StructureRun o2) {
+				return Double.compare(model.getWork(o2), model.getWork(o1));
+			}
+		});
+		return ordered;
+	}
+
+}
@@ -0,0 +1,62 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) <2012> <Bruno P. Kinoshita>
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.biouno.structure.scheduling;
+
+import java.io.IOException;
+import java.io.PrintStream;
+
+import org.biouno.structure.execution.RunResult;
+import org.biouno.structure.execution.SweepListener;
+import org.biouno.structure.util.Messages;
+
+/**
+ * Logs the predicted and the actual time of each run, so the cost model can 
+ * be checked in the build log.
+ * 
+ * @author Bruno P. Kinoshita - http://www.kinoshita.eti.br
+ * @since 0.1
+ */
+public class PredictionListener implements SweepListener {
+
+	private final RunCostModel model;
+	private final PrintStream logger;
+
+	/**
+	 * @param model calibrated cost model
+	 * @param logger build logger
+	 */
+	public PredictionListener(RunCostModel model, PrintStream logger) {
+		this.model = model;
+		this.logger = logger;
+	}
+
+	/* (non-Javadoc)
+	 * @see org.biouno.structure.execution.SweepListener#runFinished(org.biouno.structure.execution.RunResult)
+	 */
+	public void runFinished(RunResult result) throws IOException {
+		logger.println(Messages.StructureBuilder_RunPrediction(result.getRun(), 
+				model.predict(result.getRun()), result.getDuration()));
+	}
+
+}
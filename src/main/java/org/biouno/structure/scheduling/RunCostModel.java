@@ -0,0 +1,271 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) <2012> <Bruno P. Kinoshita>
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.biouno.structure.scheduling;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.TreeMap;
+
+import org.biouno.structure.execution.RunResult;
+import org.biouno.structure.execution.StructureRun;
+import org.biouno.structure.execution.SweepManifest;
+import org.biouno.structure.parser.ExtraParam;
+import org.biouno.structure.parser.ExtraParams;
+
+/**
+ * Estimates the time of each run of a sweep. The work of a run is taken as 
+ * K x (BURNIN + NUMREPS) x NUMINDS x NUMLOCI, which is how the cost of one 
+ * MCMC iteration of Structure grows. With adaptive burn-in each K may have 
+ * its own BURNIN, and so its own work per K. Work units are turned into time with a 
+ * rate calibrated from the runs of earlier builds that used the same model 
+ * (admixture, no admixture or linkage), since the cost of an iteration 
+ * depends on the model.
+ * <p>
+ * Without earlier runs of the same model, the rate can come from the speeds 
+ * measured by the node calibration. Otherwise the model is not calibrated: 
+ * the work is still known, so runs can be ordered, but no time is predicted.
+ * 
+ * @author Bruno P. Kinoshita - http://www.kinoshita.eti.br
+ * @since 0.1
+ */
+public class RunCostModel {
+
+	public static final String ADMIXTURE = "admixture";
+	public static final String NO_ADMIXTURE = "noadmix";
+	public static final String LINKAGE = "linkage";
+
+	/**
+	 * Model of the sweep.
+	 */
+	private final String model;
+	/**
+	 * Work of a run with K=1.
+	 */
+	private final double unitsPerK;
+	/**
+	 * Work per K of the K whose chains have another length, by K.
+	 */
+	private final Map<Integer, Double> unitsPerKByK;
+	/**
+	 * Milliseconds per work unit, or zero if not calibrated.
+	 */
+	private final double rate;
+	/**
+	 * Number of earlier runs used to calibrate the model.
+	 */
+	private final int samples;
+
+	/**
+	 * @param model model of the sweep
+	 * @param unitsPerK work of a run with K=1
+	 */
+	public RunCostModel(String model, double unitsPerK) {
+		this(model, unitsPerK, Collections.<Integer, Double>emptyMap());
+	}
+
+	/**
+	 * @param model model of the sweep
+	 * @param unitsPerK work of a run with K=1
+	 * @param unitsPerKByK work per K of the K whose chains have another 
+	 * length, e.g. with an adapted burn-in
+	 */
+	public RunCostModel(String model, double unitsPerK, Map<Integer, Double> unitsPerKByK) {
+		this(model, unitsPerK, unitsPerKByK, 0.0d, 0);
+	}
+
+	private RunCostModel(String model, double unitsPerK, Map<Integer, Double> unitsPerKByK, double rate, 
+			int samples) {
+		this.model = model;
+		this.unitsPerK = unitsPerK;
+		this.unitsPerKByK = Collections.unmodifiableMap(new TreeMap<Integer, Double>(unitsPerKByK));
+		this.rate = rate;
+		this.samples = samples;
+	}
+
+	/**
+	 * @param burnIn length of burn-in period
+	 * @param numReps number of MCMC repetitions after burn-in
+	 * @param numInds number of individuals
+	 * @param numLoci number of loci
+	 * @return work of a run with K=1
+	 */
+	public static double getUnitsPerK(long burnIn, long numReps, long numInds, long numLoci) {
+		return (double) (burnIn + numReps) * numInds * numLoci;
+	}
+
+	/**
+	 * @param extraParams extraparams in effect, see 
+	 * {@link ExtraParams#withMainParams(java.util.Map)}
+	 * @return the model used by Structure
+	 */
+	public static String getModel(ExtraParams extraParams) {
+		if (extraParams.getBoolean(ExtraParam.LINKAGE)) {
+			return LINKAGE;
+		}
+		if (extraParams.getBoolean(ExtraParam.NOADMIX)) {
+			return NO_ADMIXTURE;
+		}
+		return ADMIXTURE;
+	}
+
+	/**
+	 * Calibrates the model from the runs recorded in earlier sweeps. Only the 
+	 * sweeps of the same model are used, and only the runs of the main sweep 
+	 * that succeeded and were really executed, as runs restored from a cache 
+	 * take no time, runs taken from a resumed sweep were already counted with 
+	 * the sweep that executed them, and the runs of other stages may have 
+	 * shorter chains.
+	 * 
+	 * @param history manifests of earlier sweeps
+	 * @return a calibrated model, or this model if there is no usable run
+	 */
+	public RunCostModel calibrate(List<SweepManifest> history) {
+		double time = 0.0d;
+		double work = 0.0d;
+		int count = 0;
+		for (SweepManifest manifest : history) {
+			if (!model.equals(manifest.getModel()) || manifest.getUnitsPerK() <= 0.0d) {
+				continue;
+			}
+			for (RunResult result : manifest.getResults()) {
+				if (result.isSuccess() && result.getDuration() > 0L && result.getRun().getStage() == null
+						&& !manifest.isResumed(result.getRun())) {
+					time += result.getDuration();
+					work += manifest.getUnitsPerK(result.getRun().getK()) * result.getRun().getK();
+					++count;
+				}
+			}
+		}
+		if (count == 0) {
+			return this;
+		}
+		return new RunCostModel(model, unitsPerK, unitsPerKByK, time / work, count);
+	}
+
+	/**
+	 * Calibrates the model from a speed measured by the node calibration.
+	 * 
+	 * @param unitsPerSecond work units per second
+	 * @return a calibrated model, or this model if the speed is not positive
+	 */
+	public RunCostModel calibrate(double unitsPerSecond) {
+		if (unitsPerSecond <= 0.0d) {
+			return this;
+		}
+		return new RunCostModel(model, unitsPerK, unitsPerKByK, 1000.0d / unitsPerSecond, 0);
+	}
+
+	/**
+	 * @return the model of the sweep
+	 */
+	public String getModel() {
+		return model;
+	}
+
+	/**
+	 * @return the work of a run with K=1
+	 */
+	public double getUnitsPerK() {
+		return unitsPerK;
+	}
+
+	/**
+	 * @param k a K
+	 * @return the work per K of the runs of the K
+	 */
+	public double getUnitsPerK(int k) {
+		final Double units = unitsPerKByK.get(k);
+		return units == null ? unitsPerK : units;
+	}
+
+	/**
+	 * @return the work per K of the K whose chains have another length
+	 */
+	public Map<Integer, Double> getUnitsPerKByK() {
+		return unitsPerKByK;
+	}
+
+	/**
+	 * @return the number of earlier runs used to calibrate the model
+	 */
+	public int getSamples() {
+		return samples;
+	}
+
+	/**
+	 * @return <code>true</code> if the model can predict times
+	 */
+	public boolean isCalibrated() {
+		return rate > 0.0d;
+	}
+
+	/**
+	 * @param run a run
+	 * @return the work of the run
+	 */
+	public double getWork(StructureRun run) {
+		return getUnitsPerK(run.getK()) * run.getK();
+	}
+
+	/**
+	 * @param run a run
+	 * @return the predicted time of the run, in milliseconds, or -1 if the 
+	 * model is not calibrated
+	 */
+	public long predict(StructureRun run) {
+		if (!isCalibrated()) {
+			return -1L;
+		}
+		return Math.round(getWork(run) * rate);
+	}
+
+	/**
+	 * Predicts the time of a sweep, by giving each run, in order, to the slot 
+	 * that is free first, as the workers of a sweep do.
+	 * 
+	 * @param runs runs, in the order they are started
+	 * @param slots number of slots
+	 * @return the predicted time of the sweep, in milliseconds, or -1 if the 
+	 * model is not calibrated
+	 */
+	public long predictMakespan(List<StructureRun> runs, int slots) {
+		if (!isCalibrated()) {
+			return -1L;
+		}
+		final PriorityQueue<Long> free = new PriorityQueue<Long>();
+		for (int i = 0; i < Math.max(1, slots); ++i) {
+			free.add(0L);
+		}
+		long makespan = 0L;
+		for (StructureRun run : runs) {
+			final long end = free.poll() + predict(run);
+			makespan = Math.max(makespan, end);
+			free.add(end);
+		}
+		return makespan;
+	}
+
+}
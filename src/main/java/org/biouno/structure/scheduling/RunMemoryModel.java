@@ -0,0 +1,137 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) <2012> <Bruno P. Kinoshita>
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.biouno.structure.scheduling;
+
+import org.biouno.structure.parser.ExtraParam;
+import org.biouno.structure.parser.ExtraParams;
+
+/**
+ * Estimates the memory used by a Structure process, from the sizes of the
+ * arrays Structure allocates: the genotypes and their population of origin
+ * (NUMINDS x NUMLOCI x PLOIDY), the allele frequencies of each population
+ * (K x NUMLOCI x alleles), the ancestry of each individual (NUMINDS x K), and
+ * the arrays of the models that need more: the ancestry distributions of
+ * ANCESTDIST, the ancestral frequencies of FREQSCORR and the per locus
+ * ancestry probabilities of LINKAGE.
+ * <p>
+ * The number of alleles of each locus is not known before Structure reads
+ * the input file, so {@link #ALLELES} alleles are assumed, which errs on the
+ * high side for SNP data.
+ *
+ * @author Bruno P. Kinoshita - http://www.kinoshita.eti.br
+ * @since 0.1
+ */
+public class RunMemoryModel {
+
+	/**
+	 * Memory of a Structure process besides its arrays, in bytes.
+	 */
+	public static final long BASE = 16L * 1024L * 1024L;
+	/**
+	 * Alleles assumed for each locus.
+	 */
+	public static final int ALLELES = 20;
+
+	private static final int INT_SIZE = 4;
+	private static final int DOUBLE_SIZE = 8;
+	private static final int DEFAULT_PLOIDY = 2;
+
+	private final long individuals;
+	private final long loci;
+	private final int ploidy;
+	private final boolean linkage;
+	private final boolean freqsCorr;
+	/**
+	 * Number of boxes of the ancestry distributions, zero without ANCESTDIST.
+	 */
+	private final int ancestDistBoxes;
+
+	/**
+	 * @param individuals number of individuals
+	 * @param loci number of loci
+	 * @param ploidy ploidy of the data
+	 * @param linkage whether the linkage model is used
+	 * @param freqsCorr whether allele frequencies are correlated
+	 * @param ancestDistBoxes number of boxes of the ancestry distributions,
+	 * zero without ANCESTDIST
+	 */
+	public RunMemoryModel(long individuals, long loci, int ploidy, boolean linkage, boolean freqsCorr,
+			int ancestDistBoxes) {
+		this.individuals = individuals;
+		this.loci = loci;
+		this.ploidy = ploidy;
+		this.linkage = linkage;
+		this.freqsCorr = freqsCorr;
+		this.ancestDistBoxes = ancestDistBoxes;
+	}
+
+	/**
+	 * Creates the model of a sweep from its parameters.
+	 *
+	 * @param extraParams extraparams in effect, see
+	 * {@link ExtraParams#withMainParams(java.util.Map)}
+	 * @param individuals number of individuals
+	 * @param loci number of loci
+	 * @return the model
+	 */
+	public static RunMemoryModel create(ExtraParams extraParams, long individuals, long loci) {
+		// PLOIDY is a mainparams value, that ExtraParams does not check
+		final int ploidy = parseInt(extraParams.getValues().get("PLOIDY"), DEFAULT_PLOIDY);
+		return new RunMemoryModel(individuals, loci, ploidy,
+				extraParams.getBoolean(ExtraParam.LINKAGE),
+				extraParams.getBoolean(ExtraParam.FREQSCORR),
+				extraParams.getBoolean(ExtraParam.ANCESTDIST) ? extraParams.getInt(ExtraParam.NUMBOXES) : 0);
+	}
+
+	private static int parseInt(String value, int defaultValue) {
+		try {
+			return value == null ? defaultValue : Integer.parseInt(value.trim());
+		} catch (NumberFormatException nfe) {
+			return defaultValue;
+		}
+	}
+
+	/**
+	 * @param k a K
+	 * @return the estimated memory of a run of the K, in bytes
+	 */
+	public long estimate(int k) {
+		final long genotypes = individuals * loci * ploidy;
+		final long frequencies = k * loci * ALLELES;
+		long bytes = BASE;
+		// Genotypes, as read and recoded, and the population of origin of each allele copy
+		bytes += genotypes * 3L * INT_SIZE;
+		// Allele frequencies and their sums, and the ancestral frequencies
+		bytes += frequencies * (freqsCorr ? 3L : 2L) * DOUBLE_SIZE;
+		// Ancestry of each individual and its sums
+		bytes += individuals * k * 2L * DOUBLE_SIZE;
+		bytes += individuals * k * ancestDistBoxes * (long) DOUBLE_SIZE;
+		if (linkage) {
+			// Forward probabilities of one individual, and the phase of each locus
+			bytes += loci * ploidy * k * (long) DOUBLE_SIZE + individuals * loci * DOUBLE_SIZE;
+		}
+		return bytes;
+	}
+
+}
@@ -0,0 +1,138 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) <2012> <Bruno P. Kinoshita>
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.biouno.structure.search;
+
+import java.io.Serializable;
+
+import org.kohsuke.stapler.DataBoundConstructor;
+
+/**
+ * Options of a coarse-to-fine K search, where every K is first run with few 
+ * replicates and short chains, and only the K values around the best one are 
+ * then run with full chains.
+ * 
+ * @author Bruno P. Kinoshita - http://www.kinoshita.eti.br
+ * @since 0.1
+ */
+public class CoarseSearch implements Serializable {
+
+	private static final long serialVersionUID = 3630841946437917165L;
+
+	public static final int DEFAULT_REPLICATES = 2;
+	public static final double DEFAULT_LENGTH = 0.1d;
+	public static final int DEFAULT_K_WINDOW = 2;
+
+	/**
+	 * Number of replicates of each K in the first stage.
+	 */
+	private final Integer replicates;
+	/**
+	 * Length of the chains of the first stage, as a fraction of BURNIN and 
+	 * NUMREPS.
+	 */
+	private final Double length;
+	/**
+	 * Number of K values run in the second stage on each side of the best K.
+	 */
+	private final Integer kWindow;
+	/**
+	 * Rule choosing the best K of the first stage, 
+	 * {@link KWindowSelector#DELTA_K} or {@link KWindowSelector#PLATEAU}.
+	 */
+	private final String kSelection;
+
+	/**
+	 * @param replicates number of replicates of each K in the first stage
+	 * @param length length of the chains of the first stage, as a fraction 
+	 * of BURNIN and NUMREPS
+	 * @param kWindow number of K values run in the second stage on each side 
+	 * of the best K
+	 * @param kSelection rule choosing the best K of the first stage
+	 */
+	@DataBoundConstructor
+	public CoarseSearch(Integer replicates, Double length, Integer kWindow, String kSelection) {
+		this.replicates = replicates;
+		this.length = length;
+		this.kWindow = kWindow;
+		this.kSelection = kSelection;
+	}
+
+	/**
+	 * @return the replicates
+	 */
+	public Integer getReplicates() {
+		return replicates;
+	}
+
+	/**
+	 * @return the length
+	 */
+	public Double getLength() {
+		return length;
+	}
+
+	/**
+	 * @return the kWindow
+	 */
+	public Integer getKWindow() {
+		return kWindow;
+	}
+
+	/**
+	 * @return the kSelection
+	 */
+	public String getKSelection() {
+		return kSelection;
+	}
+
+	/**
+	 * @return the number of replicates of each K in the first stage
+	 */
+	public int getReplicatesCount() {
+		return replicates != null && replicates > 0 ? replicates : DEFAULT_REPLICATES;
+	}
+
+	/**
+	 * @return the fraction of the chains run in the first stage
+	 */
+	public double getFraction() {
+		return length != null && length > 0.0d && length <= 1.0d ? length : DEFAULT_LENGTH;
+	}
+
+	/**
+	 * @param steps iterations of a full chain, e.g. BURNIN
+	 * @return the iterations of the chains of the first stage, at least one
+	 */
+	public long getSteps(long steps) {
+		return Math.max(1L, Math.round(steps * getFraction()));
+	}
+
+	/**
+	 * @return the selector of the K values run in the second stage
+	 */
+	public KWindowSelector createSelector() {
+		return new KWindowSelector(kSelection, kWindow != null ? kWindow : DEFAULT_K_WINDOW);
+	}
+
+}
@@ -0,0 +1,125 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) <2012> <Bruno P. Kinoshita>
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.biouno.structure.search;
+
+import java.util.List;
+import java.util.SortedSet;
+import java.util.TreeSet;
+
+import org.biouno.structure.results.KStatistics;
+
+/**
+ * Selects the K values that a coarse-to-fine search runs with full chains: a 
+ * window around the K chosen from the statistics of the short chains of the 
+ * first stage.
+ * <p>
+ * With {@link #DELTA_K}, the window is centred on the K with the largest 
+ * Evanno Delta K. With {@link #PLATEAU}, it is centred on the smallest K where 
+ * Ln P(D) reaches its plateau, i.e. whose mean plus one standard deviation 
+ * reaches the largest mean minus its standard deviation. The plateau rule is 
+ * also used when no Delta K could be computed.
+ * 
+ * @author Bruno P. Kinoshita - http://www.kinoshita.eti.br
+ * @since 0.1
+ */
+public class KWindowSelector {
+
+	/**
+	 * Window centred on the largest Delta K.
+	 */
+	public static final String DELTA_K = "deltaK";
+	/**
+	 * Window centred on the start of the Ln P(D) plateau.
+	 */
+	public static final String PLATEAU = "plateau";
+
+	private final String rule;
+	/**
+	 * Number of K values selected on each side of the centre.
+	 */
+	private final int window;
+
+	/**
+	 * @param rule {@link #DELTA_K} or {@link #PLATEAU}
+	 * @param window number of K values selected on each side of the centre
+	 */
+	public KWindowSelector(String rule, int window) {
+		this.rule = rule;
+		this.window = Math.max(0, window);
+	}
+
+	/**
+	 * @param statistics statistics of each K of the first stage
+	 * @return the centre of the window, or <code>null</code> if there are no 
+	 * statistics
+	 */
+	public Integer getCenter(List<KStatistics> statistics) {
+		if (!PLATEAU.equals(rule)) {
+			KStatistics best = null;
+			for (KStatistics k : statistics) {
+				if (k.getDeltaK() != null && (best == null || k.getDeltaK() > best.getDeltaK())) {
+					best = k;
+				}
+			}
+			if (best != null) {
+				return best.getK();
+			}
+		}
+		KStatistics best = null;
+		for (KStatistics k : statistics) {
+			if (best == null || k.getMeanLnProbData() > best.getMeanLnProbData()) {
+				best = k;
+			}
+		}
+		if (best == null) {
+			return null;
+		}
+		final double plateau = best.getMeanLnProbData() - best.getSdLnProbData();
+		int center = best.getK();
+		for (KStatistics k : statistics) {
+			if (k.getK() < center && k.getMeanLnProbData() + k.getSdLnProbData() >= plateau) {
+				center = k.getK();
+			}
+		}
+		return center;
+	}
+
+	/**
+	 * @param statistics statistics of each K of the first stage
+	 * @param maxPops largest K of the sweep
+	 * @return the K values in the window, or every K if there are no 
+	 * statistics
+	 */
+	public SortedSet<Integer> select(List<KStatistics> statistics, int maxPops) {
+		final Integer center = getCenter(statistics);
+		final int from = center == null ? 1 : Math.max(1, center - window);
+		final int to = center == null ? maxPops : Math.min(maxPops, center + window);
+		final SortedSet<Integer> selected = new TreeSet<Integer>();
+		for (int k = from; k <= to; ++k) {
+			selected.add(k);
+		}
+		return selected;
+	}
+
+}
@@ -0,0 +1,143 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) <2012> <Bruno P. Kinoshita>
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.biouno.structure.trend;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.biouno.structure.execution.RunResult;
+import org.biouno.structure.results.KStatistics;
+import org.kohsuke.stapler.export.Exported;
+import org.kohsuke.stapler.export.ExportedBean;
+
+/**
+ * Summary of the Structure sweep of one build, as kept in the 
+ * {@link TrendIndex}.
+ * 
+ * @author Bruno P. Kinoshita - http://www.kinoshita.eti.br
+ * @since 0.1
+ */
+@ExportedBean(defaultVisibility = 2)
+public class BuildTrend {
+
+	private final int number;
+	private final long timestamp;
+	/**
+	 * Duration of the build until the sweep finished, in milliseconds.
+	 */
+	private final long duration;
+	private final List<KTrend> statistics;
+
+	/**
+	 * @param number build number
+	 * @param timestamp start of the build
+	 * @param duration duration of the build until the sweep finished, in 
+	 * milliseconds
+	 * @param statistics summary of each K
+	 */
+	public BuildTrend(int number, long timestamp, long duration, List<KTrend> statistics) {
+		this.number = number;
+		this.timestamp = timestamp;
+		this.duration = duration;
+		this.statistics = Collections.unmodifiableList(new ArrayList<KTrend>(statistics));
+	}
+
+	/**
+	 * Summarizes a sweep.
+	 * 
+	 * @param number build number
+	 * @param timestamp start of the build
+	 * @param duration duration of the build until the sweep finished
+	 * @param statistics statistics of each K
+	 * @param results results of the runs, used for the run times. Only the 
+	 * runs of the main sweep are used
+	 * @return the summary
+	 */
+	public static BuildTrend create(int number, long timestamp, long duration, List<KStatistics> statistics, 
+			List<RunResult> results) {
+		final List<KTrend> trends = new ArrayList<KTrend>(statistics.size());
+		for (KStatistics k : statistics) {
+			long total = 0L;
+			int count = 0;
+			for (RunResult result : results) {
+				if (result.getRun().getK() == k.getK() && result.getRun().getStage() == null && result.isSuccess()) {
+					total += result.getDuration();
+					++count;
+				}
+			}
+			trends.add(new KTrend(k.getK(), k.getRuns(), k.getMeanLnProbData(), k.getSdLnProbData(), k.getDeltaK(), 
+					count == 0 ? 0L : total / count));
+		}
+		return new BuildTrend(number, timestamp, duration, trends);
+	}
+
+	/**
+	 * @return the number
+	 */
+	@Exported
+	public int getNumber() {
+		return number;
+	}
+
+	/**
+	 * @return the timestamp
+	 */
+	@Exported
+	public long getTimestamp() {
+		return timestamp;
+	}
+
+	/**
+	 * @return the duration of the build until the sweep finished, in 
+	 * milliseconds
+	 */
+	@Exported
+	public long getDuration() {
+		return duration;
+	}
+
+	/**
+	 * @return the summary of each K
+	 */
+	@Exported
+	public List<KTrend> getStatistics() {
+		return statistics;
+	}
+
+	/**
+	 * @return the K with the largest Delta K, or <code>null</code>
+	 */
+	@Exported
+	public Integer getBestK() {
+		KTrend best = null;
+		for (KTrend k : statistics) {
+			if (k.getDeltaK() != null && (best == null || k.getDeltaK() > best.getDeltaK())) {
+				best = k;
+			}
+		}
+		return best == null ? null : best.getK();
+	}
+
+}
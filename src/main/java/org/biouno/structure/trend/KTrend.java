@@ -0,0 +1,113 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) <2012> <Bruno P. Kinoshita>
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.biouno.structure.trend;
+
+import org.kohsuke.stapler.export.Exported;
+import org.kohsuke.stapler.export.ExportedBean;
+
+/**
+ * Summary of a K in one build, as kept in the {@link TrendIndex}.
+ * 
+ * @author Bruno P. Kinoshita - http://www.kinoshita.eti.br
+ * @since 0.1
+ */
+@ExportedBean(defaultVisibility = 3)
+public class KTrend {
+
+	private final int k;
+	private final int runs;
+	private final double meanLnProbData;
+	private final double sdLnProbData;
+	private final Double deltaK;
+	/**
+	 * Mean duration of the runs of the K, in milliseconds.
+	 */
+	private final long meanRunDuration;
+
+	/**
+	 * @param k the K
+	 * @param runs number of runs with an estimated Ln Prob of Data
+	 * @param meanLnProbData mean of the estimated Ln Prob of Data
+	 * @param sdLnProbData standard deviation of the estimated Ln Prob of Data
+	 * @param deltaK Evanno Delta K, or <code>null</code>
+	 * @param meanRunDuration mean duration of the runs, in milliseconds
+	 */
+	public KTrend(int k, int runs, double meanLnProbData, double sdLnProbData, Double deltaK, long meanRunDuration) {
+		this.k = k;
+		this.runs = runs;
+		this.meanLnProbData = meanLnProbData;
+		this.sdLnProbData = sdLnProbData;
+		this.deltaK = deltaK;
+		this.meanRunDuration = meanRunDuration;
+	}
+
+	/**
+	 * @return the k
+	 */
+	@Exported
+	public int getK() {
+		return k;
+	}
+
+	/**
+	 * @return the runs
+	 */
+	@Exported
+	public int getRuns() {
+		return runs;
+	}
+
+	/**
+	 * @return the meanLnProbData
+	 */
+	@Exported
+	public double getMeanLnProbData() {
+		return meanLnProbData;
+	}
+
+	/**
+	 * @return the sdLnProbData
+	 */
+	@Exported
+	public double getSdLnProbData() {
+		return sdLnProbData;
+	}
+
+	/**
+	 * @return the deltaK
+	 */
+	@Exported
+	public Double getDeltaK() {
+		return deltaK;
+	}
+
+	/**
+	 * @return the mean duration of the runs, in milliseconds
+	 */
+	@Exported
+	public long getMeanRunDuration() {
+		return meanRunDuration;
+	}
+
+}
@@ -0,0 +1,101 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) <2012> <Bruno P. Kinoshita>
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.biouno.structure.trend;
+
+import hudson.util.DataSetBuilder;
+import hudson.util.Graph;
+
+import java.awt.Color;
+import java.util.List;
+
+import org.jfree.chart.ChartFactory;
+import org.jfree.chart.JFreeChart;
+import org.jfree.chart.axis.CategoryLabelPositions;
+import org.jfree.chart.axis.NumberAxis;
+import org.jfree.chart.plot.CategoryPlot;
+import org.jfree.chart.plot.PlotOrientation;
+
+/**
+ * Trend graph of the mean Ln Prob of Data, or of the Delta K, of each K over 
+ * the builds of a job, drawn from the {@link TrendIndex}.
+ * 
+ * @author Bruno P. Kinoshita - http://www.kinoshita.eti.br
+ * @since 0.1
+ */
+public class TrendGraph extends Graph {
+
+	private static final int WIDTH = 500;
+	private static final int HEIGHT = 200;
+
+	private final List<BuildTrend> builds;
+	/**
+	 * Whether the Delta K is drawn, instead of the mean Ln Prob of Data.
+	 */
+	private final boolean deltaK;
+	private final String valueAxisLabel;
+
+	/**
+	 * @param timestamp time of the last change of the data, used for caching
+	 * @param builds summary of each build
+	 * @param deltaK whether the Delta K is drawn, instead of the mean Ln Prob 
+	 * of Data
+	 * @param valueAxisLabel label of the value axis
+	 */
+	public TrendGraph(long timestamp, List<BuildTrend> builds, boolean deltaK, String valueAxisLabel) {
+		super(timestamp, WIDTH, HEIGHT);
+		this.builds = builds;
+		this.deltaK = deltaK;
+		this.valueAxisLabel = valueAxisLabel;
+	}
+
+	/* (non-Javadoc)
+	 * @see hudson.util.Graph#createGraph()
+	 */
+	@Override
+	protected JFreeChart createGraph() {
+		final DataSetBuilder<String, Integer> dataSet = new DataSetBuilder<String, Integer>();
+		for (BuildTrend build : builds) {
+			for (KTrend k : build.getStatistics()) {
+				final Number value = deltaK ? k.getDeltaK() : Double.valueOf(k.getMeanLnProbData());
+				if (value != null) {
+					dataSet.add(value, "K=" + k.getK(), build.getNumber());
+				}
+			}
+		}
+		final JFreeChart chart = ChartFactory.createLineChart(null, "#", valueAxisLabel, dataSet.build(), 
+				PlotOrientation.VERTICAL, true, true, false);
+		chart.setBackgroundPaint(Color.WHITE);
+		final CategoryPlot plot = chart.getCategoryPlot();
+		plot.setBackgroundPaint(Color.WHITE);
+		plot.setRangeGridlinePaint(Color.BLACK);
+		plot.getDomainAxis().setCategoryLabelPositions(CategoryLabelPositions.UP_90);
+		plot.getDomainAxis().setLowerMargin(0.0);
+		plot.getDomainAxis().setUpperMargin(0.0);
+		plot.getDomainAxis().setCategoryMargin(0.0);
+		// Ln Prob of Data is far from zero
+		((NumberAxis) plot.getRangeAxis()).setAutoRangeIncludesZero(deltaK);
+		return chart;
+	}
+
+}
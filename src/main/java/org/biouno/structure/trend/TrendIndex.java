@@ -0,0 +1,292 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) <2012> <Bruno P. Kinoshita>
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.biouno.structure.trend;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.io.UnsupportedEncodingException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.zip.CRC32;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.IOUtils;
+import org.biouno.structure.util.Messages;
+
+/**
+ * Append-only index of the Structure sweeps of a job, kept in the job 
+ * directory. Each build appends one line when its sweep finishes, so a trend 
+ * across builds is read from a single file, without loading the builds.
+ * <p>
+ * Each line starts with a CRC32 of the rest of the line. A line that does 
+ * not match its checksum is skipped, and marks the index as damaged; the 
+ * index can then be rebuilt from the builds with {@link #rebuild(Collection)}.
+ * If a build appears more than once, its last line is used. The lines of 
+ * builds deleted or rotated since they were appended stay in the file until 
+ * it is rebuilt, and are left out by {@link #getBuilds(Collection)}.
+ * <p>
+ * There is one index per job directory, shared by the builds and the pages 
+ * of the job, and it is reloaded only when the file changed.
+ * 
+ * @author Bruno P. Kinoshita - http://www.kinoshita.eti.br
+ * @since 0.1
+ */
+public class TrendIndex {
+
+	/**
+	 * Name of the index in the job directory.
+	 */
+	public static final String FILE_NAME = "structure-trend.index";
+
+	private static final String SEPARATOR = "\t";
+	private static final String K_SEPARATOR = ";";
+	private static final String FIELD_SEPARATOR = ",";
+	private static final String ENCODING = "UTF-8";
+
+	private static final ConcurrentMap<File, TrendIndex> INDEXES = new ConcurrentHashMap<File, TrendIndex>();
+
+	private final File file;
+	private List<BuildTrend> builds = Collections.emptyList();
+	private boolean damaged = false;
+	private long loadedLength = -1L;
+	private long loadedModified = -1L;
+
+	private TrendIndex(File file) {
+		this.file = file;
+	}
+
+	/**
+	 * @param directory job directory
+	 * @return the index of the job
+	 */
+	public static TrendIndex of(File directory) {
+		final File file = new File(directory, FILE_NAME);
+		final TrendIndex index = INDEXES.get(file);
+		if (index != null) {
+			return index;
+		}
+		final TrendIndex created = new TrendIndex(file);
+		final TrendIndex existing = INDEXES.putIfAbsent(file, created);
+		return existing == null ? created : existing;
+	}
+
+	/**
+	 * Appends the summary of a build.
+	 * 
+	 * @param build summary of the build
+	 * @throws IOException if the file cannot be written
+	 */
+	public synchronized void append(BuildTrend build) throws IOException {
+		// A line left incomplete by a crash must not swallow the new one
+		write(file, endsWithPartialLine() ? "\n" + format(build) : format(build), true);
+	}
+
+	/**
+	 * Replaces the index with the summaries of the given builds.
+	 * 
+	 * @param builds summaries of the builds
+	 * @throws IOException if the file cannot be written
+	 */
+	public synchronized void rebuild(Collection<BuildTrend> builds) throws IOException {
+		final StringBuilder text = new StringBuilder();
+		for (BuildTrend build : builds) {
+			text.append(format(build));
+		}
+		final File temporary = new File(file.getPath() + ".tmp");
+		write(temporary, text.toString(), false);
+		if (file.exists() && !file.delete() || !temporary.renameTo(file)) {
+			throw new IOException(Messages.StructureBuilder_TrendIndexNotWritten(file));
+		}
+		loadedLength = -1L;
+	}
+
+	/**
+	 * @return the summary of each build in the index, by build number
+	 * @throws IOException if the file cannot be read
+	 */
+	public synchronized List<BuildTrend> getBuilds() throws IOException {
+		load();
+		return builds;
+	}
+
+	/**
+	 * @param existing numbers of the builds of the job that still exist
+	 * @return the summary of each build in the index that still exists, by 
+	 * build number
+	 * @throws IOException if the file cannot be read
+	 */
+	public synchronized List<BuildTrend> getBuilds(Collection<Integer> existing) throws IOException {
+		load();
+		final Set<Integer> numbers = new HashSet<Integer>(existing);
+		final List<BuildTrend> kept = new ArrayList<BuildTrend>(builds.size());
+		for (BuildTrend build : builds) {
+			if (numbers.contains(build.getNumber())) {
+				kept.add(build);
+			}
+		}
+		return Collections.unmodifiableList(kept);
+	}
+
+	/**
+	 * @return whether a line of the index could not be read
+	 * @throws IOException if the file cannot be read
+	 */
+	public synchronized boolean isDamaged() throws IOException {
+		load();
+		return damaged;
+	}
+
+	private void load() throws IOException {
+		if (!file.isFile()) {
+			builds = Collections.emptyList();
+			damaged = false;
+			loadedLength = -1L;
+			return;
+		}
+		if (file.length() == loadedLength && file.lastModified() == loadedModified) {
+			return;
+		}
+		loadedLength = file.length();
+		loadedModified = file.lastModified();
+		final Map<Integer, BuildTrend> byNumber = new TreeMap<Integer, BuildTrend>();
+		boolean damagedLine = false;
+		final String[] lines = FileUtils.readFileToString(file, ENCODING).split("\n", -1);
+		// The last element is empty, or a line not completely written
+		for (int i = 0; i < lines.length - 1; ++i) {
+			final BuildTrend build = parse(lines[i]);
+			if (build == null) {
+				damagedLine = true;
+			} else {
+				byNumber.put(build.getNumber(), build);
+			}
+		}
+		if (lines[lines.length - 1].length() > 0) {
+			damagedLine = true;
+		}
+		builds = Collections.unmodifiableList(new ArrayList<BuildTrend>(byNumber.values()));
+		damaged = damagedLine;
+	}
+
+	static String format(BuildTrend build) {
+		final StringBuilder line = new StringBuilder();
+		line.append(build.getNumber()).append(SEPARATOR)
+			.append(build.getTimestamp()).append(SEPARATOR)
+			.append(build.getDuration()).append(SEPARATOR);
+		boolean first = true;
+		for (KTrend k : build.getStatistics()) {
+			if (!first) {
+				line.append(K_SEPARATOR);
+			}
+			first = false;
+			line.append(k.getK()).append(FIELD_SEPARATOR)
+				.append(k.getRuns()).append(FIELD_SEPARATOR)
+				.append(k.getMeanLnProbData()).append(FIELD_SEPARATOR)
+				.append(k.getSdLnProbData()).append(FIELD_SEPARATOR)
+				.append(k.getDeltaK() == null ? "" : k.getDeltaK()).append(FIELD_SEPARATOR)
+				.append(k.getMeanRunDuration());
+		}
+		return Long.toHexString(checksum(line.toString())) + SEPARATOR + line + "\n";
+	}
+
+	/**
+	 * @return the build, or <code>null</code> if the line is damaged
+	 */
+	static BuildTrend parse(String line) {
+		final int start = line.indexOf(SEPARATOR);
+		if (start < 0) {
+			return null;
+		}
+		final String content = line.substring(start + 1);
+		try {
+			if (Long.parseLong(line.substring(0, start), 16) != checksum(content)) {
+				return null;
+			}
+			final String[] columns = content.split(SEPARATOR, -1);
+			if (columns.length != 4) {
+				return null;
+			}
+			final List<KTrend> statistics = new ArrayList<KTrend>();
+			if (columns[3].length() > 0) {
+				for (String k : columns[3].split(K_SEPARATOR)) {
+					final String[] fields = k.split(FIELD_SEPARATOR, -1);
+					if (fields.length != 6) {
+						return null;
+					}
+					statistics.add(new KTrend(Integer.parseInt(fields[0]), Integer.parseInt(fields[1]), 
+							Double.parseDouble(fields[2]), Double.parseDouble(fields[3]), 
+							fields[4].length() == 0 ? null : Double.valueOf(fields[4]), Long.parseLong(fields[5])));
+				}
+			}
+			return new BuildTrend(Integer.parseInt(columns[0]), Long.parseLong(columns[1]), 
+					Long.parseLong(columns[2]), statistics);
+		} catch (NumberFormatException nfe) {
+			return null;
+		}
+	}
+
+	private static long checksum(String content) {
+		final CRC32 crc = new CRC32();
+		try {
+			crc.update(content.getBytes(ENCODING));
+		} catch (UnsupportedEncodingException uee) {
+			throw new IllegalStateException(uee);
+		}
+		return crc.getValue();
+	}
+
+	private boolean endsWithPartialLine() throws IOException {
+		if (!file.isFile() || file.length() == 0) {
+			return false;
+		}
+		final RandomAccessFile raf = new RandomAccessFile(file, "r");
+		try {
+			raf.seek(raf.length() - 1);
+			return raf.read() != '\n';
+		} finally {
+			raf.close();
+		}
+	}
+
+	private static void write(File target, String text, boolean append) throws IOException {
+		final FileOutputStream os = new FileOutputStream(target, append);
+		try {
+			os.write(text.getBytes(ENCODING));
+			os.flush();
+			os.getFD().sync();
+		} finally {
+			IOUtils.closeQuietly(os);
+		}
+	}
+
+}
@@ -0,0 +1,64 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) <2012> <Bruno P. Kinoshita>
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.biouno.structure.util;
+
+/**
+ * Path helpers, for paths given in the job configuration. The paths may be 
+ * used on nodes with another operating system than the master, so both 
+ * separators are accepted.
+ * 
+ * @author Bruno P. Kinoshita - http://www.kinoshita.eti.br
+ * @since 0.1
+ */
+public final class Paths {
+
+	private Paths() {
+	}
+
+	/**
+	 * @param path a path
+	 * @return whether the path is absolute, on Unix or on Windows
+	 */
+	public static boolean isAbsolute(String path) {
+		return path.startsWith("/") || path.startsWith("\\") || path.matches("^[A-Za-z]:.*");
+	}
+
+	/**
+	 * @param path a path
+	 * @return whether the path is relative and does not leave the directory 
+	 * it is resolved against
+	 */
+	public static boolean isInside(String path) {
+		if (isAbsolute(path)) {
+			return false;
+		}
+		for (String segment : path.split("[/\\\\]")) {
+			if ("..".equals(segment)) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+}
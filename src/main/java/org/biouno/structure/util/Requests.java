@@ -0,0 +1,65 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) <2012> <Bruno P. Kinoshita>
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.biouno.structure.util;
+
+import java.io.IOException;
+
+import javax.servlet.http.HttpServletResponse;
+
+import org.kohsuke.stapler.StaplerRequest;
+import org.kohsuke.stapler.StaplerResponse;
+
+/**
+ * Request helpers, for the actions that change the state of a project or a 
+ * build.
+ * 
+ * @author Bruno P. Kinoshita - http://www.kinoshita.eti.br
+ * @since 0.1
+ */
+public final class Requests {
+
+	private static final String POST = "POST";
+
+	private Requests() {
+	}
+
+	/**
+	 * Rejects a request that is not a POST, so that a link followed by a 
+	 * browser or a crawler does not change anything.
+	 * 
+	 * @param req the request
+	 * @param rsp the response, a 405 error if the request is not a POST
+	 * @return whether the request is a POST
+	 * @throws IOException if the error cannot be sent
+	 */
+	public static boolean requirePost(StaplerRequest req, StaplerResponse rsp) throws IOException {
+		if (POST.equals(req.getMethod())) {
+			return true;
+		}
+		rsp.setHeader("Allow", POST);
+		rsp.sendError(HttpServletResponse.SC_METHOD_NOT_ALLOWED);
+		return false;
+	}
+
+}
@@ -0,0 +1,180 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) <2012> <Bruno P. Kinoshita>
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.biouno.structure.alignment;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import org.junit.Test;
+
+/**
+ * Tests the assignments of {@link HungarianAlgorithm} and the label 
+ * alignment of {@link QMatrixAligner}.
+ *
+ * @author Bruno P. Kinoshita - http://www.kinoshita.eti.br
+ * @since 0.1
+ */
+public class QMatrixAlignerTest {
+
+	private static final double DELTA = 1e-9;
+
+	/**
+	 * Six individuals, each one mostly in one of three clusters.
+	 */
+	private static final double[][] Q = {
+		{ 0.9d, 0.05d, 0.05d },
+		{ 0.8d, 0.1d, 0.1d },
+		{ 0.1d, 0.85d, 0.05d },
+		{ 0.05d, 0.9d, 0.05d },
+		{ 0.1d, 0.1d, 0.8d },
+		{ 0.0d, 0.2d, 0.8d }
+	};
+
+	@Test
+	public void testAssignment() {
+		final double[][] cost = {
+			{ 4.0d, 1.0d, 3.0d },
+			{ 2.0d, 0.0d, 5.0d },
+			{ 3.0d, 2.0d, 2.0d }
+		};
+		// 1 + 2 + 2, the greedy choice of column 1 for the second row costs more
+		assertArrayEquals(new int[] { 1, 0, 2 }, HungarianAlgorithm.solve(cost));
+	}
+
+	@Test
+	public void testAssignmentIsOptimal() {
+		final Random random = new Random(42L);
+		for (int n = 1; n <= 6; ++n) {
+			for (int trial = 0; trial < 20; ++trial) {
+				final double[][] cost = new double[n][n];
+				for (double[] row : cost) {
+					for (int j = 0; j < n; ++j) {
+						row[j] = random.nextInt(20);
+					}
+				}
+				final int[] assignment = HungarianAlgorithm.solve(cost);
+				final int[] sorted = assignment.clone();
+				Arrays.sort(sorted);
+				for (int j = 0; j < n; ++j) {
+					assertEquals(j, sorted[j]);
+				}
+				assertEquals(bruteForce(cost, new int[n], new boolean[n], 0), total(cost, assignment), DELTA);
+			}
+		}
+	}
+
+	@Test
+	public void testPermutedLabelsAreAligned() {
+		final int[] swap = { 2, 0, 1 };
+		final List<double[][]> replicates = new ArrayList<double[][]>();
+		replicates.add(Q);
+		replicates.add(permute(Q, swap));
+		replicates.add(Q);
+		final KAlignment alignment = new QMatrixAligner(1).align(3, replicates);
+		assertEquals(3, alignment.getReplicates());
+		assertArrayEquals(new int[] { 0, 1, 2 }, alignment.getPermutations()[0]);
+		assertArrayEquals(swap, alignment.getPermutations()[1]);
+		assertEquals(1.0d, alignment.getSimilarity(), DELTA);
+		for (int i = 0; i < Q.length; ++i) {
+			assertArrayEquals(Q[i], alignment.getConsensus()[i], DELTA);
+		}
+	}
+
+	@Test
+	public void testDifferentReplicatesAreLessSimilar() {
+		final double[][] other = new double[Q.length][];
+		for (int i = 0; i < Q.length; ++i) {
+			other[i] = Q[(i + 2) % Q.length].clone();
+		}
+		final List<double[][]> replicates = new ArrayList<double[][]>();
+		replicates.add(Q);
+		replicates.add(other);
+		final double similarity = new QMatrixAligner(1).align(3, replicates).getSimilarity();
+		assertTrue("similarity " + similarity, similarity < 0.9d);
+	}
+
+	@Test
+	public void testAlignsEveryK() throws Exception {
+		final Map<Integer, List<double[][]>> replicatesByK = new LinkedHashMap<Integer, List<double[][]>>();
+		final double[][] single = { { 1.0d }, { 1.0d } };
+		replicatesByK.put(1, Arrays.asList(single, single));
+		replicatesByK.put(2, new ArrayList<double[][]>());
+		replicatesByK.put(3, Arrays.asList(Q, permute(Q, new int[] { 1, 2, 0 })));
+		final List<KAlignment> alignments = new QMatrixAligner(2).alignAll(replicatesByK);
+		// No alignment for a K without replicates
+		assertEquals(2, alignments.size());
+		assertEquals(1, alignments.get(0).getK());
+		assertEquals(1.0d, alignments.get(0).getSimilarity(), DELTA);
+		assertEquals(3, alignments.get(1).getK());
+		assertNull(new QMatrixAligner(1).align(2, new ArrayList<double[][]>()));
+	}
+
+	/**
+	 * @return a copy of the matrix where column <code>permutation[a]</code> 
+	 * holds the cluster <code>a</code>
+	 */
+	private static double[][] permute(double[][] q, int[] permutation) {
+		final double[][] permuted = new double[q.length][q[0].length];
+		for (int i = 0; i < q.length; ++i) {
+			for (int a = 0; a < permutation.length; ++a) {
+				permuted[i][permutation[a]] = q[i][a];
+			}
+		}
+		return permuted;
+	}
+
+	private static double total(double[][] cost, int[] assignment) {
+		double total = 0.0d;
+		for (int row = 0; row < assignment.length; ++row) {
+			total += cost[row][assignment[row]];
+		}
+		return total;
+	}
+
+	private static double bruteForce(double[][] cost, int[] assignment, boolean[] used, int row) {
+		if (row == cost.length) {
+			return total(cost, assignment);
+		}
+		double best = Double.POSITIVE_INFINITY;
+		for (int column = 0; column < cost.length; ++column) {
+			if (!used[column]) {
+				used[column] = true;
+				assignment[row] = column;
+				best = Math.min(best, bruteForce(cost, assignment, used, row + 1));
+				used[column] = false;
+			}
+		}
+		return best;
+	}
+
+}
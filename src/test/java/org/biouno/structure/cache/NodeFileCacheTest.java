@@ -0,0 +1,161 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) <2012> <Bruno P. Kinoshita>
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.biouno.structure.cache;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import hudson.FilePath;
+
+import java.io.File;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Tests how a {@link NodeFileCache} provides input files to a node.
+ *
+ * @author Bruno P. Kinoshita - http://www.kinoshita.eti.br
+ * @since 0.1
+ */
+public class NodeFileCacheTest {
+
+	private static final int FILE_SIZE = 1000;
+
+	private File sources;
+	private File node;
+	private FilePath cacheDir;
+
+	@Before
+	public void setUp() throws Exception {
+		sources = createTempDirectory("sources");
+		node = createTempDirectory("node");
+		cacheDir = new FilePath(new File(node, NodeFileCache.DIRECTORY));
+	}
+
+	@After
+	public void tearDown() {
+		FileUtils.deleteQuietly(sources);
+		FileUtils.deleteQuietly(node);
+	}
+
+	@Test
+	public void testMissSendsTheFileAndHitLinksIt() throws Exception {
+		final NodeFileCache cache = new NodeFileCache(10L * FILE_SIZE);
+		final FilePath source = createSource("input", 1);
+		final File first = new File(node, "k1_r1/input");
+		assertEquals(0L, cache.provide(source, "a", cacheDir, new FilePath(first)));
+		assertArrayEquals(FileUtils.readFileToByteArray(new File(sources, "input")),
+				FileUtils.readFileToByteArray(first));
+		assertTrue(new File(cacheDir.getRemote(), "a").isFile());
+
+		final File second = new File(node, "k2_r1/input");
+		assertEquals((long) FILE_SIZE, cache.provide(source, "a", cacheDir, new FilePath(second)));
+		assertArrayEquals(FileUtils.readFileToByteArray(first), FileUtils.readFileToByteArray(second));
+		// Only the entry is left in the cache directory
+		assertEquals(1, new File(cacheDir.getRemote()).list().length);
+	}
+
+	@Test
+	public void testHitReplacesAnExistingFile() throws Exception {
+		final NodeFileCache cache = new NodeFileCache(10L * FILE_SIZE);
+		final FilePath source = createSource("input", 1);
+		final File target = new File(node, "k1_r1/input");
+		FileUtils.writeStringToFile(target, "stale");
+		cache.provide(source, "a", cacheDir, new FilePath(target));
+		assertEquals((long) FILE_SIZE, cache.provide(source, "a", cacheDir, new FilePath(target)));
+		assertEquals((long) FILE_SIZE, target.length());
+	}
+
+	@Test
+	public void testEvictsLeastRecentlyUsed() throws Exception {
+		final NodeFileCache cache = new NodeFileCache(2L * FILE_SIZE);
+		final FilePath a = createSource("a", 1);
+		final FilePath b = createSource("b", 2);
+		cache.provide(a, "a", cacheDir, new FilePath(new File(node, "w1/a")));
+		cache.provide(b, "b", cacheDir, new FilePath(new File(node, "w1/b")));
+		final long now = System.currentTimeMillis();
+		entry("a").setLastModified(now - 20000L);
+		entry("b").setLastModified(now - 10000L);
+		// Used again, so b is now the least recently used
+		cache.provide(a, "a", cacheDir, new FilePath(new File(node, "w2/a")));
+
+		cache.provide(createSource("c", 3), "c", cacheDir, new FilePath(new File(node, "w2/c")));
+		assertTrue(entry("a").isFile());
+		assertFalse(entry("b").isFile());
+		assertTrue(entry("c").isFile());
+		// Work directories keep their own copy of an evicted entry
+		assertEquals((long) FILE_SIZE, new File(node, "w1/b").length());
+	}
+
+	@Test
+	public void testEntryLargerThanTheCacheIsKept() throws Exception {
+		final NodeFileCache cache = new NodeFileCache(FILE_SIZE / 2);
+		cache.provide(createSource("a", 1), "a", cacheDir, new FilePath(new File(node, "w1/a")));
+		assertTrue(entry("a").isFile());
+		cache.provide(createSource("b", 2), "b", cacheDir, new FilePath(new File(node, "w1/b")));
+		assertFalse(entry("a").isFile());
+		assertTrue(entry("b").isFile());
+	}
+
+	@Test
+	public void testFileSkippedByTheDefaultExcludesIsCopied() throws Exception {
+		final NodeFileCache cache = new NodeFileCache(10L * FILE_SIZE);
+		// Matches the Ant default excludes of the tar stream
+		final FilePath source = createSource("input~", 1);
+		final File target = new File(node, "k1_r1/input");
+		assertEquals(0L, cache.provide(source, "a", cacheDir, new FilePath(target)));
+		assertEquals((long) FILE_SIZE, target.length());
+		// Not cached, and no temporary directory left behind
+		assertEquals(0, new File(cacheDir.getRemote()).list().length);
+		assertEquals(0L, cache.provide(source, "a", cacheDir, new FilePath(target)));
+	}
+
+	private FilePath createSource(String name, int value) throws Exception {
+		final File file = new File(sources, name);
+		final byte[] contents = new byte[FILE_SIZE];
+		for (int i = 0; i < contents.length; ++i) {
+			contents[i] = (byte) (value + i);
+		}
+		FileUtils.writeByteArrayToFile(file, contents);
+		return new FilePath(file);
+	}
+
+	private File entry(String digest) {
+		return new File(cacheDir.getRemote(), digest);
+	}
+
+	private static File createTempDirectory(String prefix) throws Exception {
+		final File directory = File.createTempFile(prefix, "");
+		if (!directory.delete() || !directory.mkdirs()) {
+			throw new IllegalStateException("Cannot create " + directory);
+		}
+		return directory;
+	}
+
+}
@@ -0,0 +1,149 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) <2012> <Bruno P. Kinoshita>
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.biouno.structure.cache;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import hudson.FilePath;
+
+import java.io.File;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Tests the lookup, storage and eviction of {@link RunCache} entries.
+ *
+ * @author Bruno P. Kinoshita - http://www.kinoshita.eti.br
+ * @since 0.1
+ */
+public class RunCacheTest {
+
+	private static final int ENTRY_SIZE = 1000;
+
+	private File directory;
+	private File outputs;
+
+	@Before
+	public void setUp() throws Exception {
+		directory = createTempDirectory("cache");
+		outputs = createTempDirectory("outputs");
+	}
+
+	@After
+	public void tearDown() {
+		FileUtils.deleteQuietly(directory);
+		FileUtils.deleteQuietly(outputs);
+	}
+
+	@Test
+	public void testStoreAndLookup() throws Exception {
+		final RunCache cache = new RunCache(directory, 10L * ENTRY_SIZE);
+		assertNull(cache.lookup("a"));
+		assertFalse(cache.isCached("a"));
+		store(cache, "a");
+		assertTrue(cache.isCached("a"));
+		final File[] files = cache.lookup("a");
+		assertNotNull(files);
+		assertEquals(1, files.length);
+		assertEquals("_f", files[0].getName());
+		assertEquals(ENTRY_SIZE, files[0].length());
+		cache.release("a");
+		assertEquals(ENTRY_SIZE, cache.getSize());
+	}
+
+	@Test
+	public void testEvictsLeastRecentlyUsed() throws Exception {
+		final RunCache cache = new RunCache(directory, 2L * ENTRY_SIZE);
+		store(cache, "a");
+		store(cache, "b");
+		cache.lookup("a");
+		cache.release("a");
+		store(cache, "c");
+		assertTrue(cache.isCached("a"));
+		assertFalse(cache.isCached("b"));
+		assertTrue(cache.isCached("c"));
+		assertEquals(2L * ENTRY_SIZE, cache.getSize());
+	}
+
+	@Test
+	public void testPinnedEntryIsNotEvicted() throws Exception {
+		final RunCache cache = new RunCache(directory, 2L * ENTRY_SIZE);
+		store(cache, "a");
+		final File[] pinned = cache.lookup("a");
+		store(cache, "b");
+		store(cache, "c");
+		store(cache, "d");
+		assertTrue(cache.isCached("a"));
+		assertTrue(pinned[0].isFile());
+		cache.release("a");
+		store(cache, "e");
+		assertFalse(cache.isCached("a"));
+		assertEquals(2L * ENTRY_SIZE, cache.getSize());
+	}
+
+	@Test
+	public void testIndexesExistingEntries() throws Exception {
+		store(new RunCache(directory, 10L * ENTRY_SIZE), "a");
+		store(new RunCache(directory, 10L * ENTRY_SIZE), "b");
+		final RunCache cache = new RunCache(directory, 10L * ENTRY_SIZE);
+		assertEquals(2L * ENTRY_SIZE, cache.getSize());
+		assertNotNull(cache.lookup("b"));
+		cache.release("b");
+	}
+
+	@Test
+	public void testEntryDeletedOutsideTheCache() throws Exception {
+		final RunCache cache = new RunCache(directory, 10L * ENTRY_SIZE);
+		store(cache, "a");
+		FileUtils.deleteDirectory(new File(directory, "a"));
+		assertNull(cache.lookup("a"));
+		assertEquals(0L, cache.getSize());
+	}
+
+	private void store(RunCache cache, String key) throws Exception {
+		final File output = new File(outputs, key + "_f");
+		FileUtils.writeByteArrayToFile(output, new byte[ENTRY_SIZE]);
+		final Map<String, FilePath> files = new HashMap<String, FilePath>();
+		files.put("_f", new FilePath(output));
+		cache.store(key, files);
+	}
+
+	private static File createTempDirectory(String prefix) throws Exception {
+		final File directory = File.createTempFile(prefix, "");
+		if (!directory.delete() || !directory.mkdirs()) {
+			throw new IllegalStateException("Cannot create " + directory);
+		}
+		return directory;
+	}
+
+}
@@ -0,0 +1,77 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) <2012> <Bruno P. Kinoshita>
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.biouno.structure.calibration;
+
+import static org.junit.Assert.assertTrue;
+
+import hudson.FilePath;
+
+import java.io.File;
+
+import org.apache.commons.io.FileUtils;
+import org.biouno.structure.scheduling.RunCostModel;
+import org.junit.After;
+import org.junit.Test;
+
+/**
+ * Tests the files of the {@link CalibrationDataset} and its baseline run.
+ *
+ * @author Bruno P. Kinoshita - http://www.kinoshita.eti.br
+ * @since 0.1
+ */
+public class CalibrationDatasetTest {
+
+	private File directory;
+
+	@After
+	public void tearDown() {
+		if (directory != null) {
+			FileUtils.deleteQuietly(directory);
+		}
+	}
+
+	@Test
+	public void testBaselineRunsTheSameDataWithoutTheChain() throws Exception {
+		directory = File.createTempFile("calibration", "");
+		assertTrue(directory.delete());
+		CalibrationDataset.write(new FilePath(directory), RunCostModel.ADMIXTURE);
+		final String mainParams = read(CalibrationDataset.getMainParamsFileName(RunCostModel.ADMIXTURE));
+		final String baseline = read(CalibrationDataset.getBaselineMainParamsFileName(RunCostModel.ADMIXTURE));
+		assertTrue(mainParams.contains("#define BURNIN " + CalibrationDataset.BURNIN + "\n"));
+		assertTrue(baseline.contains("#define BURNIN " + CalibrationDataset.BASELINE_BURNIN + "\n"));
+		assertTrue(baseline.contains("#define NUMREPS " + CalibrationDataset.BASELINE_NUMREPS + "\n"));
+		// Same input and output files
+		assertTrue(baseline.endsWith(mainParams.substring(mainParams.indexOf("#define INFILE"))));
+	}
+
+	@Test
+	public void testIterationsDominateTheWork() {
+		assertTrue(CalibrationDataset.getWork() > 1000.0d * CalibrationDataset.getBaselineWork());
+	}
+
+	private String read(String name) throws Exception {
+		return FileUtils.readFileToString(new File(directory, name), "UTF-8");
+	}
+
+}
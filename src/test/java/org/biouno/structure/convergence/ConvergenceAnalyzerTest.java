@@ -0,0 +1,120 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) <2012> <Bruno P. Kinoshita>
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.biouno.structure.convergence;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+
+/**
+ * Tests the convergence diagnostics of {@link ConvergenceAnalyzer}, and how 
+ * it adapts the burn-in between sweeps.
+ *
+ * @author Bruno P. Kinoshita - http://www.kinoshita.eti.br
+ * @since 0.1
+ */
+public class ConvergenceAnalyzerTest {
+
+	private final ConvergenceAnalyzer analyzer = new ConvergenceAnalyzer(ConvergenceAnalyzer.DEFAULT_THRESHOLD);
+
+	@Test
+	public void testNeedsTwoChains() {
+		assertNull(analyzer.analyze(2, createChains(1, 400, 0), 20000L, 20000L));
+	}
+
+	@Test
+	public void testNeedsEnoughValues() {
+		// A few updates agree by chance, they do not show convergence
+		assertNull(analyzer.analyze(2, createChains(3, 39, 0), 1900L, 2000L));
+		assertNotNull(analyzer.analyze(2, createChains(3, 40, 0), 2000L, 2000L));
+	}
+
+	@Test
+	public void testFindsWhereTheChainsConverged() {
+		// Chains start apart, and sample the same distribution after 100 updates
+		final KConvergence convergence = analyzer.analyze(3, createChains(4, 400, 100), 20000L, 20000L);
+		assertEquals(4, convergence.getChains());
+		assertTrue(convergence.getRHat() < ConvergenceAnalyzer.DEFAULT_THRESHOLD);
+		assertTrue("converged at " + convergence.getConvergedAt(), convergence.getConvergedAt() > 100L * 100L);
+		assertTrue("converged at " + convergence.getConvergedAt(), convergence.getConvergedAt() < 100L * 400L);
+	}
+
+	@Test
+	public void testKeepsTheBurnInWithoutDiagnostics() {
+		assertEquals(10000L, analyzer.adaptBurnIn(null, 10000L));
+	}
+
+	@Test
+	public void testShortensTheBurnInGradually() {
+		// Converged at 1000: 1500 would do, but the burn-in is at most halved
+		assertEquals(5000L, analyzer.adaptBurnIn(converged(1000L, 10000L), 10000L));
+		assertEquals(3000L, analyzer.adaptBurnIn(converged(2000L, 4000L), 10000L));
+	}
+
+	@Test
+	public void testBurnInFloor() {
+		assertEquals(2500L, analyzer.adaptBurnIn(converged(100L, 3000L), 10000L));
+		assertEquals(1L, analyzer.adaptBurnIn(converged(0L, 1L), 1L));
+	}
+
+	@Test
+	public void testExtendsTheBurnInOfChainsThatDidNotConverge() {
+		assertEquals(20000L, analyzer.adaptBurnIn(converged(-1L, 10000L), 10000L));
+		assertEquals(40000L, analyzer.adaptBurnIn(converged(-1L, 30000L), 10000L));
+		assertEquals(15000L, analyzer.adaptBurnIn(converged(10000L, 10000L), 10000L));
+	}
+
+	private static KConvergence converged(long convergedAt, long burnIn) {
+		return new KConvergence(2, 3, 1.0d, convergedAt, burnIn, 10000L);
+	}
+
+	/**
+	 * @param chains number of chains
+	 * @param values number of values of each chain, printed every 100 iterations
+	 * @param convergeAfter number of values before the chains sample the same 
+	 * distribution, each chain starting at its own level
+	 * @return the traces
+	 */
+	private static List<LikelihoodTrace> createChains(int chains, int values, int convergeAfter) {
+		final Random random = new Random(7L);
+		final List<LikelihoodTrace> traces = new ArrayList<LikelihoodTrace>();
+		for (int j = 0; j < chains; ++j) {
+			final LikelihoodTrace trace = new LikelihoodTrace();
+			for (int i = 0; i < values; ++i) {
+				final double offset = i < convergeAfter ? 200.0d * j * (convergeAfter - i) / convergeAfter : 0.0d;
+				trace.add(100L * (i + 1), -5000.0d - offset + random.nextGaussian());
+			}
+			traces.add(trace);
+		}
+		return traces;
+	}
+
+}
@@ -0,0 +1,84 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) <2012> <Bruno P. Kinoshita>
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.biouno.structure.convergence;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Random;
+
+import org.junit.Test;
+
+/**
+ * Tests the R-hat computed by {@link GelmanRubin}.
+ *
+ * @author Bruno P. Kinoshita - http://www.kinoshita.eti.br
+ * @since 0.1
+ */
+public class GelmanRubinTest {
+
+	@Test
+	public void testKnownValues() {
+		// W = 1, B = 0
+		assertEquals(Math.sqrt(2.0d / 3.0d), GelmanRubin.rHat(new double[][] { { 1, 2, 3 }, { 1, 2, 3 } }), 1e-9);
+		// W = 1, B = 3 * 4.5
+		assertEquals(Math.sqrt(2.0d / 3.0d + 4.5d), GelmanRubin.rHat(new double[][] { { 1, 2, 3 }, { 4, 5, 6 } }), 
+				1e-9);
+	}
+
+	@Test
+	public void testUsesTheShortestChain() {
+		assertEquals(GelmanRubin.rHat(new double[][] { { 1, 2, 3 }, { 4, 5, 6 } }), 
+				GelmanRubin.rHat(new double[][] { { 1, 2, 3, 100 }, { 4, 5, 6 } }), 1e-9);
+	}
+
+	@Test
+	public void testNotEnoughValues() {
+		assertTrue(Double.isNaN(GelmanRubin.rHat(new double[][] { { 1, 2, 3 } })));
+		assertTrue(Double.isNaN(GelmanRubin.rHat(new double[][] { { 1 }, { 2, 3 } })));
+	}
+
+	@Test
+	public void testConstantChains() {
+		assertEquals(1.0d, GelmanRubin.rHat(new double[][] { { 2, 2 }, { 2, 2 } }), 0.0d);
+		assertEquals(Double.POSITIVE_INFINITY, GelmanRubin.rHat(new double[][] { { 2, 2 }, { 3, 3 } }), 0.0d);
+	}
+
+	@Test
+	public void testChainsOfTheSameDistribution() {
+		final Random random = new Random(42L);
+		final double[][] chains = new double[4][2000];
+		for (double[] chain : chains) {
+			for (int i = 0; i < chain.length; ++i) {
+				chain[i] = -5000.0d + 10.0d * random.nextGaussian();
+			}
+		}
+		assertEquals(1.0d, GelmanRubin.rHat(chains), 0.01d);
+		for (int i = 0; i < chains[0].length; ++i) {
+			chains[0][i] -= 50.0d;
+		}
+		assertTrue(GelmanRubin.rHat(chains) > 1.1d);
+	}
+
+}
@@ -0,0 +1,97 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) <2012> <Bruno P. Kinoshita>
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.biouno.structure.convergence;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+/**
+ * Tests how a {@link LikelihoodTrace} keeps a bounded, evenly spread sample 
+ * of the values added.
+ *
+ * @author Bruno P. Kinoshita - http://www.kinoshita.eti.br
+ * @since 0.1
+ */
+public class LikelihoodTraceTest {
+
+	@Test
+	public void testKeepsEveryValueUpToTheCapacity() {
+		final LikelihoodTrace trace = fill(LikelihoodTrace.CAPACITY);
+		assertEquals(LikelihoodTrace.CAPACITY, trace.size());
+		assertEquals(100L, trace.getStep(0));
+		assertEquals(100L * LikelihoodTrace.CAPACITY, trace.getStep(LikelihoodTrace.CAPACITY - 1));
+		assertArrayEquals(new double[] { -2.0d, -3.0d }, trace.getValues(1, 3), 0.0d);
+	}
+
+	@Test
+	public void testDecimatesLongRuns() {
+		final int added = 100 * LikelihoodTrace.CAPACITY + 17;
+		final LikelihoodTrace trace = fill(added);
+		assertTrue(trace.size() <= LikelihoodTrace.CAPACITY);
+		assertTrue(trace.size() > LikelihoodTrace.CAPACITY / 2);
+		// Evenly spread from the first value to the last ones
+		assertEquals(100L, trace.getStep(0));
+		final long spacing = trace.getStep(1) - trace.getStep(0);
+		for (int i = 1; i < trace.size(); ++i) {
+			assertEquals(spacing, trace.getStep(i) - trace.getStep(i - 1));
+		}
+		assertTrue(trace.getStep(trace.size() - 1) > 100L * added - spacing - 1L);
+	}
+
+	@Test
+	public void testIndexAfter() {
+		final LikelihoodTrace trace = fill(10);
+		assertEquals(0, trace.indexAfter(0L));
+		assertEquals(0, trace.indexAfter(99L));
+		assertEquals(1, trace.indexAfter(100L));
+		assertEquals(5, trace.indexAfter(550L));
+		assertEquals(10, trace.indexAfter(1000L));
+	}
+
+	@Test
+	public void testClear() {
+		final LikelihoodTrace trace = fill(3 * LikelihoodTrace.CAPACITY);
+		trace.clear();
+		assertEquals(0, trace.size());
+		trace.add(1L, -1.0d);
+		trace.add(2L, -2.0d);
+		assertEquals(2, trace.size());
+		assertEquals(2L, trace.getStep(1));
+	}
+
+	/**
+	 * @return a trace of values printed every 100 iterations
+	 */
+	private static LikelihoodTrace fill(int values) {
+		final LikelihoodTrace trace = new LikelihoodTrace();
+		for (int i = 1; i <= values; ++i) {
+			trace.add(100L * i, -i);
+		}
+		return trace;
+	}
+
+}
@@ -0,0 +1,114 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) <2012> <Bruno P. Kinoshita>
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.biouno.structure.execution;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.commons.io.FileUtils;
+import org.biouno.structure.parser.MainParamsParser;
+import org.biouno.structure.parser.MainParamsTemplate;
+import org.biouno.structure.parser.MainParamsValues;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Tests what an {@link AgentBatch} reports to the master.
+ *
+ * @author Bruno P. Kinoshita - http://www.kinoshita.eti.br
+ * @since 0.1
+ */
+public class AgentBatchTest {
+
+	private File workDir;
+
+	@Before
+	public void setUp() throws Exception {
+		workDir = File.createTempFile("structure", "batch");
+		workDir.delete();
+		workDir.mkdirs();
+	}
+
+	@After
+	public void tearDown() {
+		FileUtils.deleteQuietly(workDir);
+	}
+
+	@Test
+	public void testLaunchFailureIsReported() throws Exception {
+		final MainParamsParser parser = new MainParamsParser(100, 100, 10L, 10L, "in", "out");
+		final Map<Integer, MainParamsValues> values = Collections.singletonMap(2, parser.createValues(2));
+		final RecordingStatus status = new RecordingStatus();
+		final StructureRun run = new StructureRun(2, 1, 21L);
+		final AgentBatch batch = new AgentBatch(MainParamsTemplate.compile("#define MAXPOPS 1\n"), values, 
+				Collections.<String, String>emptyMap(), new File(workDir, "no-such-structure").getAbsolutePath(), 
+				"out", Collections.<String, String>emptyMap(), null, false, Collections.singletonList(run), status);
+
+		final List<RunResult> results = batch.invoke(workDir, null);
+		assertEquals(1, results.size());
+		assertEquals(RunResult.NOT_LAUNCHED, results.get(0).getExitCode());
+		assertEquals(RunResult.NOT_LAUNCHED, status.exitCode);
+		final List<String> lines = status.lines;
+		assertEquals(1, lines.size());
+		assertTrue(lines.get(0), lines.get(0).startsWith("Failed to launch Structure: "));
+	}
+
+	/**
+	 * Records what is settled, as the master would print it.
+	 */
+	private static final class RecordingStatus implements BatchStatus {
+
+		private int exitCode;
+		private List<String> lines = new ArrayList<String>();
+
+		public boolean runStarting(StructureRun run) {
+			return true;
+		}
+
+		public void parametersWritten(long millis) {
+		}
+
+		public List<String> update(List<RunStatus> statuses) {
+			return Collections.emptyList();
+		}
+
+		public int settle(StructureRun run, int exitCode, RunStatus status) {
+			this.exitCode = exitCode;
+			this.lines = status.getLines();
+			return exitCode;
+		}
+
+		public void runFinished(RunResult result) {
+		}
+
+	}
+
+}
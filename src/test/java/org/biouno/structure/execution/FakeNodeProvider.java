@@ -0,0 +1,81 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) <2012> <Bruno P. Kinoshita>
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.biouno.structure.execution;
+
+import hudson.FilePath;
+import hudson.Launcher;
+import hudson.model.AbstractBuild;
+import hudson.model.TaskListener;
+import hudson.util.StreamTaskListener;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.commons.io.output.NullOutputStream;
+
+/**
+ * Nodes executed in this process, each one working in its own directory 
+ * outside the build workspace, as an agent would. Parameter files are 
+ * written, batches are sent and outputs are copied back to the workspace 
+ * through the same calls as with agents, over the local channel of the 
+ * master.
+ *
+ * @author Bruno P. Kinoshita - http://www.kinoshita.eti.br
+ * @since 0.1
+ */
+public class FakeNodeProvider implements NodeProvider {
+
+	private final File root;
+	private final int nodes;
+	private final int slots;
+
+	/**
+	 * @param root directory containing the work directory of each node
+	 * @param nodes number of nodes
+	 * @param slots number of runs executed at the same time on each node
+	 */
+	public FakeNodeProvider(File root, int nodes, int slots) {
+		this.root = root;
+		this.nodes = nodes;
+		this.slots = slots;
+	}
+
+	/* (non-Javadoc)
+	 * @see org.biouno.structure.execution.NodeProvider#getNodes(hudson.model.AbstractBuild, hudson.Launcher, java.lang.String, hudson.model.TaskListener)
+	 */
+	public List<ExecutionNode> getNodes(AbstractBuild<?, ?> build, Launcher launcher, String label, 
+			TaskListener listener) throws IOException, InterruptedException {
+		final List<ExecutionNode> executionNodes = new ArrayList<ExecutionNode>();
+		for (int i = 1; i <= nodes; ++i) {
+			final FilePath workDir = new FilePath(new File(root, "node" + i));
+			workDir.mkdirs();
+			executionNodes.add(new ExecutionNode("node" + i, slots, workDir, 
+					new Launcher.LocalLauncher(new StreamTaskListener(new NullOutputStream())), false));
+		}
+		return executionNodes;
+	}
+
+}
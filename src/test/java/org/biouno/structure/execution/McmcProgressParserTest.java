@@ -0,0 +1,100 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) <2012> <Bruno P. Kinoshita>
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.biouno.structure.execution;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+/**
+ * Tests the update lines that a {@link McmcProgressParser} reads from the
+ * console output of Structure.
+ *
+ * @author Bruno P. Kinoshita - http://www.kinoshita.eti.br
+ * @since 0.1
+ */
+public class McmcProgressParserTest {
+
+	@Test
+	public void testBurnInLineHasNoEstimate() {
+		final RunProgress progress = createProgress();
+		assertTrue(McmcProgressParser.isUpdate(" 1000:    0.043    -4402.1       --"));
+		assertTrue(McmcProgressParser.parse(" 1000:    0.043    -4402.1       --", progress, 5000L));
+		assertEquals(1000L, progress.getStep());
+		assertEquals(-4402.1d, progress.getLogLikelihood(), 0.0d);
+		assertEquals(RunProgress.BURNIN, progress.getPhase());
+	}
+
+	@Test
+	public void testSamplingLineUsesTheColumnBeforeTheEstimate() {
+		final RunProgress progress = createProgress();
+		assertTrue(McmcProgressParser.parse(" 1000:    0.043    -4402.1       --", progress, 5000L));
+		assertTrue(McmcProgressParser.parse("10100:    0.041    -4398.7    -4420.3", progress, 15000L));
+		assertEquals(10100L, progress.getStep());
+		assertEquals(-4398.7d, progress.getLogLikelihood(), 0.0d);
+		assertEquals(RunProgress.SAMPLING, progress.getPhase());
+		// 9100 iterations in 10 seconds
+		assertEquals(910.0d, progress.getStepsPerSecond(), 0.001d);
+	}
+
+	@Test
+	public void testLineWithoutLikelihoodStillAdvances() {
+		final RunProgress progress = createProgress();
+		assertTrue(McmcProgressParser.parse("  200:    0.043", progress, 1000L));
+		assertEquals(200L, progress.getStep());
+		assertNull(progress.getLogLikelihood());
+		assertTrue(McmcProgressParser.parse("  300:  0.04  not-a-number  --", progress, 2000L));
+		assertEquals(300L, progress.getStep());
+		assertNull(progress.getLogLikelihood());
+	}
+
+	@Test
+	public void testOtherLinesAreIgnored() {
+		final RunProgress progress = createProgress();
+		final String[] lines = { "", "BURNIN completed", "Rep#:      Alpha     Ln Like  Est Ln P(D)",
+				"Final results printed to file k2_r1_f", "Lambda: 1.000", "1000 iterations" };
+		for (String line : lines) {
+			assertFalse(line, McmcProgressParser.isUpdate(line));
+			assertFalse(line, McmcProgressParser.parse(line, progress, 1000L));
+		}
+		assertEquals(0L, progress.getStep());
+	}
+
+	@Test
+	public void testRepeatedLineDoesNotMoveTheCounter() {
+		final RunProgress progress = createProgress();
+		assertTrue(McmcProgressParser.parse(" 1100:    0.043    -4402.1       --", progress, 1000L));
+		assertTrue(McmcProgressParser.parse(" 1000:    0.043    -4300.0       --", progress, 2000L));
+		assertEquals(1100L, progress.getStep());
+		assertEquals(-4402.1d, progress.getLogLikelihood(), 0.0d);
+	}
+
+	private static RunProgress createProgress() {
+		return new RunProgress(new StructureRun(2, 1, 21L), 10000L, 20000L, 0L);
+	}
+
+}
@@ -0,0 +1,156 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) <2012> <Bruno P. Kinoshita>
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.biouno.structure.execution;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import hudson.FilePath;
+
+import java.io.File;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.output.NullOutputStream;
+import org.biouno.structure.parser.MainParamsParser;
+import org.biouno.structure.parser.MainParamsTemplate;
+import org.biouno.structure.parser.MainParamsValues;
+import org.junit.After;
+import org.junit.Assume;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Runs a sweep across several {@link FakeNodeProvider} nodes, with a script 
+ * that stands in for Structure, through the same {@link NodeStructureRunner} 
+ * batches and {@link SweepExecutor} as a build.
+ *
+ * @author Bruno P. Kinoshita - http://www.kinoshita.eti.br
+ * @since 0.1
+ */
+public class MultiNodeSweepTest {
+
+	private static final PrintStream LOGGER = new PrintStream(new NullOutputStream());
+
+	private static final String OUT_FILE = "results";
+
+	/**
+	 * Writes the Ln P(D) line of Structure to the output file given with -o, 
+	 * after checking that the mainparams of the run were written.
+	 */
+	private static final String STRUCTURE = "#!/bin/sh\n"
+			+ "while [ $# -gt 0 ]; do\n"
+			+ "  case \"$1\" in\n"
+			+ "    -m) main=\"$2\"; shift ;;\n"
+			+ "    -K) k=\"$2\"; shift ;;\n"
+			+ "    -o) out=\"$2\"; shift ;;\n"
+			+ "  esac\n"
+			+ "  shift\n"
+			+ "done\n"
+			+ "grep -q \"MAXPOPS $k\" \"$main\" || exit 3\n"
+			+ "echo \"Fake Structure, K=$k\"\n"
+			+ "echo \"Estimated Ln Prob of Data   = -$k.5\" > \"${out}_f\"\n";
+
+	private File root;
+	private FakeNodeProvider provider;
+
+	@Before
+	public void setUp() throws Exception {
+		Assume.assumeTrue(File.pathSeparatorChar == ':');
+		root = File.createTempFile("sweep", "");
+		if (!root.delete() || !root.mkdirs()) {
+			throw new IllegalStateException("Cannot create " + root);
+		}
+		provider = new FakeNodeProvider(root, 3, 2);
+	}
+
+	@After
+	public void tearDown() {
+		if (root != null) {
+			FileUtils.deleteQuietly(root);
+		}
+	}
+
+	@Test
+	public void testSweepRunsOnEveryNode() throws Exception {
+		final File executable = new File(root, "structure");
+		FileUtils.writeStringToFile(executable, STRUCTURE, "UTF-8");
+		assertTrue(executable.setExecutable(true));
+		final File workspaceDir = new File(root, "workspace");
+		final FilePath workspace = new FilePath(workspaceDir);
+		workspace.mkdirs();
+
+		final MainParamsTemplate template = MainParamsTemplate.compile("#define MAXPOPS 1\n#define BURNIN 10\n");
+		final MainParamsParser parser = new MainParamsParser(4, 10, 10L, 10L, "infile", OUT_FILE);
+		final Map<Integer, MainParamsValues> values = new TreeMap<Integer, MainParamsValues>();
+		final List<StructureRun> runs = new ArrayList<StructureRun>();
+		for (int k = 1; k <= 6; ++k) {
+			values.put(k, parser.createValues(k));
+			for (int replicate = 1; replicate <= 3; ++replicate) {
+				runs.add(new StructureRun(k, replicate, 100L * k + replicate));
+			}
+		}
+
+		final List<StructureRunner> slotRunners = new ArrayList<StructureRunner>();
+		final List<ExecutionNode> nodes = provider.getNodes(null, null, null, null);
+		for (ExecutionNode node : nodes) {
+			final NodeStructureRunner runner = new NodeStructureRunner(node, workspace, executable.getAbsolutePath(), 
+					null, OUT_FILE, Collections.<String, String>emptyMap());
+			runner.setParameters(template, values, "");
+			for (int slot = 0; slot < node.getSlots(); ++slot) {
+				slotRunners.add(runner);
+			}
+		}
+		final SweepResult result = new SweepExecutor(slotRunners.size(), 0, LOGGER).execute(runs, slotRunners);
+
+		assertTrue(result.isSuccess());
+		assertEquals(runs.size(), result.getSucceeded());
+		final Set<String> used = new HashSet<String>();
+		for (RunResult runResult : result.getResults()) {
+			used.add(runResult.getNode());
+		}
+		assertEquals(3, used.size());
+		// The outputs and logs of every run are back in the workspace, under their final names
+		for (StructureRun run : runs) {
+			final File output = new File(workspaceDir, run.getOutputFileName(OUT_FILE) + "_f");
+			assertTrue(output.getName(), output.isFile());
+			assertEquals("Estimated Ln Prob of Data   = -" + run.getK() + ".5\n", 
+					FileUtils.readFileToString(output, "UTF-8"));
+			assertTrue(new File(workspaceDir, run.getLogFileName(OUT_FILE)).isFile());
+		}
+		// The parameters are written on the nodes only
+		for (ExecutionNode node : nodes) {
+			assertTrue(node.getName(), node.getWorkDir().list(StructureRun.MAINPARAMS_PREFIX + "*").length > 0);
+		}
+		assertEquals(0, workspace.list(StructureRun.MAINPARAMS_PREFIX + "*").length);
+	}
+
+}
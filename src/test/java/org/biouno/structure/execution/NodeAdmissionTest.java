@@ -0,0 +1,131 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) <2012> <Bruno P. Kinoshita>
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.biouno.structure.execution;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.biouno.structure.scheduling.RunMemoryModel;
+import org.junit.Test;
+
+/**
+ * Tests how a {@link NodeAdmission} admits runs within the memory budget of a
+ * node.
+ *
+ * @author Bruno P. Kinoshita - http://www.kinoshita.eti.br
+ * @since 0.1
+ */
+public class NodeAdmissionTest {
+
+	private static final long WAIT = 200L;
+
+	private final RunMemoryModel model = new RunMemoryModel(100L, 1000L, 2, false, false, 0);
+
+	@Test
+	public void testRunsThatFitAreAdmitted() throws Exception {
+		final NodeAdmission admission = new NodeAdmission(model, model.estimate(2) + model.estimate(3));
+		final StructureRun k2 = new StructureRun(2, 1, 21L);
+		admission.admit(k2);
+		admission.admit(new StructureRun(3, 1, 31L));
+		// A copy of an admitted run replaces its admission
+		admission.admit(k2);
+		assertEquals(0, admission.getWaits());
+	}
+
+	@Test
+	public void testRunWaitsUntilItFits() throws Exception {
+		final NodeAdmission admission = new NodeAdmission(model, model.estimate(2) + model.estimate(3));
+		final StructureRun first = new StructureRun(3, 1, 31L);
+		final StructureRun second = new StructureRun(3, 2, 32L);
+		admission.admit(first);
+		final Admit waiting = new Admit(admission, second);
+		assertFalse(waiting.admitted.await(WAIT, TimeUnit.MILLISECONDS));
+
+		// Releasing a run not admitted does not make room
+		admission.release(new StructureRun(2, 1, 21L));
+		assertFalse(waiting.admitted.await(WAIT, TimeUnit.MILLISECONDS));
+
+		admission.release(first);
+		assertTrue(waiting.admitted.await(10L, TimeUnit.SECONDS));
+		waiting.join();
+		assertEquals(1, admission.getWaits());
+		assertTrue(admission.getWaitTime() >= 2 * WAIT);
+		assertEquals(admission.getWaitTime(), admission.getLongestWait());
+	}
+
+	@Test
+	public void testOversizedRunIsAdmittedAlone() throws Exception {
+		final NodeAdmission admission = new NodeAdmission(model, model.estimate(2));
+		final StructureRun large = new StructureRun(10, 1, 101L);
+		assertTrue(model.estimate(10) > admission.getBudget());
+		// Nothing else running, so the run is not kept waiting forever
+		assertEquals(0L, admission.admit(large), WAIT);
+		assertEquals(0, admission.getWaits());
+
+		final Admit small = new Admit(admission, new StructureRun(1, 1, 11L));
+		assertFalse(small.admitted.await(WAIT, TimeUnit.MILLISECONDS));
+		admission.release(large);
+		assertTrue(small.admitted.await(10L, TimeUnit.SECONDS));
+		small.join();
+
+		// And another oversized run waits for the small one
+		final Admit other = new Admit(admission, new StructureRun(10, 2, 102L));
+		assertFalse(other.admitted.await(WAIT, TimeUnit.MILLISECONDS));
+		admission.release(new StructureRun(1, 1, 11L));
+		assertTrue(other.admitted.await(10L, TimeUnit.SECONDS));
+		other.join();
+		assertEquals(2, admission.getWaits());
+	}
+
+	/**
+	 * Admits a run in a thread of its own.
+	 */
+	private static final class Admit extends Thread {
+		private final NodeAdmission admission;
+		private final StructureRun run;
+		private final CountDownLatch admitted = new CountDownLatch(1);
+
+		private Admit(NodeAdmission admission, StructureRun run) {
+			this.admission = admission;
+			this.run = run;
+			setDaemon(true);
+			start();
+		}
+
+		@Override
+		public void run() {
+			try {
+				admission.admit(run);
+				admitted.countDown();
+			} catch (InterruptedException ie) {
+				// The test failed
+			}
+		}
+	}
+
+}
@@ -0,0 +1,139 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) <2012> <Bruno P. Kinoshita>
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.biouno.structure.execution;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.util.Arrays;
+import java.util.List;
+import java.util.zip.GZIPInputStream;
+
+import org.apache.commons.io.IOUtils;
+import org.junit.Test;
+
+/**
+ * Tests which lines {@link RunLogSink} forwards to the build log, keeps in 
+ * its tail and writes to the log of the run.
+ *
+ * @author Bruno P. Kinoshita - http://www.kinoshita.eti.br
+ * @since 0.1
+ */
+public class RunLogSinkTest {
+
+	/**
+	 * Sink with a clock moved by the test.
+	 */
+	private static final class ClockSink extends RunLogSink {
+		private long now = 0L;
+
+		private ClockSink(ByteArrayOutputStream log) throws Exception {
+			super(log);
+		}
+
+		@Override
+		long currentTimeMillis() {
+			return now;
+		}
+	}
+
+	@Test
+	public void testUpdateLinesAreSampled() throws Exception {
+		final ClockSink sink = new ClockSink(new ByteArrayOutputStream());
+		write(sink, "  100:   -1234.5\n");
+		sink.now = RunLogSink.SAMPLE_INTERVAL - 1L;
+		write(sink, "  200:   -1200.0\n");
+		sink.now = RunLogSink.SAMPLE_INTERVAL;
+		write(sink, "  300:   -1190.0\n");
+		// Other lines are only written to the log
+		write(sink, "BURNIN completed\n");
+		assertEquals(Arrays.asList("  100:   -1234.5", "  300:   -1190.0"), sink.drain());
+		assertTrue(sink.drain().isEmpty());
+	}
+
+	@Test
+	public void testProblemsAreAlwaysForwarded() throws Exception {
+		final ClockSink sink = new ClockSink(new ByteArrayOutputStream());
+		write(sink, "  100:   -1234.5\nWARNING! Probable error in the input file.\r\nUnable to open file\n");
+		assertEquals(Arrays.asList("  100:   -1234.5", "WARNING! Probable error in the input file.", 
+				"Unable to open file"), sink.drain());
+	}
+
+	@Test
+	public void testForwardedLinesAreLimited() throws Exception {
+		final ClockSink sink = new ClockSink(new ByteArrayOutputStream());
+		for (int i = 0; i < RunLogSink.MAX_PROBLEMS + 5; ++i) {
+			write(sink, "Error " + i + "\n");
+		}
+		assertEquals(RunLogSink.MAX_PROBLEMS, sink.drain().size());
+		assertEquals(5L, sink.getDropped());
+		for (int i = 0; i < RunLogSink.MAX_FORWARDED + 3; ++i) {
+			sink.now += RunLogSink.SAMPLE_INTERVAL;
+			write(sink, "  " + (i + 1) + "00:   -1234.5\n");
+		}
+		assertEquals(RunLogSink.MAX_FORWARDED, sink.drain().size());
+		assertEquals(8L, sink.getDropped());
+	}
+
+	@Test
+	public void testProblemsAfterTheUpdateLimitAreForwarded() throws Exception {
+		final ClockSink sink = new ClockSink(new ByteArrayOutputStream());
+		for (int i = 0; i < RunLogSink.MAX_FORWARDED + 3; ++i) {
+			sink.now += RunLogSink.SAMPLE_INTERVAL;
+			write(sink, "  " + (i + 1) + "00:   -1234.5\n");
+		}
+		write(sink, "Fatal error: out of memory\n");
+		final List<String> lines = sink.drain();
+		assertEquals(RunLogSink.MAX_FORWARDED + 1, lines.size());
+		assertEquals("Fatal error: out of memory", lines.get(RunLogSink.MAX_FORWARDED));
+		assertEquals(3L, sink.getDropped());
+	}
+
+	@Test
+	public void testTailAndLog() throws Exception {
+		final ByteArrayOutputStream log = new ByteArrayOutputStream();
+		final ClockSink sink = new ClockSink(log);
+		final StringBuilder output = new StringBuilder();
+		for (int i = 1; i <= RunLogSink.TAIL_LINES + 10; ++i) {
+			output.append("line ").append(i).append('\n');
+		}
+		output.append("last line, not terminated");
+		write(sink, output.toString());
+		sink.close();
+		final List<String> tail = sink.getTail();
+		assertEquals(RunLogSink.TAIL_LINES, tail.size());
+		assertEquals("line 12", tail.get(0));
+		assertEquals("last line, not terminated", tail.get(RunLogSink.TAIL_LINES - 1));
+		// The whole output is in the log
+		final GZIPInputStream is = new GZIPInputStream(new ByteArrayInputStream(log.toByteArray()));
+		assertEquals(output.toString(), IOUtils.toString(is, "US-ASCII"));
+	}
+
+	private static void write(RunLogSink sink, String text) throws Exception {
+		sink.write(text.getBytes("US-ASCII"));
+	}
+
+}
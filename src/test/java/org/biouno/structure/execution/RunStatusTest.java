@@ -0,0 +1,86 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) <2012> <Bruno P. Kinoshita>
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.biouno.structure.execution;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.io.PrintStream;
+import java.util.ArrayList;
+
+import org.apache.commons.io.output.NullOutputStream;
+import org.junit.Test;
+
+/**
+ * Tests the log-likelihood trace sent with the {@link RunStatus} of a run, 
+ * recorded only when asked for.
+ *
+ * @author Bruno P. Kinoshita - http://www.kinoshita.eti.br
+ * @since 0.1
+ */
+public class RunStatusTest {
+
+	@Test
+	public void testTraceIsNotRecordedByDefault() {
+		final RunProgress progress = new RunProgress(new StructureRun(2, 1, 1L), 100L, 200L, 0L);
+		progress.advance(10L, -100.0d, 1L);
+		assertNull(progress.getTrace());
+		final RunStatus status = RunStatus.create(progress);
+		assertEquals(0, status.getTraceSize());
+		final RunProgress master = new RunProgress(new StructureRun(2, 1, 1L), 100L, 200L, 0L);
+		status.applyTo(master, 2L);
+		assertEquals(10L, master.getStep());
+	}
+
+	@Test
+	public void testRecordedTraceIsSentOnce() {
+		final RunProgress progress = new RunProgress(new StructureRun(2, 1, 1L), 100L, 200L, 0L);
+		progress.recordTrace();
+		progress.advance(10L, -100.0d, 1L);
+		progress.advance(20L, -90.0d, 2L);
+		final RunStatus first = RunStatus.create(progress);
+		assertEquals(2, first.getTraceSize());
+		assertEquals(0, progress.getTrace().size());
+		progress.advance(30L, -80.0d, 3L);
+		final RunStatus second = RunStatus.create(progress);
+		assertEquals(1, second.getTraceSize());
+
+		final RunProgress master = new RunProgress(new StructureRun(2, 1, 1L), 100L, 200L, 0L);
+		master.recordTrace();
+		first.applyTo(master, 4L);
+		second.applyTo(master, 5L);
+		assertEquals(3, master.getTrace().size());
+		assertEquals(30L, master.getTrace().getStep(2));
+	}
+
+	@Test
+	public void testMonitorRecordsTracesWhenAsked() {
+		final SweepMonitor monitor = new SweepMonitor(new ArrayList<RunProgress>(), 100L, 100L, 0L, false, 
+				new PrintStream(new NullOutputStream()));
+		assertNull(monitor.runStarted(new StructureRun(2, 1, 1L), 0.0d).getTrace());
+		monitor.setRecordTraces(true);
+		assertEquals(0, monitor.runStarted(new StructureRun(2, 2, 2L), 0.0d).getTrace().size());
+	}
+
+}
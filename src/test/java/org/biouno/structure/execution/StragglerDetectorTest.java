@@ -0,0 +1,138 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) <2012> <Bruno P. Kinoshita>
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.biouno.structure.execution;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.Test;
+
+/**
+ * Tests which runs a {@link StragglerDetector} finds behind their peers.
+ *
+ * @author Bruno P. Kinoshita - http://www.kinoshita.eti.br
+ * @since 0.1
+ */
+public class StragglerDetectorTest {
+
+	private static final long TOTAL_STEPS = 10000L;
+
+	private final List<RunProgress> runs = new ArrayList<RunProgress>();
+	private final StragglerDetector detector = new StragglerDetector(runs);
+
+	@Test
+	public void testPeersRunAtTheirMedianRate() {
+		// A fast outlier does not make every other run a straggler
+		finished(2, 1, 10.0d);
+		finished(2, 2, 20.0d);
+		finished(2, 3, 1000.0d);
+		running(2, 4, 15.0d);
+		running(2, 5, 5.0d);
+		running(2, 6, 2.0d);
+		// k2_r4: median of 10, 20, 1000, 5 and 2 is 10, a whole run takes 1000 s, 657 s are left
+		// k2_r5: median 15, 667 s for a whole run, 1990 s left
+		// k2_r6: median 15, 4990 s left
+		assertEquals(Arrays.asList("k2_r6", "k2_r5"), detector.findStragglers(300000L));
+	}
+
+	@Test
+	public void testRunsAreNotJudgedBeforeAQuarterOfTheTimeOfTheirPeers() {
+		finished(2, 1, 10.0d);
+		finished(2, 2, 10.0d);
+		running(2, 3, 1.0d);
+		// The peers take 1000 s for a whole run
+		assertTrue(detector.findStragglers(249999L).isEmpty());
+		assertEquals(Collections.singletonList("k2_r3"), detector.findStragglers(250000L));
+	}
+
+	@Test
+	public void testKNeedsEnoughPeersWithAKnownSpeed() {
+		finished(2, 1, 10.0d);
+		// Finished before printing any iteration, e.g. a run that failed
+		final RunProgress failed = new RunProgress(new StructureRun(2, 2, 22L), 0L, TOTAL_STEPS, 0L);
+		failed.finish(1, 10000L);
+		runs.add(failed);
+		running(2, 3, 1.0d);
+		// Runs of other K are not peers
+		finished(3, 1, 10.0d);
+		finished(3, 2, 10.0d);
+		assertEquals(2, StragglerDetector.MIN_PEERS);
+		assertTrue(detector.findStragglers(500000L).isEmpty());
+
+		finished(2, 4, 10.0d);
+		assertEquals(Collections.singletonList("k2_r3"), detector.findStragglers(500000L));
+	}
+
+	@Test
+	public void testCopiesOfARunAreNotItsPeers() {
+		finished(3, 1, 10.0d);
+		running(3, 2, 1.0d);
+		// A speculative copy of the slow run
+		running(3, 2, 100.0d);
+		assertTrue(detector.findStragglers(500000L).isEmpty());
+
+		finished(3, 3, 10.0d);
+		assertEquals(Collections.singletonList("k3_r2"), detector.findStragglers(500000L));
+		// Both copies behind: the run is listed once
+		runs.remove(runs.size() - 2);
+		running(3, 2, 2.0d);
+		assertEquals(Collections.singletonList("k3_r2"), detector.findStragglers(500000L));
+	}
+
+	@Test
+	public void testOnlyRunningRunsAreStragglers() {
+		finished(2, 1, 10.0d);
+		finished(2, 2, 10.0d);
+		final RunProgress cancelled = running(2, 3, 1.0d);
+		cancelled.cancel();
+		final RunProgress stalled = running(2, 4, 1.0d);
+		stalled.stalled(false);
+		assertEquals(Collections.singletonList("k2_r4"), detector.findStragglers(500000L));
+	}
+
+	/**
+	 * Adds a run started at time zero, that ran at the given iterations per
+	 * second for its first 10 seconds.
+	 */
+	private RunProgress running(int k, int replicate, double rate) {
+		final RunProgress progress = new RunProgress(new StructureRun(k, replicate, k * 10L + replicate), 0L,
+				TOTAL_STEPS, 0L);
+		progress.advance(1L, null, 0L);
+		progress.advance(1L + Math.round(rate * 10.0d), null, 10000L);
+		runs.add(progress);
+		return progress;
+	}
+
+	private RunProgress finished(int k, int replicate, double rate) {
+		final RunProgress progress = running(k, replicate, rate);
+		progress.finish(0, 10000L);
+		return progress;
+	}
+
+}
@@ -0,0 +1,85 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) <2012> <Bruno P. Kinoshita>
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.biouno.structure.execution;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+import org.junit.Test;
+
+/**
+ * Tests the file names of a {@link StructureRun}.
+ *
+ * @author Bruno P. Kinoshita - http://www.kinoshita.eti.br
+ * @since 0.1
+ */
+public class StructureRunTest {
+
+	@Test
+	public void testFileNames() {
+		final StructureRun run = new StructureRun(3, 2, 42L);
+		assertEquals("k3_r2", run.getName());
+		assertEquals(StructureRun.MAINPARAMS_PREFIX + 3, run.getMainParamsFileName());
+		assertEquals("results/out_k3_r2", run.getOutputFileName("results/out"));
+		assertEquals("results/out_k3_r2.log.gz", run.getLogFileName("results/out"));
+		assertEquals(StructureRun.EXTRAPARAMS_FILE_NAME, run.getExtraParamsFileName());
+	}
+
+	@Test
+	public void testStageNamesTheRun() {
+		final StructureRun run = new StructureRun("coarse", 3, 2, 42L);
+		assertEquals("coarse", run.getStage());
+		assertEquals("coarse_k3_r2", run.getName());
+		assertEquals("out_coarse_k3_r2", run.getOutputFileName("out"));
+		assertEquals("out_coarse_k3_r2.log.gz", run.getLogFileName("out"));
+		assertEquals(StructureRun.MAINPARAMS_PREFIX + 3, run.getMainParamsFileName());
+		assertEquals("extraparams_coarse", run.getExtraParamsFileName());
+	}
+
+	@Test
+	public void testGridConfigurationKeysTheOutputs() {
+		final StructureRun run = new StructureRun("g2", 3, 2, 42L);
+		assertEquals("out_g2_k3_r2", run.getOutputFileName("out"));
+		assertEquals("extraparams_g2", run.getExtraParamsFileName());
+		assertFalse(run.equals(new StructureRun("g1", 3, 2, 42L)));
+	}
+
+	@Test
+	public void testEquality() {
+		final StructureRun run = new StructureRun(3, 2, 42L);
+		assertEquals(run, new StructureRun(3, 2, 7L));
+		assertEquals(run.hashCode(), new StructureRun(null, 3, 2, 7L).hashCode());
+		assertFalse(run.equals(new StructureRun(3, 1, 42L)));
+		assertFalse(run.equals(new StructureRun("coarse", 3, 2, 42L)));
+		assertFalse(new StructureRun("coarse", 3, 2, 42L).equals(run));
+		assertEquals(new StructureRun("coarse", 3, 2, 42L), new StructureRun("coarse", 3, 2, 42L));
+	}
+
+	@Test
+	public void testLogFollowsTheOutputFile() {
+		final StructureRun run = new StructureRun(3, 2, 42L);
+		assertFalse(run.getLogFileName("out").equals(run.getLogFileName("out_coarse")));
+	}
+
+}
@@ -0,0 +1,194 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) <2012> <Bruno P. Kinoshita>
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.biouno.structure.execution;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.commons.io.output.NullOutputStream;
+import org.junit.Test;
+
+/**
+ * Tests how {@link SweepExecutor} hands the runs of a sweep to its workers.
+ *
+ * @author Bruno P. Kinoshita - http://www.kinoshita.eti.br
+ * @since 0.1
+ */
+public class SweepExecutorTest {
+
+	private static final PrintStream LOGGER = new PrintStream(new NullOutputStream());
+
+	/**
+	 * Batch runner that is never called, the tests only look at the batches.
+	 */
+	private static final StructureRunner BATCH_RUNNER = new BatchStructureRunner() {
+		public RunResult run(StructureRun run) {
+			throw new UnsupportedOperationException();
+		}
+		public void run(List<StructureRun> runs, Callback callback) {
+			throw new UnsupportedOperationException();
+		}
+	};
+
+	@Test
+	public void testFirstRunOfEachWorkerIsTakenAlone() {
+		final Queue<StructureRun> pending = createRuns(40);
+		final AtomicInteger dealt = new AtomicInteger(0);
+		for (int i = 0; i < 4; ++i) {
+			final List<StructureRun> batch = SweepExecutor.pollBatch(pending, BATCH_RUNNER, 4, dealt);
+			assertEquals(1, batch.size());
+			assertEquals(i + 1, batch.get(0).getK());
+		}
+		assertTrue(SweepExecutor.pollBatch(pending, BATCH_RUNNER, 4, dealt).size() > 1);
+	}
+
+	@Test
+	public void testBatchRunsAreDealtFromTheQueue() {
+		final Queue<StructureRun> pending = createRuns(40);
+		final AtomicInteger dealt = new AtomicInteger(4);
+		final List<StructureRun> batch = SweepExecutor.pollBatch(pending, BATCH_RUNNER, 4, dealt);
+		// 40 runs, 4 workers, a fifth of the share of each worker
+		assertEquals(5, batch.size());
+		for (int i = 0; i < batch.size(); ++i) {
+			assertEquals(1 + 4 * i, batch.get(i).getK());
+		}
+		assertEquals(35, pending.size());
+		assertEquals(2, pending.peek().getK());
+		assertEquals(9, dealt.get());
+	}
+
+	@Test
+	public void testSingleRunnerTakesOneRunAtATime() {
+		final Queue<StructureRun> pending = createRuns(40);
+		final StructureRunner runner = new StructureRunner() {
+			public RunResult run(StructureRun run) {
+				return new RunResult(run, 0, 0L);
+			}
+		};
+		final AtomicInteger dealt = new AtomicInteger(10);
+		assertEquals(1, SweepExecutor.pollBatch(pending, runner, 4, dealt).size());
+		assertEquals(2, pending.peek().getK());
+	}
+
+	@Test
+	public void testBatchesKeepLongestFirstBalance() {
+		// Runs sorted longest-first, the cost of run K is 100 - K
+		final int workers = 4;
+		final Queue<StructureRun> pending = createRuns(96);
+		long total = 0L;
+		for (StructureRun run : pending) {
+			total += cost(run);
+		}
+		final AtomicInteger dealt = new AtomicInteger(0);
+		final long[] busyUntil = new long[workers];
+		while (!pending.isEmpty()) {
+			// The worker that becomes idle first takes the next batch
+			int worker = 0;
+			for (int i = 1; i < workers; ++i) {
+				if (busyUntil[i] < busyUntil[worker]) {
+					worker = i;
+				}
+			}
+			for (StructureRun run : SweepExecutor.pollBatch(pending, BATCH_RUNNER, workers, dealt)) {
+				busyUntil[worker] += cost(run);
+			}
+		}
+		long makespan = 0L;
+		for (long busy : busyUntil) {
+			makespan = Math.max(makespan, busy);
+		}
+		// Within the cost of the most expensive run of the ideal split
+		assertTrue("makespan " + makespan, makespan <= total / workers + cost(new StructureRun(1, 1, 1L)));
+	}
+
+	@Test
+	public void testExecutesEveryRun() throws Exception {
+		final List<StructureRun> runs = new ArrayList<StructureRun>(createRuns(20));
+		final SweepExecutor executor = new SweepExecutor(3, 0, LOGGER);
+		final SweepResult result = executor.execute(runs, new StructureRunner() {
+			public RunResult run(StructureRun run) {
+				return new RunResult(run, 0, 1L);
+			}
+		});
+		assertEquals(20, result.getSucceeded());
+		assertEquals(0, result.getFailed());
+		assertTrue(result.getNotStarted().isEmpty());
+	}
+
+	@Test
+	public void testStopsAtFailureLimit() throws Exception {
+		final List<StructureRun> runs = new ArrayList<StructureRun>(createRuns(20));
+		final SweepExecutor executor = new SweepExecutor(1, 2, LOGGER);
+		final SweepResult result = executor.execute(runs, new StructureRunner() {
+			public RunResult run(StructureRun run) throws IOException {
+				throw new IOException("cannot launch " + run);
+			}
+		});
+		assertEquals(2, result.getFailed());
+		assertEquals(18, result.getNotStarted().size());
+		assertTrue(!result.isSuccess());
+	}
+
+	@Test
+	public void testGridRunsShareTheSweep() throws Exception {
+		final List<StructureRun> runs = new ArrayList<StructureRun>(createRuns(4));
+		for (int k = 1; k <= 4; ++k) {
+			runs.add(new StructureRun("g1", k, 1, k));
+		}
+		final SweepExecutor executor = new SweepExecutor(2, 0, LOGGER);
+		final SweepResult result = executor.execute(runs, new StructureRunner() {
+			public RunResult run(StructureRun run) {
+				return new RunResult(run, "g1".equals(run.getStage()) && run.getK() == 2 ? 1 : 0, 1L);
+			}
+		});
+		assertEquals(8, result.getResults().size());
+		assertTrue(result.filter(null).isSuccess());
+		assertEquals(4, result.filter(null).getSucceeded());
+		assertEquals(1, result.filter("g1").getFailed());
+		assertEquals(3, result.filter("g1").getSucceeded());
+		assertTrue(result.filter("g2").getResults().isEmpty());
+	}
+
+	private static long cost(StructureRun run) {
+		return 100L - run.getK();
+	}
+
+	private static Queue<StructureRun> createRuns(int count) {
+		final List<StructureRun> runs = new LinkedList<StructureRun>();
+		for (int k = 1; k <= count; ++k) {
+			runs.add(new StructureRun(k, 1, k));
+		}
+		return new ConcurrentLinkedQueue<StructureRun>(runs);
+	}
+
+}
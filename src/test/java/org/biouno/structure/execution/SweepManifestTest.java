@@ -0,0 +1,181 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) <2012> <Bruno P. Kinoshita>
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.biouno.structure.execution;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Tests how a {@link SweepManifest} records finished runs and is loaded to 
+ * resume a sweep.
+ *
+ * @author Bruno P. Kinoshita - http://www.kinoshita.eti.br
+ * @since 0.1
+ */
+public class SweepManifestTest {
+
+	private File file;
+
+	@Before
+	public void setUp() throws Exception {
+		file = File.createTempFile("structure", ".manifest");
+	}
+
+	@After
+	public void tearDown() {
+		FileUtils.deleteQuietly(file);
+	}
+
+	@Test
+	public void testMissingFile() throws Exception {
+		FileUtils.deleteQuietly(file);
+		assertNull(SweepManifest.load(file));
+	}
+
+	@Test
+	public void testRecordedRunsAreLoaded() throws Exception {
+		final SweepManifest manifest = new SweepManifest(file, "results");
+		manifest.start("abc123", "admixture", 2.5d);
+		manifest.runFinished(new RunResult(new StructureRun(2, 1, 21L), 0, 1500L, "node1"));
+		manifest.runFinished(new RunResult(new StructureRun(3, 2, 32L), 1, 800L));
+		manifest.runFinished(new RunResult(new StructureRun("g1", 2, 1, 121L), 0, 900L, "node2"));
+
+		final SweepManifest loaded = SweepManifest.load(file);
+		assertEquals("abc123", loaded.getConfiguration());
+		assertEquals("admixture", loaded.getModel());
+		assertEquals(2.5d, loaded.getUnitsPerK(), 0.0d);
+		assertEquals(3, loaded.getResults().size());
+
+		final RunResult result = loaded.getResult(new StructureRun(2, 1, 21L));
+		assertEquals(0, result.getExitCode());
+		assertEquals(1500L, result.getDuration());
+		assertEquals("node1", result.getNode());
+		assertEquals("results_k2_r1", loaded.getOutput(new StructureRun(2, 1, 21L)));
+		assertNull(loaded.getResult(new StructureRun(3, 2, 32L)).getNode());
+		// Runs of a grid configuration are not the runs of the main sweep
+		assertEquals(900L, loaded.getResult(new StructureRun("g1", 2, 1, 121L)).getDuration());
+		assertEquals("g1_k2_r1", loaded.getResult(new StructureRun("g1", 2, 1, 121L)).getRun().getName());
+		assertNull(loaded.getResult(new StructureRun("g2", 2, 1, 121L)));
+	}
+
+	@Test
+	public void testWorkOfEachKIsLoaded() throws Exception {
+		final Map<Integer, Double> unitsPerKByK = new HashMap<Integer, Double>();
+		unitsPerKByK.put(3, 4.5d);
+		new SweepManifest(file, "results").start("abc123", "admixture", 2.5d, unitsPerKByK);
+		final SweepManifest loaded = SweepManifest.load(file);
+		assertEquals(2.5d, loaded.getUnitsPerK(), 0.0d);
+		assertEquals(2.5d, loaded.getUnitsPerK(2), 0.0d);
+		assertEquals(4.5d, loaded.getUnitsPerK(3), 0.0d);
+	}
+
+	@Test
+	public void testLastResultOfARunIsKept() throws Exception {
+		final SweepManifest manifest = new SweepManifest(file, "results");
+		manifest.start("abc123", "admixture", 1.0d);
+		manifest.runFinished(new RunResult(new StructureRun(2, 1, 21L), 1, 100L));
+		manifest.runFinished(new RunResult(new StructureRun(2, 1, 21L), 0, 200L));
+		final SweepManifest loaded = SweepManifest.load(file);
+		assertEquals(1, loaded.getResults().size());
+		assertEquals(0, loaded.getResult(new StructureRun(2, 1, 21L)).getExitCode());
+	}
+
+	@Test
+	public void testRunWithAnotherSeedIsNotResumed() throws Exception {
+		final SweepManifest manifest = new SweepManifest(file, "results");
+		manifest.start("abc123", "admixture", 1.0d);
+		manifest.runFinished(new RunResult(new StructureRun(2, 1, 21L), 0, 100L));
+		assertNull(SweepManifest.load(file).getResult(new StructureRun(2, 1, 22L)));
+	}
+
+	@Test
+	public void testIncompleteAndDamagedLinesAreIgnored() throws Exception {
+		FileUtils.writeStringToFile(file, "#configuration abc123\n"
+				+ "#workload admixture 1.0 3:x\n"
+				+ "2\t1\t21\t0\t100\t\tresults_k2_r1\t\t\n"
+				+ "3\tx\t31\t0\t100\t\tresults_k3_r1\t\t\n"
+				+ "4\t1\t41\t0\t100\t\tresults_k4_r1\t\t", "UTF-8");
+		final SweepManifest loaded = SweepManifest.load(file);
+		assertEquals("abc123", loaded.getConfiguration());
+		// The workload is only used for calibration
+		assertNull(loaded.getModel());
+		assertEquals(0.0d, loaded.getUnitsPerK(), 0.0d);
+		assertEquals(1, loaded.getResults().size());
+		assertEquals(2, loaded.getResults().get(0).getRun().getK());
+	}
+
+	@Test
+	public void testLinesInAnotherFormatAreIgnored() throws Exception {
+		FileUtils.writeStringToFile(file, "#configuration abc123\n"
+				+ "2\t1\t21\t0\t100\tnode1\tresults_k2_r1\t\n"
+				+ "3\t1\t31\t0\t100\tnode1\tresults_k3_r1\t\t\n", "UTF-8");
+		final SweepManifest loaded = SweepManifest.load(file);
+		assertNull(loaded.getResult(new StructureRun(2, 1, 21L)));
+		final RunResult result = loaded.getResult(new StructureRun(3, 1, 31L));
+		assertNull(result.getRun().getStage());
+		assertEquals("node1", result.getNode());
+		assertEquals("results_k3_r1", loaded.getOutput(new StructureRun(3, 1, 31L)));
+	}
+
+	@Test
+	public void testResumedRunsAreMarked() throws Exception {
+		final SweepManifest manifest = new SweepManifest(file, "results");
+		manifest.start("abc123", "admixture", 1.0d);
+		manifest.runResumed(new RunResult(new StructureRun(2, 1, 21L), 0, 100L, "node1"));
+		manifest.runFinished(new RunResult(new StructureRun(3, 1, 31L), 0, 200L, "node1"));
+		// Executed again after it was resumed, e.g. after its output was lost
+		manifest.runResumed(new RunResult(new StructureRun(4, 1, 41L), 0, 300L, "node1"));
+		manifest.runFinished(new RunResult(new StructureRun(4, 1, 41L), 0, 400L, "node2"));
+
+		final SweepManifest loaded = SweepManifest.load(file);
+		assertTrue(loaded.isResumed(new StructureRun(2, 1, 21L)));
+		assertEquals(100L, loaded.getResult(new StructureRun(2, 1, 21L)).getDuration());
+		assertFalse(loaded.isResumed(new StructureRun(3, 1, 31L)));
+		assertFalse(loaded.isResumed(new StructureRun(4, 1, 41L)));
+		assertEquals(400L, loaded.getResult(new StructureRun(4, 1, 41L)).getDuration());
+	}
+
+	@Test
+	public void testStartReplacesTheManifest() throws Exception {
+		final SweepManifest manifest = new SweepManifest(file, "results");
+		manifest.start("abc123", "admixture", 1.0d);
+		manifest.runFinished(new RunResult(new StructureRun(2, 1, 21L), 0, 100L));
+		manifest.start("def456", "admixture", 1.0d);
+		final SweepManifest loaded = SweepManifest.load(file);
+		assertEquals("def456", loaded.getConfiguration());
+		assertEquals(0, loaded.getResults().size());
+	}
+
+}
@@ -0,0 +1,171 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) <2012> <Bruno P. Kinoshita>
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.biouno.structure.execution;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import hudson.Proc;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import org.junit.Test;
+
+/**
+ * Tests how a {@link SweepMonitor} flags and kills stalled runs, and settles
+ * the copies of a run.
+ *
+ * @author Bruno P. Kinoshita - http://www.kinoshita.eti.br
+ * @since 0.1
+ */
+public class SweepMonitorTest {
+
+	private static final long TIMEOUT = 60000L;
+
+	private final List<RunProgress> runs = new CopyOnWriteArrayList<RunProgress>();
+	private final ByteArrayOutputStream log = new ByteArrayOutputStream();
+
+	@Test
+	public void testStalledRunIsFlaggedOnce() throws Exception {
+		final SweepMonitor monitor = createMonitor(false);
+		final RunProgress progress = monitor.runStarted(new StructureRun(2, 1, 21L), 0.0d);
+		final FakeProc proc = new FakeProc();
+		monitor.processStarted(progress, proc);
+		final long start = progress.getStartTime();
+
+		monitor.checkStalled(start + TIMEOUT - 1L);
+		assertEquals(RunProgress.RUNNING, progress.getState());
+		monitor.checkStalled(start + TIMEOUT);
+		assertEquals(RunProgress.STALLED, progress.getState());
+		final int logged = log.size();
+		assertTrue(logged > 0);
+		// Not logged again while still stalled
+		monitor.checkStalled(start + 2 * TIMEOUT);
+		assertEquals(logged, log.size());
+		assertEquals(0, proc.kills);
+
+		// Running again after a new iteration
+		progress.advance(100L, null, start + 2 * TIMEOUT);
+		assertEquals(RunProgress.RUNNING, progress.getState());
+		monitor.checkStalled(start + 3 * TIMEOUT - 1L);
+		assertEquals(RunProgress.RUNNING, progress.getState());
+	}
+
+	@Test
+	public void testStalledRunIsKilledAfterTheTimeout() throws Exception {
+		final SweepMonitor monitor = createMonitor(true);
+		final RunProgress progress = monitor.runStarted(new StructureRun(2, 1, 21L), 0.0d);
+		final FakeProc proc = new FakeProc();
+		monitor.processStarted(progress, proc);
+		final long start = progress.getStartTime();
+		progress.advance(500L, null, start + 30000L);
+
+		// The timeout counts from the last iteration
+		monitor.checkStalled(start + TIMEOUT);
+		assertEquals(0, proc.kills);
+		monitor.checkStalled(start + 30000L + TIMEOUT);
+		assertEquals(1, proc.kills);
+		assertEquals(RunProgress.KILLED, progress.getState());
+		monitor.checkStalled(start + 30000L + 2 * TIMEOUT);
+		assertEquals(1, proc.kills);
+
+		// Killed runs keep their state when they finish
+		monitor.runFinished(progress, 143);
+		assertEquals(RunProgress.KILLED, progress.getState());
+	}
+
+	@Test
+	public void testFinishedRunsAreNotChecked() throws Exception {
+		final SweepMonitor monitor = createMonitor(true);
+		final RunProgress progress = monitor.runStarted(new StructureRun(2, 1, 21L), 0.0d);
+		final FakeProc proc = new FakeProc();
+		monitor.processStarted(progress, proc);
+		monitor.runFinished(progress, 0);
+		monitor.checkStalled(progress.getStartTime() + 2 * TIMEOUT);
+		assertEquals(0, proc.kills);
+		assertEquals(RunProgress.FINISHED, progress.getState());
+	}
+
+	@Test
+	public void testFirstCopyToSucceedClaimsTheRun() throws Exception {
+		final SweepMonitor monitor = createMonitor(false);
+		final RunProgress first = monitor.runStarted(new StructureRun(2, 1, 21L), 0.0d);
+		final RunProgress copy = monitor.runStarted(new StructureRun(2, 1, 21L), 0.0d);
+		assertFalse(first.isSpeculative());
+		assertTrue(copy.isSpeculative());
+		final FakeProc firstProc = new FakeProc();
+		final FakeProc copyProc = new FakeProc();
+		monitor.processStarted(first, firstProc);
+		monitor.processStarted(copy, copyProc);
+
+		assertEquals(0, monitor.settle(copy, 0));
+		assertEquals(1, firstProc.kills);
+		assertEquals(RunProgress.CANCELLED, first.getState());
+		assertEquals(RunResult.CANCELLED, monitor.settle(first, 0));
+		// A copy started after the run was claimed is cancelled as soon as its process starts
+		final RunProgress late = monitor.runStarted(new StructureRun(2, 1, 21L), 0.0d);
+		assertEquals(RunProgress.CANCELLED, late.getState());
+		final FakeProc lateProc = new FakeProc();
+		monitor.processStarted(late, lateProc);
+		assertEquals(1, lateProc.kills);
+		assertEquals(3, runs.size());
+	}
+
+	@Test
+	public void testMonitorIsNotStartedWithoutATimeout() {
+		final SweepMonitor monitor = new SweepMonitor(runs, 100L, 100L, 0L, true, new PrintStream(log));
+		monitor.start();
+		monitor.stop();
+		assertEquals(0L, monitor.getStallTimeout());
+	}
+
+	private SweepMonitor createMonitor(boolean killStalled) {
+		return new SweepMonitor(runs, 10000L, 10000L, TIMEOUT, killStalled, new PrintStream(log));
+	}
+
+	private static final class FakeProc extends Proc {
+		private int kills = 0;
+
+		@Override
+		public boolean isAlive() throws IOException, InterruptedException {
+			return kills == 0;
+		}
+
+		@Override
+		public void kill() throws IOException, InterruptedException {
+			++kills;
+		}
+
+		@Override
+		public int join() throws IOException, InterruptedException {
+			return 0;
+		}
+	}
+
+}
@@ -0,0 +1,150 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) <2012> <Bruno P. Kinoshita>
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.biouno.structure.input;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.util.List;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.After;
+import org.junit.Test;
+
+/**
+ * Tests {@link InFileScanner} and the checks of its {@link InFileReport}.
+ *
+ * @author Bruno P. Kinoshita - http://www.kinoshita.eti.br
+ * @since 0.1
+ */
+public class InFileScannerTest {
+
+	/**
+	 * Diploid, two rows per individual, with labels and population data.
+	 */
+	private static final InFileFormat FORMAT = new InFileFormat(2, -9, false, true, true, false, false, false, 0,
+			false, false, false, false);
+
+	private File file;
+
+	@After
+	public void tearDown() {
+		if (file != null) {
+			FileUtils.deleteQuietly(file);
+		}
+	}
+
+	@Test
+	public void testCountsIndividualsAndLoci() throws Exception {
+		final InFileReport report = scan(FORMAT, 0, createFile(5, 3));
+		assertTrue(report.isComplete());
+		assertEquals(5, report.getIndividuals());
+		assertEquals(3, report.getLoci());
+		assertEquals(30L, report.getGenotypes());
+		assertEquals(5L, report.getMissing());
+		assertEquals(0, report.getErrorCount());
+		assertTrue(report.check(5, 3).isEmpty());
+	}
+
+	@Test
+	public void testOneRowPerIndividualWithMarkerNames() throws Exception {
+		final InFileFormat format = new InFileFormat(2, -9, true, true, false, false, false, false, 0,
+				true, false, false, false);
+		final InFileReport report = scan(format, 0, "loc_a loc_b\nind1 1 2 3 4\r\n\nind2 -9 -9 1 1\n");
+		assertEquals(2, report.getIndividuals());
+		assertEquals(2, report.getLoci());
+		assertEquals(2L, report.getMissing());
+		assertTrue(report.check(2, 2).isEmpty());
+	}
+
+	@Test
+	public void testReportsInvalidAlleles() throws Exception {
+		final InFileReport report = scan(FORMAT, 0, "ind1 1 101 x2 102\nind1 1 -3 101 102\n");
+		assertEquals(2, report.getErrorCount());
+		assertTrue(report.getErrors().get(0).contains("invalid allele code x2"));
+		assertTrue(report.getErrors().get(1).contains("negative allele code -3"));
+	}
+
+	@Test
+	public void testReportsMismatchedRows() throws Exception {
+		final InFileReport report = scan(FORMAT, 0, "ind1 1 101 102\nind1 1 101\nind2 1 101 102\n");
+		final List<String> problems = report.check(2, 2);
+		assertTrue(problems.toString(), problems.get(0).contains("found 1 loci, 2 were expected"));
+		assertTrue(problems.toString(), problems.get(1).contains("The last individual has 1 rows"));
+	}
+
+	@Test
+	public void testChecksConfiguredCounts() throws Exception {
+		final List<String> problems = scan(FORMAT, 0, createFile(5, 3)).check(6, 4);
+		assertEquals(2, problems.size());
+		assertEquals("NUMINDS is 6, but the file contains 5 individuals", problems.get(0));
+		assertEquals("NUMLOCI is 4, but the file contains 3 loci", problems.get(1));
+	}
+
+	@Test
+	public void testScansOnlyTheFirstIndividuals() throws Exception {
+		final InFileReport report = scan(FORMAT, 10, createFile(1000, 3));
+		assertFalse(report.isComplete());
+		assertEquals(10, report.getIndividuals());
+		assertEquals(3, report.getLoci());
+		// The file is only known to have more individuals
+		assertTrue(report.check(1000, 3).isEmpty());
+		assertEquals("NUMINDS is 5, but the file contains more than 10 individuals", report.check(5, 3).get(0));
+	}
+
+	@Test
+	public void testLimitLargerThanTheFile() throws Exception {
+		final InFileReport report = scan(FORMAT, 10, createFile(10, 3));
+		assertTrue(report.isComplete());
+		assertEquals(10, report.getIndividuals());
+		assertEquals("NUMINDS is 11, but the file contains 10 individuals", report.check(11, 3).get(0));
+	}
+
+	private InFileReport scan(InFileFormat format, int maxIndividuals, String content) throws Exception {
+		file = File.createTempFile("infile", ".txt");
+		FileUtils.writeStringToFile(file, content, "UTF-8");
+		return new InFileScanner(format, maxIndividuals).invoke(file, null);
+	}
+
+	/**
+	 * @return a file with two rows per individual, and one missing value in
+	 * the first row of each individual
+	 */
+	private static String createFile(int individuals, int loci) {
+		final StringBuilder content = new StringBuilder();
+		for (int i = 1; i <= individuals; ++i) {
+			for (int row = 0; row < 2; ++row) {
+				content.append("ind").append(i).append(' ').append(1 + i % 3);
+				for (int locus = 0; locus < loci; ++locus) {
+					content.append('\t').append(row == 0 && locus == 0 ? -9 : 100 + locus);
+				}
+				content.append('\n');
+			}
+		}
+		return content.toString();
+	}
+
+}
@@ -0,0 +1,205 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) <2012> <Bruno P. Kinoshita>
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.biouno.structure.input;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.BufferedReader;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Test;
+
+/**
+ * Tests how an {@link InFileThinner} samples individuals and thins loci.
+ *
+ * @author Bruno P. Kinoshita - http://www.kinoshita.eti.br
+ * @since 0.1
+ */
+public class InFileThinnerTest {
+
+	/**
+	 * PLOIDY 2, two rows per individual, LABEL and POPDATA.
+	 */
+	private static final InFileFormat TWO_ROWS = new InFileFormat(2, -9, false, true, true, false, false, false, 0,
+			false, false, false, false);
+
+	@Test
+	public void testSelectionSamplingKeepsTheRequestedCount() throws Exception {
+		final String input = createIndividuals(new int[] { 50 }, 4);
+		for (long seed = 1L; seed <= 20L; ++seed) {
+			final StringWriter writer = new StringWriter();
+			final ThinningReport report = thin(TWO_ROWS, new ThinningOptions(13, false, 0, 0.0d, seed), 50, 4,
+					input, writer);
+			assertEquals(13, report.getIndividuals());
+			assertEquals(4, report.getLoci());
+			assertFalse(report.isStratified());
+			final List<String> rows = lines(writer);
+			assertEquals(26, rows.size());
+			// Both rows of each individual kept
+			for (int i = 0; i < rows.size(); i += 2) {
+				assertEquals(rows.get(i), rows.get(i + 1));
+			}
+		}
+	}
+
+	@Test
+	public void testEveryIndividualIsKeptWithoutACount() throws Exception {
+		final StringWriter writer = new StringWriter();
+		final String input = createIndividuals(new int[] { 7 }, 3);
+		final ThinningReport report = thin(TWO_ROWS, new ThinningOptions(0, false, 0, 0.0d, 1L), 7, 3, input,
+				writer);
+		assertEquals(7, report.getIndividuals());
+		assertEquals(input, writer.toString());
+	}
+
+	@Test
+	public void testStratifiedSamplingKeepsTheFractionOfEachPopulation() throws Exception {
+		final String input = createIndividuals(new int[] { 40, 20, 10 }, 2);
+		for (long seed = 1L; seed <= 20L; ++seed) {
+			final StringWriter writer = new StringWriter();
+			// 30% of the 70 individuals
+			final ThinningReport report = thin(TWO_ROWS, new ThinningOptions(21, true, 0, 0.0d, seed), 70, 2,
+					input, writer);
+			assertTrue(report.isStratified());
+			assertEquals(3, report.getPopulations());
+			assertEquals(21, report.getIndividuals());
+			final Map<String, Integer> rowsByPopulation = new HashMap<String, Integer>();
+			for (String row : lines(writer)) {
+				final String population = row.split(" ")[1];
+				final Integer count = rowsByPopulation.get(population);
+				rowsByPopulation.put(population, count == null ? 1 : count + 1);
+			}
+			assertEquals(Integer.valueOf(2 * 12), rowsByPopulation.get("1"));
+			assertEquals(Integer.valueOf(2 * 6), rowsByPopulation.get("2"));
+			assertEquals(Integer.valueOf(2 * 3), rowsByPopulation.get("3"));
+		}
+	}
+
+	@Test
+	public void testDistanceThinningRestartsAtEachLinkageGroup() throws Exception {
+		// PLOIDY 2, MARKERNAMES and MAPDISTANCES, without LABEL
+		final InFileFormat format = new InFileFormat(2, -9, false, false, false, false, false, false, 0, true,
+				false, true, false);
+		final String input = "L0 L1 L2 L3 L4 L5 L6 L7\n"
+				+ "-1 1 1 1 -1 2 0.5 0.5\n"
+				+ "0 1 2 3 4 5 6 7\n"
+				+ "10 11 12 13 14 15 16 17\n";
+		final StringWriter writer = new StringWriter();
+		final ThinningReport report = thin(format, new ThinningOptions(0, false, 0, 2.0d, 1L), 1, 8, input,
+				writer);
+		assertTrue(report.isThinnedByDistance());
+		assertEquals(4, report.getLoci());
+		// The distances written are those between the loci kept, -1 starting a linkage group
+		assertEquals(Arrays.asList("L0 L2 L4 L5", "-1 2.0 -1 2.0", "0 2 4 5", "10 12 14 15"), lines(writer));
+
+		// Then evenly spaced loci among those left: L2 and L5, in two linkage groups
+		final StringWriter fewer = new StringWriter();
+		assertEquals(2, thin(format, new ThinningOptions(0, false, 2, 2.0d, 1L), 1, 8, input, fewer).getLoci());
+		assertEquals(Arrays.asList("L2 L5", "-1 -1", "2 5", "12 15"), lines(fewer));
+	}
+
+	@Test
+	public void testLociAreThinnedInOneRowPerIndividual() throws Exception {
+		// ONEROWPERIND with two values per locus, LABEL and MARKERNAMES
+		final InFileFormat format = new InFileFormat(2, -9, true, true, false, false, false, false, 0, true,
+				false, false, false);
+		final String input = "L0 L1 L2\n"
+				+ "ind1 1 2 3 4 5 6\n"
+				+ "ind2 7 8 9 10 11 12\n";
+		final StringWriter writer = new StringWriter();
+		assertEquals(2, thin(format, new ThinningOptions(0, false, 2, 0.0d, 1L), 2, 3, input, writer).getLoci());
+		assertEquals(Arrays.asList("L1 L2", "ind1 3 4 5 6", "ind2 9 10 11 12"), lines(writer));
+	}
+
+	@Test
+	public void testLociAreThinnedInPhaseInformation() throws Exception {
+		// PHASEINFO adds a row of one value per locus, without leading columns
+		final InFileFormat format = new InFileFormat(2, -9, false, true, false, false, false, false, 0, false,
+				false, false, true);
+		final String input = "ind1 1 2 3\n"
+				+ "ind1 4 5 6\n"
+				+ "0.5 0.6 0.7\n"
+				+ "ind2 7 8 9\n"
+				+ "ind2 10 11 12\n"
+				+ "0.1 0.2 0.3\n";
+		final StringWriter writer = new StringWriter();
+		final ThinningReport report = thin(format, new ThinningOptions(1, false, 2, 0.0d, 3L), 2, 3, input,
+				writer);
+		assertEquals(1, report.getIndividuals());
+		final List<String> rows = lines(writer);
+		assertEquals(3, rows.size());
+		if (rows.get(0).startsWith("ind1")) {
+			assertEquals(Arrays.asList("ind1 2 3", "ind1 5 6", "0.6 0.7"), rows);
+		} else {
+			assertEquals(Arrays.asList("ind2 8 9", "ind2 11 12", "0.2 0.3"), rows);
+		}
+	}
+
+	private static ThinningReport thin(InFileFormat format, ThinningOptions options, int numInds, int numLoci,
+			String input, StringWriter writer) throws Exception {
+		return new InFileThinner(format, options, numInds, numLoci, null).thin(
+				new BufferedReader(new StringReader(input)), writer);
+	}
+
+	/**
+	 * Creates two rows for each individual, labelled by population and index,
+	 * with the populations interleaved.
+	 */
+	private static String createIndividuals(int[] populations, int loci) {
+		final StringBuilder text = new StringBuilder();
+		final int[] written = new int[populations.length];
+		boolean more = true;
+		while (more) {
+			more = false;
+			for (int population = 0; population < populations.length; ++population) {
+				if (written[population] == populations[population]) {
+					continue;
+				}
+				more = true;
+				final int individual = ++written[population];
+				for (int row = 0; row < 2; ++row) {
+					text.append("p").append(population + 1).append('_').append(individual).append(' ')
+						.append(population + 1);
+					for (int locus = 0; locus < loci; ++locus) {
+						text.append(' ').append(individual % 4 + 1);
+					}
+					text.append('\n');
+				}
+			}
+		}
+		return text.toString();
+	}
+
+	private static List<String> lines(StringWriter writer) {
+		return Arrays.asList(writer.toString().split("\n"));
+	}
+
+}
@@ -0,0 +1,139 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) <2012> <Bruno P. Kinoshita>
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.biouno.structure.metrics;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.regex.Pattern;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.Test;
+
+/**
+ * Tests the OpenMetrics text written for the metrics of a sweep.
+ *
+ * @author Bruno P. Kinoshita - http://www.kinoshita.eti.br
+ * @since 0.1
+ */
+public class OpenMetricsWriterTest {
+
+	/**
+	 * A metric name, labels and a value.
+	 */
+	private static final Pattern SAMPLE = Pattern.compile(
+			"[a-zA-Z_:][a-zA-Z0-9_:]*\\{([a-zA-Z_][a-zA-Z0-9_]*=\"([^\"\\\\\\n]|\\\\.)*\",?)*\\} -?[0-9.]+");
+
+	@Test
+	public void testFormat() {
+		final SweepMetrics metrics = new SweepMetrics();
+		metrics.time(SweepMetrics.Phase.PROCESS, 1500L);
+		metrics.time(SweepMetrics.Phase.PROCESS, 1000L);
+		metrics.count(SweepMetrics.Counter.RUNS_STARTED, 4L);
+		final String text = new OpenMetricsWriter("structure", 12).format(metrics.getPhases(),
+				metrics.getCounters());
+		final List<String> lines = Arrays.asList(text.split("\n", -1));
+		// Ends with # EOF and a line feed
+		assertEquals("", lines.get(lines.size() - 1));
+		assertEquals("# EOF", lines.get(lines.size() - 2));
+		assertEquals(1, count(lines, "# EOF"));
+
+		assertTrue(lines.contains("structure_build_number{job=\"structure\"} 12"));
+		assertTrue(lines.contains("structure_phase_seconds_total{job=\"structure\",phase=\"process\"} 2.500"));
+		assertTrue(lines.contains("structure_phase_seconds_total{job=\"structure\",phase=\"render\"} 0.000"));
+		assertTrue(lines.contains("structure_runs_started_total{job=\"structure\"} 4"));
+		assertTrue(lines.contains("structure_runs_failed_total{job=\"structure\"} 0"));
+		assertTrue(lines.contains("# TYPE structure_build_number gauge"));
+		assertTrue(lines.contains("# TYPE structure_phase_seconds counter"));
+		assertTrue(lines.contains("# UNIT structure_phase_seconds seconds"));
+		assertTrue(lines.contains("# TYPE structure_runs_started counter"));
+		assertEquals(SweepMetrics.Phase.values().length,
+				count(lines, "structure_phase_seconds_total{job=\"structure\",phase="));
+
+		// Every family typed once, before its samples, and counters end in _total
+		final Set<String> families = new HashSet<String>();
+		String family = null;
+		String type = null;
+		for (String line : lines.subList(0, lines.size() - 2)) {
+			if (line.startsWith("# TYPE ")) {
+				final String[] parts = line.split(" ");
+				assertEquals(line, 4, parts.length);
+				family = parts[2];
+				type = parts[3];
+				assertTrue(line, families.add(family));
+				assertFalse(line, family.endsWith("_total"));
+			} else if (line.startsWith("# UNIT ") || line.startsWith("# HELP ")) {
+				assertEquals(line, family, line.split(" ")[2]);
+			} else {
+				assertTrue(line, SAMPLE.matcher(line).matches());
+				final String name = line.substring(0, line.indexOf('{'));
+				assertEquals(line, "counter".equals(type) ? family + "_total" : family, name);
+			}
+		}
+		assertEquals(2 + SweepMetrics.Counter.values().length, families.size());
+	}
+
+	@Test
+	public void testJobNameIsEscaped() {
+		final String text = new OpenMetricsWriter("a \"b\"\\c\nd", 1).format(new SweepMetrics().getPhases(),
+				new SweepMetrics().getCounters());
+		assertTrue(text.contains("structure_build_number{job=\"a \\\"b\\\"\\\\c\\nd\"} 1\n"));
+	}
+
+	@Test
+	public void testWriteReplacesTheFile() throws Exception {
+		final File directory = File.createTempFile("metrics", "");
+		directory.delete();
+		directory.mkdirs();
+		try {
+			final File file = new File(directory, "structure.prom");
+			FileUtils.writeStringToFile(file, "old", "UTF-8");
+			final SweepMetrics metrics = new SweepMetrics();
+			final OpenMetricsWriter writer = new OpenMetricsWriter("structure", 3);
+			writer.write(metrics.getPhases(), metrics.getCounters(), file);
+			assertEquals(writer.format(metrics.getPhases(), metrics.getCounters()),
+					FileUtils.readFileToString(file, "UTF-8"));
+			assertEquals(1, directory.list().length);
+		} finally {
+			FileUtils.deleteQuietly(directory);
+		}
+	}
+
+	private static int count(List<String> lines, String prefix) {
+		int count = 0;
+		for (String line : lines) {
+			if (line.startsWith(prefix)) {
+				++count;
+			}
+		}
+		return count;
+	}
+
+}
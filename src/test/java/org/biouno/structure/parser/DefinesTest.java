@@ -0,0 +1,65 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) <2012> <Bruno P. Kinoshita>
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.biouno.structure.parser;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.Map;
+
+import org.junit.Test;
+
+/**
+ * Tests the #define values read by {@link Defines}.
+ *
+ * @author Bruno P. Kinoshita - http://www.kinoshita.eti.br
+ * @since 0.1
+ */
+public class DefinesTest {
+
+	@Test
+	public void testReadsValuesInFileOrder() {
+		final Map<String, String> defines = Defines.read("KEY PARAMETERS\n"
+				+ "#define PLOIDY 2 // (int) ploidy of data\n"
+				+ "\t#define\tLINKAGE\t1\n"
+				+ "#define NOADMIX 0\n");
+		assertEquals(Arrays.asList("PLOIDY", "LINKAGE", "NOADMIX"), Arrays.asList(defines.keySet().toArray()));
+		assertEquals("2", defines.get("PLOIDY"));
+		assertEquals("1", defines.get("LINKAGE"));
+		assertTrue(Defines.read(null).isEmpty());
+	}
+
+	@Test
+	public void testReadsTextWithWindowsLineBreaks() {
+		// As submitted by the text areas of a browser
+		final String text = "#define LINKAGE 1\r\n#define NUMBOXES 500 // boxes\r\n#define PLOIDY 2";
+		final Map<String, String> defines = Defines.read(text);
+		assertEquals(3, defines.size());
+		assertEquals("1", defines.get("LINKAGE"));
+		assertEquals("500", defines.get("NUMBOXES"));
+		assertEquals("2", defines.get("PLOIDY"));
+	}
+
+}
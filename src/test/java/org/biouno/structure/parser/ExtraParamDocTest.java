@@ -0,0 +1,78 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) <2012> <Bruno P. Kinoshita>
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.biouno.structure.parser;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.Test;
+
+/**
+ * Checks {@link ExtraParam} against the extraparams documented with 
+ * Structure, in src/main/doc/extraparams: every #define is a parameter, with 
+ * the same default value and, when documented, the same type.
+ *
+ * @author Bruno P. Kinoshita - http://www.kinoshita.eti.br
+ * @since 0.1
+ */
+public class ExtraParamDocTest {
+
+	private static final Pattern DEFINE = Pattern.compile(
+			"^#define\\s+(\\w+)\\s+(\\S+)\\s*//\\s*(?:\\((B|int|d)\\))?.*$", Pattern.MULTILINE);
+
+	@Test
+	public void testEveryDocumentedDefineIsAParameter() throws Exception {
+		final Set<ExtraParam> documented = new HashSet<ExtraParam>();
+		final Matcher matcher = DEFINE.matcher(FileUtils.readFileToString(new File("src/main/doc/extraparams"), "UTF-8"));
+		while (matcher.find()) {
+			final String name = matcher.group(1);
+			final ExtraParam param = ExtraParam.forName(name);
+			assertNotNull("Not an ExtraParam: " + name, param);
+			documented.add(param);
+			if (matcher.group(3) != null) {
+				assertEquals(name, toType(matcher.group(3)), param.getType());
+			}
+			assertEquals(name, param.parse(matcher.group(2)), param.parse(param.getDefaultValue()));
+		}
+		for (ExtraParam param : ExtraParam.values()) {
+			assertTrue("Not documented: " + param, documented.contains(param));
+		}
+	}
+
+	private static ExtraParam.Type toType(String type) {
+		if ("B".equals(type)) {
+			return ExtraParam.Type.BOOLEAN;
+		}
+		return "int".equals(type) ? ExtraParam.Type.INTEGER : ExtraParam.Type.DOUBLE;
+	}
+
+}
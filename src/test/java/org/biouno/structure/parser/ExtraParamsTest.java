@@ -0,0 +1,131 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) <2012> <Bruno P. Kinoshita>
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.biouno.structure.parser;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.junit.Test;
+
+/**
+ * Tests the checks of the extraparams of a job by {@link ExtraParams}.
+ *
+ * @author Bruno P. Kinoshita - http://www.kinoshita.eti.br
+ * @since 0.1
+ */
+public class ExtraParamsTest {
+
+	@Test
+	public void testAcceptsValidExtraParams() throws Exception {
+		final ExtraParams extraParams = ExtraParams.compile("EXTRA PARAMS\n"
+				+ "#define NOADMIX 1 // (B) no admixture\n"
+				+ "#define ALPHA 0.5\n"
+				+ "#define GENSBACK 3 //(int)\n"
+				+ "#define LOG10RMIN -3.0\n"
+				+ "#define SEED -12\n"
+				+ "#define PLOIDY 2\n");
+		assertTrue(extraParams.getBoolean(ExtraParam.NOADMIX));
+		assertEquals(0.5d, extraParams.getDouble(ExtraParam.ALPHA), 0.0d);
+		assertEquals(3, extraParams.getInt(ExtraParam.GENSBACK));
+		assertEquals(-12, extraParams.getInt(ExtraParam.SEED));
+		// Not defined, the default value of Structure
+		assertFalse(extraParams.isDefined(ExtraParam.LINKAGE));
+		assertEquals(100, extraParams.getInt(ExtraParam.UPDATEFREQ));
+		assertTrue(ExtraParams.compile(null).isEmpty());
+	}
+
+	@Test
+	public void testRejectsValuesOfTheWrongType() {
+		assertInvalid("#define NOADMIX 2", "NOADMIX must be 0 or 1, not 2");
+		assertInvalid("#define NOADMIX yes", "NOADMIX must be 0 or 1, not yes");
+		assertInvalid("#define GENSBACK 1.5", "GENSBACK must be an integer of at least 0, not 1.5");
+		assertInvalid("#define ALPHA abc", "ALPHA must be a number larger than 0, not abc");
+	}
+
+	@Test
+	public void testRejectsValuesOutOfRange() {
+		assertInvalid("#define ALPHA 0", "ALPHA must be a number larger than 0, not 0");
+		assertInvalid("#define MIGRPRIOR 1.5", "MIGRPRIOR must be a number between 0.0 and 1.0, not 1.5");
+		assertInvalid("#define NUMBOXES 0", "NUMBOXES must be an integer of at least 1, not 0");
+		assertInvalid("#define LOG10RMIN 2.0\n#define LOG10RMAX 1.0", "LOG10RMIN must be smaller than LOG10RMAX");
+	}
+
+	@Test
+	public void testRejectsUnknownAndMainParams() {
+		assertInvalid("#define NOSUCHPARAM 1", "Unknown parameter NOSUCHPARAM");
+		assertInvalid("#define MAXPOPS 3", "MAXPOPS is set for each run, and cannot be defined in extraparams");
+	}
+
+	@Test
+	public void testListsEveryProblem() {
+		assertInvalid("#define NOADMIX 2\n#define ALPHA -1.0", 
+				"NOADMIX must be 0 or 1, not 2; ALPHA must be a number larger than 0, not -1.0");
+	}
+
+	@Test
+	public void testDigestIgnoresOrderAndNumberFormat() throws Exception {
+		final ExtraParams extraParams = ExtraParams.compile("#define ALPHA 1.0\n#define NOADMIX 0\n");
+		assertEquals(extraParams.digest(), ExtraParams.compile("#define NOADMIX 0\n#define ALPHA 1\n").digest());
+		assertFalse(extraParams.digest().equals(
+				extraParams.with(Collections.singletonMap("ALPHA", "2.0")).digest()));
+	}
+
+	@Test
+	public void testExtraParamsOverrideMainParams() throws Exception {
+		final Map<String, String> mainParams = new LinkedHashMap<String, String>();
+		mainParams.put("PLOIDY", "2");
+		mainParams.put("LINKAGE", "1");
+		mainParams.put("NOADMIX", "1");
+		mainParams.put("FREQSCORR", "0");
+		mainParams.put("NOSUCHPARAM", "1");
+		final ExtraParams extraParams = ExtraParams.compile("#define NOADMIX 0 // admixture\r\n#define LINKAGE 0")
+				.withMainParams(mainParams);
+		assertFalse(extraParams.getBoolean(ExtraParam.LINKAGE));
+		assertFalse(extraParams.getBoolean(ExtraParam.NOADMIX));
+		assertFalse(extraParams.getBoolean(ExtraParam.FREQSCORR));
+		assertEquals("2", extraParams.getValues().get("PLOIDY"));
+		assertFalse(extraParams.getValues().containsKey("NOSUCHPARAM"));
+	}
+
+	@Test(expected = ParserException.class)
+	public void testRejectsInvalidMainParams() throws Exception {
+		ExtraParams.compile("").withMainParams(Collections.singletonMap("LINKAGE", "yes"));
+	}
+
+	private static void assertInvalid(String text, String message) {
+		try {
+			ExtraParams.compile(text);
+			fail("Expected invalid extraparams: " + text);
+		} catch (ParserException pe) {
+			assertEquals(message, pe.getMessage());
+		}
+	}
+
+}
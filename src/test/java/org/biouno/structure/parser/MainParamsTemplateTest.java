@@ -0,0 +1,133 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) <2012> <Bruno P. Kinoshita>
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.biouno.structure.parser;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import java.io.File;
+import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.Arrays;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.Test;
+
+/**
+ * Tests that a {@link MainParamsTemplate} renders the same bytes as
+ * {@link MainParamsParser#parse(String, int)}.
+ *
+ * @author Bruno P. Kinoshita - http://www.kinoshita.eti.br
+ * @since 0.1
+ */
+public class MainParamsTemplateTest {
+
+	private static final String MAINPARAMS = "#define OUTFILE /home/kinow/structure/sample_1/Results\n"
+			+ "#define INFILE /home/kinow/structure/sample_1/project_data\n"
+			+ "#define NUMINDS 43\n"
+			+ "#define NUMLOCI 6\n"
+			+ "#define LABEL 1 \n"
+			+ "#define POPDATA 0 \n"
+			+ "\t#define\tPOPFLAG\t1\n"
+			+ "#define ONEROWPERIND 0 \n"
+			+ "#define MISSING -9\n"
+			+ "#define PLOIDY 2\n"
+			+ "#define MAXPOPS 2\n"
+			+ "#define BURNIN 10000\n"
+			+ "#define NUMREPS 20000\n"
+			+ "\n"
+			+ "Comments and blank lines are dropped\n"
+			+ "\n"
+			+ "#define NOADMIX 0\n"
+			+ "#define ALPHA 1.0   // (d) Dirichlet parameter\n"
+			+ "#define UPDATEFREQ 1 \n";
+
+	private final MainParamsParser parser = new MainParamsParser(2000, 3000, 4000L, 5000L, "in", "out");
+
+	@Test
+	public void testRendersParserOutput() throws Exception {
+		assertSameOutput(MAINPARAMS);
+	}
+
+	@Test
+	public void testRendersParserOutputForDocumentedMainParams() throws Exception {
+		assertSameOutput(FileUtils.readFileToString(new File("src/main/doc/mainparams"), "UTF-8"));
+	}
+
+	@Test
+	public void testRendersTextWithoutDefines() throws Exception {
+		assertSameOutput("");
+		assertSameOutput("no defines here\n");
+	}
+
+	@Test
+	public void testRenderToAppendable() throws Exception {
+		final MainParamsTemplate template = MainParamsTemplate.compile(MAINPARAMS);
+		final StringWriter writer = new StringWriter();
+		template.render(writer, parser.createValues(3));
+		assertEquals(parser.parse(MAINPARAMS, 3), writer.toString());
+	}
+
+	@Test
+	public void testReusedBufferIsReplaced() throws Exception {
+		final MainParamsTemplate template = MainParamsTemplate.compile(MAINPARAMS);
+		final StringBuilder buffer = new StringBuilder("previous content");
+		template.render(buffer, parser.createValues(12));
+		template.render(buffer, parser.createValues(1));
+		assertEquals(parser.parse(MAINPARAMS, 1), buffer.toString());
+	}
+
+	@Test
+	public void testSlots() throws Exception {
+		final MainParamsTemplate template = MainParamsTemplate.compile(MAINPARAMS);
+		assertArrayEquals(new MainParam[] { MainParam.OUTFILE, MainParam.INFILE, MainParam.NUMINDS,
+				MainParam.NUMLOCI, MainParam.MAXPOPS, MainParam.BURNIN, MainParam.NUMREPS }, template.getSlots());
+	}
+
+	@Test
+	public void testDefinesThatAreNotReplaced() throws Exception {
+		final MainParamsTemplate template = MainParamsTemplate.compile(MAINPARAMS.replace("\n", "\r\n"));
+		assertEquals(Arrays.asList("LABEL", "POPDATA", "POPFLAG", "ONEROWPERIND", "MISSING", "PLOIDY", "NOADMIX",
+				"ALPHA", "UPDATEFREQ"), new ArrayList<String>(template.getDefines().keySet()));
+		assertEquals("2", template.getDefines().get("PLOIDY"));
+		assertEquals("1.0", template.getDefines().get("ALPHA"));
+		assertEquals(parser.parse(MAINPARAMS, 2), template.render(parser.createValues(2)));
+	}
+
+	@Test(expected = ParserException.class)
+	public void testMissingMainParams() throws Exception {
+		MainParamsTemplate.compile(null);
+	}
+
+	private void assertSameOutput(String mainParams) throws Exception {
+		final MainParamsTemplate template = MainParamsTemplate.compile(mainParams);
+		final StringBuilder buffer = new StringBuilder();
+		for (int k = 1; k <= 20; ++k) {
+			final byte[] expected = parser.parse(mainParams, k).getBytes("UTF-8");
+			final byte[] actual = template.render(buffer, parser.createValues(k)).toString().getBytes("UTF-8");
+			assertArrayEquals("K=" + k, expected, actual);
+		}
+	}
+
+}
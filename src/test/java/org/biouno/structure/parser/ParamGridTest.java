@@ -0,0 +1,137 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) <2012> <Bruno P. Kinoshita>
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.biouno.structure.parser;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Test;
+
+/**
+ * Tests the parsing of a {@link ParamGrid} and the configurations it renders.
+ *
+ * @author Bruno P. Kinoshita - http://www.kinoshita.eti.br
+ * @since 0.1
+ */
+public class ParamGridTest {
+
+	@Test
+	public void testEmptyGrid() throws Exception {
+		assertTrue(ParamGrid.parse(null).isEmpty());
+		final ParamGrid grid = ParamGrid.parse("// nothing swept\n\n");
+		assertTrue(grid.isEmpty());
+		assertEquals(0L, grid.size());
+		assertFalse(grid.configurations(ExtraParams.compile(null)).hasNext());
+	}
+
+	@Test
+	public void testParsesNamesAndValues() throws Exception {
+		final ParamGrid grid = ParamGrid.parse("alpha = 0.5, 1.0, 2.0\r\n// comment\nFREQSCORR=0,1,1\n");
+		assertEquals(Arrays.asList("ALPHA", "FREQSCORR"), grid.getNames());
+		// The repeated value is dropped
+		assertEquals(6L, grid.size());
+	}
+
+	@Test
+	public void testRejectsInvalidLines() {
+		assertInvalid("ALPHA 0.5, 1.0");
+		assertInvalid("MAXPOPS = 2, 3");
+		assertInvalid("NOSUCHPARAM = 1");
+		assertInvalid("ALPHA = 0.5\nALPHA = 1.0");
+		assertInvalid("ALPHA = 0.5,,1.0");
+		assertInvalid("ALPHA = -1.0");
+		assertInvalid("FREQSCORR = 2");
+		assertInvalid("GENSBACK = 1.5");
+	}
+
+	@Test
+	public void testIteratesEveryCombination() throws Exception {
+		final ParamGrid grid = ParamGrid.parse("ALPHA = 0.5, 2.0\nFREQSCORR = 0, 1");
+		final List<GridConfiguration> configurations = list(grid.configurations(ExtraParams.compile(null)));
+		assertEquals(4, configurations.size());
+		// The last #define changes fastest
+		assertEquals("ALPHA=0.5, FREQSCORR=0", configurations.get(0).toString());
+		assertEquals("ALPHA=0.5, FREQSCORR=1", configurations.get(1).toString());
+		assertEquals("ALPHA=2.0, FREQSCORR=0", configurations.get(2).toString());
+		for (int i = 0; i < configurations.size(); ++i) {
+			assertEquals(i + 1, configurations.get(i).getId());
+		}
+		assertEquals("#define ALPHA 2.0\n#define FREQSCORR 1\n", configurations.get(3).getExtraParams());
+	}
+
+	@Test
+	public void testKeepsTheOtherExtraParams() throws Exception {
+		final ExtraParams extraParams = ExtraParams.compile("#define NOADMIX 0\n#define ALPHA 1.0 // start\n");
+		final GridConfiguration configuration = ParamGrid.parse("ALPHA = 0.5").configurations(extraParams).next();
+		assertEquals("#define NOADMIX 0\n#define ALPHA 0.5\n", configuration.getExtraParams());
+	}
+
+	@Test
+	public void testSkipsTheExtraParamsOfTheJob() throws Exception {
+		final ExtraParams extraParams = ExtraParams.compile("#define ALPHA 1.0\n");
+		// 1 renders the same values as 1.0
+		final ParamGrid.Configurations configurations = ParamGrid.parse("ALPHA = 1, 2.0, 2")
+				.configurations(extraParams);
+		final List<GridConfiguration> rendered = list(configurations);
+		assertEquals(1, rendered.size());
+		assertEquals("ALPHA=2.0", rendered.get(0).toString());
+		assertEquals(1, rendered.get(0).getId());
+		assertEquals(2L, configurations.getSkipped());
+		assertEquals(0L, configurations.getInvalid());
+	}
+
+	@Test
+	public void testSkipsInvalidCombinations() throws Exception {
+		final ParamGrid.Configurations configurations = ParamGrid.parse("LOG10RMIN = -2.0, 2.0\nLOG10RMAX = 1.0")
+				.configurations(ExtraParams.compile(null));
+		final List<GridConfiguration> rendered = list(configurations);
+		assertEquals(1, rendered.size());
+		assertEquals("LOG10RMIN=-2.0, LOG10RMAX=1.0", rendered.get(0).toString());
+		assertEquals(1L, configurations.getInvalid());
+	}
+
+	private static void assertInvalid(String text) {
+		try {
+			ParamGrid.parse(text);
+			fail("Expected an invalid grid: " + text);
+		} catch (ParserException pe) {
+			// Expected
+		}
+	}
+
+	private static List<GridConfiguration> list(ParamGrid.Configurations configurations) {
+		final List<GridConfiguration> list = new ArrayList<GridConfiguration>();
+		while (configurations.hasNext()) {
+			list.add(configurations.next());
+		}
+		return list;
+	}
+
+}
@@ -0,0 +1,141 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) <2012> <Bruno P. Kinoshita>
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.biouno.structure.results;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.List;
+
+import org.junit.Test;
+
+/**
+ * Tests the statistics and the Evanno Delta K computed by 
+ * {@link EvannoAggregator}.
+ *
+ * @author Bruno P. Kinoshita - http://www.kinoshita.eti.br
+ * @since 0.1
+ */
+public class EvannoAggregatorTest {
+
+	private static final double DELTA = 1e-9;
+
+	@Test
+	public void testDeltaK() {
+		final EvannoAggregator aggregator = new EvannoAggregator();
+		// Added out of order, as runs finish
+		add(aggregator, 3, -78.0d, -79.0d);
+		add(aggregator, 1, -100.0d, -102.0d);
+		add(aggregator, 2, -80.0d, -84.0d);
+		final List<KStatistics> statistics = aggregator.getStatistics();
+		assertEquals(3, statistics.size());
+
+		final KStatistics k1 = statistics.get(0);
+		assertEquals(1, k1.getK());
+		assertEquals(2, k1.getRuns());
+		assertEquals(-101.0d, k1.getMeanLnProbData(), DELTA);
+		assertEquals(Math.sqrt(2.0d), k1.getSdLnProbData(), DELTA);
+		assertNull(k1.getLnPrime());
+		assertNull(k1.getDeltaK());
+
+		// L'(2) = 19, L'(3) = 3.5
+		final KStatistics k2 = statistics.get(1);
+		assertEquals(-82.0d, k2.getMeanLnProbData(), DELTA);
+		assertEquals(19.0d, k2.getLnPrime(), DELTA);
+		assertEquals(15.5d, k2.getLnDoublePrime(), DELTA);
+		assertEquals(15.5d / Math.sqrt(8.0d), k2.getDeltaK(), DELTA);
+
+		// No L'(4), the largest K has no Delta K
+		final KStatistics k3 = statistics.get(2);
+		assertEquals(3.5d, k3.getLnPrime(), DELTA);
+		assertNull(k3.getLnDoublePrime());
+		assertNull(k3.getDeltaK());
+	}
+
+	@Test
+	public void testNoDeltaKWithoutSpread() {
+		final EvannoAggregator aggregator = new EvannoAggregator();
+		add(aggregator, 1, -100.0d);
+		add(aggregator, 2, -90.0d, -90.0d);
+		add(aggregator, 3, -85.0d);
+		final KStatistics k2 = aggregator.getStatistics().get(1);
+		assertEquals(0.0d, k2.getSdLnProbData(), DELTA);
+		assertEquals(5.0d, k2.getLnDoublePrime(), DELTA);
+		assertNull(k2.getDeltaK());
+		// A single run has no standard deviation either
+		assertEquals(0.0d, aggregator.getStatistics().get(0).getSdLnProbData(), DELTA);
+	}
+
+	@Test
+	public void testMissingK() {
+		final EvannoAggregator aggregator = new EvannoAggregator();
+		add(aggregator, 1, -100.0d, -101.0d);
+		add(aggregator, 2, -90.0d, -92.0d);
+		add(aggregator, 4, -85.0d, -86.0d);
+		final List<KStatistics> statistics = aggregator.getStatistics();
+		assertEquals(3, statistics.size());
+		assertNull(statistics.get(1).getDeltaK());
+		assertNull(statistics.get(2).getLnPrime());
+	}
+
+	@Test
+	public void testRunsWithoutEstimatesAreIgnored() {
+		final EvannoAggregator aggregator = new EvannoAggregator();
+		assertFalse(aggregator.add(1, new RunSummary()));
+		final RunSummary nan = new RunSummary();
+		nan.setLnProbData(Double.NaN);
+		assertFalse(aggregator.add(1, nan));
+		assertTrue(aggregator.getStatistics().isEmpty());
+	}
+
+	@Test
+	public void testMeansOfOptionalEstimates() {
+		final EvannoAggregator aggregator = new EvannoAggregator();
+		final RunSummary first = new RunSummary();
+		first.setLnProbData(-100.0d);
+		first.setMeanLnLikelihood(-95.0d);
+		first.setMeanAlpha(0.5d);
+		final RunSummary second = new RunSummary();
+		second.setLnProbData(-102.0d);
+		second.setMeanLnLikelihood(-97.0d);
+		assertTrue(aggregator.add(1, first));
+		assertTrue(aggregator.add(1, second));
+		final KStatistics k1 = aggregator.getStatistics().get(0);
+		assertEquals(-96.0d, k1.getMeanLnLikelihood(), DELTA);
+		// Only the run that reported alpha
+		assertEquals(0.5d, k1.getMeanAlpha(), DELTA);
+		assertNull(k1.getMeanVarLnLikelihood());
+	}
+
+	private static void add(EvannoAggregator aggregator, int k, double... lnProbData) {
+		for (double value : lnProbData) {
+			final RunSummary summary = new RunSummary();
+			summary.setLnProbData(value);
+			assertTrue(aggregator.add(k, summary));
+		}
+	}
+
+}
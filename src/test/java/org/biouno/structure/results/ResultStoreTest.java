@@ -0,0 +1,196 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) <2012> <Bruno P. Kinoshita>
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.biouno.structure.results;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+
+import org.apache.commons.io.FileUtils;
+import org.biouno.structure.convergence.LikelihoodTrace;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Tests that a {@link ResultStore} reads what {@link ResultStoreWriter} wrote, 
+ * and rejects damaged files.
+ *
+ * @author Bruno P. Kinoshita - http://www.kinoshita.eti.br
+ * @since 0.1
+ */
+public class ResultStoreTest {
+
+	private File file;
+
+	@Before
+	public void setUp() throws Exception {
+		file = File.createTempFile("structure", ".bin");
+	}
+
+	@After
+	public void tearDown() {
+		FileUtils.deleteQuietly(file);
+		FileUtils.deleteQuietly(new File(file.getPath() + ".tmp"));
+	}
+
+	@Test
+	public void testMissingFile() throws Exception {
+		FileUtils.deleteQuietly(file);
+		assertNull(ResultStore.open(file));
+	}
+
+	@Test
+	public void testRoundTrip() throws Exception {
+		writeStore();
+		final ResultStore store = ResultStore.open(file);
+		assertEquals(3, store.getIndividuals());
+		assertArrayEquals(new String[] { "ind1", "", "ind\u00e7" }, store.getLabels());
+		assertEquals(2, store.getEntries().size());
+
+		final ResultStore.Entry entry = store.getEntry(2, 1);
+		assertEquals(2, entry.getClusters());
+		assertArrayEquals(new float[] { 0.9f, 0.2f, 0.5f }, store.getMembership(entry, 0), 0.0f);
+		assertArrayEquals(new float[] { 0.1f, 0.8f, 0.5f }, store.getMembership(entry, 1), 0.0f);
+		assertArrayEquals(new double[] { 0.2f, 0.8f }, store.getQMatrix(entry)[1], 0.0d);
+		assertArrayEquals(new long[] { 100L, 200L, 300L }, store.getTraceSteps(entry));
+		assertArrayEquals(new double[] { -1500.5d, -1300.25d, -1250.0d }, store.getTraceValues(entry), 0.0d);
+		assertEquals(-1234.5d, entry.getLnProbData(), 0.0d);
+		// NaN stands for an estimate that was not found
+		assertNull(entry.getMeanAlpha());
+
+		// A Q-matrix with another number of rows is not stored, nor a missing trace
+		final ResultStore.Entry other = store.getEntry(3, 2);
+		assertEquals(0, other.getClusters());
+		assertEquals(0, other.getTraceLength());
+		assertEquals(0, store.getTraceSteps(other).length);
+		assertNull(other.getLnProbData());
+		assertEquals(0.5d, other.getMeanAlpha(), 0.0d);
+		assertNull(store.getEntry(4, 1));
+	}
+
+	@Test
+	public void testTruncatedStoreIsRejected() throws Exception {
+		writeStore();
+		final byte[] content = FileUtils.readFileToByteArray(file);
+		for (int length = 0; length < content.length; ++length) {
+			FileUtils.writeByteArrayToFile(file, Arrays.copyOf(content, length));
+			assertInvalid("truncated to " + length + " bytes");
+		}
+	}
+
+	@Test
+	public void testGarbageIsRejected() throws Exception {
+		final byte[] garbage = new byte[4096];
+		for (int i = 0; i < garbage.length; ++i) {
+			garbage[i] = (byte) (i * 31 + 7);
+		}
+		FileUtils.writeByteArrayToFile(file, garbage);
+		assertInvalid("garbage");
+	}
+
+	@Test
+	public void testHugeCountsAreRejected() throws Exception {
+		for (int individuals : new int[] { -1, Integer.MAX_VALUE, 1000 }) {
+			writeHeader(individuals, 0, 0L);
+			assertInvalid(individuals + " individuals");
+		}
+		// A label longer than the file
+		writeHeader(1, Integer.MAX_VALUE, 0L);
+		assertInvalid("long label");
+		writeHeader(1, -5, 0L);
+		assertInvalid("negative label");
+		// A directory outside the file
+		writeHeader(0, 0, Long.MAX_VALUE);
+		assertInvalid("directory");
+	}
+
+	@Test
+	public void testDamagedEntryIsRejected() throws Exception {
+		writeStore();
+		final byte[] content = FileUtils.readFileToByteArray(file);
+		// Trace length of the first entry, in the directory after the count
+		final int directory = content.length - 8 - 4 - 2 * ResultStore.ENTRY_SIZE;
+		for (int value : new int[] { -1, 1 << 30 }) {
+			final byte[] damaged = content.clone();
+			final int offset = directory + 4 + 20;
+			damaged[offset] = (byte) (value >>> 24);
+			damaged[offset + 1] = (byte) (value >>> 16);
+			damaged[offset + 2] = (byte) (value >>> 8);
+			damaged[offset + 3] = (byte) value;
+			FileUtils.writeByteArrayToFile(file, damaged);
+			assertInvalid("trace length " + value);
+		}
+	}
+
+	private void writeStore() throws IOException {
+		final ResultStoreWriter writer = new ResultStoreWriter(file, new String[] { "ind1", null, "ind\u00e7" });
+		final RunSummary summary = new RunSummary();
+		summary.setQMatrix(new double[][] { { 0.9d, 0.1d }, { 0.2d, 0.8d }, { 0.5d, 0.5d } });
+		summary.setLnProbData(-1234.5d);
+		final LikelihoodTrace trace = new LikelihoodTrace();
+		trace.add(100L, -1500.5d);
+		trace.add(200L, -1300.25d);
+		trace.add(300L, -1250.0d);
+		writer.add(2, 1, summary, trace);
+		final RunSummary other = new RunSummary();
+		other.setQMatrix(new double[][] { { 1.0d } });
+		other.setMeanAlpha(0.5d);
+		writer.add(3, 2, other, null);
+		writer.close();
+	}
+
+	/**
+	 * Writes a store with the given header values, and an empty directory.
+	 */
+	private void writeHeader(int individuals, int labelLength, long directory) throws IOException {
+		final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		final DataOutputStream out = new DataOutputStream(bytes);
+		out.writeInt(ResultStore.MAGIC);
+		out.writeInt(ResultStore.VERSION);
+		out.writeInt(individuals);
+		out.writeInt(labelLength);
+		out.writeInt(0);
+		out.writeLong(directory);
+		out.close();
+		FileUtils.writeByteArrayToFile(file, bytes.toByteArray());
+	}
+
+	private void assertInvalid(String message) {
+		try {
+			ResultStore.open(file);
+			fail("Expected an invalid store: " + message);
+		} catch (IOException ioe) {
+			// Expected
+		}
+	}
+
+}
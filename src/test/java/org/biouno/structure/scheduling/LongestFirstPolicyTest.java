@@ -0,0 +1,104 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) <2012> <Bruno P. Kinoshita>
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.biouno.structure.scheduling;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.biouno.structure.execution.StructureRun;
+import org.junit.Test;
+
+/**
+ * Tests the order of {@link LongestFirstPolicy} and the makespan it gives, 
+ * as predicted by {@link RunCostModel}.
+ *
+ * @author Bruno P. Kinoshita - http://www.kinoshita.eti.br
+ * @since 0.1
+ */
+public class LongestFirstPolicyTest {
+
+	/**
+	 * One work unit per K, one millisecond per work unit.
+	 */
+	private static final RunCostModel MODEL = new RunCostModel(RunCostModel.ADMIXTURE, 1.0d).calibrate(1000.0d);
+
+	@Test
+	public void testLargestKFirst() {
+		final List<StructureRun> ordered = new LongestFirstPolicy().order(createRuns(5, 2), MODEL);
+		assertEquals(10, ordered.size());
+		for (int i = 1; i < ordered.size(); ++i) {
+			assertTrue(ordered.get(i - 1).getK() >= ordered.get(i).getK());
+		}
+		assertEquals(5, ordered.get(0).getK());
+		assertEquals(1, ordered.get(9).getK());
+	}
+
+	@Test
+	public void testRunsOfTheSameCostKeepTheirOrder() {
+		final List<StructureRun> ordered = new LongestFirstPolicy().order(createRuns(3, 3), MODEL);
+		for (int i = 0; i < 3; ++i) {
+			assertEquals(3, ordered.get(i).getK());
+			assertEquals(i + 1, ordered.get(i).getReplicate());
+		}
+	}
+
+	@Test
+	public void testInputIsNotModified() {
+		final List<StructureRun> runs = createRuns(4, 1);
+		new LongestFirstPolicy().order(runs, MODEL);
+		assertEquals(1, runs.get(0).getK());
+	}
+
+	@Test
+	public void testShorterMakespanThanInputOrder() {
+		// K=1..10, two slots: the input order leaves K=10 running alone at the end
+		final List<StructureRun> runs = createRuns(10, 1);
+		final long inputOrder = MODEL.predictMakespan(new InputOrderPolicy().order(runs, MODEL), 2);
+		final long longestFirst = MODEL.predictMakespan(new LongestFirstPolicy().order(runs, MODEL), 2);
+		assertEquals(30L, inputOrder);
+		// 55 units of work, the ideal split is 27.5
+		assertEquals(28L, longestFirst);
+	}
+
+	@Test
+	public void testUncalibratedModelStillOrders() {
+		final RunCostModel model = new RunCostModel(RunCostModel.ADMIXTURE, 1.0d);
+		assertEquals(-1L, model.predictMakespan(createRuns(3, 1), 2));
+		assertEquals(3, new LongestFirstPolicy().order(createRuns(3, 1), model).get(0).getK());
+	}
+
+	private static List<StructureRun> createRuns(int maxK, int replicates) {
+		final List<StructureRun> runs = new ArrayList<StructureRun>();
+		for (int k = 1; k <= maxK; ++k) {
+			for (int replicate = 1; replicate <= replicates; ++replicate) {
+				runs.add(new StructureRun(k, replicate, k * 10L + replicate));
+			}
+		}
+		return runs;
+	}
+
+}
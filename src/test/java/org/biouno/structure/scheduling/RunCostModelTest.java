@@ -0,0 +1,115 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) <2012> <Bruno P. Kinoshita>
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.biouno.structure.scheduling;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+
+import java.io.File;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.apache.commons.io.FileUtils;
+import org.biouno.structure.execution.RunResult;
+import org.biouno.structure.execution.StructureRun;
+import org.biouno.structure.execution.SweepManifest;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Tests how a {@link RunCostModel} is calibrated from the manifests of
+ * earlier sweeps.
+ *
+ * @author Bruno P. Kinoshita - http://www.kinoshita.eti.br
+ * @since 0.1
+ */
+public class RunCostModelTest {
+
+	private File file;
+
+	@Before
+	public void setUp() throws Exception {
+		file = File.createTempFile("structure", ".manifest");
+	}
+
+	@After
+	public void tearDown() {
+		FileUtils.deleteQuietly(file);
+	}
+
+	@Test
+	public void testCalibratesFromExecutedRunsOfTheMainSweep() throws Exception {
+		final SweepManifest manifest = new SweepManifest(file, "results");
+		manifest.start("abc123", RunCostModel.ADMIXTURE, 10.0d);
+		// 20 units in 200 ms and 30 units in 300 ms: 10 ms per unit
+		manifest.runFinished(new RunResult(new StructureRun(2, 1, 21L), 0, 200L));
+		manifest.runFinished(new RunResult(new StructureRun(3, 1, 31L), 0, 300L));
+		// Failed, restored from a cache, of another stage and resumed runs are not used
+		manifest.runFinished(new RunResult(new StructureRun(4, 1, 41L), 1, 5000L));
+		manifest.runFinished(new RunResult(new StructureRun(5, 1, 51L), 0, 0L));
+		manifest.runFinished(new RunResult(new StructureRun("coarse", 2, 1, 22L), 0, 5000L));
+		manifest.runResumed(new RunResult(new StructureRun(6, 1, 61L), 0, 5000L));
+
+		final RunCostModel model = new RunCostModel(RunCostModel.ADMIXTURE, 10.0d)
+				.calibrate(Collections.singletonList(SweepManifest.load(file)));
+		assertEquals(2, model.getSamples());
+		assertEquals(400L, model.predict(new StructureRun(4, 1, 41L)));
+	}
+
+	@Test
+	public void testEachKHasTheWorkOfItsChains() throws Exception {
+		final Map<Integer, Double> unitsPerKByK = new HashMap<Integer, Double>();
+		// The burn-in of K=3 was adapted, and its chains are twice as long
+		unitsPerKByK.put(3, 20.0d);
+		final SweepManifest manifest = new SweepManifest(file, "results");
+		manifest.start("abc123", RunCostModel.ADMIXTURE, 10.0d, unitsPerKByK);
+		manifest.runFinished(new RunResult(new StructureRun(2, 1, 21L), 0, 200L));
+		manifest.runFinished(new RunResult(new StructureRun(3, 1, 31L), 0, 600L));
+
+		final RunCostModel model = new RunCostModel(RunCostModel.ADMIXTURE, 10.0d, unitsPerKByK)
+				.calibrate(Collections.singletonList(SweepManifest.load(file)));
+		assertEquals(20.0d, model.getWork(new StructureRun(2, 1, 21L)), 0.0d);
+		assertEquals(60.0d, model.getWork(new StructureRun(3, 1, 31L)), 0.0d);
+		// 80 units in 800 ms
+		assertEquals(200L, model.predict(new StructureRun(2, 2, 22L)));
+		assertEquals(600L, model.predict(new StructureRun(3, 2, 32L)));
+	}
+
+	@Test
+	public void testSweepsOfAnotherModelAreNotUsed() throws Exception {
+		final SweepManifest manifest = new SweepManifest(file, "results");
+		manifest.start("abc123", RunCostModel.LINKAGE, 10.0d);
+		manifest.runFinished(new RunResult(new StructureRun(2, 1, 21L), 0, 200L));
+
+		final RunCostModel model = new RunCostModel(RunCostModel.ADMIXTURE, 10.0d);
+		assertSame(model, model.calibrate(Arrays.asList(SweepManifest.load(file))));
+		assertFalse(model.isCalibrated());
+		assertEquals(-1L, model.predict(new StructureRun(2, 1, 21L)));
+	}
+
+}
@@ -0,0 +1,101 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) <2012> <Bruno P. Kinoshita>
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.biouno.structure.scheduling;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Collections;
+
+import org.biouno.structure.parser.ExtraParams;
+import org.junit.Test;
+
+/**
+ * Tests the memory a {@link RunMemoryModel} estimates for the runs of a sweep.
+ *
+ * @author Bruno P. Kinoshita - http://www.kinoshita.eti.br
+ * @since 0.1
+ */
+public class RunMemoryModelTest {
+
+	private static final long INDIVIDUALS = 100L;
+	private static final long LOCI = 1000L;
+
+	/**
+	 * Memory of the arrays of 100 individuals, 1000 loci, PLOIDY 2 and K=3,
+	 * without the models that need more.
+	 */
+	private static final long ARRAYS =
+			// Genotypes and population of origin: 100 x 1000 x 2 x 3 ints
+			2400000L
+			// Allele frequencies and their sums: 3 x 1000 x 20 x 2 doubles
+			+ 960000L
+			// Ancestry and its sums: 100 x 3 x 2 doubles
+			+ 4800L;
+
+	@Test
+	public void testEstimate() {
+		assertEquals(RunMemoryModel.BASE + ARRAYS, new RunMemoryModel(INDIVIDUALS, LOCI, 2, false, false, 0)
+				.estimate(3));
+		// Ancestral frequencies: 3 x 1000 x 20 doubles
+		assertEquals(RunMemoryModel.BASE + ARRAYS + 480000L, new RunMemoryModel(INDIVIDUALS, LOCI, 2, false,
+				true, 0).estimate(3));
+		// Ancestry distributions: 100 x 3 x 10 doubles
+		assertEquals(RunMemoryModel.BASE + ARRAYS + 24000L, new RunMemoryModel(INDIVIDUALS, LOCI, 2, false,
+				false, 10).estimate(3));
+		// Forward probabilities: 1000 x 2 x 3 doubles, and phases: 100 x 1000 doubles
+		assertEquals(RunMemoryModel.BASE + ARRAYS + 48000L + 800000L, new RunMemoryModel(INDIVIDUALS, LOCI, 2,
+				true, false, 0).estimate(3));
+	}
+
+	@Test
+	public void testEstimateGrowsWithK() {
+		final RunMemoryModel model = new RunMemoryModel(INDIVIDUALS, LOCI, 2, true, true, 0);
+		long previous = model.estimate(1);
+		for (int k = 2; k <= 20; ++k) {
+			final long estimate = model.estimate(k);
+			assertTrue(estimate > previous);
+			previous = estimate;
+		}
+		// Large inputs do not overflow an int
+		assertTrue(new RunMemoryModel(10000L, 1000000L, 2, false, false, 0).estimate(10) > Integer.MAX_VALUE);
+	}
+
+	@Test
+	public void testCreateReadsTheParametersInEffect() throws Exception {
+		// FREQSCORR is on by default
+		assertEquals(new RunMemoryModel(INDIVIDUALS, LOCI, 2, false, true, 0).estimate(3),
+				RunMemoryModel.create(ExtraParams.compile(""), INDIVIDUALS, LOCI).estimate(3));
+		final ExtraParams extraParams = ExtraParams.compile("#define LINKAGE 1\n#define FREQSCORR 0\n"
+				+ "#define ANCESTDIST 1\n#define NUMBOXES 10\n")
+				.withMainParams(Collections.singletonMap("PLOIDY", "1"));
+		assertEquals(new RunMemoryModel(INDIVIDUALS, LOCI, 1, true, false, 10).estimate(3),
+				RunMemoryModel.create(extraParams, INDIVIDUALS, LOCI).estimate(3));
+		// NUMBOXES without ANCESTDIST
+		assertEquals(new RunMemoryModel(INDIVIDUALS, LOCI, 2, false, true, 0).estimate(3),
+				RunMemoryModel.create(ExtraParams.compile("#define NUMBOXES 10\n"), INDIVIDUALS, LOCI)
+					.estimate(3));
+	}
+
+}
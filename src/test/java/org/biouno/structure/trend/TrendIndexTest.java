@@ -0,0 +1,181 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) <2012> <Bruno P. Kinoshita>
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.biouno.structure.trend;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Tests how a {@link TrendIndex} is written, read back, recovered and rebuilt.
+ *
+ * @author Bruno P. Kinoshita - http://www.kinoshita.eti.br
+ * @since 0.1
+ */
+public class TrendIndexTest {
+
+	private File directory;
+	private File file;
+
+	@Before
+	public void setUp() throws Exception {
+		directory = File.createTempFile("structure", "job");
+		directory.delete();
+		directory.mkdirs();
+		file = new File(directory, TrendIndex.FILE_NAME);
+	}
+
+	@After
+	public void tearDown() {
+		FileUtils.deleteQuietly(directory);
+	}
+
+	@Test
+	public void testLineIsParsedBack() {
+		final String line = TrendIndex.format(build(7, -1234.5d, 12.25d));
+		assertTrue(line.endsWith("\n"));
+		final BuildTrend parsed = TrendIndex.parse(line.substring(0, line.length() - 1));
+		assertEquals(7, parsed.getNumber());
+		assertEquals(1000L, parsed.getTimestamp());
+		assertEquals(60000L, parsed.getDuration());
+		assertEquals(2, parsed.getStatistics().size());
+		final KTrend k2 = parsed.getStatistics().get(1);
+		assertEquals(2, k2.getK());
+		assertEquals(3, k2.getRuns());
+		assertEquals(-1234.5d, k2.getMeanLnProbData(), 0.0d);
+		assertEquals(12.25d, k2.getDeltaK(), 0.0d);
+		assertEquals(5000L, k2.getMeanRunDuration());
+		assertNull(parsed.getStatistics().get(0).getDeltaK());
+		// A build without statistics
+		final String empty = TrendIndex.format(new BuildTrend(8, 1L, 2L, Collections.<KTrend>emptyList()));
+		assertTrue(TrendIndex.parse(empty.substring(0, empty.length() - 1)).getStatistics().isEmpty());
+	}
+
+	@Test
+	public void testLineNotMatchingItsChecksumIsRejected() {
+		final String line = TrendIndex.format(build(7, -1234.5d, 12.25d)).trim();
+		assertNull(TrendIndex.parse(line.replace("-1234.5", "-1234.6")));
+		assertNull(TrendIndex.parse("1" + line));
+		assertNull(TrendIndex.parse(line.substring(line.indexOf('\t') + 1)));
+		assertNull(TrendIndex.parse(""));
+	}
+
+	@Test
+	public void testAppendedBuildsAreRead() throws Exception {
+		final TrendIndex index = TrendIndex.of(directory);
+		assertSame(index, TrendIndex.of(directory));
+		assertTrue(index.getBuilds().isEmpty());
+		index.append(build(1, -1300.0d, 1.0d));
+		index.append(build(2, -1200.0d, 2.0d));
+		// Appended again, e.g. by a build that ran its sweep twice: the last line is used
+		index.append(build(1, -1250.0d, 3.0d));
+		final List<BuildTrend> builds = index.getBuilds();
+		assertEquals(2, builds.size());
+		assertEquals(1, builds.get(0).getNumber());
+		assertEquals(-1250.0d, builds.get(0).getStatistics().get(1).getMeanLnProbData(), 0.0d);
+		assertFalse(index.isDamaged());
+	}
+
+	@Test
+	public void testPartialLineIsRecovered() throws Exception {
+		final TrendIndex index = TrendIndex.of(directory);
+		index.append(build(1, -1300.0d, 1.0d));
+		// A line left incomplete by a crash
+		final String partial = TrendIndex.format(build(2, -1200.0d, 2.0d));
+		FileUtils.writeStringToFile(file, FileUtils.readFileToString(file, "UTF-8")
+				+ partial.substring(0, partial.length() / 2), "UTF-8");
+		assertEquals(1, index.getBuilds().size());
+		assertTrue(index.isDamaged());
+
+		// The next line starts on a line of its own
+		index.append(build(3, -1100.0d, 3.0d));
+		final List<BuildTrend> builds = index.getBuilds();
+		assertEquals(2, builds.size());
+		assertEquals(3, builds.get(1).getNumber());
+		// The partial line is still in the file
+		assertTrue(index.isDamaged());
+	}
+
+	@Test
+	public void testRebuildReplacesTheIndex() throws Exception {
+		final TrendIndex index = TrendIndex.of(directory);
+		FileUtils.writeStringToFile(file, "garbage\n" + TrendIndex.format(build(1, -1300.0d, 1.0d)), "UTF-8");
+		assertTrue(index.isDamaged());
+		assertEquals(1, index.getBuilds().size());
+
+		index.rebuild(Arrays.asList(build(4, -1000.0d, 1.0d), build(5, -900.0d, 2.0d)));
+		assertFalse(index.isDamaged());
+		final List<BuildTrend> builds = index.getBuilds();
+		assertEquals(2, builds.size());
+		assertEquals(4, builds.get(0).getNumber());
+		assertEquals(5, builds.get(1).getNumber());
+		assertFalse(new File(file.getPath() + ".tmp").exists());
+	}
+
+	@Test
+	public void testIndexIsReloadedWhenTheFileChanges() throws Exception {
+		final TrendIndex index = TrendIndex.of(directory);
+		index.append(build(1, -1300.0d, 1.0d));
+		assertEquals(1, index.getBuilds().size());
+		// Written by another process, e.g. a copy of the job directory
+		FileUtils.writeStringToFile(file, TrendIndex.format(build(1, -1300.0d, 1.0d))
+				+ TrendIndex.format(build(2, -1200.0d, 2.0d)), "UTF-8");
+		assertEquals(2, index.getBuilds().size());
+		FileUtils.deleteQuietly(file);
+		assertTrue(index.getBuilds().isEmpty());
+	}
+
+	@Test
+	public void testDeletedBuildsAreLeftOut() throws Exception {
+		final TrendIndex index = TrendIndex.of(directory);
+		for (int number = 1; number <= 4; ++number) {
+			index.append(build(number, -1000.0d - number, 1.0d));
+		}
+		// Builds 1 and 3 were deleted or rotated
+		final List<BuildTrend> builds = index.getBuilds(Arrays.asList(2, 4, 5));
+		assertEquals(2, builds.size());
+		assertEquals(2, builds.get(0).getNumber());
+		assertEquals(4, builds.get(1).getNumber());
+		assertEquals(4, index.getBuilds().size());
+	}
+
+	private static BuildTrend build(int number, double meanLnProbData, double deltaK) {
+		return new BuildTrend(number, 1000L, 60000L, Arrays.asList(
+				new KTrend(1, 3, meanLnProbData - 100.0d, 1.5d, null, 4000L),
+				new KTrend(2, 3, meanLnProbData, 2.5d, deltaK, 5000L)));
+	}
+
+}
@@ -0,0 +1,71 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) <2012> <Bruno P. Kinoshita>
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.biouno.structure.util;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+/**
+ * Tests the checks of paths given in the job configuration.
+ *
+ * @author Bruno P. Kinoshita - http://www.kinoshita.eti.br
+ * @since 0.1
+ */
+public class PathsTest {
+
+	@Test
+	public void testRelativePathsAreInside() {
+		assertTrue(Paths.isInside("project_data"));
+		assertTrue(Paths.isInside("data/sample_1/project_data"));
+		assertTrue(Paths.isInside("data\\project_data"));
+		assertTrue(Paths.isInside("./data/..data"));
+	}
+
+	@Test
+	public void testAbsolutePaths() {
+		assertTrue(Paths.isAbsolute("/home/kinow/structure/project_data"));
+		assertTrue(Paths.isAbsolute("\\\\server\\share"));
+		assertTrue(Paths.isAbsolute("c:/data"));
+		assertFalse(Paths.isAbsolute("data/project_data"));
+		assertFalse(Paths.isAbsolute("project_data"));
+	}
+
+	@Test
+	public void testAbsolutePathsAreRejected() {
+		assertFalse(Paths.isInside("/etc/passwd"));
+		assertFalse(Paths.isInside("\\\\server\\share\\data"));
+		assertFalse(Paths.isInside("C:\\data\\project_data"));
+	}
+
+	@Test
+	public void testParentSegmentsAreRejected() {
+		assertFalse(Paths.isInside(".."));
+		assertFalse(Paths.isInside("../other/workspace/data"));
+		assertFalse(Paths.isInside("data/../../secrets"));
+		assertFalse(Paths.isInside("data\\..\\..\\secrets"));
+	}
+
+}